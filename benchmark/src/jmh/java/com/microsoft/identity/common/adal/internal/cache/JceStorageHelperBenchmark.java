@@ -0,0 +1,81 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.adal.internal.cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.KeyGenerator;
+
+/**
+ * Measures {@link JceStorageHelper} round trips to and from the Base64 blobs stored in the cache,
+ * by payload size. JceStorageHelper always writes {@link StorageHelper#ENCODE_VERSION_GCM}, so
+ * unlike {@link StorageHelperBenchmark} there is no encode version to vary.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JceStorageHelperBenchmark {
+
+    @Param({"256", "2048", "16384"})
+    public int payloadSize;
+
+    private JceStorageHelper mJceStorageHelper;
+    private String mClearText;
+    private String mEncryptedText;
+
+    @Setup(Level.Trial)
+    public void setUp() throws GeneralSecurityException, IOException {
+        final KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+        keyGenerator.init(256);
+
+        final char[] clearText = new char[payloadSize];
+        Arrays.fill(clearText, 'x');
+        mClearText = new String(clearText);
+
+        mJceStorageHelper = new JceStorageHelper(keyGenerator.generateKey());
+        mEncryptedText = mJceStorageHelper.encrypt(mClearText);
+    }
+
+    @Benchmark
+    public String encryptToBlob() throws GeneralSecurityException, IOException {
+        return mJceStorageHelper.encrypt(mClearText);
+    }
+
+    @Benchmark
+    public String decryptFromBlob() throws GeneralSecurityException, IOException {
+        return mJceStorageHelper.decrypt(mEncryptedText);
+    }
+}
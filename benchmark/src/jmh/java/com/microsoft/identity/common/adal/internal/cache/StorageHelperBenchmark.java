@@ -0,0 +1,97 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.adal.internal.cache;
+
+import com.microsoft.identity.common.adal.internal.AuthenticationConstants;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+/**
+ * Measures the {@link StorageHelper} cipher routines by payload size, for both encode
+ * versions. The routines are called directly, as the AndroidKeyStore that StorageHelper
+ * loads its key from is unavailable off-device; {@link JceStorageHelperBenchmark} covers the
+ * cost of the Base64 framing on top.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StorageHelperBenchmark {
+
+    @Param({StorageHelper.ENCODE_VERSION_CBC_HMAC, StorageHelper.ENCODE_VERSION_GCM})
+    public String encodeVersion;
+
+    @Param({"256", "2048", "16384"})
+    public int payloadSize;
+
+    private SharedKeyProvider.KeyMaterial mKeyMaterial;
+    private SecureRandom mRandom;
+    private byte[] mBlobVersion;
+    private byte[] mPayload;
+    private byte[] mEncryptedPayload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws GeneralSecurityException, IOException {
+        final KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+        keyGenerator.init(256);
+        final SecretKey secretKey = keyGenerator.generateKey();
+
+        mKeyMaterial = new SharedKeyProvider.KeyMaterial(secretKey);
+        mRandom = new SecureRandom();
+        mBlobVersion = StorageHelper.VERSION_USER_DEFINED.getBytes(AuthenticationConstants.ENCODING_UTF8);
+
+        mPayload = new byte[payloadSize];
+        Arrays.fill(mPayload, (byte) 'x');
+        mEncryptedPayload = encrypt();
+    }
+
+    @Benchmark
+    public byte[] encrypt() throws GeneralSecurityException {
+        return StorageHelper.ENCODE_VERSION_GCM.equals(encodeVersion)
+                ? StorageHelper.encryptGcm(mKeyMaterial, mRandom, mBlobVersion, mPayload)
+                : StorageHelper.encryptCbcHmac(mKeyMaterial, mRandom, mBlobVersion, mPayload);
+    }
+
+    @Benchmark
+    public byte[] decrypt() throws GeneralSecurityException, IOException {
+        return StorageHelper.ENCODE_VERSION_GCM.equals(encodeVersion)
+                ? StorageHelper.decryptGcm(mKeyMaterial, mEncryptedPayload)
+                : StorageHelper.decryptCbcHmac(mKeyMaterial, mEncryptedPayload);
+    }
+}
@@ -0,0 +1,114 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import com.microsoft.identity.common.internal.dto.Credential;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the read throughput of {@link SharedPreferencesAccountCredentialCache} as reader
+ * threads are added. Reads share the read lock, so throughput should scale with the threads up
+ * to the number of cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AccountCredentialCacheConcurrentReadBenchmark {
+
+    private static final int ACCOUNT_COUNT = 8;
+
+    private SharedPreferencesAccountCredentialCache mCache;
+
+    /**
+     * The account each reader thread reads next.
+     */
+    @State(Scope.Thread)
+    public static class Reader {
+
+        private int mNextAccount;
+
+        String nextHomeAccountId() {
+            mNextAccount = (mNextAccount + 1) % ACCOUNT_COUNT;
+            return CacheRecordFixtures.homeAccountId(mNextAccount);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CacheRecordFixtures.quietLogging();
+
+        mCache = new SharedPreferencesAccountCredentialCache(
+                new CacheKeyValueDelegate(),
+                new InMemorySharedPreferencesFileManager("benchmark")
+        );
+        CacheRecordFixtures.populate(mCache, ACCOUNT_COUNT);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<Credential> readWithOneThread(final Reader reader) {
+        return read(reader);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public List<Credential> readWithTwoThreads(final Reader reader) {
+        return read(reader);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<Credential> readWithFourThreads(final Reader reader) {
+        return read(reader);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public List<Credential> readWithEightThreads(final Reader reader) {
+        return read(reader);
+    }
+
+    private List<Credential> read(final Reader reader) {
+        return mCache.getCredentialsFilteredBy(
+                reader.nextHomeAccountId(),
+                CacheRecordFixtures.ENVIRONMENT,
+                CredentialType.AccessToken,
+                CacheRecordFixtures.CLIENT_ID,
+                CacheRecordFixtures.REALM,
+                CacheRecordFixtures.TARGET
+        );
+    }
+}
@@ -0,0 +1,110 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.Credential;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the filtering in {@link AbstractAccountCredentialCache} on its own, over records
+ * which are already deserialized, and through
+ * {@link SharedPreferencesAccountCredentialCache}, which reads them from storage first.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountCredentialCacheFilterBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int credentialCount;
+
+    private SharedPreferencesAccountCredentialCache mCache;
+    private List<AccountRecord> mAllAccounts;
+    private List<Credential> mAllCredentials;
+    private String mHomeAccountId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CacheRecordFixtures.quietLogging();
+
+        mCache = new SharedPreferencesAccountCredentialCache(
+                new CacheKeyValueDelegate(),
+                new InMemorySharedPreferencesFileManager("benchmark")
+        );
+        final int accountCount = CacheRecordFixtures.accountCountFor(credentialCount);
+        CacheRecordFixtures.populate(mCache, accountCount);
+
+        mAllAccounts = mCache.getAccounts();
+        mAllCredentials = mCache.getCredentials();
+        mHomeAccountId = CacheRecordFixtures.homeAccountId(accountCount / 2);
+    }
+
+    @Benchmark
+    public List<Credential> filterCredentialsInMemory() {
+        return mCache.getCredentialsFilteredByInternal(
+                mHomeAccountId,
+                CacheRecordFixtures.ENVIRONMENT,
+                CredentialType.AccessToken,
+                CacheRecordFixtures.CLIENT_ID,
+                CacheRecordFixtures.REALM,
+                CacheRecordFixtures.TARGET,
+                mAllCredentials
+        );
+    }
+
+    @Benchmark
+    public List<AccountRecord> filterAccountsInMemory() {
+        return mCache.getAccountsFilteredByInternal(
+                mHomeAccountId,
+                CacheRecordFixtures.ENVIRONMENT,
+                CacheRecordFixtures.REALM,
+                mAllAccounts
+        );
+    }
+
+    @Benchmark
+    public List<Credential> filterCredentialsFromStorage() {
+        return mCache.getCredentialsFilteredBy(
+                mHomeAccountId,
+                CacheRecordFixtures.ENVIRONMENT,
+                CredentialType.AccessToken,
+                CacheRecordFixtures.CLIENT_ID,
+                CacheRecordFixtures.REALM,
+                CacheRecordFixtures.TARGET
+        );
+    }
+}
@@ -0,0 +1,93 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion of cache records to and from their cache keys and values, in each
+ * {@link CacheValueFormat}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CacheKeyValueDelegateBenchmark {
+
+    @Param({"JSON", "COMPACT"})
+    public CacheValueFormat valueFormat;
+
+    private CacheKeyValueDelegate mDelegate;
+    private AccountRecord mAccount;
+    private AccessTokenRecord mAccessToken;
+    private String mAccountValue;
+    private String mAccessTokenValue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CacheRecordFixtures.quietLogging();
+
+        mDelegate = new CacheKeyValueDelegate(valueFormat);
+        mAccount = CacheRecordFixtures.newAccount(0);
+        mAccessToken = CacheRecordFixtures.newAccessToken(0);
+        mAccountValue = mDelegate.generateCacheValue(mAccount);
+        mAccessTokenValue = mDelegate.generateCacheValue(mAccessToken);
+    }
+
+    @Benchmark
+    public String generateAccountValue() {
+        return mDelegate.generateCacheValue(mAccount);
+    }
+
+    @Benchmark
+    public AccountRecord parseAccountValue() {
+        return mDelegate.fromCacheValue(mAccountValue, AccountRecord.class);
+    }
+
+    @Benchmark
+    public String generateAccessTokenValue() {
+        return mDelegate.generateCacheValue(mAccessToken);
+    }
+
+    @Benchmark
+    public AccessTokenRecord parseAccessTokenValue() {
+        return mDelegate.fromCacheValue(mAccessTokenValue, AccessTokenRecord.class);
+    }
+
+    @Benchmark
+    public String generateAccessTokenKey() {
+        return mDelegate.generateCacheKey(mAccessToken);
+    }
+}
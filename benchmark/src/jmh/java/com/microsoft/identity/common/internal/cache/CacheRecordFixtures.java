@@ -0,0 +1,152 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import android.content.Context;
+
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+import com.microsoft.identity.common.internal.dto.IdTokenRecord;
+import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
+import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.providers.microsoft.MicrosoftAccount;
+
+import org.mockito.Mockito;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates the cache records used by the benchmarks. Every account is saved with one
+ * AccessToken, one RefreshToken and one IdToken, all for the same client.
+ */
+final class CacheRecordFixtures {
+
+    static final String CLIENT_ID = "0287f963-2d72-4363-9e3a-5705c5b0f031";
+    static final String ENVIRONMENT = "login.microsoftonline.com";
+    static final String REALM = "f645ad92-e38d-4d1a-b510-d1b09a74a8ca";
+    static final String TARGET = "user.read openid profile offline_access";
+
+    static final int CREDENTIALS_PER_ACCOUNT = 3;
+
+    private CacheRecordFixtures() {
+        // Utility class.
+    }
+
+    /**
+     * Silences the Logger, so that message formatting does not skew the measurements.
+     */
+    static void quietLogging() {
+        Logger.getInstance().setLogLevel(Logger.LogLevel.ERROR);
+    }
+
+    /**
+     * Returns a mock Context, as the token caches only hold on to it.
+     */
+    static Context newContext() {
+        final Context context = Mockito.mock(Context.class);
+        Mockito.when(context.getApplicationContext()).thenReturn(context);
+        return context;
+    }
+
+    static int accountCountFor(final int credentialCount) {
+        return Math.max(1, credentialCount / CREDENTIALS_PER_ACCOUNT);
+    }
+
+    static String homeAccountId(final int index) {
+        return "uid-" + index + "." + REALM;
+    }
+
+    static AccountRecord newAccount(final int index) {
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId(homeAccountId(index));
+        account.setEnvironment(ENVIRONMENT);
+        account.setRealm(REALM);
+        account.setLocalAccountId("oid-" + index);
+        account.setUsername("user" + index + "@contoso.com");
+        account.setAuthorityType(MicrosoftAccount.AUTHORITY_TYPE_V1_V2);
+        account.setName("User " + index);
+        return account;
+    }
+
+    static AccessTokenRecord newAccessToken(final int index) {
+        final long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setHomeAccountId(homeAccountId(index));
+        accessToken.setEnvironment(ENVIRONMENT);
+        accessToken.setCredentialType(CredentialType.AccessToken.name());
+        accessToken.setClientId(CLIENT_ID);
+        accessToken.setRealm(REALM);
+        accessToken.setTarget(TARGET);
+        accessToken.setCachedAt(String.valueOf(now));
+        accessToken.setExpiresOn(String.valueOf(now + TimeUnit.HOURS.toSeconds(1)));
+        accessToken.setSecret(secret("at", index, 1400));
+        return accessToken;
+    }
+
+    static RefreshTokenRecord newRefreshToken(final int index) {
+        final RefreshTokenRecord refreshToken = new RefreshTokenRecord();
+        refreshToken.setHomeAccountId(homeAccountId(index));
+        refreshToken.setEnvironment(ENVIRONMENT);
+        refreshToken.setCredentialType(CredentialType.RefreshToken.name());
+        refreshToken.setClientId(CLIENT_ID);
+        refreshToken.setTarget(TARGET);
+        refreshToken.setSecret(secret("rt", index, 800));
+        return refreshToken;
+    }
+
+    static IdTokenRecord newIdToken(final int index) {
+        final IdTokenRecord idToken = new IdTokenRecord();
+        idToken.setHomeAccountId(homeAccountId(index));
+        idToken.setEnvironment(ENVIRONMENT);
+        idToken.setCredentialType(CredentialType.IdToken.name());
+        idToken.setClientId(CLIENT_ID);
+        idToken.setRealm(REALM);
+        idToken.setSecret(secret("id", index, 1100));
+        return idToken;
+    }
+
+    /**
+     * Populates the supplied cache with accountCount accounts and their credentials.
+     */
+    static void populate(final IAccountCredentialCache cache, final int accountCount) {
+        for (int i = 0; i < accountCount; i++) {
+            cache.saveAccount(newAccount(i));
+            cache.saveCredential(newAccessToken(i));
+            cache.saveCredential(newRefreshToken(i));
+            cache.saveCredential(newIdToken(i));
+        }
+    }
+
+    /**
+     * Returns a token-sized secret; the secrets are what dominates the size of a cache value.
+     */
+    static String secret(final String prefix, final int index, final int length) {
+        final StringBuilder builder = new StringBuilder(length);
+        builder.append(prefix).append(index).append('.');
+        while (builder.length() < length) {
+            builder.append((char) ('a' + builder.length() % 26));
+        }
+        return builder.toString();
+    }
+}
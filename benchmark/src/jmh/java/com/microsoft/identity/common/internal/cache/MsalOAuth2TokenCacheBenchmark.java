@@ -0,0 +1,102 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import com.microsoft.identity.common.exception.ClientException;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.IdTokenRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link MsalOAuth2TokenCache} operations an app performs per token request,
+ * against a cache holding credentialCount credentials.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MsalOAuth2TokenCacheBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int credentialCount;
+
+    private MsalOAuth2TokenCache mTokenCache;
+    private AccountRecord mAccount;
+    private IdTokenRecord mIdToken;
+    private AccessTokenRecord mAccessToken;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CacheRecordFixtures.quietLogging();
+
+        final IAccountCredentialCache accountCredentialCache =
+                new SharedPreferencesAccountCredentialCache(
+                        new CacheKeyValueDelegate(),
+                        new InMemorySharedPreferencesFileManager("benchmark")
+                );
+        final int accountCount = CacheRecordFixtures.accountCountFor(credentialCount);
+        CacheRecordFixtures.populate(accountCredentialCache, accountCount);
+
+        mTokenCache = new MsalOAuth2TokenCache<>(
+                CacheRecordFixtures.newContext(),
+                accountCredentialCache,
+                new MicrosoftStsAccountCredentialAdapter()
+        );
+
+        // The account in the middle of the cache, so that lookups do not get a head start.
+        final int index = accountCount / 2;
+        mAccount = CacheRecordFixtures.newAccount(index);
+        mIdToken = CacheRecordFixtures.newIdToken(index);
+        mAccessToken = CacheRecordFixtures.newAccessToken(index);
+    }
+
+    @Benchmark
+    public ICacheRecord load() {
+        return mTokenCache.load(CacheRecordFixtures.CLIENT_ID, CacheRecordFixtures.TARGET, mAccount);
+    }
+
+    /**
+     * Saves over an existing account, as a token refresh does.
+     */
+    @Benchmark
+    public ICacheRecord save() throws ClientException {
+        return mTokenCache.save(mAccount, mIdToken, mAccessToken);
+    }
+
+    @Benchmark
+    public List<AccountRecord> getAccounts() {
+        return mTokenCache.getAccounts(CacheRecordFixtures.ENVIRONMENT, CacheRecordFixtures.CLIENT_ID);
+    }
+}
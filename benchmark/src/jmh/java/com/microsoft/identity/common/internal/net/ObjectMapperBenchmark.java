@@ -0,0 +1,68 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.net;
+
+import com.microsoft.identity.common.internal.providers.oauth2.TokenRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the form encoding of a refresh token request body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ObjectMapperBenchmark {
+
+    private TokenRequest mTokenRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final StringBuilder refreshToken = new StringBuilder();
+        while (refreshToken.length() < 800) {
+            refreshToken.append("OAQABAAAAAADXzZ3ifr-GRbDT45zNSEFE");
+        }
+
+        mTokenRequest = new TokenRequest();
+        mTokenRequest.setClientId("0287f963-2d72-4363-9e3a-5705c5b0f031");
+        mTokenRequest.setGrantType(TokenRequest.GrantTypes.REFRESH_TOKEN);
+        mTokenRequest.setRedirectUri("msauth://com.microsoft.identity.client.sample/1wIqXSqBj7w+h11ZifsnqwgyKrY=");
+        mTokenRequest.setScope("user.read openid profile offline_access");
+        mTokenRequest.setRefreshToken(refreshToken.toString());
+    }
+
+    @Benchmark
+    public String serializeObjectToFormUrlEncoded() throws UnsupportedEncodingException {
+        return ObjectMapper.serializeObjectToFormUrlEncoded(mTokenRequest);
+    }
+}
@@ -0,0 +1,80 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.providers.oauth2;
+
+import com.microsoft.identity.common.exception.ServiceException;
+import com.nimbusds.jose.util.Base64URL;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the parsing of a v2.0 id_token. The signature is not verified by
+ * {@link IDToken#parseJWT(String)}, so a placeholder of the usual length is used.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IDTokenBenchmark {
+
+    private static final String HEADER = "{\"typ\":\"JWT\",\"alg\":\"RS256\",\"kid\":\"i6lGk3FZzxRcUb2C3nEQ7syHJlY\"}";
+
+    private static final String CLAIMS = "{"
+            + "\"aud\":\"0287f963-2d72-4363-9e3a-5705c5b0f031\","
+            + "\"iss\":\"https://login.microsoftonline.com/f645ad92-e38d-4d1a-b510-d1b09a74a8ca/v2.0\","
+            + "\"iat\":1538538422,\"nbf\":1538538422,\"exp\":1538542322,"
+            + "\"name\":\"Megan Bowen\","
+            + "\"oid\":\"48d31887-5fad-4d73-a9f5-3c356e68a038\","
+            + "\"preferred_username\":\"meganb@contoso.com\","
+            + "\"sub\":\"MF4f-ggWMEji12KynJUNQZphaUTvLcQug5jdF2nl01Q\","
+            + "\"tid\":\"f645ad92-e38d-4d1a-b510-d1b09a74a8ca\","
+            + "\"uti\":\"fqiBqXLPj0eQa82S-IYFAA\",\"ver\":\"2.0\""
+            + "}";
+
+    private String mIdToken;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final byte[] signature = new byte[256];
+        Arrays.fill(signature, (byte) 0x5a);
+
+        mIdToken = Base64URL.encode(HEADER) + "."
+                + Base64URL.encode(CLAIMS) + "."
+                + Base64URL.encode(signature);
+    }
+
+    @Benchmark
+    public Map<String, String> parseJWT() throws ServiceException {
+        return IDToken.parseJWT(mIdToken);
+    }
+}
@@ -28,6 +28,7 @@ import android.support.test.runner.AndroidJUnit4;
 
 import com.microsoft.identity.common.adal.internal.AndroidSecretKeyEnabledHelper;
 import com.microsoft.identity.common.adal.internal.cache.StorageHelper;
+import com.microsoft.identity.common.internal.cache.CacheCompactionStats;
 import com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate;
 import com.microsoft.identity.common.internal.cache.SharedPreferencesAccountCredentialCache;
 import com.microsoft.identity.common.internal.cache.SharedPreferencesFileManager;
@@ -1581,6 +1582,73 @@ public class SharedPreferencesAccountCredentialCacheTest extends AndroidSecretKe
         assertNull(mSharedPreferencesFileManager.getString(cacheKey));
     }
 
+    @Test
+    public void removeExpiredCredentials() {
+        final long now = System.currentTimeMillis() / 1000;
+
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId(HOME_ACCOUNT_ID);
+        account.setEnvironment(ENVIRONMENT);
+        account.setRealm(REALM);
+        account.setLocalAccountId(LOCAL_ACCOUNT_ID);
+        account.setUsername(USERNAME);
+        account.setAuthorityType(AUTHORITY_TYPE);
+        mSharedPreferencesAccountCredentialCache.saveAccount(account);
+
+        final AccessTokenRecord expiredAccessToken = new AccessTokenRecord();
+        expiredAccessToken.setCredentialType(CredentialType.AccessToken.name());
+        expiredAccessToken.setHomeAccountId(HOME_ACCOUNT_ID);
+        expiredAccessToken.setEnvironment(ENVIRONMENT);
+        expiredAccessToken.setClientId(CLIENT_ID);
+        expiredAccessToken.setRealm(REALM);
+        expiredAccessToken.setTarget(TARGET);
+        expiredAccessToken.setCachedAt(CACHED_AT);
+        expiredAccessToken.setExpiresOn(String.valueOf(now - 60));
+        mSharedPreferencesAccountCredentialCache.saveCredential(expiredAccessToken);
+
+        final AccessTokenRecord liveAccessToken = new AccessTokenRecord();
+        liveAccessToken.setCredentialType(CredentialType.AccessToken.name());
+        liveAccessToken.setHomeAccountId(HOME_ACCOUNT_ID);
+        liveAccessToken.setEnvironment(ENVIRONMENT);
+        liveAccessToken.setClientId(CLIENT_ID);
+        liveAccessToken.setRealm(REALM2);
+        liveAccessToken.setTarget(TARGET);
+        liveAccessToken.setCachedAt(CACHED_AT);
+        liveAccessToken.setExpiresOn(String.valueOf(now + 3600));
+        mSharedPreferencesAccountCredentialCache.saveCredential(liveAccessToken);
+
+        final IdTokenRecord idToken = new IdTokenRecord();
+        idToken.setHomeAccountId(HOME_ACCOUNT_ID);
+        idToken.setEnvironment(ENVIRONMENT);
+        idToken.setRealm(REALM);
+        idToken.setCredentialType(CredentialType.IdToken.name());
+        idToken.setClientId(CLIENT_ID);
+        idToken.setSecret(SECRET);
+        mSharedPreferencesAccountCredentialCache.saveCredential(idToken);
+
+        // No Account exists for REALM3
+        final IdTokenRecord orphanedIdToken = new IdTokenRecord();
+        orphanedIdToken.setHomeAccountId(HOME_ACCOUNT_ID);
+        orphanedIdToken.setEnvironment(ENVIRONMENT);
+        orphanedIdToken.setRealm(REALM3);
+        orphanedIdToken.setCredentialType(CredentialType.IdToken.name());
+        orphanedIdToken.setClientId(CLIENT_ID);
+        orphanedIdToken.setSecret(SECRET);
+        mSharedPreferencesAccountCredentialCache.saveCredential(orphanedIdToken);
+
+        final CacheCompactionStats stats = mSharedPreferencesAccountCredentialCache.removeExpiredCredentials();
+        assertEquals(1, stats.getSweepCount());
+        assertEquals(1, stats.getExpiredAccessTokensRemoved());
+        assertEquals(1, stats.getOrphanedIdTokensRemoved());
+        assertEquals(1, stats.getIndexedAccessTokens());
+
+        assertNull(mSharedPreferencesAccountCredentialCache.getCredential(mDelegate.generateCacheKey(expiredAccessToken)));
+        assertNull(mSharedPreferencesAccountCredentialCache.getCredential(mDelegate.generateCacheKey(orphanedIdToken)));
+        assertEquals(liveAccessToken, mSharedPreferencesAccountCredentialCache.getCredential(mDelegate.generateCacheKey(liveAccessToken)));
+        assertEquals(idToken, mSharedPreferencesAccountCredentialCache.getCredential(mDelegate.generateCacheKey(idToken)));
+        assertEquals(1, mSharedPreferencesAccountCredentialCache.getAccounts().size());
+    }
+
     public void persistAndRestoreExtraClaimsAccessToken() {
         // TODO
     }
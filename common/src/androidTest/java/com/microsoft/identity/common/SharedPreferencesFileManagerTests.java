@@ -26,6 +26,8 @@ import android.support.test.InstrumentationRegistry;
 
 import com.microsoft.identity.common.adal.internal.AndroidSecretKeyEnabledHelper;
 import com.microsoft.identity.common.adal.internal.cache.StorageHelper;
+import com.microsoft.identity.common.internal.cache.IExtendedSharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.cache.ISharedPreferencesChangeListener;
 import com.microsoft.identity.common.internal.cache.ISharedPreferencesFileManager;
 import com.microsoft.identity.common.internal.cache.SharedPreferencesFileManager;
 
@@ -35,10 +37,13 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
 import static junit.framework.Assert.assertTrue;
 
 @RunWith(Parameterized.class)
@@ -149,4 +154,63 @@ public class SharedPreferencesFileManagerTests extends AndroidSecretKeyEnabledHe
         // Verify that it is now empty
         assertEquals(0, mSharedPreferencesFileManager.getAll().size());
     }
+
+    @Test
+    public void testGenerationIncreasesOnCommit() {
+        final long generation = getExtendedFileManager().getGeneration();
+        mSharedPreferencesFileManager.putString(sTEST_KEY, sTEST_VALUE);
+        assertTrue(getExtendedFileManager().getGeneration() > generation);
+    }
+
+    @Test
+    public void testGenerationIsSharedAcrossInstances() {
+        final SharedPreferencesFileManager other = new SharedPreferencesFileManager(
+                InstrumentationRegistry.getTargetContext(),
+                sTEST_SHARED_PREFS_NAME
+        );
+        other.putString(sTEST_KEY, sTEST_VALUE);
+        assertEquals(other.getGeneration(), getExtendedFileManager().getGeneration());
+    }
+
+    @Test
+    public void testChangeFromOtherInstanceIsVisible() {
+        mSharedPreferencesFileManager.putString(sTEST_KEY, sTEST_VALUE);
+        // Reads the snapshot
+        assertEquals(1, mSharedPreferencesFileManager.getAll().size());
+
+        new SharedPreferencesFileManager(
+                InstrumentationRegistry.getTargetContext(),
+                sTEST_SHARED_PREFS_NAME
+        ).remove(sTEST_KEY);
+
+        assertEquals(0, mSharedPreferencesFileManager.getAll().size());
+        assertNull(mSharedPreferencesFileManager.getString(sTEST_KEY));
+    }
+
+    @Test
+    public void testChangeListener() {
+        final List<Long> generations = new ArrayList<>();
+        final ISharedPreferencesChangeListener listener = new ISharedPreferencesChangeListener() {
+            @Override
+            public void onSharedPreferencesChanged(final String sharedPreferencesFileName,
+                                                   final long generation) {
+                assertEquals(sTEST_SHARED_PREFS_NAME, sharedPreferencesFileName);
+                generations.add(generation);
+            }
+        };
+
+        getExtendedFileManager().registerChangeListener(listener);
+        mSharedPreferencesFileManager.putString(sTEST_KEY, sTEST_VALUE);
+        mSharedPreferencesFileManager.remove(sTEST_KEY);
+        getExtendedFileManager().unregisterChangeListener(listener);
+        mSharedPreferencesFileManager.putString(sTEST_KEY, sTEST_VALUE);
+
+        assertEquals(2, generations.size());
+        assertTrue(generations.get(1) > generations.get(0));
+        assertEquals((long) generations.get(1), getExtendedFileManager().getGeneration() - 1);
+    }
+
+    private IExtendedSharedPreferencesFileManager getExtendedFileManager() {
+        return (IExtendedSharedPreferencesFileManager) mSharedPreferencesFileManager;
+    }
 }
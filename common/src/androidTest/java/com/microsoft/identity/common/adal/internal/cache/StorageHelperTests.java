@@ -331,6 +331,8 @@ public class StorageHelperTests extends AndroidSecretKeyEnabledHelper {
         if (keyFile.exists()) {
             keyFile.delete();
         }
+        // The key is cached process-wide; drop it so it is re-created from the (missing) file.
+        SharedKeyProvider.clear();
 
         SecretKey key = storageHelper.loadSecretKeyForEncryption();
         assertNotNull("Key is not null", key);
@@ -341,4 +343,42 @@ public class StorageHelperTests extends AndroidSecretKeyEnabledHelper {
         assertTrue("Key info is same", key.toString().equals(key2.toString()));
     }
 
+    @TargetApi(MIN_SDK_VERSION)
+    @Test
+    public void testKeyMaterialSharedAcrossInstances() throws IOException, GeneralSecurityException {
+        if (Build.VERSION.SDK_INT < MIN_SDK_VERSION) {
+            return;
+        }
+
+        final Context context = getInstrumentation().getTargetContext();
+        final StorageHelper first = new StorageHelper(context);
+        final StorageHelper second = new StorageHelper(context);
+
+        final String encrypted = first.encrypt("SomeValue1234");
+        final int loadCount = SharedKeyProvider.getLoadCount();
+
+        assertEquals("SomeValue1234", second.decrypt(encrypted));
+        assertTrue("Same key instance",
+                first.loadSecretKeyForEncryption() == second.loadSecretKeyForEncryption());
+        assertEquals("Key is not unwrapped again", loadCount, SharedKeyProvider.getLoadCount());
+    }
+
+    @TargetApi(MIN_SDK_VERSION)
+    @Test
+    public void testWarmUp() throws Exception {
+        if (Build.VERSION.SDK_INT < MIN_SDK_VERSION) {
+            return;
+        }
+
+        final Context context = getInstrumentation().getTargetContext();
+        SharedKeyProvider.clear();
+
+        final StorageHelper storageHelper = new StorageHelper(context);
+        storageHelper.warmUp().get();
+        final int loadCount = SharedKeyProvider.getLoadCount();
+
+        assertTrue("Warm-up time recorded", StorageHelper.getKeyWarmUpDurationMillis() >= 0);
+        assertEquals("SomeValue1234", storageHelper.decrypt(storageHelper.encrypt("SomeValue1234")));
+        assertEquals("Key is not loaded again after warm-up", loadCount, SharedKeyProvider.getLoadCount());
+    }
 }
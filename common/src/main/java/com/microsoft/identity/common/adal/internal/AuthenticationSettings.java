@@ -115,6 +115,15 @@ public enum AuthenticationSettings {
         mSecretKeyData.set(rawKey);
     }
 
+    /**
+     * Clears the secret key and the broker secret keys. Used by tests which set them, so that
+     * they do not leak into tests run later in the same process.
+     */
+    public void clearSecretKeysForTestCases() {
+        mSecretKeyData.set(null);
+        mBrokerSecretKeys.clear();
+    }
+
     /**
      * set two raw bytes to derive secretKey to use in encrypt/decrypt. KeySpec
      * algorithm is AES. used by broker only.
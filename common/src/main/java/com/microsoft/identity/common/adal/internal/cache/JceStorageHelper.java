@@ -0,0 +1,206 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.adal.internal.cache;
+
+import androidx.annotation.NonNull;
+
+import com.microsoft.identity.common.adal.internal.AuthenticationConstants;
+import com.microsoft.identity.common.adal.internal.util.StringExtensions;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.crypto.SecretKey;
+
+/**
+ * {@link IStorageHelper} which encrypts with a supplied key using the JCE only, without the
+ * AndroidKeyStore or any other Android API, so that the cache stack can run on a plain JVM (for
+ * benchmarks and load tests).
+ * <p>
+ * Blobs use the {@link StorageHelper#ENCODE_VERSION_GCM} encoding and the
+ * {@link StorageHelper#VERSION_USER_DEFINED} key version, so they are interchangeable with those
+ * of a {@link StorageHelper} whose user-defined key is the same key. Blobs of
+ * {@link StorageHelper#ENCODE_VERSION_CBC_HMAC} can be decrypted as well.
+ */
+public class JceStorageHelper implements IStorageHelper {
+
+    private static final char[] BASE64_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private static final char BASE64_PADDING = '=';
+
+    private final SharedKeyProvider.KeyMaterial mKeyMaterial;
+    private final SecretKey mSecretKey;
+    private final SecureRandom mRandom = new SecureRandom();
+
+    /**
+     * Constructs a new JceStorageHelper.
+     *
+     * @param secretKey The AES key to encrypt and decrypt with.
+     * @throws GeneralSecurityException If the HMAC key used by
+     *                                  {@link StorageHelper#ENCODE_VERSION_CBC_HMAC} blobs cannot
+     *                                  be derived.
+     */
+    public JceStorageHelper(@NonNull final SecretKey secretKey) throws GeneralSecurityException {
+        mSecretKey = secretKey;
+        mKeyMaterial = new SharedKeyProvider.KeyMaterial(secretKey);
+    }
+
+    @Override
+    public String encrypt(final String clearText) throws GeneralSecurityException, IOException {
+        if (StringExtensions.isNullOrBlank(clearText)) {
+            throw new IllegalArgumentException("Input is empty or null");
+        }
+
+        final byte[] blob = StorageHelper.encryptGcm(
+                mKeyMaterial,
+                mRandom,
+                StorageHelper.VERSION_USER_DEFINED.getBytes(AuthenticationConstants.ENCODING_UTF8),
+                clearText.getBytes(AuthenticationConstants.ENCODING_UTF8)
+        );
+
+        return StorageHelper.getEncodeVersionLengthPrefix(StorageHelper.ENCODE_VERSION_GCM)
+                + StorageHelper.ENCODE_VERSION_GCM
+                + encodeBase64(blob);
+    }
+
+    @Override
+    public String decrypt(final String encryptedBlob) throws GeneralSecurityException, IOException {
+        if (StringExtensions.isNullOrBlank(encryptedBlob)) {
+            throw new IllegalArgumentException("Input is empty or null");
+        }
+
+        final int encodeVersionLength = encryptedBlob.charAt(0) - 'a';
+        if (encodeVersionLength <= 0 || encryptedBlob.length() < 1 + encodeVersionLength) {
+            throw new IllegalArgumentException("Encode version length is not valid");
+        }
+
+        final String encodeVersion = encryptedBlob.substring(1, 1 + encodeVersionLength);
+        final byte[] bytes = decodeBase64(encryptedBlob.substring(1 + encodeVersionLength));
+
+        if (bytes.length < StorageHelper.KEY_VERSION_BLOB_LENGTH) {
+            throw new IOException("Invalid byte array input for decryption.");
+        }
+
+        final String keyVersion = new String(bytes, 0, StorageHelper.KEY_VERSION_BLOB_LENGTH,
+                AuthenticationConstants.ENCODING_UTF8);
+        if (!StorageHelper.VERSION_USER_DEFINED.equals(keyVersion)) {
+            throw new IOException("Blob was not encrypted with a user-defined key: " + keyVersion);
+        }
+
+        final byte[] decryptedBytes;
+        if (StorageHelper.ENCODE_VERSION_GCM.equals(encodeVersion)) {
+            decryptedBytes = StorageHelper.decryptGcm(mKeyMaterial, bytes);
+        } else if (StorageHelper.ENCODE_VERSION_CBC_HMAC.equals(encodeVersion)) {
+            decryptedBytes = StorageHelper.decryptCbcHmac(mKeyMaterial, bytes);
+        } else {
+            throw new IllegalArgumentException("Unsupported encode version: " + encodeVersion);
+        }
+
+        return new String(decryptedBytes, AuthenticationConstants.ENCODING_UTF8);
+    }
+
+    @Override
+    public SecretKey loadSecretKeyForEncryption() {
+        return mSecretKey;
+    }
+
+    @Override
+    public SecretKey loadSecretKeyForEncryption(final String defaultBlobVersion) {
+        return mSecretKey;
+    }
+
+    /**
+     * Encodes with the standard Base64 alphabet and padding, without line breaks; the same
+     * output as {@link android.util.Base64#NO_WRAP}, which is unavailable off-device.
+     */
+    private static String encodeBase64(final byte[] data) {
+        final StringBuilder builder = new StringBuilder((data.length + 2) / 3 * 4);
+
+        for (int i = 0; i < data.length; i += 3) {
+            final int remaining = data.length - i;
+            final int chunk = (data[i] & 0xff) << 16
+                    | (remaining > 1 ? (data[i + 1] & 0xff) << 8 : 0)
+                    | (remaining > 2 ? data[i + 2] & 0xff : 0);
+
+            builder.append(BASE64_ALPHABET[chunk >>> 18 & 0x3f]);
+            builder.append(BASE64_ALPHABET[chunk >>> 12 & 0x3f]);
+            builder.append(remaining > 1 ? BASE64_ALPHABET[chunk >>> 6 & 0x3f] : BASE64_PADDING);
+            builder.append(remaining > 2 ? BASE64_ALPHABET[chunk & 0x3f] : BASE64_PADDING);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Decodes standard Base64, ignoring line breaks and padding.
+     */
+    private static byte[] decodeBase64(final String encoded) throws IOException {
+        final byte[] output = new byte[encoded.length() * 3 / 4];
+        int length = 0;
+        int chunk = 0;
+        int bits = 0;
+
+        for (int i = 0; i < encoded.length(); i++) {
+            final char c = encoded.charAt(i);
+
+            if (c == BASE64_PADDING) {
+                break;
+            }
+
+            if (c == '\n' || c == '\r') {
+                continue;
+            }
+
+            final int value = decodeBase64Char(c);
+            chunk = chunk << 6 | value;
+            bits += 6;
+
+            if (bits >= Byte.SIZE) {
+                bits -= Byte.SIZE;
+                output[length++] = (byte) (chunk >>> bits);
+            }
+        }
+
+        final byte[] result = new byte[length];
+        System.arraycopy(output, 0, result, 0, length);
+        return result;
+    }
+
+    private static int decodeBase64Char(final char c) throws IOException {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        } else if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 26;
+        } else if (c >= '0' && c <= '9') {
+            return c - '0' + 52;
+        } else if (c == '+') {
+            return 62;
+        } else if (c == '/') {
+            return 63;
+        }
+
+        throw new IOException("Invalid Base64 character.");
+    }
+}
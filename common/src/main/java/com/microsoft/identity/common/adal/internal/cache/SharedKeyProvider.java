@@ -0,0 +1,308 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.adal.internal.cache;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Process-wide holder of the key material used by {@link StorageHelper}.
+ * <p>
+ * Unwrapping the AndroidKeyStore-protected secret key is expensive, so each key version is
+ * loaded at most once per process and the resulting {@link SecretKey} (together with its derived
+ * HMAC key) is shared by every {@link StorageHelper} instance. Loads, as well as any key
+ * generation or reset performed by a {@link KeyLoader}, are serialized on a single lock so that
+ * two instances can never race to create (or wipe) the persisted key.
+ * <p>
+ * A key version may also be warmed up on a background thread; callers that need the key while
+ * the warm-up is still running wait for it rather than repeating the work.
+ */
+final class SharedKeyProvider {
+
+    private static final String TAG = SharedKeyProvider.class.getSimpleName();
+
+    /**
+     * HMac key hashing algorithm.
+     */
+    private static final String HMAC_KEY_HASH_ALGORITHM = "SHA256";
+
+    /**
+     * Key spec algorithm.
+     */
+    private static final String KEYSPEC_ALGORITHM = "AES";
+
+    private static final ConcurrentMap<String, KeyMaterial> sKeyMaterial = new ConcurrentHashMap<>();
+
+    private static final Object sLock = new Object();
+
+    private static final AtomicInteger sLoadCount = new AtomicInteger();
+
+    private static final AtomicInteger sInvalidationCount = new AtomicInteger();
+
+    /**
+     * Warm-ups in flight, by key version.
+     */
+    private static final ConcurrentMap<String, Future<KeyMaterial>> sWarmUps = new ConcurrentHashMap<>();
+
+    /**
+     * Duration of the most recent completed warm-up, or -1 if none has completed.
+     */
+    private static final AtomicLong sWarmUpDurationMillis = new AtomicLong(-1);
+
+    private static final ExecutorService sWarmUpExecutor =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, TAG);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private SharedKeyProvider() {
+        // Utility class.
+    }
+
+    /**
+     * Loads the {@link SecretKey} for a key version. Invoked at most once per version while the
+     * version remains cached, always while holding the provider lock.
+     */
+    interface KeyLoader {
+        SecretKey load() throws GeneralSecurityException, IOException;
+    }
+
+    /**
+     * A {@link SecretKey} and the HMAC key derived from it.
+     */
+    static final class KeyMaterial {
+
+        private final SecretKey mSecretKey;
+        private final SecretKey mHmacKey;
+
+        KeyMaterial(@NonNull final SecretKey secretKey) throws NoSuchAlgorithmException {
+            mSecretKey = secretKey;
+            mHmacKey = deriveHmacKey(secretKey);
+        }
+
+        SecretKey getSecretKey() {
+            return mSecretKey;
+        }
+
+        SecretKey getHmacKey() {
+            return mHmacKey;
+        }
+    }
+
+    /**
+     * Returns the cached key material for the supplied version, invoking the loader if the
+     * version has not been loaded yet (or was invalidated). If a warm-up of the version is in
+     * flight, waits for it instead of loading the key a second time.
+     *
+     * @param keyVersion The key version.
+     * @param loader     The loader used on a cache miss.
+     * @return The {@link KeyMaterial} for the version.
+     * @throws GeneralSecurityException If the loader fails with a key related exception.
+     * @throws IOException              If the loader fails with an IO related exception.
+     */
+    static KeyMaterial get(@NonNull final String keyVersion,
+                           @NonNull final KeyLoader loader)
+            throws GeneralSecurityException, IOException {
+        final KeyMaterial cached = sKeyMaterial.get(keyVersion);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        awaitWarmUp(keyVersion);
+
+        return load(keyVersion, loader);
+    }
+
+    /**
+     * Starts loading the key material for the supplied version on a background thread. If a
+     * warm-up for the version is already in flight, its future is returned instead.
+     *
+     * @param keyVersion The key version.
+     * @param loader     The loader used if the version is not cached yet.
+     * @return A {@link Future} completing with the {@link KeyMaterial} for the version.
+     */
+    static Future<KeyMaterial> warmUp(@NonNull final String keyVersion,
+                                      @NonNull final KeyLoader loader) {
+        final FutureTask<KeyMaterial> task = new FutureTask<>(new Callable<KeyMaterial>() {
+            @Override
+            public KeyMaterial call() throws GeneralSecurityException, IOException {
+                final long startMillis = System.currentTimeMillis();
+
+                try {
+                    final KeyMaterial keyMaterial = load(keyVersion, loader);
+                    final long durationMillis = System.currentTimeMillis() - startMillis;
+                    sWarmUpDurationMillis.set(durationMillis);
+                    Log.i(TAG, "Key warm-up for version " + keyVersion
+                            + " completed in " + durationMillis + " ms");
+                    return keyMaterial;
+                } finally {
+                    sWarmUps.remove(keyVersion);
+                }
+            }
+        });
+
+        final Future<KeyMaterial> inFlight = sWarmUps.putIfAbsent(keyVersion, task);
+
+        if (inFlight != null) {
+            return inFlight;
+        }
+
+        sWarmUpExecutor.execute(task);
+
+        return task;
+    }
+
+    /**
+     * Returns the duration of the most recent completed warm-up.
+     *
+     * @return The duration in milliseconds, or -1 if no warm-up has completed.
+     */
+    static long getWarmUpDurationMillis() {
+        return sWarmUpDurationMillis.get();
+    }
+
+    /**
+     * Blocks until any in-flight warm-up of the supplied version finishes. A failed warm-up is
+     * ignored; the caller loads the key itself and surfaces the error.
+     */
+    private static void awaitWarmUp(@NonNull final String keyVersion) {
+        final Future<KeyMaterial> warmUp = sWarmUps.get(keyVersion);
+
+        if (warmUp == null) {
+            return;
+        }
+
+        try {
+            warmUp.get();
+        } catch (final ExecutionException e) {
+            Log.w(TAG, "Key warm-up failed, loading key on the calling thread.");
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static KeyMaterial load(@NonNull final String keyVersion,
+                                    @NonNull final KeyLoader loader)
+            throws GeneralSecurityException, IOException {
+        synchronized (sLock) {
+            KeyMaterial keyMaterial = sKeyMaterial.get(keyVersion);
+
+            if (keyMaterial == null) {
+                Log.v(TAG, "Loading key material for version: " + keyVersion);
+                keyMaterial = new KeyMaterial(loader.load());
+                sKeyMaterial.put(keyVersion, keyMaterial);
+                sLoadCount.incrementAndGet();
+            }
+
+            return keyMaterial;
+        }
+    }
+
+    /**
+     * Drops the cached key material for the supplied version. Must be called whenever the
+     * persisted key for that version is deleted or replaced, so that no instance keeps using it.
+     *
+     * @param keyVersion The key version to invalidate.
+     */
+    static void invalidate(@NonNull final String keyVersion) {
+        synchronized (sLock) {
+            sInvalidationCount.incrementAndGet();
+
+            if (sKeyMaterial.remove(keyVersion) != null) {
+                Log.v(TAG, "Invalidated key material for version: " + keyVersion);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of times a key version has been invalidated in this process.
+     *
+     * @return The invalidation count.
+     */
+    static int getInvalidationCount() {
+        return sInvalidationCount.get();
+    }
+
+    /**
+     * Returns the number of times a key version has been loaded in this process.
+     *
+     * @return The load count.
+     */
+    static int getLoadCount() {
+        return sLoadCount.get();
+    }
+
+    /**
+     * Drops all cached key material.
+     */
+    @VisibleForTesting
+    static void clear() {
+        synchronized (sLock) {
+            sKeyMaterial.clear();
+        }
+    }
+
+    /**
+     * Derive HMAC key from given key.
+     *
+     * @param key SecretKey from which HMAC key has to be derived
+     * @return SecretKey
+     * @throws NoSuchAlgorithmException
+     */
+    static SecretKey deriveHmacKey(@NonNull final SecretKey key) throws NoSuchAlgorithmException {
+        // Some keys may not produce byte[] with getEncoded
+        final byte[] encodedKey = key.getEncoded();
+        if (encodedKey != null) {
+            final MessageDigest digester = MessageDigest.getInstance(HMAC_KEY_HASH_ALGORITHM);
+            return new SecretKeySpec(digester.digest(encodedKey), KEYSPEC_ALGORITHM);
+        }
+
+        return key;
+    }
+}
@@ -34,6 +34,7 @@ import com.microsoft.identity.common.adal.internal.AuthenticationConstants;
 import com.microsoft.identity.common.adal.internal.AuthenticationSettings;
 import com.microsoft.identity.common.adal.internal.util.StringExtensions;
 import com.microsoft.identity.common.exception.ErrorStrings;
+import com.microsoft.identity.common.internal.telemetry.MainThreadBlockingDetector;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -49,7 +50,6 @@ import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.cert.CertificateException;
@@ -57,11 +57,15 @@ import java.security.spec.AlgorithmParameterSpec;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
+import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.Mac;
 import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import javax.security.auth.x500.X500Principal;
@@ -70,10 +74,7 @@ import javax.security.auth.x500.X500Principal;
 public class StorageHelper implements IStorageHelper {
     private static final String TAG = "StorageHelper";
 
-    /**
-     * HMac key hashing algorithm.
-     */
-    private static final String HMAC_KEY_HASH_ALGORITHM = "SHA256";
+    private static final String UNWRAP_SECRET_KEY_OPERATION = "StorageHelper.getUnwrappedSecretKey";
 
     /**
      * Cert alias persisting the keypair in AndroidKeyStore.
@@ -104,6 +105,21 @@ public class StorageHelper implements IStorageHelper {
 
     private static final String HMAC_ALGORITHM = "HmacSHA256";
 
+    /**
+     * Authenticated cipher used by {@link #ENCODE_VERSION_GCM}.
+     */
+    private static final String GCM_CIPHER_ALGORITHM = "AES/GCM/NoPadding";
+
+    /**
+     * 96 bits nonce, as recommended for GCM.
+     */
+    private static final int GCM_NONCE_LENGTH = 12;
+
+    /**
+     * 128 bits authentication tag.
+     */
+    private static final int GCM_TAG_LENGTH = 16;
+
     private static final int KEY_SIZE = 256;
 
     /**
@@ -126,12 +142,20 @@ public class StorageHelper implements IStorageHelper {
      */
     public static final String VERSION_USER_DEFINED = "U001";
 
-    private static final int KEY_VERSION_BLOB_LENGTH = 4;
+    static final int KEY_VERSION_BLOB_LENGTH = 4;
+
+    /**
+     * Encoding version for AES/CBC encrypted data signed with a separate HmacSHA256 digest.
+     * Blob layout: keyVersion-encryptedData-iv-macDigest.
+     */
+    public static final String ENCODE_VERSION_CBC_HMAC = "E1";
 
     /**
-     * To keep track of encoding version and related flags.
+     * Encoding version for AES/GCM encrypted data, authenticated in the same pass.
+     * Blob layout: keyVersion-nonce-encryptedData-tag. The key version is authenticated as
+     * additional data.
      */
-    private static final String ENCODE_VERSION = "E1";
+    public static final String ENCODE_VERSION_GCM = "E2";
 
     private static final int KEY_FILE_SIZE = 1024;
 
@@ -139,26 +163,120 @@ public class StorageHelper implements IStorageHelper {
 
     private final Context mContext;
     private final SecureRandom mRandom;
+    private final String mEncodeVersion;
 
     /**
-     * Public and private keys that are generated in AndroidKeyStore.
+     * Constructor for {@link StorageHelper}. Data is encrypted with
+     * {@link #ENCODE_VERSION_CBC_HMAC}, which every release of this library can decrypt.
+     *
+     * @param context The {@link Context} to create {@link StorageHelper}.
      */
-    private KeyPair mKeyPair;
-    private String mBlobVersion;
-    private SecretKey mKey = null;
-    private SecretKey mHMACKey = null;
-    private SecretKey mSecretKeyFromAndroidKeyStore = null;
+    public StorageHelper(Context context) {
+        this(context, ENCODE_VERSION_CBC_HMAC);
+    }
 
     /**
-     * Constructor for {@link StorageHelper}.
+     * Constructor for {@link StorageHelper}. Blobs of every supported encoding version can be
+     * decrypted regardless of the encoding version used to encrypt.
+     * <p>
+     * {@link #ENCODE_VERSION_GCM} is opt-in: releases of this library older than it cannot
+     * decrypt its blobs, so it should only be written once every reader of the data, including
+     * the broker, has been upgraded.
      *
-     * @param context The {@link Context} to create {@link StorageHelper}.
-     *                TODO: Remove this suppression: https://android-developers.blogspot.com/2013/08/some-securerandom-thoughts.html
+     * @param context       The {@link Context} to create {@link StorageHelper}.
+     * @param encodeVersion The encoding version to encrypt with; either
+     *                      {@link #ENCODE_VERSION_GCM} or {@link #ENCODE_VERSION_CBC_HMAC}.
+     *                      {@link #ENCODE_VERSION_GCM} falls back to
+     *                      {@link #ENCODE_VERSION_CBC_HMAC} below Lollipop.
+     *                      TODO: Remove this suppression: https://android-developers.blogspot.com/2013/08/some-securerandom-thoughts.html
      */
     @SuppressLint("TrulyRandom")
-    public StorageHelper(Context context) {
+    public StorageHelper(Context context, String encodeVersion) {
+        if (!ENCODE_VERSION_GCM.equals(encodeVersion) && !ENCODE_VERSION_CBC_HMAC.equals(encodeVersion)) {
+            throw new IllegalArgumentException("Unsupported encode version: " + encodeVersion);
+        }
+
         mContext = context.getApplicationContext();
         mRandom = new SecureRandom();
+        mEncodeVersion = isGcmSupported() ? encodeVersion : ENCODE_VERSION_CBC_HMAC;
+    }
+
+    /**
+     * Returns the encoding version used to encrypt.
+     *
+     * @return The encoding version.
+     */
+    public String getEncodeVersion() {
+        return mEncodeVersion;
+    }
+
+    /**
+     * Tests if the supplied blob was encrypted with an encoding version other than the one this
+     * instance encrypts with, and should be re-encrypted when next written.
+     *
+     * @param encryptedBlob The blob to test.
+     * @return True, if the blob uses a different encoding version.
+     */
+    public boolean isLegacyEncoding(final String encryptedBlob) {
+        return !StringExtensions.isNullOrBlank(encryptedBlob)
+                && !encryptedBlob.startsWith(getEncodeVersionLengthPrefix(mEncodeVersion) + mEncodeVersion);
+    }
+
+    /**
+     * Reads the key version of an encrypted blob without decrypting it.
+     *
+     * @param encryptedBlob The blob to inspect.
+     * @return The key version, or null if the blob is malformed.
+     */
+    public static String getKeyVersion(final String encryptedBlob) {
+        if (StringExtensions.isNullOrBlank(encryptedBlob)) {
+            return null;
+        }
+
+        // 8 Base64 chars decode to 6 bytes, enough to cover the key version
+        final int base64Index = 1 + encryptedBlob.charAt(0) - 'a';
+        final int base64KeyVersionLength = 8;
+        if (base64Index <= 1 || encryptedBlob.length() < base64Index + base64KeyVersionLength) {
+            return null;
+        }
+
+        try {
+            final byte[] bytes = Base64.decode(
+                    encryptedBlob.substring(base64Index, base64Index + base64KeyVersionLength),
+                    Base64.DEFAULT
+            );
+            return new String(bytes, 0, KEY_VERSION_BLOB_LENGTH, AuthenticationConstants.ENCODING_UTF8);
+        } catch (final IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Tests if the supplied blob was encrypted with an encoding version or key version other
+     * than the ones this instance currently encrypts with.
+     *
+     * @param encryptedBlob The blob to test.
+     * @return True, if re-encrypting the blob would change its encoding or key version.
+     */
+    public boolean needsReEncryption(final String encryptedBlob) {
+        return isLegacyEncoding(encryptedBlob)
+                || !getKeyVersionForEncryption().equals(getKeyVersion(encryptedBlob));
+    }
+
+    /**
+     * Returns the number of times the AndroidKeyStore-backed key was found unusable and reset
+     * in this process. Blobs encrypted before a reset can no longer be decrypted.
+     *
+     * @return The reset count.
+     */
+    public static int getKeyResetCount() {
+        return SharedKeyProvider.getInvalidationCount();
+    }
+
+    private static boolean isGcmSupported() {
+        // GCMParameterSpec is available from KitKat, but AES/GCM is only provided by the
+        // platform's default security provider from Lollipop.
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP;
     }
 
     @Override
@@ -170,29 +288,44 @@ public class StorageHelper implements IStorageHelper {
             throw new IllegalArgumentException("Input is empty or null");
         }
 
-        // load key for encryption if not loaded
-        mKey = loadSecretKeyForEncryption();
-        mHMACKey = getHMacKey(mKey);
+        // Key material is shared process-wide, so this is only expensive on first use
+        final String keyVersion = getKeyVersionForEncryption();
+        final SharedKeyProvider.KeyMaterial keyMaterial = getKeyMaterialOrCreate(keyVersion);
 
-        Log.v(TAG, "Encrypt version:" + mBlobVersion);
-        final byte[] blobVersion = mBlobVersion.getBytes(AuthenticationConstants.ENCODING_UTF8);
+        Log.v(TAG, "Encrypt version:" + keyVersion);
+        final byte[] blobVersion = keyVersion.getBytes(AuthenticationConstants.ENCODING_UTF8);
         final byte[] bytes = clearText.getBytes(AuthenticationConstants.ENCODING_UTF8);
 
+        final byte[] blob = ENCODE_VERSION_GCM.equals(mEncodeVersion)
+                ? encryptGcm(keyMaterial, mRandom, blobVersion, bytes)
+                : encryptCbcHmac(keyMaterial, mRandom, blobVersion, bytes);
+
+        final String encryptedText = new String(Base64.encode(blob, Base64.NO_WRAP),
+                AuthenticationConstants.ENCODING_UTF8);
+        Log.v(TAG, "Finished encryption");
+
+        return getEncodeVersionLengthPrefix(mEncodeVersion) + mEncodeVersion + encryptedText;
+    }
+
+    static byte[] encryptCbcHmac(final SharedKeyProvider.KeyMaterial keyMaterial,
+                                 final SecureRandom random,
+                                 final byte[] blobVersion,
+                                 final byte[] bytes) throws GeneralSecurityException {
         // IV: Initialization vector that is needed to start CBC
         final byte[] iv = new byte[DATA_KEY_LENGTH];
-        mRandom.nextBytes(iv);
+        random.nextBytes(iv);
         final IvParameterSpec ivSpec = new IvParameterSpec(iv);
 
         // Set to encrypt mode
         final Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
         final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
-        cipher.init(Cipher.ENCRYPT_MODE, mKey, ivSpec);
+        cipher.init(Cipher.ENCRYPT_MODE, keyMaterial.getSecretKey(), ivSpec);
 
         final byte[] encrypted = cipher.doFinal(bytes);
 
         // Mac output to sign encryptedData+IV. Keyversion is not included
         // in the digest. It defines what to use for Mac Key.
-        mac.init(mHMACKey);
+        mac.init(keyMaterial.getHmacKey());
         mac.update(blobVersion);
         mac.update(encrypted);
         mac.update(iv);
@@ -210,11 +343,30 @@ public class StorageHelper implements IStorageHelper {
         System.arraycopy(macDigest, 0, blobVerAndEncryptedDataAndIVAndMacDigest, blobVersion.length
                 + encrypted.length + iv.length, macDigest.length);
 
-        final String encryptedText = new String(Base64.encode(blobVerAndEncryptedDataAndIVAndMacDigest,
-                Base64.NO_WRAP), AuthenticationConstants.ENCODING_UTF8);
-        Log.v(TAG, "Finished encryption");
+        return blobVerAndEncryptedDataAndIVAndMacDigest;
+    }
 
-        return getEncodeVersionLengthPrefix() + ENCODE_VERSION + encryptedText;
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    static byte[] encryptGcm(final SharedKeyProvider.KeyMaterial keyMaterial,
+                             final SecureRandom random,
+                             final byte[] blobVersion,
+                             final byte[] bytes) throws GeneralSecurityException {
+        final byte[] nonce = new byte[GCM_NONCE_LENGTH];
+        random.nextBytes(nonce);
+
+        final Cipher cipher = Cipher.getInstance(GCM_CIPHER_ALGORITHM);
+        cipher.init(Cipher.ENCRYPT_MODE, keyMaterial.getSecretKey(),
+                new GCMParameterSpec(GCM_TAG_LENGTH * Byte.SIZE, nonce));
+        cipher.updateAAD(blobVersion);
+
+        // Encrypt and authenticate straight into the output blob, after version and nonce
+        final int headerLength = blobVersion.length + GCM_NONCE_LENGTH;
+        final byte[] blob = new byte[headerLength + cipher.getOutputSize(bytes.length)];
+        System.arraycopy(blobVersion, 0, blob, 0, blobVersion.length);
+        System.arraycopy(nonce, 0, blob, blobVersion.length, GCM_NONCE_LENGTH);
+        cipher.doFinal(bytes, 0, bytes.length, blob, headerLength);
+
+        return blob;
     }
 
     @Override
@@ -232,10 +384,11 @@ public class StorageHelper implements IStorageHelper {
                     "Encode version length: '%s' is not valid, it must be greater of equal to 0",
                     encodeVersionLength));
         }
-        if (!encryptedBlob.substring(1, 1 + encodeVersionLength).equals(ENCODE_VERSION)) {
+        final String encodeVersion = encryptedBlob.substring(1, 1 + encodeVersionLength);
+        if (!encodeVersion.equals(ENCODE_VERSION_CBC_HMAC) && !encodeVersion.equals(ENCODE_VERSION_GCM)) {
             throw new IllegalArgumentException(String.format(
-                    "Encode version received was: '%s', Encode version supported is: '%s'", encryptedBlob,
-                    ENCODE_VERSION));
+                    "Encode version received was: '%s', Encode versions supported are: '%s', '%s'",
+                    encryptedBlob, ENCODE_VERSION_CBC_HMAC, ENCODE_VERSION_GCM));
         }
 
         final byte[] bytes = Base64
@@ -247,9 +400,19 @@ public class StorageHelper implements IStorageHelper {
                 AuthenticationConstants.ENCODING_UTF8);
         Log.v(TAG, "Encrypt version:" + keyVersion);
 
-        final SecretKey secretKey = getKey(keyVersion);
-        final SecretKey hmacKey = getHMacKey(secretKey);
+        final SharedKeyProvider.KeyMaterial keyMaterial = getKeyMaterial(keyVersion);
+
+        final byte[] decryptedBytes = ENCODE_VERSION_GCM.equals(encodeVersion)
+                ? decryptGcm(keyMaterial, bytes)
+                : decryptCbcHmac(keyMaterial, bytes);
+
+        final String decrypted = new String(decryptedBytes, AuthenticationConstants.ENCODING_UTF8);
+        Log.v(TAG, "Finished decryption");
+        return decrypted;
+    }
 
+    static byte[] decryptCbcHmac(final SharedKeyProvider.KeyMaterial keyMaterial,
+                                 final byte[] bytes) throws GeneralSecurityException, IOException {
         // byte input array: encryptedData-iv-macDigest
         final int ivIndex = bytes.length - DATA_KEY_LENGTH - HMAC_LENGTH;
         final int macIndex = bytes.length - HMAC_LENGTH;
@@ -263,7 +426,7 @@ public class StorageHelper implements IStorageHelper {
         // Digest of EncryptedData+IV excluding key Version and digest
         final Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
         final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
-        mac.init(hmacKey);
+        mac.init(keyMaterial.getHmacKey());
         mac.update(bytes, 0, macIndex);
         final byte[] macDigest = mac.doFinal();
 
@@ -274,34 +437,95 @@ public class StorageHelper implements IStorageHelper {
         // that IV.
         // It is using same cipher for different version since version# change
         // will mean upgrade to AndroidKeyStore and new Key.
-        cipher.init(Cipher.DECRYPT_MODE, secretKey, new IvParameterSpec(bytes, ivIndex,
+        cipher.init(Cipher.DECRYPT_MODE, keyMaterial.getSecretKey(), new IvParameterSpec(bytes, ivIndex,
                 DATA_KEY_LENGTH));
 
         // Decrypt data bytes from 0 to ivindex
-        final String decrypted = new String(cipher.doFinal(bytes, KEY_VERSION_BLOB_LENGTH,
-                encryptedLength), AuthenticationConstants.ENCODING_UTF8);
-        Log.v(TAG, "Finished decryption");
-        return decrypted;
+        return cipher.doFinal(bytes, KEY_VERSION_BLOB_LENGTH, encryptedLength);
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    static byte[] decryptGcm(final SharedKeyProvider.KeyMaterial keyMaterial,
+                             final byte[] bytes) throws GeneralSecurityException, IOException {
+        // byte input array: keyVersion-nonce-encryptedData-tag
+        final int encryptedIndex = KEY_VERSION_BLOB_LENGTH + GCM_NONCE_LENGTH;
+        if (bytes.length < encryptedIndex + GCM_TAG_LENGTH) {
+            throw new IOException("Invalid byte array input for decryption.");
+        }
+
+        final Cipher cipher = Cipher.getInstance(GCM_CIPHER_ALGORITHM);
+        cipher.init(Cipher.DECRYPT_MODE, keyMaterial.getSecretKey(),
+                new GCMParameterSpec(GCM_TAG_LENGTH * Byte.SIZE, bytes, KEY_VERSION_BLOB_LENGTH, GCM_NONCE_LENGTH));
+        cipher.updateAAD(bytes, 0, KEY_VERSION_BLOB_LENGTH);
+
+        try {
+            return cipher.doFinal(bytes, encryptedIndex, bytes.length - encryptedIndex);
+        } catch (final AEADBadTagException exception) {
+            // Surface tampering the same way as a HMAC mismatch of an E1 blob
+            throw new DigestException(exception.getMessage(), exception);
+        }
     }
 
     @Override
-    public synchronized SecretKey loadSecretKeyForEncryption() throws IOException,
+    public SecretKey loadSecretKeyForEncryption() throws IOException,
             GeneralSecurityException {
-        final byte[] secretKeyData = AuthenticationSettings.INSTANCE.getSecretKeyData();
-        return loadSecretKeyForEncryption(secretKeyData == null ? VERSION_ANDROID_KEY_STORE : VERSION_USER_DEFINED);
+        return loadSecretKeyForEncryption(getKeyVersionForEncryption());
     }
 
     @Override
-    public synchronized SecretKey loadSecretKeyForEncryption(String defaultBlobVersion) throws IOException,
+    public SecretKey loadSecretKeyForEncryption(String defaultBlobVersion) throws IOException,
             GeneralSecurityException {
-        // Loading key only once for performance. If API is upgraded, it will
+        // Loading key only once per process for performance. If API is upgraded, it will
         // restart the device anyway. It will load the correct key for new API.
-        if (mKey != null && mHMACKey != null) {
-            return mKey;
+        return getKeyMaterialOrCreate(defaultBlobVersion).getSecretKey();
+    }
+
+    /**
+     * Loads (or generates) and unwraps the encryption key on a background thread, so that it is
+     * ready by the time the cache is first used. Intended to be called during application
+     * initialization; encryption or decryption started while the warm-up is in flight waits for
+     * it rather than repeating the keystore work.
+     *
+     * @return A {@link Future} which completes once the key is available. Its get() throws an
+     * {@link java.util.concurrent.ExecutionException} if the key could not be loaded.
+     */
+    public Future<?> warmUp() {
+        final String keyVersion = getKeyVersionForEncryption();
+
+        if (!VERSION_ANDROID_KEY_STORE.equals(keyVersion)) {
+            // The user provided key needs no keystore work.
+            final FutureTask<Void> done = new FutureTask<>(new Runnable() {
+                @Override
+                public void run() {
+                    // Nothing to warm up.
+                }
+            }, null);
+            done.run();
+            return done;
         }
 
-        mBlobVersion = defaultBlobVersion;
-        return getKeyOrCreate(mBlobVersion);
+        Log.v(TAG, "Starting key warm-up");
+        return SharedKeyProvider.warmUp(VERSION_ANDROID_KEY_STORE, newKeyOrCreateLoader());
+    }
+
+    /**
+     * Returns the time taken by the most recent completed key warm-up.
+     *
+     * @return The duration in milliseconds, or -1 if no warm-up has completed in this process.
+     */
+    public static long getKeyWarmUpDurationMillis() {
+        return SharedKeyProvider.getWarmUpDurationMillis();
+    }
+
+    /**
+     * Returns the key version new blobs are encrypted with: the user provided key if one is set,
+     * otherwise the key persisted in AndroidKeyStore.
+     *
+     * @return {@link #VERSION_USER_DEFINED} or {@link #VERSION_ANDROID_KEY_STORE}.
+     */
+    public String getKeyVersionForEncryption() {
+        final byte[] secretKeyData = AuthenticationSettings.INSTANCE.getSecretKeyData();
+        return secretKeyData == null ? VERSION_ANDROID_KEY_STORE : VERSION_USER_DEFINED;
     }
 
     /**
@@ -311,63 +535,85 @@ public class StorageHelper implements IStorageHelper {
      *
      * @param keyVersion The key type of the keys used to encrypt data, could be user provided key
      *                   or key persisted in the keystore.
-     * @return The {@link SecretKey} used to encrypt data.
+     * @return The {@link SharedKeyProvider.KeyMaterial} used to encrypt data.
      * @throws GeneralSecurityException
      * @throws IOException
      */
-    private synchronized SecretKey getKeyOrCreate(final String keyVersion)
+    private SharedKeyProvider.KeyMaterial getKeyMaterialOrCreate(final String keyVersion)
             throws GeneralSecurityException, IOException {
-        if (VERSION_USER_DEFINED.equals(keyVersion)) {
-            return getSecretKey(AuthenticationSettings.INSTANCE.getSecretKeyData());
+        if (!VERSION_ANDROID_KEY_STORE.equals(keyVersion)) {
+            return getKeyMaterial(keyVersion);
         }
 
-        try {
-            mSecretKeyFromAndroidKeyStore = getKey(keyVersion);
-        } catch (final IOException | GeneralSecurityException exception) {
-            Log.v(TAG, "Key does not exist in AndroidKeyStore, try to generate new keys.");
-        }
+        return SharedKeyProvider.get(VERSION_ANDROID_KEY_STORE, newKeyOrCreateLoader());
+    }
 
-        if (mSecretKeyFromAndroidKeyStore == null) {
-            // If encountering exception for reading keys, try to generate new keys
-            mKeyPair = generateKeyPairFromAndroidKeyStore();
+    /**
+     * Returns a loader reading the secret key persisted with the AndroidKeyStore keypair, or
+     * generating (and persisting) a new one if it cannot be read.
+     */
+    private SharedKeyProvider.KeyLoader newKeyOrCreateLoader() {
+        return new SharedKeyProvider.KeyLoader() {
+            @Override
+            public SecretKey load() throws GeneralSecurityException, IOException {
+                try {
+                    return readSecretKeyFromAndroidKeyStore();
+                } catch (final IOException | GeneralSecurityException exception) {
+                    Log.v(TAG, "Key does not exist in AndroidKeyStore, try to generate new keys.");
+                }
 
-            // Also generate new secretkey
-            mSecretKeyFromAndroidKeyStore = generateSecretKey();
-            final byte[] keyWrapped = wrap(mSecretKeyFromAndroidKeyStore);
-            writeKeyData(keyWrapped);
-        }
+                // If encountering exception for reading keys, try to generate new keys
+                final KeyPair keyPair = generateKeyPairFromAndroidKeyStore();
 
-        return mSecretKeyFromAndroidKeyStore;
+                // Also generate new secretkey
+                final SecretKey secretKey = generateSecretKey();
+                final byte[] keyWrapped = wrap(keyPair, secretKey);
+                writeKeyData(keyWrapped);
+                return secretKey;
+            }
+        };
     }
 
     /**
      * Get the saved key. Will only do read operation.
      *
      * @param keyVersion whether the key is user defined or in Android key store
-     * @return SecretKey
+     * @return The {@link SharedKeyProvider.KeyMaterial} for the version.
      * @throws GeneralSecurityException
      * @throws IOException
      */
-    private synchronized SecretKey getKey(final String keyVersion) throws GeneralSecurityException, IOException {
+    private SharedKeyProvider.KeyMaterial getKeyMaterial(final String keyVersion)
+            throws GeneralSecurityException, IOException {
         switch (keyVersion) {
             case VERSION_USER_DEFINED:
-                return getSecretKey(AuthenticationSettings.INSTANCE.getSecretKeyData());
+                // The user provided key may be replaced at any time, so it is not cached.
+                return new SharedKeyProvider.KeyMaterial(
+                        getSecretKey(AuthenticationSettings.INSTANCE.getSecretKeyData())
+                );
             case VERSION_ANDROID_KEY_STORE:
-
-                if (mSecretKeyFromAndroidKeyStore != null) {
-                    return mSecretKeyFromAndroidKeyStore;
-                }
-                // androidKeyStore can store app specific self signed cert.
-                // Asymmetric cryptography is used to protect the session key
-                // used for Encryption and HMac
-                mKeyPair = readKeyPair();
-                mSecretKeyFromAndroidKeyStore = getUnwrappedSecretKey();
-                return mSecretKeyFromAndroidKeyStore;
+                return SharedKeyProvider.get(VERSION_ANDROID_KEY_STORE, new SharedKeyProvider.KeyLoader() {
+                    @Override
+                    public SecretKey load() throws GeneralSecurityException, IOException {
+                        return readSecretKeyFromAndroidKeyStore();
+                    }
+                });
             default:
                 throw new IOException("Unknown keyVersion.");
         }
     }
 
+    /**
+     * Reads and unwraps the secret key persisted with the AndroidKeyStore keypair. Only called
+     * by a {@link SharedKeyProvider.KeyLoader}, i.e. while holding the provider lock.
+     */
+    private SecretKey readSecretKeyFromAndroidKeyStore() throws GeneralSecurityException, IOException {
+        // androidKeyStore can store app specific self signed cert.
+        // Asymmetric cryptography is used to protect the session key
+        // used for Encryption and HMac
+        final KeyPair keyPair = readKeyPair();
+        return getUnwrappedSecretKey(keyPair);
+    }
+
     @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
     private synchronized KeyPair generateKeyPairFromAndroidKeyStore()
             throws GeneralSecurityException, IOException {
@@ -477,29 +723,11 @@ public class StorageHelper implements IStorageHelper {
         return new SecretKeySpec(rawBytes, KEYSPEC_ALGORITHM);
     }
 
-    /**
-     * Derive HMAC key from given key.
-     *
-     * @param key SecretKey from which HMAC key has to be derived
-     * @return SecretKey
-     * @throws NoSuchAlgorithmException
-     */
-    private SecretKey getHMacKey(final SecretKey key) throws NoSuchAlgorithmException {
-        // Some keys may not produce byte[] with getEncoded
-        final byte[] encodedKey = key.getEncoded();
-        if (encodedKey != null) {
-            final MessageDigest digester = MessageDigest.getInstance(HMAC_KEY_HASH_ALGORITHM);
-            return new SecretKeySpec(digester.digest(encodedKey), KEYSPEC_ALGORITHM);
-        }
-
-        return key;
+    static char getEncodeVersionLengthPrefix(final String encodeVersion) {
+        return (char) ('a' + encodeVersion.length());
     }
 
-    private char getEncodeVersionLengthPrefix() {
-        return (char) ('a' + ENCODE_VERSION.length());
-    }
-
-    private void assertHMac(final byte[] digest, final int start, final int end, final byte[] calculated)
+    private static void assertHMac(final byte[] digest, final int start, final int end, final byte[] calculated)
             throws DigestException {
         if (calculated.length != (end - start)) { //NOPMD
             throw new IllegalArgumentException("Unexpected HMAC length");
@@ -530,25 +758,28 @@ public class StorageHelper implements IStorageHelper {
     }
 
     @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
-    private synchronized SecretKey getUnwrappedSecretKey()
+    private SecretKey getUnwrappedSecretKey(final KeyPair keyPair)
             throws GeneralSecurityException, IOException {
         Log.v(TAG, "Reading SecretKey");
 
+        final long blockingToken = MainThreadBlockingDetector.begin(UNWRAP_SECRET_KEY_OPERATION);
         final SecretKey unwrappedSecretKey;
         try {
             final byte[] wrappedSecretKey = readKeyData();
-            unwrappedSecretKey = unwrap(wrappedSecretKey);
+            unwrappedSecretKey = unwrap(keyPair, wrappedSecretKey);
             Log.v(TAG, "Finished reading SecretKey");
         } catch (final GeneralSecurityException | IOException ex) {
             // Reset KeyPair info so that new request will generate correct KeyPairs.
             // All tokens with previous SecretKey are not possible to decrypt.
             //Log.e(TAG, "Unwrap failed for AndroidKeyStore", "",ADALError.ANDROIDKEYSTORE_FAILED, ex);
             Log.e(TAG, ErrorStrings.ANDROIDKEYSTORE_FAILED);
-            mKeyPair = null;
+            SharedKeyProvider.invalidate(VERSION_ANDROID_KEY_STORE);
             deleteKeyFile();
             resetKeyPairFromAndroidKeyStore();
             Log.v(TAG, "Removed previous key pair info.");
             throw ex;
+        } finally {
+            MainThreadBlockingDetector.end(UNWRAP_SECRET_KEY_OPERATION, blockingToken);
         }
 
         return unwrappedSecretKey;
@@ -576,18 +807,18 @@ public class StorageHelper implements IStorageHelper {
 
     @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
     @SuppressLint("GetInstance")
-    private byte[] wrap(final SecretKey key) throws GeneralSecurityException {
+    private byte[] wrap(final KeyPair keyPair, final SecretKey key) throws GeneralSecurityException {
         Log.v(TAG, "Wrap secret key.");
         final Cipher wrapCipher = Cipher.getInstance(WRAP_ALGORITHM);
-        wrapCipher.init(Cipher.WRAP_MODE, mKeyPair.getPublic());
+        wrapCipher.init(Cipher.WRAP_MODE, keyPair.getPublic());
         return wrapCipher.wrap(key);
     }
 
     @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
     @SuppressLint("GetInstance")
-    private SecretKey unwrap(final byte[] keyBlob) throws GeneralSecurityException {
+    private SecretKey unwrap(final KeyPair keyPair, final byte[] keyBlob) throws GeneralSecurityException {
         final Cipher wrapCipher = Cipher.getInstance(WRAP_ALGORITHM);
-        wrapCipher.init(Cipher.UNWRAP_MODE, mKeyPair.getPrivate());
+        wrapCipher.init(Cipher.UNWRAP_MODE, keyPair.getPrivate());
         try {
             return (SecretKey) wrapCipher.unwrap(keyBlob, KEYSPEC_ALGORITHM, Cipher.SECRET_KEY);
         } catch (final IllegalArgumentException exception) {
@@ -25,9 +25,13 @@ package com.microsoft.identity.common.adal.internal.net;
 import android.content.Context;
 import android.os.Debug;
 
+import androidx.annotation.NonNull;
+
 import com.microsoft.identity.common.adal.internal.AuthenticationSettings;
 import com.microsoft.identity.common.exception.ClientException;
 import com.microsoft.identity.common.exception.ErrorStrings;
+import com.microsoft.identity.common.internal.net.AdaptiveTimeouts;
+import com.microsoft.identity.common.internal.net.RetryPolicy;
 
 import java.io.BufferedReader;
 import java.io.Closeable;
@@ -38,6 +42,7 @@ import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -98,7 +103,7 @@ public class HttpWebRequest {
     /**
      * setupConnection before sending the request.
      */
-    private HttpURLConnection setupConnection() throws IOException {
+    private HttpURLConnection setupConnection(final AdaptiveTimeouts timeouts) throws IOException {
         if (mUrl == null) {
             throw new IllegalArgumentException("requestURL");
         }
@@ -108,7 +113,9 @@ public class HttpWebRequest {
         }
         HttpURLConnection.setFollowRedirects(true);
         final HttpURLConnection connection = HttpUrlConnectionFactory.createHttpUrlConnection(mUrl);
-        connection.setConnectTimeout(CONNECT_TIME_OUT);
+        connection.setConnectTimeout(
+                capAtSetting(timeouts.getConnectTimeoutMillis(mUrl), CONNECT_TIME_OUT)
+        );
         connection.setRequestProperty("Connection", "close");
 
 
@@ -118,7 +125,7 @@ public class HttpWebRequest {
             connection.setRequestProperty(entry.getKey(), entry.getValue());
         }
 
-        connection.setReadTimeout(READ_TIME_OUT);
+        connection.setReadTimeout(capAtSetting(timeouts.getReadTimeoutMillis(mUrl), READ_TIME_OUT));
         connection.setInstanceFollowRedirects(true);
         connection.setUseCaches(false);
         connection.setRequestMethod(mRequestMethod);
@@ -130,13 +137,39 @@ public class HttpWebRequest {
     }
 
     /**
-     * Send the request.
+     * Send the request, retrying timeouts and 429/500/503/504 responses as the shared
+     * {@link RetryPolicy} allows. Once retries are exhausted, the last response is returned.
      *
      * @return HttpWebResponse
      * @throws IOException throws if the input stream is null.
      */
     public HttpWebResponse send() throws IOException {
-        final HttpURLConnection connection = setupConnection();
+        final String host = mUrl == null ? "" : mUrl.getHost();
+
+        return RetryPolicy.getDefault().execute(host, new RetryPolicy.RetryableCall<HttpWebResponse>() {
+            @Override
+            public HttpWebResponse call() throws IOException {
+                return executeSend();
+            }
+
+            @Override
+            public int getStatusCode(@NonNull final HttpWebResponse response) {
+                return response.getStatusCode();
+            }
+
+            @Override
+            public Map<String, List<String>> getHeaders(@NonNull final HttpWebResponse response) {
+                return response.getResponseHeaders();
+            }
+        });
+    }
+
+    private HttpWebResponse executeSend() throws IOException {
+        // Timeouts adapt to the latencies HttpRequest observes; none are recorded here, as the
+        // request body is written while setting up and getInputStream() may connect as well, so
+        // connect and read time cannot be told apart
+        final AdaptiveTimeouts timeouts = AdaptiveTimeouts.getDefault();
+        final HttpURLConnection connection = setupConnection(timeouts);
         final HttpWebResponse response;
         InputStream responseStream = null;
         try {
@@ -179,6 +212,14 @@ public class HttpWebRequest {
         return response;
     }
 
+    /**
+     * Caps an adaptive timeout at the one configured in {@link AuthenticationSettings}, where 0
+     * means no timeout.
+     */
+    private static int capAtSetting(final int adaptiveTimeoutMillis, final int settingMillis) {
+        return settingMillis == 0 ? adaptiveTimeoutMillis : Math.min(adaptiveTimeoutMillis, settingMillis);
+    }
+
     /**
      * Check if the network is available. If the network is unavailable, {@link ClientException}
      * will throw with error code {@link ErrorStrings#NO_NETWORK_CONNECTION_POWER_OPTIMIZATION}
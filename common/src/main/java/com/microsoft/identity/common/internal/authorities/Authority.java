@@ -29,6 +29,7 @@ import com.microsoft.identity.common.exception.ClientException;
 import com.microsoft.identity.common.internal.logging.Logger;
 import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectory;
 import com.microsoft.identity.common.internal.providers.oauth2.OAuth2Strategy;
+import com.microsoft.identity.common.internal.telemetry.RequestTrace;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
@@ -192,10 +193,15 @@ public abstract class Authority {
                 TAG + methodName,
                 "Performing cloud discovery..."
         );
-        synchronized (sLock) {
-            if (!AzureActiveDirectory.isInitialized()) {
-                AzureActiveDirectory.performCloudDiscovery();
+        final long discoveryStartNanos = RequestTrace.startSpan();
+        try {
+            synchronized (sLock) {
+                if (!AzureActiveDirectory.isInitialized()) {
+                    AzureActiveDirectory.performCloudDiscovery();
+                }
             }
+        } finally {
+            RequestTrace.endSpan(RequestTrace.Span.CLOUD_DISCOVERY, discoveryStartNanos);
         }
     }
 
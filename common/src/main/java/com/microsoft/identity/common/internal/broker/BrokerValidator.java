@@ -35,6 +35,7 @@ import com.microsoft.identity.common.adal.internal.AuthenticationSettings;
 import com.microsoft.identity.common.exception.ClientException;
 import com.microsoft.identity.common.exception.ErrorStrings;
 import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.telemetry.MainThreadBlockingDetector;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -58,6 +59,8 @@ public class BrokerValidator {
 
     private static final String TAG = "BrokerValidator";
 
+    private static final String VERIFY_SIGNATURE_OPERATION = "BrokerValidator.verifySignature";
+
     private final Context mContext;
     private final String mCompanyPortalSignature;
 
@@ -80,6 +83,7 @@ public class BrokerValidator {
      */
     public boolean verifySignature(final String brokerPackageName) {
         final String methodName = ":verifySignature";
+        final long blockingToken = MainThreadBlockingDetector.begin(VERIFY_SIGNATURE_OPERATION);
         try {
             // Read all the certificates associated with the package name. In higher version of
             // android sdk, package manager will only returned the cert that is used to sign the
@@ -104,6 +108,8 @@ public class BrokerValidator {
             Logger.error(TAG + methodName, "Digest SHA algorithm does not exists", e);
         } catch (final ClientException | IOException | GeneralSecurityException e) {
             Logger.error(TAG + methodName, ErrorStrings.BROKER_VERIFICATION_FAILED, e);
+        } finally {
+            MainThreadBlockingDetector.end(VERIFY_SIGNATURE_OPERATION, blockingToken);
         }
 
         return false;
@@ -23,6 +23,8 @@
 
 package com.microsoft.identity.common.internal.broker;
 
+import com.microsoft.identity.common.internal.telemetry.MainThreadBlockingDetector;
+
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -31,6 +33,8 @@ import java.util.concurrent.TimeoutException;
 
 public class MicrosoftAuthServiceFuture implements Future<IMicrosoftAuthService> {
 
+    private static final String GET_OPERATION = "MicrosoftAuthServiceFuture.get";
+
     private final CountDownLatch mCountDownLatch = new CountDownLatch(1);
     private IMicrosoftAuthService mMicrosoftAuthService;
 
@@ -51,13 +55,27 @@ public class MicrosoftAuthServiceFuture implements Future<IMicrosoftAuthService>
 
     @Override
     public IMicrosoftAuthService get() throws InterruptedException, ExecutionException {
-        mCountDownLatch.await();
+        final long blockingToken = MainThreadBlockingDetector.begin(GET_OPERATION);
+        try {
+            mCountDownLatch.await();
+        } finally {
+            MainThreadBlockingDetector.end(GET_OPERATION, blockingToken);
+        }
+
         return mMicrosoftAuthService;
     }
 
     @Override
     public IMicrosoftAuthService get(long l, TimeUnit timeUnit) throws InterruptedException, ExecutionException, TimeoutException {
-        if (mCountDownLatch.await(l, timeUnit)) {
+        final long blockingToken = MainThreadBlockingDetector.begin(GET_OPERATION);
+        final boolean connected;
+        try {
+            connected = mCountDownLatch.await(l, timeUnit);
+        } finally {
+            MainThreadBlockingDetector.end(GET_OPERATION, blockingToken);
+        }
+
+        if (connected) {
             return mMicrosoftAuthService;
         } else {
             throw new TimeoutException();
@@ -29,6 +29,7 @@ import android.os.Build;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.microsoft.identity.common.BaseAccount;
 import com.microsoft.identity.common.adal.internal.AuthenticationSettings;
 import com.microsoft.identity.common.adal.internal.cache.CacheKey;
@@ -37,6 +38,7 @@ import com.microsoft.identity.common.adal.internal.cache.StorageHelper;
 import com.microsoft.identity.common.adal.internal.util.StringExtensions;
 import com.microsoft.identity.common.internal.dto.AccountRecord;
 import com.microsoft.identity.common.internal.dto.Credential;
+import com.microsoft.identity.common.internal.dto.CredentialType;
 import com.microsoft.identity.common.internal.dto.IdTokenRecord;
 import com.microsoft.identity.common.internal.logging.Logger;
 import com.microsoft.identity.common.internal.providers.microsoft.MicrosoftAccount;
@@ -238,6 +240,66 @@ public class ADALOAuth2TokenCache
         );
     }
 
+    @Override
+    protected void warmUp() {
+        // Reading every entry loads the file and decrypts its values
+        final int entryCount = mISharedPreferencesFileManager.getAll().size();
+        Logger.verbose(TAG + ":warmUp", "Loaded [" + entryCount + "] entries.");
+    }
+
+    @Override
+    public TokenCacheStats getStats() {
+        final long startTime = System.currentTimeMillis();
+        final Date now = new Date();
+        final TokenCacheStats.Builder builder = new TokenCacheStats.Builder();
+        int unreadableEntries = 0;
+
+        for (final String value : mISharedPreferencesFileManager.getAll().values()) {
+            ADALTokenCacheItem cacheItem = null;
+
+            if (null != value) {
+                try {
+                    cacheItem = mGson.fromJson(value, ADALTokenCacheItem.class);
+                } catch (final JsonParseException e) {
+                    // Counted below
+                }
+            }
+
+            if (null == cacheItem) {
+                unreadableEntries++;
+                continue;
+            }
+
+            // An ADAL entry holds the tokens of one grant, so may count towards several types
+            if (!StringExtensions.isNullOrBlank(cacheItem.getAccessToken())) {
+                builder.addCredential(
+                        CredentialType.AccessToken,
+                        cacheItem.getClientId(),
+                        null != cacheItem.getExpiresOn() && cacheItem.getExpiresOn().before(now)
+                );
+            }
+
+            if (!StringExtensions.isNullOrBlank(cacheItem.getRefreshToken())) {
+                builder.addCredential(CredentialType.RefreshToken, cacheItem.getClientId(), false);
+            }
+
+            if (!StringExtensions.isNullOrBlank(cacheItem.getRawIdToken())) {
+                builder.addCredential(CredentialType.IdToken, cacheItem.getClientId(), false);
+            }
+        }
+
+        builder.addUnreadableEntries(unreadableEntries);
+
+        if (mISharedPreferencesFileManager instanceof IExtendedSharedPreferencesFileManager) {
+            builder.addFile(
+                    mISharedPreferencesFileManager.getSharedPreferencesFileName(),
+                    ((IExtendedSharedPreferencesFileManager) mISharedPreferencesFileManager).getFileSize()
+            );
+        }
+
+        return builder.build(System.currentTimeMillis() - startTime);
+    }
+
     private static void logTokenCacheItem(final ADALTokenCacheItem tokenCacheItem) {
         Logger.info(TAG, "Logging TokenCacheItem");
         Logger.infoPII(TAG, "resource: [" + tokenCacheItem.getResource() + "]");
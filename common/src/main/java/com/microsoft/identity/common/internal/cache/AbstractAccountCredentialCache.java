@@ -43,6 +43,20 @@ public abstract class AbstractAccountCredentialCache implements IAccountCredenti
 
     private static final String TAG = AbstractAccountCredentialCache.class.getSimpleName();
 
+    /**
+     * Reads the whole cache and describes its contents, including entries which cannot be read.
+     *
+     * @return The statistics.
+     * @throws UnsupportedOperationException If this cache does not collect statistics, which is
+     *                                       the default.
+     */
+    @NonNull
+    public TokenCacheStats getStats() {
+        throw new UnsupportedOperationException(
+                getClass().getSimpleName() + " does not collect token cache statistics"
+        );
+    }
+
     @Nullable
     protected Class<? extends Credential> getTargetClassForCredentialType(@Nullable String cacheKey,
                                                                           @NonNull CredentialType targetType) {
@@ -0,0 +1,133 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+
+import static com.microsoft.identity.common.internal.dto.AccessTokenRecord.SerializedNames.ACCESS_TOKEN_TYPE;
+import static com.microsoft.identity.common.internal.dto.AccessTokenRecord.SerializedNames.AUTHORITY;
+import static com.microsoft.identity.common.internal.dto.AccessTokenRecord.SerializedNames.EXPIRES_ON;
+import static com.microsoft.identity.common.internal.dto.AccessTokenRecord.SerializedNames.EXTENDED_EXPIRES_ON;
+import static com.microsoft.identity.common.internal.dto.AccessTokenRecord.SerializedNames.REALM;
+import static com.microsoft.identity.common.internal.dto.AccessTokenRecord.SerializedNames.REFRESH_ON;
+import static com.microsoft.identity.common.internal.dto.AccessTokenRecord.SerializedNames.TARGET;
+import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.CACHED_AT;
+import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.CLIENT_ID;
+import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.CREDENTIAL_TYPE;
+import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.ENVIRONMENT;
+import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.HOME_ACCOUNT_ID;
+import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.SECRET;
+
+/**
+ * Streaming TypeAdapter for {@link AccessTokenRecord}.
+ */
+class AccessTokenRecordTypeAdapter extends CredentialTypeAdapter<AccessTokenRecord> {
+
+    /**
+     * The compact field dictionary: a field's id is the letter noted next to it. Ids are
+     * persisted, so fields may only be appended.
+     */
+    private static final String[] FIELD_NAMES = {
+            ACCESS_TOKEN_TYPE,   // A
+            AUTHORITY,           // B
+            EXTENDED_EXPIRES_ON, // C
+            REALM,               // D
+            TARGET,              // E
+            EXPIRES_ON,          // F
+            CLIENT_ID,           // G
+            CREDENTIAL_TYPE,     // H
+            ENVIRONMENT,         // I
+            SECRET,              // J
+            HOME_ACCOUNT_ID,     // K
+            CACHED_AT,           // L
+            REFRESH_ON           // M
+    };
+
+    AccessTokenRecordTypeAdapter() {
+        super(FIELD_NAMES);
+    }
+
+    @NonNull
+    @Override
+    protected AccessTokenRecord newInstance() {
+        return new AccessTokenRecord();
+    }
+
+    @Nullable
+    @Override
+    protected String getCredentialFieldValue(@NonNull final AccessTokenRecord record,
+                                             @NonNull final String name) {
+        switch (name) {
+            case ACCESS_TOKEN_TYPE:
+                return record.getAccessTokenType();
+            case AUTHORITY:
+                return record.getAuthority();
+            case EXTENDED_EXPIRES_ON:
+                return record.getExtendedExpiresOn();
+            case REALM:
+                return record.getRealm();
+            case TARGET:
+                return record.getTarget();
+            case EXPIRES_ON:
+                return record.getExpiresOn();
+            case REFRESH_ON:
+                return record.getRefreshOn();
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    protected void setCredentialFieldValue(@NonNull final AccessTokenRecord record,
+                                           @NonNull final String name,
+                                           @Nullable final String value) {
+        switch (name) {
+            case ACCESS_TOKEN_TYPE:
+                record.setAccessTokenType(value);
+                break;
+            case AUTHORITY:
+                record.setAuthority(value);
+                break;
+            case EXTENDED_EXPIRES_ON:
+                record.setExtendedExpiresOn(value);
+                break;
+            case REALM:
+                record.setRealm(value);
+                break;
+            case TARGET:
+                record.setTarget(value);
+                break;
+            case EXPIRES_ON:
+                record.setExpiresOn(value);
+                break;
+            case REFRESH_ON:
+                record.setRefreshOn(value);
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.microsoft.identity.common.internal.dto.AccountCredentialBase;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.Credential;
+import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
+import com.microsoft.identity.common.internal.util.StringInterner;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Base streaming {@link TypeAdapter} for {@link AccountCredentialBase} subclasses.
+ * <p>
+ * Known fields are bound directly to the record as they are read; any remaining fields are
+ * collected into the record's additional fields. Both happen in a single pass of the tokenizer, so
+ * there is no need to re-parse the JSON or reflect over the record type to find the unknown fields.
+ * <p>
+ * The ordered list of known field names returned by {@link #getFieldNames()} doubles as the field
+ * dictionary of the {@link CacheValueFormat#COMPACT} encoding: a field's id is its position in
+ * that list, so the list may only ever be appended to.
+ * <p>
+ * Values of low-cardinality fields (environment, client_id, realm, ...) are canonicalized as they
+ * are read, so the records of a large cache share one instance of each distinct value rather
+ * than each holding its own copy.
+ *
+ * @param <T> The record type to (de)serialize.
+ */
+abstract class AccountCredentialBaseTypeAdapter<T extends AccountCredentialBase> extends TypeAdapter<T> {
+
+    /**
+     * Adapter used to (de)serialize the values of additional fields.
+     */
+    static final TypeAdapter<JsonElement> JSON_ELEMENT_ADAPTER =
+            new Gson().getAdapter(JsonElement.class);
+
+    /**
+     * Maximum number of distinct values pooled across all record types.
+     */
+    private static final int MAX_INTERNED_VALUES = 1024;
+
+    /**
+     * Names of the fields whose values repeat across records.
+     */
+    private static final Set<String> INTERNED_FIELDS = new HashSet<>(Arrays.asList(
+            AccountRecord.SerializedNames.HOME_ACCOUNT_ID,
+            AccountRecord.SerializedNames.ENVIRONMENT,
+            AccountRecord.SerializedNames.REALM,
+            AccountRecord.SerializedNames.AUTHORITY_TYPE,
+            Credential.SerializedNames.CLIENT_ID,
+            Credential.SerializedNames.CREDENTIAL_TYPE,
+            AccessTokenRecord.SerializedNames.ACCESS_TOKEN_TYPE,
+            AccessTokenRecord.SerializedNames.AUTHORITY,
+            RefreshTokenRecord.SerializedNames.FAMILY_ID
+    ));
+
+    private static final StringInterner sInterner = new StringInterner(MAX_INTERNED_VALUES);
+
+    private final String[] mFieldNames;
+    private final Set<String> mFieldNameSet;
+
+    /**
+     * Constructs a new AccountCredentialBaseTypeAdapter.
+     *
+     * @param fieldNames The known field names of the record type, in dictionary order.
+     */
+    AccountCredentialBaseTypeAdapter(@NonNull final String... fieldNames) {
+        mFieldNames = fieldNames;
+        mFieldNameSet = new HashSet<>(Arrays.asList(fieldNames));
+    }
+
+    /**
+     * Creates a new, empty instance of the record type.
+     *
+     * @return The new record.
+     */
+    @NonNull
+    protected abstract T newInstance();
+
+    /**
+     * Gets the value of the named known field.
+     *
+     * @param record The record to inspect.
+     * @param name   The field name, one of {@link #getFieldNames()}.
+     * @return The field value, may be null.
+     */
+    @Nullable
+    protected abstract String getFieldValue(@NonNull T record, @NonNull String name);
+
+    /**
+     * Sets the value of the named known field.
+     *
+     * @param record The record to populate.
+     * @param name   The field name, one of {@link #getFieldNames()}.
+     * @param value  The field value, may be null.
+     */
+    protected abstract void setFieldValue(@NonNull T record, @NonNull String name, @Nullable String value);
+
+    /**
+     * Sets the value of the named known field as read from the cache, canonicalizing values of
+     * low-cardinality fields.
+     *
+     * @param record The record to populate.
+     * @param name   The field name, one of {@link #getFieldNames()}.
+     * @param value  The field value, may be null.
+     */
+    final void bindFieldValue(@NonNull final T record,
+                              @NonNull final String name,
+                              @Nullable final String value) {
+        setFieldValue(record, name, INTERNED_FIELDS.contains(name) ? sInterner.intern(value) : value);
+    }
+
+    /**
+     * Gets the known field names of the record type, in dictionary order.
+     *
+     * @return The field names. Callers must not modify the returned array.
+     */
+    @NonNull
+    final String[] getFieldNames() {
+        return mFieldNames;
+    }
+
+    /**
+     * Tests if the supplied name is a known field of the record type.
+     *
+     * @param name The name to test.
+     * @return True, if the field is known. False otherwise.
+     */
+    final boolean isKnownField(@NonNull final String name) {
+        return mFieldNameSet.contains(name);
+    }
+
+    @Override
+    public final void write(final JsonWriter out, final T record) throws IOException {
+        if (null == record) {
+            out.nullValue();
+            return;
+        }
+
+        final Map<String, JsonElement> additionalFields = getAdditionalFields(record);
+
+        out.beginObject();
+
+        for (final String name : mFieldNames) {
+            final String value = getFieldValue(record, name);
+
+            // Additional fields take precedence over known fields of the same name
+            if (null != value && !additionalFields.containsKey(name)) {
+                out.name(name).value(value);
+            }
+        }
+
+        for (final Map.Entry<String, JsonElement> additionalField : additionalFields.entrySet()) {
+            out.name(additionalField.getKey());
+            JSON_ELEMENT_ADAPTER.write(out, additionalField.getValue());
+        }
+
+        out.endObject();
+    }
+
+    @Override
+    public final T read(final JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        final T record = newInstance();
+        final Map<String, JsonElement> additionalFields = new HashMap<>();
+
+        in.beginObject();
+
+        while (in.hasNext()) {
+            final String name = in.nextName();
+
+            if (isKnownField(name)) {
+                bindFieldValue(record, name, readString(in));
+            } else {
+                additionalFields.put(name, JSON_ELEMENT_ADAPTER.read(in));
+            }
+        }
+
+        in.endObject();
+
+        record.setAdditionalFields(additionalFields);
+
+        return record;
+    }
+
+    /**
+     * Gets the additional fields of the supplied record, never null.
+     *
+     * @param record The record to inspect.
+     * @return The additional fields.
+     */
+    @NonNull
+    static Map<String, JsonElement> getAdditionalFields(@NonNull final AccountCredentialBase record) {
+        final Map<String, JsonElement> additionalFields = record.getAdditionalFields();
+
+        return null == additionalFields
+                ? Collections.<String, JsonElement>emptyMap()
+                : additionalFields;
+    }
+
+    /**
+     * Reads the next value as a String, following the same coercion rules as Gson's reflective
+     * String binding.
+     *
+     * @param in The reader.
+     * @return The String value or null, if the JSON value was null.
+     * @throws IOException If the value cannot be read.
+     */
+    @Nullable
+    private static String readString(@NonNull final JsonReader in) throws IOException {
+        final JsonToken token = in.peek();
+
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+
+        return in.nextString();
+    }
+}
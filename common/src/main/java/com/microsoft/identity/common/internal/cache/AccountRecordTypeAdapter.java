@@ -0,0 +1,163 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+
+import static com.microsoft.identity.common.internal.dto.AccountRecord.SerializedNames.ALTERNATIVE_ACCOUNT_ID;
+import static com.microsoft.identity.common.internal.dto.AccountRecord.SerializedNames.AUTHORITY_TYPE;
+import static com.microsoft.identity.common.internal.dto.AccountRecord.SerializedNames.AVATAR_URL;
+import static com.microsoft.identity.common.internal.dto.AccountRecord.SerializedNames.CLIENT_INFO;
+import static com.microsoft.identity.common.internal.dto.AccountRecord.SerializedNames.ENVIRONMENT;
+import static com.microsoft.identity.common.internal.dto.AccountRecord.SerializedNames.FAMILY_NAME;
+import static com.microsoft.identity.common.internal.dto.AccountRecord.SerializedNames.FIRST_NAME;
+import static com.microsoft.identity.common.internal.dto.AccountRecord.SerializedNames.HOME_ACCOUNT_ID;
+import static com.microsoft.identity.common.internal.dto.AccountRecord.SerializedNames.LOCAL_ACCOUNT_ID;
+import static com.microsoft.identity.common.internal.dto.AccountRecord.SerializedNames.MIDDLE_NAME;
+import static com.microsoft.identity.common.internal.dto.AccountRecord.SerializedNames.NAME;
+import static com.microsoft.identity.common.internal.dto.AccountRecord.SerializedNames.REALM;
+import static com.microsoft.identity.common.internal.dto.AccountRecord.SerializedNames.USERNAME;
+
+/**
+ * Streaming TypeAdapter for {@link AccountRecord}.
+ */
+class AccountRecordTypeAdapter extends AccountCredentialBaseTypeAdapter<AccountRecord> {
+
+    /**
+     * The compact field dictionary: a field's id is the letter noted next to it. Ids are
+     * persisted, so fields may only be appended.
+     */
+    private static final String[] FIELD_NAMES = {
+            HOME_ACCOUNT_ID,        // A
+            ENVIRONMENT,            // B
+            REALM,                  // C
+            LOCAL_ACCOUNT_ID,       // D
+            USERNAME,               // E
+            AUTHORITY_TYPE,         // F
+            ALTERNATIVE_ACCOUNT_ID, // G
+            FIRST_NAME,             // H
+            FAMILY_NAME,            // I
+            MIDDLE_NAME,            // J
+            NAME,                   // K
+            AVATAR_URL,             // L
+            CLIENT_INFO             // M
+    };
+
+    AccountRecordTypeAdapter() {
+        super(FIELD_NAMES);
+    }
+
+    @NonNull
+    @Override
+    protected AccountRecord newInstance() {
+        return new AccountRecord();
+    }
+
+    @Nullable
+    @Override
+    protected String getFieldValue(@NonNull final AccountRecord record,
+                                   @NonNull final String name) {
+        switch (name) {
+            case HOME_ACCOUNT_ID:
+                return record.getHomeAccountId();
+            case ENVIRONMENT:
+                return record.getEnvironment();
+            case REALM:
+                return record.getRealm();
+            case LOCAL_ACCOUNT_ID:
+                return record.getLocalAccountId();
+            case USERNAME:
+                return record.getUsername();
+            case AUTHORITY_TYPE:
+                return record.getAuthorityType();
+            case ALTERNATIVE_ACCOUNT_ID:
+                return record.getAlternativeAccountId();
+            case FIRST_NAME:
+                return record.getFirstName();
+            case FAMILY_NAME:
+                return record.getFamilyName();
+            case MIDDLE_NAME:
+                return record.getMiddleName();
+            case NAME:
+                return record.getName();
+            case AVATAR_URL:
+                return record.getAvatarUrl();
+            case CLIENT_INFO:
+                return record.getClientInfo();
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    protected void setFieldValue(@NonNull final AccountRecord record,
+                                 @NonNull final String name,
+                                 @Nullable final String value) {
+        switch (name) {
+            case HOME_ACCOUNT_ID:
+                record.setHomeAccountId(value);
+                break;
+            case ENVIRONMENT:
+                record.setEnvironment(value);
+                break;
+            case REALM:
+                record.setRealm(value);
+                break;
+            case LOCAL_ACCOUNT_ID:
+                record.setLocalAccountId(value);
+                break;
+            case USERNAME:
+                record.setUsername(value);
+                break;
+            case AUTHORITY_TYPE:
+                record.setAuthorityType(value);
+                break;
+            case ALTERNATIVE_ACCOUNT_ID:
+                record.setAlternativeAccountId(value);
+                break;
+            case FIRST_NAME:
+                record.setFirstName(value);
+                break;
+            case FAMILY_NAME:
+                record.setFamilyName(value);
+                break;
+            case MIDDLE_NAME:
+                record.setMiddleName(value);
+                break;
+            case NAME:
+                record.setName(value);
+                break;
+            case AVATAR_URL:
+                record.setAvatarUrl(value);
+                break;
+            case CLIENT_INFO:
+                record.setClientInfo(value);
+                break;
+            default:
+                break;
+        }
+    }
+}
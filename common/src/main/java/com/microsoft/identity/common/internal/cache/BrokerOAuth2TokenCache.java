@@ -41,12 +41,16 @@ import com.microsoft.identity.common.internal.providers.microsoft.MicrosoftToken
 import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationRequest;
 import com.microsoft.identity.common.internal.providers.oauth2.OAuth2Strategy;
 import com.microsoft.identity.common.internal.providers.oauth2.OAuth2TokenCache;
+import com.microsoft.identity.common.internal.telemetry.Metrics;
 
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import static com.microsoft.identity.common.internal.cache.ADALOAuth2TokenCache.ERR_UNSUPPORTED_OPERATION;
 import static com.microsoft.identity.common.internal.cache.SharedPreferencesAccountCredentialCache.BROKER_FOCI_ACCOUNT_CREDENTIAL_SHARED_PREFERENCES;
@@ -91,8 +95,18 @@ public class BrokerOAuth2TokenCache
     private static final String UNCHECKED = "unchecked";
 
     private final IBrokerApplicationMetadataCache mApplicationMetadataCache;
-    private final MicrosoftFamilyOAuth2TokenCache mFociCache;
     private final int mCallingProcessUid;
+
+    /**
+     * The FOCI cache, created on first use; see {@link #getFociCache()}.
+     */
+    private volatile MicrosoftFamilyOAuth2TokenCache mFociCache;
+
+    /**
+     * The app-specific caches created so far, keyed by process uid.
+     */
+    private final ConcurrentMap<Integer, MsalOAuth2TokenCache> mProcessUidCaches =
+            new ConcurrentHashMap<>();
     private ProcessUidCacheFactory mDelegate = null;
 
     /**
@@ -113,7 +127,6 @@ public class BrokerOAuth2TokenCache
         );
 
         mCallingProcessUid = callingProcessUid;
-        mFociCache = initializeFociCache(context);
         mApplicationMetadataCache = applicationMetadataCache;
     }
 
@@ -188,7 +201,7 @@ public class BrokerOAuth2TokenCache
 
         if (isFoci) {
             // Save to the foci cache....
-            result = mFociCache.save(
+            result = getFociCache().save(
                     accountRecord,
                     idTokenRecord,
                     accessTokenRecord
@@ -206,10 +219,7 @@ public class BrokerOAuth2TokenCache
                         "Existing cache not found. A new one will be created."
                 );
 
-                targetCache = initializeProcessUidCache(
-                        getContext(),
-                        mCallingProcessUid
-                );
+                targetCache = getProcessUidCache(mCallingProcessUid);
             }
 
             result = targetCache.save(
@@ -256,7 +266,7 @@ public class BrokerOAuth2TokenCache
         OAuth2TokenCache targetCache;
 
         if (isFoci) {
-            targetCache = mFociCache;
+            targetCache = getFociCache();
         } else {
             // Try to find an existing cache for this application
             targetCache = getTokenCacheForClient(
@@ -269,10 +279,7 @@ public class BrokerOAuth2TokenCache
                         TAG + methodName,
                         "Existing cache not found. A new one will be created."
                 );
-                targetCache = initializeProcessUidCache(
-                        getContext(),
-                        mCallingProcessUid
-                );
+                targetCache = getProcessUidCache(mCallingProcessUid);
             }
         }
 
@@ -368,7 +375,7 @@ public class BrokerOAuth2TokenCache
         if (shouldUseFociCache) {
             // We do not have a cache for this app or it is not yet known to be a member of the family
             // use the foci cache....
-            resultRecord = mFociCache.loadByFamilyId(
+            resultRecord = getFociCache().loadByFamilyId(
                     clientId,
                     target,
                     account
@@ -447,7 +454,7 @@ public class BrokerOAuth2TokenCache
                         "Target cache was null. Using FOCI cache."
                 );
 
-                targetCache = mFociCache;
+                targetCache = getFociCache();
             }
 
             result = targetCache.getAccount(
@@ -489,7 +496,7 @@ public class BrokerOAuth2TokenCache
             if (clientId.equals(metadata.getClientId())) {
                 if (null != metadata.getFoci() && !containsFoci) {
                     // Add the foci cache, but only once...
-                    result.add(mFociCache);
+                    result.add(getFociCache());
                     containsFoci = true;
                 } else {
                     // App is not foci, see if we can find its real cache...
@@ -533,7 +540,7 @@ public class BrokerOAuth2TokenCache
                         localAccountId
                 );
             } else {
-                return mFociCache.getAccountWithLocalAccountId(
+                return getFociCache().getAccountWithLocalAccountId(
                         environment,
                         clientId,
                         localAccountId
@@ -632,7 +639,7 @@ public class BrokerOAuth2TokenCache
         }
 
         // Hit the FOCI cache
-        allAccounts.addAll(mFociCache.getAccountCredentialCache().getAccounts());
+        allAccounts.addAll(getFociCache().getAccountCredentialCache().getAccounts());
 
         final List<AccountRecord> allAccountsResult = new ArrayList<>(allAccounts);
 
@@ -773,6 +780,140 @@ public class BrokerOAuth2TokenCache
         return mApplicationMetadataCache.getAllClientIds();
     }
 
+    /**
+     * Loads the FOCI cache, the cache of the calling app and the caches of every app known to the
+     * application metadata cache.
+     */
+    @Override
+    protected void warmUp() {
+        final String methodName = ":warmUp";
+
+        final Set<Integer> uids = getNonFociProcessUids();
+
+        getFociCache().warmUp();
+
+        for (final Integer uid : uids) {
+            getProcessUidCache(uid).warmUp();
+        }
+
+        Logger.verbose(
+                TAG + methodName,
+                "Loaded the FOCI cache and ["
+                        + uids.size()
+                        + "] app caches."
+        );
+    }
+
+    /**
+     * Describes the FOCI cache and the cache of every known non-FOCI app, combined. Per file
+     * sizes are keyed by file name, so each app's file is listed separately.
+     */
+    @Override
+    public TokenCacheStats getStats() {
+        final String methodName = ":getStats";
+        final long startTime = System.currentTimeMillis();
+
+        final Set<Integer> uids = getNonFociProcessUids();
+        TokenCacheStats stats = getFociCache().getStats();
+
+        for (final Integer uid : uids) {
+            stats = stats.plus(getProcessUidCache(uid).getStats());
+        }
+
+        stats = stats.withReadDurationMillis(System.currentTimeMillis() - startTime);
+
+        Logger.verbose(
+                TAG + methodName,
+                "Read the FOCI cache and ["
+                        + uids.size()
+                        + "] app caches in ["
+                        + stats.getReadDurationMillis()
+                        + "] ms."
+        );
+
+        return stats;
+    }
+
+    /**
+     * Returns the uids of the calling app and of every known app outside the family, each of
+     * which has its own cache file.
+     */
+    private Set<Integer> getNonFociProcessUids() {
+        final Set<Integer> uids = new HashSet<>();
+        uids.add(mCallingProcessUid);
+
+        for (final BrokerApplicationMetadata metadata : mApplicationMetadataCache.getAll()) {
+            if (null == metadata.getFoci()) {
+                uids.add(metadata.getUid());
+            }
+        }
+
+        return uids;
+    }
+
+    /**
+     * Returns the FOCI cache, creating it on first use. Most broker calls are served by a single
+     * cache, so the FOCI file is only opened by the calls which need it.
+     */
+    private MicrosoftFamilyOAuth2TokenCache getFociCache() {
+        MicrosoftFamilyOAuth2TokenCache fociCache = mFociCache;
+
+        if (null == fociCache) {
+            synchronized (this) {
+                fociCache = mFociCache;
+
+                if (null == fociCache) {
+                    final long startNanos = System.nanoTime();
+                    fociCache = initializeFociCache(getContext());
+                    recordInitialization("foci", startNanos);
+                    mFociCache = fociCache;
+                }
+            }
+        }
+
+        return fociCache;
+    }
+
+    /**
+     * Returns the app-specific cache of the supplied uid, creating it on first use. Later calls
+     * for the same uid return the same cache.
+     */
+    private MsalOAuth2TokenCache getProcessUidCache(final int bindingProcessUid) {
+        MsalOAuth2TokenCache processUidCache = mProcessUidCaches.get(bindingProcessUid);
+
+        if (null == processUidCache) {
+            synchronized (mProcessUidCaches) {
+                processUidCache = mProcessUidCaches.get(bindingProcessUid);
+
+                if (null == processUidCache) {
+                    final long startNanos = System.nanoTime();
+                    processUidCache = initializeProcessUidCache(getContext(), bindingProcessUid);
+                    recordInitialization("uid", startNanos);
+                    mProcessUidCaches.put(bindingProcessUid, processUidCache);
+                }
+            }
+        }
+
+        return processUidCache;
+    }
+
+    private static void recordInitialization(@NonNull final String cacheName,
+                                             final long startNanos) {
+        final String methodName = ":recordInitialization";
+        final long durationMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+
+        Metrics.histogram(Metrics.CACHE_INIT_PREFIX + cacheName).record(durationMicros);
+
+        Logger.verbose(
+                TAG + methodName,
+                "Initialized the ["
+                        + cacheName
+                        + "] cache in ["
+                        + durationMicros
+                        + "] us."
+        );
+    }
+
     private MsalOAuth2TokenCache initializeProcessUidCache(@NonNull final Context context,
                                                            final int bindingProcessUid) {
         final String methodName = ":initializeProcessUidCache";
@@ -880,9 +1021,9 @@ public class BrokerOAuth2TokenCache
             );
 
             if (isFoci) {
-                targetCache = mFociCache;
+                targetCache = getFociCache();
             } else {
-                targetCache = initializeProcessUidCache(getContext(), metadata.getUid());
+                targetCache = getProcessUidCache(metadata.getUid());
             }
         }
 
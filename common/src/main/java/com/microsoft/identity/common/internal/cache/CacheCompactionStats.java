@@ -0,0 +1,160 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Immutable statistics describing one or more sweeps of expired and orphaned credentials.
+ *
+ * @see SharedPreferencesAccountCredentialCache#removeExpiredCredentials()
+ * @see ExpiredCredentialSweeper#getStats()
+ */
+public final class CacheCompactionStats {
+
+    /**
+     * Statistics for no sweeps at all.
+     */
+    public static final CacheCompactionStats EMPTY = new CacheCompactionStats(0, 0, 0, 0, 0, 0);
+
+    private final int mSweepCount;
+    private final int mExpiredAccessTokensRemoved;
+    private final int mOrphanedIdTokensRemoved;
+    private final int mIndexedAccessTokens;
+    private final long mLastSweepDurationMillis;
+    private final long mLastSweepTimeMillis;
+
+    /**
+     * Constructs a new CacheCompactionStats.
+     *
+     * @param sweepCount                 The number of sweeps described.
+     * @param expiredAccessTokensRemoved The number of expired AccessTokens removed.
+     * @param orphanedIdTokensRemoved    The number of IdTokens removed for lack of an Account.
+     * @param indexedAccessTokens        The number of AccessTokens in the expiry index after the
+     *                                   last sweep.
+     * @param lastSweepDurationMillis    The duration of the last sweep.
+     * @param lastSweepTimeMillis        The wall-clock time at which the last sweep completed.
+     */
+    public CacheCompactionStats(final int sweepCount,
+                                final int expiredAccessTokensRemoved,
+                                final int orphanedIdTokensRemoved,
+                                final int indexedAccessTokens,
+                                final long lastSweepDurationMillis,
+                                final long lastSweepTimeMillis) {
+        mSweepCount = sweepCount;
+        mExpiredAccessTokensRemoved = expiredAccessTokensRemoved;
+        mOrphanedIdTokensRemoved = orphanedIdTokensRemoved;
+        mIndexedAccessTokens = indexedAccessTokens;
+        mLastSweepDurationMillis = lastSweepDurationMillis;
+        mLastSweepTimeMillis = lastSweepTimeMillis;
+    }
+
+    /**
+     * Gets the number of sweeps described.
+     *
+     * @return The sweep count.
+     */
+    public int getSweepCount() {
+        return mSweepCount;
+    }
+
+    /**
+     * Gets the number of expired AccessTokens removed.
+     *
+     * @return The number removed.
+     */
+    public int getExpiredAccessTokensRemoved() {
+        return mExpiredAccessTokensRemoved;
+    }
+
+    /**
+     * Gets the number of IdTokens removed because their Account no longer exists.
+     *
+     * @return The number removed.
+     */
+    public int getOrphanedIdTokensRemoved() {
+        return mOrphanedIdTokensRemoved;
+    }
+
+    /**
+     * Gets the number of AccessTokens awaiting expiry in the index, as of the last sweep.
+     *
+     * @return The index size.
+     */
+    public int getIndexedAccessTokens() {
+        return mIndexedAccessTokens;
+    }
+
+    /**
+     * Gets the duration of the last sweep.
+     *
+     * @return The duration, in milliseconds.
+     */
+    public long getLastSweepDurationMillis() {
+        return mLastSweepDurationMillis;
+    }
+
+    /**
+     * Gets the time at which the last sweep completed.
+     *
+     * @return The time, in milliseconds since the epoch. 0 if no sweep has run.
+     */
+    public long getLastSweepTimeMillis() {
+        return mLastSweepTimeMillis;
+    }
+
+    /**
+     * Accumulates the supplied, more recent, statistics onto these.
+     *
+     * @param latest The statistics of subsequent sweeps.
+     * @return The combined statistics.
+     */
+    @NonNull
+    public CacheCompactionStats plus(@NonNull final CacheCompactionStats latest) {
+        return new CacheCompactionStats(
+                mSweepCount + latest.mSweepCount,
+                mExpiredAccessTokensRemoved + latest.mExpiredAccessTokensRemoved,
+                mOrphanedIdTokensRemoved + latest.mOrphanedIdTokensRemoved,
+                latest.mIndexedAccessTokens,
+                latest.mLastSweepDurationMillis,
+                latest.mLastSweepTimeMillis
+        );
+    }
+
+    //CHECKSTYLE:OFF
+    // This method is generated. Checkstyle and/or PMD has been disabled.
+    // This method *must* be regenerated if the class' structural definition changes through the
+    // addition/subtraction of fields.
+    @Override
+    public String toString() {
+        return "CacheCompactionStats{" +
+                "mSweepCount=" + mSweepCount +
+                ", mExpiredAccessTokensRemoved=" + mExpiredAccessTokensRemoved +
+                ", mOrphanedIdTokensRemoved=" + mOrphanedIdTokensRemoved +
+                ", mIndexedAccessTokens=" + mIndexedAccessTokens +
+                ", mLastSweepDurationMillis=" + mLastSweepDurationMillis +
+                ", mLastSweepTimeMillis=" + mLastSweepTimeMillis +
+                '}';
+    }
+    //CHECKSTYLE:ON
+}
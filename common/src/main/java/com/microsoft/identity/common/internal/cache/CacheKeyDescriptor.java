@@ -0,0 +1,135 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.microsoft.identity.common.internal.dto.CredentialType;
+
+import java.util.Locale;
+
+import static com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate.CACHE_VALUE_SEPARATOR;
+
+/**
+ * Immutable, parsed representation of a cache key produced by {@link CacheKeyValueDelegate}.
+ * <p>
+ * Account keys take the form {@code <home_account_id>-<environment>-<realm>} while Credential
+ * keys take the form
+ * {@code <home_account_id>-<environment>-<credential_type>-<client_id>-<realm>-<target>}.
+ * Instances should be obtained via {@link CacheKeyValueDelegate#parseCacheKey(String)}, which
+ * memoizes the result for each key String.
+ */
+public final class CacheKeyDescriptor {
+
+    /**
+     * The CredentialTypes which may be resolved from a cache key, in lookup order.
+     */
+    private static final CredentialType[] SUPPORTED_CREDENTIAL_TYPES = new CredentialType[]{
+            CredentialType.AccessToken,
+            CredentialType.RefreshToken,
+            CredentialType.IdToken
+    };
+
+    /**
+     * The delimited, lowercased form of each supported CredentialType as it appears in a key.
+     * Index-aligned with {@link #SUPPORTED_CREDENTIAL_TYPES}.
+     */
+    private static final String[] CREDENTIAL_TYPE_SEGMENTS =
+            new String[SUPPORTED_CREDENTIAL_TYPES.length];
+
+    static {
+        for (int ii = 0; ii < SUPPORTED_CREDENTIAL_TYPES.length; ii++) {
+            CREDENTIAL_TYPE_SEGMENTS[ii] = CACHE_VALUE_SEPARATOR
+                    + SUPPORTED_CREDENTIAL_TYPES[ii].name().toLowerCase(Locale.US)
+                    + CACHE_VALUE_SEPARATOR;
+        }
+    }
+
+    private final String mCacheKey;
+    private final CredentialType mCredentialType;
+
+    private CacheKeyDescriptor(@NonNull final String cacheKey,
+                               @Nullable final CredentialType credentialType) {
+        mCacheKey = cacheKey;
+        mCredentialType = credentialType;
+    }
+
+    /**
+     * Parses the supplied cache key. This method does not consult or populate any memoized state.
+     *
+     * @param cacheKey The cache key to parse.
+     * @return The parsed CacheKeyDescriptor.
+     */
+    @NonNull
+    static CacheKeyDescriptor parse(@NonNull final String cacheKey) {
+        CredentialType credentialType = null;
+
+        for (int ii = 0; ii < CREDENTIAL_TYPE_SEGMENTS.length; ii++) {
+            if (cacheKey.contains(CREDENTIAL_TYPE_SEGMENTS[ii])) {
+                credentialType = SUPPORTED_CREDENTIAL_TYPES[ii];
+                break;
+            }
+        }
+
+        return new CacheKeyDescriptor(cacheKey, credentialType);
+    }
+
+    /**
+     * Gets the cache key from which this descriptor was parsed.
+     *
+     * @return The cache key.
+     */
+    @NonNull
+    public String getCacheKey() {
+        return mCacheKey;
+    }
+
+    /**
+     * Gets the CredentialType encoded in the cache key.
+     *
+     * @return The CredentialType or null, if the key does not describe a supported Credential.
+     */
+    @Nullable
+    public CredentialType getCredentialType() {
+        return mCredentialType;
+    }
+
+    /**
+     * Tests if the cache key describes an AccountRecord.
+     *
+     * @return True, if the key belongs to an AccountRecord. False otherwise.
+     */
+    public boolean isAccount() {
+        return null == mCredentialType;
+    }
+
+    /**
+     * Tests if the cache key describes a Credential.
+     *
+     * @return True, if the key belongs to a Credential. False otherwise.
+     */
+    public boolean isCredential() {
+        return null != mCredentialType;
+    }
+}
@@ -22,9 +22,11 @@
 // THE SOFTWARE.
 package com.microsoft.identity.common.internal.cache;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -42,12 +44,15 @@ import com.microsoft.identity.common.internal.logging.Logger;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate.CacheKeyReplacements.CLIENT_ID;
 import static com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate.CacheKeyReplacements.CREDENTIAL_TYPE;
@@ -58,6 +63,13 @@ import static com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate
 
 /**
  * Uses Gson to serialize instances of <T> into {@link String}s.
+ * <p>
+ * {@link AccountRecord} and the {@link Credential} types are (de)serialized by streaming
+ * TypeAdapters which bind known fields and collect additional fields in a single pass. Other
+ * {@link AccountCredentialBase} types fall back to reflection-based binding.
+ * <p>
+ * Values of the streaming types may alternatively be written in the {@link CacheValueFormat#COMPACT}
+ * format, selected per instance; values in either format are read regardless.
  */
 public class CacheKeyValueDelegate implements ICacheKeyValueDelegate {
 
@@ -69,14 +81,77 @@ public class CacheKeyValueDelegate implements ICacheKeyValueDelegate {
     public static final String CACHE_VALUE_SEPARATOR = "-";
     private static final String FOCI_PREFIX = "foci-";
 
+    /**
+     * Upper bound on the number of memoized {@link CacheKeyDescriptor}s. Should this be exceeded,
+     * the memo is cleared and repopulated on demand.
+     */
+    private static final int MAX_MEMOIZED_CACHE_KEYS = 2048;
+
+    /**
+     * Process-wide memo of parsed cache keys; keys are immutable so descriptors may be shared
+     * across all cache instances.
+     */
+    private static final ConcurrentMap<String, CacheKeyDescriptor> sCacheKeyDescriptors =
+            new ConcurrentHashMap<>();
+
     private final Gson mGson;
 
     /**
-     * Default constructor of CacheKeyValueDelegate.
+     * Memo of the expected JSON fields for each record type, as computed by
+     * {@link #getExpectedJsonFields(Class)}.
+     */
+    private static final ConcurrentMap<Class<?>, Set<String>> sExpectedJsonFields =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Streaming TypeAdapters by record type; these (de)serialize their additional fields
+     * themselves. The adapters are stateless and so shared by all instances.
+     */
+    private static final Map<Class<?>, AccountCredentialBaseTypeAdapter<?>> sTypeAdapters;
+
+    static {
+        final Map<Class<?>, AccountCredentialBaseTypeAdapter<?>> typeAdapters = new HashMap<>();
+        typeAdapters.put(AccountRecord.class, new AccountRecordTypeAdapter());
+        typeAdapters.put(AccessTokenRecord.class, new AccessTokenRecordTypeAdapter());
+        typeAdapters.put(RefreshTokenRecord.class, new RefreshTokenRecordTypeAdapter());
+        typeAdapters.put(IdTokenRecord.class, new IdTokenRecordTypeAdapter());
+        sTypeAdapters = Collections.unmodifiableMap(typeAdapters);
+    }
+
+    private final CacheValueFormat mValueFormat;
+
+    /**
+     * Default constructor of CacheKeyValueDelegate. Values are written as JSON.
      */
     public CacheKeyValueDelegate() {
-        mGson = new Gson();
-        Logger.verbose(TAG, "Init: " + TAG);
+        this(CacheValueFormat.JSON);
+    }
+
+    /**
+     * Constructs a new CacheKeyValueDelegate which writes values in the supplied format. Values
+     * are read in either format, regardless.
+     *
+     * @param valueFormat The {@link CacheValueFormat} in which to write values.
+     */
+    public CacheKeyValueDelegate(@NonNull final CacheValueFormat valueFormat) {
+        final GsonBuilder gsonBuilder = new GsonBuilder();
+
+        for (final Map.Entry<Class<?>, AccountCredentialBaseTypeAdapter<?>> typeAdapter : sTypeAdapters.entrySet()) {
+            gsonBuilder.registerTypeAdapter(typeAdapter.getKey(), typeAdapter.getValue());
+        }
+
+        mGson = gsonBuilder.create();
+        mValueFormat = valueFormat;
+        Logger.verbose(TAG, "Init: " + TAG + " (" + valueFormat + ")");
+    }
+
+    /**
+     * Gets the format in which this delegate writes values.
+     *
+     * @return The {@link CacheValueFormat}.
+     */
+    public CacheValueFormat getValueFormat() {
+        return mValueFormat;
     }
 
     static class CacheKeyReplacements {
@@ -108,7 +183,20 @@ public class CacheKeyValueDelegate implements ICacheKeyValueDelegate {
         return cacheKey;
     }
 
+    @SuppressWarnings("unchecked")
     private String generateCacheValueInternal(final Object baseObject) {
+        final AccountCredentialBaseTypeAdapter<AccountCredentialBase> typeAdapter =
+                (AccountCredentialBaseTypeAdapter<AccountCredentialBase>) sTypeAdapters.get(baseObject.getClass());
+
+        if (null != typeAdapter) {
+            // The TypeAdapter writes the additional fields itself
+            if (CacheValueFormat.COMPACT == mValueFormat) {
+                return CompactCacheValueCodec.encode(typeAdapter, (AccountCredentialBase) baseObject);
+            }
+
+            return mGson.toJson(baseObject);
+        }
+
         JsonElement outboundElement = mGson.toJsonTree(baseObject);
         JsonObject outboundObject = outboundElement.getAsJsonObject();
 
@@ -185,14 +273,53 @@ public class CacheKeyValueDelegate implements ICacheKeyValueDelegate {
         return result;
     }
 
+    /**
+     * Parses the supplied cache key into its {@link CacheKeyDescriptor}. Descriptors are immutable
+     * and memoized; repeated calls for the same key do not re-parse it.
+     *
+     * @param cacheKey The cache key to parse.
+     * @return The CacheKeyDescriptor for the supplied key.
+     */
+    public CacheKeyDescriptor parseCacheKey(@NonNull final String cacheKey) {
+        if (StringExtensions.isNullOrBlank(cacheKey)) {
+            throw new IllegalArgumentException("Param [cacheKey] cannot be null.");
+        }
+
+        CacheKeyDescriptor descriptor = sCacheKeyDescriptors.get(cacheKey);
+
+        if (null == descriptor) {
+            if (sCacheKeyDescriptors.size() >= MAX_MEMOIZED_CACHE_KEYS) {
+                sCacheKeyDescriptors.clear();
+            }
+
+            descriptor = CacheKeyDescriptor.parse(cacheKey);
+
+            final CacheKeyDescriptor existing = sCacheKeyDescriptors.putIfAbsent(cacheKey, descriptor);
+
+            if (null != existing) {
+                descriptor = existing;
+            }
+        }
+
+        return descriptor;
+    }
+
     @Override
     public <T extends AccountCredentialBase> T fromCacheValue(String string, Class<? extends AccountCredentialBase> t) {
         final String methodName = "fromCacheValue";
 
+        final AccountCredentialBaseTypeAdapter<?> typeAdapter = sTypeAdapters.get(t);
+
         try {
+            if (null != typeAdapter
+                    && null != string
+                    && CompactCacheValueCodec.isCompact(string)) {
+                return (T) CompactCacheValueCodec.decode(typeAdapter, string);
+            }
+
             final T resultObject = (T) mGson.fromJson(string, t);
 
-            if (!StringExtensions.isNullOrBlank(string)) {
+            if (!StringExtensions.isNullOrBlank(string) && null == typeAdapter) {
                 // Turn the incoming String into a JSONObject
                 final JsonObject incomingJson = new JsonParser().parse(string).getAsJsonObject();
 
@@ -216,7 +343,7 @@ public class CacheKeyValueDelegate implements ICacheKeyValueDelegate {
 
             // return the fully-formed object
             return resultObject;
-        } catch (JsonSyntaxException e) {
+        } catch (JsonSyntaxException | IllegalArgumentException e) {
             Logger.error(
                     TAG + ":" + methodName,
                     "Failed to parse cache value.",
@@ -228,12 +355,18 @@ public class CacheKeyValueDelegate implements ICacheKeyValueDelegate {
 
     /**
      * For the supplied Class, return a Set of expected JSON values as dictated by @SerializedName
-     * declared on its Fields.
+     * declared on its Fields. The result is computed once per Class.
      *
      * @param clazz The Class to inspect.
      * @return A Set of expected JSON values, as Strings.
      */
     private static Set<String> getExpectedJsonFields(final Class<? extends AccountCredentialBase> clazz) {
+        final Set<String> cachedSerializedNames = sExpectedJsonFields.get(clazz);
+
+        if (null != cachedSerializedNames) {
+            return cachedSerializedNames;
+        }
+
         final Set<String> serializedNames = new HashSet<>();
         final List<Field> fieldsToInspect = getFieldsUpTo(clazz, AccountCredentialBase.class);
         final List<Field> annotatedFields = getSerializedNameAnnotatedFields(fieldsToInspect);
@@ -243,7 +376,10 @@ public class CacheKeyValueDelegate implements ICacheKeyValueDelegate {
             serializedNames.add(serializedName.value());
         }
 
-        return serializedNames;
+        final Set<String> result = Collections.unmodifiableSet(serializedNames);
+        sExpectedJsonFields.putIfAbsent(clazz, result);
+
+        return result;
     }
 
     /**
@@ -0,0 +1,44 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+/**
+ * Encodings in which {@link CacheKeyValueDelegate} can write cache values.
+ * <p>
+ * The format is only selected for writes: values in either format are always readable, so a cache
+ * can switch formats at any time and its existing entries migrate as they are rewritten.
+ */
+public enum CacheValueFormat {
+
+    /**
+     * The legacy JSON encoding. Understood by all versions of this library.
+     */
+    JSON,
+
+    /**
+     * A versioned, length-prefixed encoding which replaces JSON field names with single-character
+     * ids from a fixed per-type dictionary. Requires a version of this library which understands
+     * it, so only select this for caches which are not shared with older library versions.
+     */
+    COMPACT
+}
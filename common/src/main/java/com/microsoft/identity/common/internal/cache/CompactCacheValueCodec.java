@@ -0,0 +1,236 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.JsonElement;
+import com.microsoft.identity.common.internal.dto.AccountCredentialBase;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encoder/decoder for {@link CacheValueFormat#COMPACT} cache values.
+ * <p>
+ * Values stay Strings, as both SharedPreferences and {@link com.microsoft.identity.common.adal.internal.cache.IStorageHelper}
+ * operate on Strings; re-encoding a byte-oriented format to text would cost more than the field
+ * names it saves. The grammar of version 1 is:
+ * <pre>
+ *     value            := MAGIC VERSION field*
+ *     field            := known-field | additional-field
+ *     known-field      := ID chars
+ *     additional-field := '+' chars chars      ; field name, then the field value as JSON
+ *     chars            := LENGTH ':' CHAR{LENGTH}
+ * </pre>
+ * where MAGIC is {@code '#'}, VERSION is {@code '1'}, LENGTH is a decimal char count and ID is
+ * {@code 'A'} plus the index of the field in the type's dictionary
+ * ({@link AccountCredentialBaseTypeAdapter#getFieldNames()}). Since every value is length-prefixed,
+ * nothing is escaped and unrecognized ids (written by a newer dictionary) can be skipped.
+ * <p>
+ * JSON values always begin with {@code '{'}, so the two formats can be told apart by their first
+ * character.
+ */
+final class CompactCacheValueCodec {
+
+    private static final char MAGIC = '#';
+    private static final char VERSION = '1';
+    private static final char FIRST_FIELD_ID = 'A';
+    private static final char LAST_FIELD_ID = 'z';
+    private static final char ADDITIONAL_FIELD = '+';
+    private static final char LENGTH_TERMINATOR = ':';
+
+    private CompactCacheValueCodec() {
+        // Utility class.
+    }
+
+    /**
+     * Tests if the supplied cache value is in the compact format, of any version.
+     *
+     * @param value The cache value to inspect.
+     * @return True, if the value is compact-encoded. False otherwise.
+     */
+    static boolean isCompact(@NonNull final String value) {
+        return !value.isEmpty() && value.charAt(0) == MAGIC;
+    }
+
+    /**
+     * Encodes the supplied record.
+     *
+     * @param adapter The adapter of the record's type, which supplies the field dictionary.
+     * @param record  The record to encode.
+     * @param <T>     The record type.
+     * @return The compact-encoded record.
+     */
+    @NonNull
+    static <T extends AccountCredentialBase> String encode(@NonNull final AccountCredentialBaseTypeAdapter<T> adapter,
+                                                           @NonNull final T record) {
+        final String[] fieldNames = adapter.getFieldNames();
+
+        if (fieldNames.length > LAST_FIELD_ID - FIRST_FIELD_ID + 1) {
+            throw new IllegalStateException("Field dictionary exceeds the range of field ids.");
+        }
+
+        final Map<String, JsonElement> additionalFields =
+                AccountCredentialBaseTypeAdapter.getAdditionalFields(record);
+        final StringBuilder builder = new StringBuilder(256);
+        builder.append(MAGIC).append(VERSION);
+
+        for (int ii = 0; ii < fieldNames.length; ii++) {
+            final String value = adapter.getFieldValue(record, fieldNames[ii]);
+
+            // Additional fields take precedence over known fields of the same name
+            if (null != value && !additionalFields.containsKey(fieldNames[ii])) {
+                builder.append((char) (FIRST_FIELD_ID + ii));
+                appendChars(builder, value);
+            }
+        }
+
+        for (final Map.Entry<String, JsonElement> additionalField : additionalFields.entrySet()) {
+            builder.append(ADDITIONAL_FIELD);
+            appendChars(builder, additionalField.getKey());
+            appendChars(
+                    builder,
+                    AccountCredentialBaseTypeAdapter.JSON_ELEMENT_ADAPTER.toJson(additionalField.getValue())
+            );
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Decodes the supplied compact-encoded value.
+     *
+     * @param adapter The adapter of the record's type, which supplies the field dictionary.
+     * @param value   The value to decode.
+     * @param <T>     The record type.
+     * @return The decoded record.
+     * @throws IllegalArgumentException If the value is malformed or of an unsupported version.
+     */
+    @NonNull
+    static <T extends AccountCredentialBase> T decode(@NonNull final AccountCredentialBaseTypeAdapter<T> adapter,
+                                                      @NonNull final String value) {
+        if (value.length() < 2 || value.charAt(0) != MAGIC) {
+            throw new IllegalArgumentException("Value is not compact-encoded.");
+        }
+
+        if (value.charAt(1) != VERSION) {
+            throw new IllegalArgumentException("Unsupported compact value version: " + value.charAt(1));
+        }
+
+        final String[] fieldNames = adapter.getFieldNames();
+        final T record = adapter.newInstance();
+        final Map<String, JsonElement> additionalFields = new HashMap<>();
+        final Cursor cursor = new Cursor(value, 2);
+
+        while (cursor.hasNext()) {
+            final char id = cursor.nextChar();
+
+            if (id == ADDITIONAL_FIELD) {
+                final String name = cursor.nextChars();
+                final String json = cursor.nextChars();
+
+                try {
+                    additionalFields.put(name, AccountCredentialBaseTypeAdapter.JSON_ELEMENT_ADAPTER.fromJson(json));
+                } catch (final IOException e) {
+                    throw new IllegalArgumentException("Malformed additional field.", e);
+                }
+            } else if (id >= FIRST_FIELD_ID && id <= LAST_FIELD_ID) {
+                final String fieldValue = cursor.nextChars();
+                final int index = id - FIRST_FIELD_ID;
+
+                // Ids past the end of our dictionary were written by a newer one; skip them
+                if (index < fieldNames.length) {
+                    adapter.bindFieldValue(record, fieldNames[index], fieldValue);
+                }
+            } else {
+                throw new IllegalArgumentException("Unexpected field id: " + id);
+            }
+        }
+
+        record.setAdditionalFields(additionalFields);
+
+        return record;
+    }
+
+    private static void appendChars(@NonNull final StringBuilder builder, @NonNull final String chars) {
+        builder.append(chars.length()).append(LENGTH_TERMINATOR).append(chars);
+    }
+
+    /**
+     * Read position within a compact-encoded value.
+     */
+    private static final class Cursor {
+
+        private final String mValue;
+        private int mPosition;
+
+        Cursor(@NonNull final String value, final int position) {
+            mValue = value;
+            mPosition = position;
+        }
+
+        boolean hasNext() {
+            return mPosition < mValue.length();
+        }
+
+        char nextChar() {
+            return mValue.charAt(mPosition++);
+        }
+
+        /**
+         * Reads the next length-prefixed run of chars.
+         *
+         * @return The chars.
+         */
+        @NonNull
+        String nextChars() {
+            int length = 0;
+            int digits = 0;
+
+            while (mPosition < mValue.length()) {
+                final char c = mValue.charAt(mPosition++);
+
+                if (c == LENGTH_TERMINATOR && digits > 0) {
+                    if (length > mValue.length() - mPosition) {
+                        throw new IllegalArgumentException("Length exceeds value at " + mPosition);
+                    }
+
+                    final String chars = mValue.substring(mPosition, mPosition + length);
+                    mPosition += length;
+
+                    return chars;
+                }
+
+                if (c < '0' || c > '9' || ++digits > 9) {
+                    throw new IllegalArgumentException("Malformed length at " + (mPosition - 1));
+                }
+
+                length = length * 10 + (c - '0');
+            }
+
+            throw new IllegalArgumentException("Unterminated length at " + mPosition);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.microsoft.identity.common.internal.dto.Credential;
+
+import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.CACHED_AT;
+import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.CLIENT_ID;
+import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.CREDENTIAL_TYPE;
+import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.ENVIRONMENT;
+import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.HOME_ACCOUNT_ID;
+import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.SECRET;
+
+/**
+ * Streaming TypeAdapter for the fields common to all {@link Credential} types. Subclasses bind
+ * the fields specific to their Credential type.
+ *
+ * @param <T> The Credential type to (de)serialize.
+ */
+abstract class CredentialTypeAdapter<T extends Credential> extends AccountCredentialBaseTypeAdapter<T> {
+
+    private static final String[] CREDENTIAL_FIELD_NAMES = {
+            CLIENT_ID,
+            CREDENTIAL_TYPE,
+            ENVIRONMENT,
+            SECRET,
+            HOME_ACCOUNT_ID,
+            CACHED_AT
+    };
+
+    /**
+     * Constructs a new CredentialTypeAdapter.
+     *
+     * @param fieldNames The known field names of the Credential type, in dictionary order. Must
+     *                   include the fields common to all Credentials.
+     */
+    CredentialTypeAdapter(@NonNull final String... fieldNames) {
+        super(fieldNames);
+
+        for (final String name : CREDENTIAL_FIELD_NAMES) {
+            if (!isKnownField(name)) {
+                throw new IllegalArgumentException("Field dictionary is missing " + name);
+            }
+        }
+    }
+
+    /**
+     * Gets the value of the named Credential-type specific field.
+     *
+     * @param record The record to inspect.
+     * @param name   The field name.
+     * @return The field value, may be null.
+     */
+    @Nullable
+    protected abstract String getCredentialFieldValue(@NonNull T record, @NonNull String name);
+
+    /**
+     * Sets the value of the named Credential-type specific field.
+     *
+     * @param record The record to populate.
+     * @param name   The field name.
+     * @param value  The field value, may be null.
+     */
+    protected abstract void setCredentialFieldValue(@NonNull T record,
+                                                    @NonNull String name,
+                                                    @Nullable String value);
+
+    @Nullable
+    @Override
+    protected final String getFieldValue(@NonNull final T record,
+                                         @NonNull final String name) {
+        switch (name) {
+            case CLIENT_ID:
+                return record.getClientId();
+            case CREDENTIAL_TYPE:
+                return record.getCredentialType();
+            case ENVIRONMENT:
+                return record.getEnvironment();
+            case SECRET:
+                return record.getSecret();
+            case HOME_ACCOUNT_ID:
+                return record.getHomeAccountId();
+            case CACHED_AT:
+                return record.getCachedAt();
+            default:
+                return getCredentialFieldValue(record, name);
+        }
+    }
+
+    @Override
+    protected final void setFieldValue(@NonNull final T record,
+                                       @NonNull final String name,
+                                       @Nullable final String value) {
+        switch (name) {
+            case CLIENT_ID:
+                record.setClientId(value);
+                break;
+            case CREDENTIAL_TYPE:
+                record.setCredentialType(value);
+                break;
+            case ENVIRONMENT:
+                record.setEnvironment(value);
+                break;
+            case SECRET:
+                record.setSecret(value);
+                break;
+            case HOME_ACCOUNT_ID:
+                record.setHomeAccountId(value);
+                break;
+            case CACHED_AT:
+                record.setCachedAt(value);
+                break;
+            default:
+                setCredentialFieldValue(record, name, value);
+                break;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import androidx.annotation.NonNull;
+
+import com.microsoft.identity.common.internal.logging.Logger;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Periodically removes expired AccessTokens and orphaned IdTokens from a
+ * {@link SharedPreferencesAccountCredentialCache}, off the calling thread.
+ * <p>
+ * Sweeps are rate-limited: a sweep requested less than the minimum interval after the previous
+ * one began is dropped, as is one requested while another is in flight. Statistics accumulate
+ * across sweeps and are available from {@link #getStats()}.
+ */
+public class ExpiredCredentialSweeper {
+
+    private static final String TAG = ExpiredCredentialSweeper.class.getSimpleName();
+
+    /**
+     * The default minimum interval between sweeps.
+     */
+    public static final long DEFAULT_MIN_SWEEP_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
+    private static final ScheduledExecutorService sSweepExecutor =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, TAG);
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+
+    private final SharedPreferencesAccountCredentialCache mCache;
+    private final long mMinSweepIntervalMillis;
+    private final AtomicLong mLastSweepStartMillis = new AtomicLong(0);
+    private final AtomicBoolean mSweepInFlight = new AtomicBoolean(false);
+    private volatile CacheCompactionStats mStats = CacheCompactionStats.EMPTY;
+    private ScheduledFuture<?> mSchedule;
+
+    /**
+     * Constructs a new ExpiredCredentialSweeper.
+     *
+     * @param cache                  The cache to sweep.
+     * @param minSweepIntervalMillis The minimum interval between sweeps.
+     */
+    public ExpiredCredentialSweeper(@NonNull final SharedPreferencesAccountCredentialCache cache,
+                                    final long minSweepIntervalMillis) {
+        mCache = cache;
+        mMinSweepIntervalMillis = minSweepIntervalMillis;
+    }
+
+    /**
+     * Requests a sweep on the background thread, unless rate-limited.
+     *
+     * @return True, if a sweep was scheduled. False if it was rate-limited.
+     */
+    public boolean requestSweep() {
+        if (!mSweepInFlight.compareAndSet(false, true)) {
+            Logger.verbose(TAG, "Sweep already in progress.");
+            return false;
+        }
+
+        final long now = System.currentTimeMillis();
+
+        if (now - mLastSweepStartMillis.get() < mMinSweepIntervalMillis) {
+            mSweepInFlight.set(false);
+            Logger.verbose(TAG, "Sweep rate-limited.");
+            return false;
+        }
+
+        mLastSweepStartMillis.set(now);
+
+        sSweepExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    mStats = mStats.plus(mCache.removeExpiredCredentials());
+                } catch (final RuntimeException e) {
+                    Logger.error(TAG, "Sweep failed.", e);
+                } finally {
+                    mSweepInFlight.set(false);
+                }
+            }
+        });
+
+        return true;
+    }
+
+    /**
+     * Requests a sweep at the supplied period, until {@link #stop()} is called. Each periodic
+     * request is subject to the same rate-limiting as {@link #requestSweep()}.
+     *
+     * @param periodMillis The period between requests.
+     */
+    public synchronized void start(final long periodMillis) {
+        stop();
+        mSchedule = sSweepExecutor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                requestSweep();
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops periodic sweeps. A sweep already in progress is allowed to complete.
+     */
+    public synchronized void stop() {
+        if (null != mSchedule) {
+            mSchedule.cancel(false);
+            mSchedule = null;
+        }
+    }
+
+    /**
+     * Gets the statistics accumulated across all completed sweeps.
+     *
+     * @return The statistics.
+     */
+    @NonNull
+    public CacheCompactionStats getStats() {
+        return mStats;
+    }
+}
@@ -0,0 +1,139 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Min-heap of cache keys ordered by expiry, used to find expired credentials without scanning
+ * (and decrypting) the whole cache.
+ * <p>
+ * Re-indexing or removing a key does not search the heap; superseded heap entries are instead
+ * discarded as they surface, and the heap is rebuilt should they come to dominate it.
+ */
+final class ExpiryIndex {
+
+    /**
+     * The latest expiry indexed for each key.
+     */
+    private final Map<String, Long> mExpiries = new HashMap<>();
+
+    private PriorityQueue<Entry> mHeap = new PriorityQueue<>();
+
+    /**
+     * Indexes the supplied key, replacing any previous expiry.
+     *
+     * @param cacheKey  The cache key.
+     * @param expiresOn The expiry, in seconds since the epoch.
+     */
+    synchronized void put(@NonNull final String cacheKey, final long expiresOn) {
+        mExpiries.put(cacheKey, expiresOn);
+        mHeap.add(new Entry(cacheKey, expiresOn));
+
+        if (mHeap.size() > 2 * mExpiries.size() + 16) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Removes the supplied key from the index.
+     *
+     * @param cacheKey The cache key.
+     */
+    synchronized void remove(@NonNull final String cacheKey) {
+        mExpiries.remove(cacheKey);
+    }
+
+    /**
+     * Removes every key from the index.
+     */
+    synchronized void clear() {
+        mExpiries.clear();
+        mHeap.clear();
+    }
+
+    /**
+     * Removes and returns the keys which expire before the supplied time.
+     *
+     * @param nowSeconds The current time, in seconds since the epoch.
+     * @return The expired keys, soonest expiry first.
+     */
+    @NonNull
+    synchronized List<String> pollExpired(final long nowSeconds) {
+        final List<String> expired = new ArrayList<>();
+
+        while (!mHeap.isEmpty() && mHeap.peek().mExpiresOn < nowSeconds) {
+            final Entry entry = mHeap.poll();
+            final Long current = mExpiries.get(entry.mCacheKey);
+
+            // Skip entries superseded by a later put() or remove()
+            if (null != current && current == entry.mExpiresOn) {
+                mExpiries.remove(entry.mCacheKey);
+                expired.add(entry.mCacheKey);
+            }
+        }
+
+        return expired;
+    }
+
+    /**
+     * Gets the number of indexed keys.
+     *
+     * @return The size of the index.
+     */
+    synchronized int size() {
+        return mExpiries.size();
+    }
+
+    private void rebuild() {
+        final PriorityQueue<Entry> heap = new PriorityQueue<>(Math.max(1, mExpiries.size()));
+
+        for (final Map.Entry<String, Long> expiry : mExpiries.entrySet()) {
+            heap.add(new Entry(expiry.getKey(), expiry.getValue()));
+        }
+
+        mHeap = heap;
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+
+        private final String mCacheKey;
+        private final long mExpiresOn;
+
+        Entry(@NonNull final String cacheKey, final long expiresOn) {
+            mCacheKey = cacheKey;
+            mExpiresOn = expiresOn;
+        }
+
+        @Override
+        public int compareTo(@NonNull final Entry other) {
+            return mExpiresOn < other.mExpiresOn ? -1 : (mExpiresOn == other.mExpiresOn ? 0 : 1);
+        }
+    }
+}
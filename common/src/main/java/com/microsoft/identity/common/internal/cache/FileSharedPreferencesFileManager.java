@@ -0,0 +1,150 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.microsoft.identity.common.adal.internal.AuthenticationConstants;
+import com.microsoft.identity.common.adal.internal.cache.IStorageHelper;
+import com.microsoft.identity.common.internal.logging.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * {@link ISharedPreferencesFileManager} which persists its entries to a JSON file using plain
+ * java.io, so that the cache stack can run on a plain JVM with durable storage.
+ * <p>
+ * Commits have the semantics of {@link android.content.SharedPreferences.Editor#commit()}: all
+ * entries are written to a temporary file, which is synced and then renamed over the previous
+ * file, so a crash leaves either the old or the new entries, never a mix. A commit which cannot
+ * be written is dropped.
+ * <p>
+ * Entries are read from the file once, on construction. Only one instance per file should be
+ * used at a time.
+ */
+public class FileSharedPreferencesFileManager extends InMemorySharedPreferencesFileManager {
+
+    private static final String TAG = FileSharedPreferencesFileManager.class.getSimpleName();
+
+    private static final String FILE_SUFFIX = ".json";
+
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+    private static final Type ENTRIES_TYPE = new TypeToken<Map<String, String>>() {
+    }.getType();
+
+    private static final Gson GSON = new Gson();
+
+    private final File mFile;
+    private final File mTemporaryFile;
+
+    /**
+     * Constructs a new FileSharedPreferencesFileManager.
+     *
+     * @param directory     The directory holding the file. It must exist.
+     * @param name          The name of the file, without extension.
+     * @param storageHelper The {@link IStorageHelper} to handle encryption/decryption of values,
+     *                      or null to store values in the clear.
+     */
+    public FileSharedPreferencesFileManager(@NonNull final File directory,
+                                            @NonNull final String name,
+                                            @Nullable final IStorageHelper storageHelper) {
+        super(name, storageHelper, readEntries(new File(directory, name + FILE_SUFFIX)));
+        mFile = new File(directory, name + FILE_SUFFIX);
+        mTemporaryFile = new File(directory, name + FILE_SUFFIX + TEMPORARY_FILE_SUFFIX);
+    }
+
+    /**
+     * Gets the file the entries are persisted to.
+     *
+     * @return The file.
+     */
+    @NonNull
+    public File getFile() {
+        return mFile;
+    }
+
+    @Override
+    public long getFileSize() {
+        return mFile.length();
+    }
+
+    @Override
+    protected void persist(@NonNull final Map<String, String> entries) throws IOException {
+        final FileOutputStream outputStream = new FileOutputStream(mTemporaryFile);
+
+        try {
+            final Writer writer = new OutputStreamWriter(outputStream, AuthenticationConstants.ENCODING_UTF8);
+            GSON.toJson(entries, ENTRIES_TYPE, writer);
+            writer.flush();
+            outputStream.getFD().sync();
+        } finally {
+            outputStream.close();
+        }
+
+        if (!mTemporaryFile.renameTo(mFile)) {
+            throw new IOException("Failed to rename " + mTemporaryFile + " to " + mFile);
+        }
+    }
+
+    @NonNull
+    private static Map<String, String> readEntries(@NonNull final File file) {
+        final String methodName = ":readEntries";
+
+        if (!file.exists()) {
+            return Collections.emptyMap();
+        }
+
+        try {
+            final Reader reader = new InputStreamReader(
+                    new FileInputStream(file),
+                    AuthenticationConstants.ENCODING_UTF8
+            );
+
+            try {
+                final Map<String, String> entries = GSON.fromJson(reader, ENTRIES_TYPE);
+                return null == entries ? Collections.<String, String>emptyMap() : entries;
+            } finally {
+                reader.close();
+            }
+        } catch (final IOException | JsonParseException e) {
+            // As SharedPreferences does with an unreadable file, start empty
+            Logger.error(TAG + methodName, "Failed to read entries; starting empty.", e);
+            return Collections.emptyMap();
+        }
+    }
+}
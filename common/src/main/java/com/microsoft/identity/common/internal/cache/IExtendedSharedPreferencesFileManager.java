@@ -0,0 +1,81 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import android.content.SharedPreferences;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Operations added to {@link ISharedPreferencesFileManager} after it was published. They are kept
+ * off it so that existing implementations keep compiling; callers check for this interface and
+ * fall back to the operations of {@link ISharedPreferencesFileManager} otherwise.
+ */
+public interface IExtendedSharedPreferencesFileManager extends ISharedPreferencesFileManager {
+
+    /**
+     * Returns the keys of all entries in the {@link SharedPreferences} file. Unlike
+     * {@link #getAll()}, no values are decrypted.
+     *
+     * @return The Set of keys.
+     */
+    Set<String> getKeys();
+
+    /**
+     * Removes the entries associated with the supplied keys, in a single commit.
+     *
+     * @param keys The keys whose values should be cleared.
+     */
+    void removeAll(final Collection<String> keys);
+
+    /**
+     * Returns the generation of the {@link SharedPreferences} file. The generation increases
+     * with every committed change, by any instance over the same file, so an unchanged
+     * generation means previously read values are still current.
+     *
+     * @return The generation.
+     */
+    long getGeneration();
+
+    /**
+     * Returns the size on disk of the file backing this instance.
+     *
+     * @return The size in bytes, or 0 if the entries are not persisted to a file.
+     */
+    long getFileSize();
+
+    /**
+     * Registers a listener to be notified after each committed change to the file.
+     *
+     * @param listener The listener to register.
+     */
+    void registerChangeListener(final ISharedPreferencesChangeListener listener);
+
+    /**
+     * Unregisters a previously registered listener.
+     *
+     * @param listener The listener to unregister.
+     */
+    void unregisterChangeListener(final ISharedPreferencesChangeListener listener);
+}
@@ -0,0 +1,328 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.microsoft.identity.common.adal.internal.cache.IStorageHelper;
+import com.microsoft.identity.common.adal.internal.util.StringExtensions;
+import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.telemetry.Metrics;
+import com.microsoft.identity.common.internal.telemetry.RequestTrace;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * {@link ISharedPreferencesFileManager} which keeps its entries in memory only, without
+ * {@link android.content.SharedPreferences}, so that the cache stack can run on a plain JVM (for
+ * benchmarks and load tests).
+ * <p>
+ * Like {@link android.content.SharedPreferences.Editor#commit()}, every change replaces the
+ * whole set of entries at once: readers never block and never observe a partially applied
+ * {@link #removeAll(Collection)}. Values are encrypted with the supplied {@link IStorageHelper},
+ * if any, and decrypted values are reused until the generation changes, as in
+ * {@link SharedPreferencesFileManager}.
+ * <p>
+ * Entries, generation and change listeners belong to the instance; unlike
+ * {@link SharedPreferencesFileManager}, two instances with the same name do not share state.
+ */
+public class InMemorySharedPreferencesFileManager implements IExtendedSharedPreferencesFileManager {
+
+    private static final String TAG = InMemorySharedPreferencesFileManager.class.getSimpleName();
+
+    private static final long NOT_COMMITTED = -1;
+
+    private final String mSharedPreferencesFileName;
+    private final IStorageHelper mStorageHelper;
+    private final List<ISharedPreferencesChangeListener> mChangeListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The committed entries, as stored (encrypted, if there is a storage helper). Never modified
+     * in place; writers commit a modified copy.
+     */
+    private volatile Map<String, String> mEntries;
+
+    private volatile long mGeneration;
+
+    /**
+     * The values last read by {@link #getAll()}, decrypted.
+     */
+    private volatile Snapshot mSnapshot;
+
+    private static final class Snapshot {
+
+        private final long mGeneration;
+        private final Map<String, String> mValues;
+
+        Snapshot(final long generation, final Map<String, String> values) {
+            mGeneration = generation;
+            mValues = values;
+        }
+    }
+
+    /**
+     * Constructs a new InMemorySharedPreferencesFileManager storing values in the clear.
+     *
+     * @param name The name reported by {@link #getSharedPreferencesFileName()}.
+     */
+    public InMemorySharedPreferencesFileManager(@NonNull final String name) {
+        this(name, null);
+    }
+
+    /**
+     * Constructs a new InMemorySharedPreferencesFileManager.
+     *
+     * @param name          The name reported by {@link #getSharedPreferencesFileName()}.
+     * @param storageHelper The {@link IStorageHelper} to handle encryption/decryption of values,
+     *                      or null to store values in the clear.
+     */
+    public InMemorySharedPreferencesFileManager(@NonNull final String name,
+                                                @Nullable final IStorageHelper storageHelper) {
+        this(name, storageHelper, Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * Constructs a new InMemorySharedPreferencesFileManager holding previously stored entries.
+     *
+     * @param name           The name reported by {@link #getSharedPreferencesFileName()}.
+     * @param storageHelper  The {@link IStorageHelper} to handle encryption/decryption of values,
+     *                       or null to store values in the clear.
+     * @param initialEntries The entries to start with, as stored (encrypted, if there is a
+     *                       storage helper).
+     */
+    protected InMemorySharedPreferencesFileManager(@NonNull final String name,
+                                                   @Nullable final IStorageHelper storageHelper,
+                                                   @NonNull final Map<String, String> initialEntries) {
+        Logger.verbose(TAG, "Init: " + TAG);
+        mSharedPreferencesFileName = name;
+        mStorageHelper = storageHelper;
+        mEntries = Collections.unmodifiableMap(new HashMap<>(initialEntries));
+    }
+
+    /**
+     * Persists the supplied entries before they are committed. Called with the entries that are
+     * about to replace the current ones, while no other commit can happen.
+     *
+     * @param entries The entries, as stored.
+     * @throws IOException If the entries cannot be persisted, in which case the commit is
+     *                     abandoned.
+     */
+    protected void persist(@NonNull final Map<String, String> entries) throws IOException {
+        // Nothing to persist in memory
+    }
+
+    @Override
+    public final void putString(final String key, final String value) {
+        final String storedValue = null == mStorageHelper ? value : encrypt(value);
+        final long generation;
+
+        synchronized (this) {
+            final Map<String, String> entries = new HashMap<>(mEntries);
+            entries.put(key, storedValue);
+            generation = commit(entries);
+        }
+
+        notifyChanged(generation);
+    }
+
+    @Override
+    public final String getString(final String key) {
+        final Snapshot snapshot = mSnapshot;
+
+        if (null != snapshot && snapshot.mGeneration == mGeneration) {
+            return snapshot.mValues.get(key);
+        }
+
+        final String storedValue = mEntries.get(key);
+
+        if (null != mStorageHelper && !StringExtensions.isNullOrBlank(storedValue)) {
+            return decrypt(storedValue);
+        }
+
+        return storedValue;
+    }
+
+    @Override
+    public final String getSharedPreferencesFileName() {
+        return mSharedPreferencesFileName;
+    }
+
+    @Override
+    public final Map<String, String> getAll() {
+        // Read the generation first, as SharedPreferencesFileManager does
+        final long generation = mGeneration;
+        Snapshot snapshot = mSnapshot;
+
+        if (null == snapshot || snapshot.mGeneration != generation) {
+            final Map<String, String> values = new HashMap<>(mEntries);
+
+            if (null != mStorageHelper) {
+                for (final Map.Entry<String, String> entry : values.entrySet()) {
+                    entry.setValue(decrypt(entry.getValue()));
+                }
+            }
+
+            snapshot = new Snapshot(generation, values);
+            mSnapshot = snapshot;
+        }
+
+        return new HashMap<>(snapshot.mValues);
+    }
+
+    @Override
+    public final boolean contains(final String key) {
+        return mEntries.containsKey(key);
+    }
+
+    @Override
+    public final void clear() {
+        final long generation;
+
+        synchronized (this) {
+            generation = commit(new HashMap<String, String>());
+        }
+
+        notifyChanged(generation);
+    }
+
+    @Override
+    public final void remove(final String key) {
+        final long generation;
+
+        synchronized (this) {
+            final Map<String, String> entries = new HashMap<>(mEntries);
+            entries.remove(key);
+            generation = commit(entries);
+        }
+
+        notifyChanged(generation);
+    }
+
+    @Override
+    public final Set<String> getKeys() {
+        return new HashSet<>(mEntries.keySet());
+    }
+
+    @Override
+    public final void removeAll(final Collection<String> keys) {
+        final long generation;
+
+        synchronized (this) {
+            final Map<String, String> entries = new HashMap<>(mEntries);
+            entries.keySet().removeAll(keys);
+            generation = commit(entries);
+        }
+
+        notifyChanged(generation);
+    }
+
+    @Override
+    public final long getGeneration() {
+        return mGeneration;
+    }
+
+    @Override
+    public long getFileSize() {
+        return 0;
+    }
+
+    @Override
+    public final void registerChangeListener(final ISharedPreferencesChangeListener listener) {
+        mChangeListeners.add(listener);
+    }
+
+    @Override
+    public final void unregisterChangeListener(final ISharedPreferencesChangeListener listener) {
+        mChangeListeners.remove(listener);
+    }
+
+    /**
+     * Persists and publishes the supplied entries, then bumps the generation. Callers hold the
+     * instance lock.
+     *
+     * @return The new generation, or {@link #NOT_COMMITTED} if the entries could not be persisted.
+     */
+    private long commit(@NonNull final Map<String, String> entries) {
+        final String methodName = ":commit";
+
+        try {
+            persist(entries);
+        } catch (final IOException e) {
+            // Mirrors a failed SharedPreferences commit: the change is dropped
+            Logger.error(TAG + methodName, "Failed to persist changes.", e);
+            return NOT_COMMITTED;
+        }
+
+        mEntries = Collections.unmodifiableMap(entries);
+        return ++mGeneration;
+    }
+
+    private void notifyChanged(final long generation) {
+        if (NOT_COMMITTED == generation) {
+            return;
+        }
+
+        for (final ISharedPreferencesChangeListener listener : mChangeListeners) {
+            listener.onSharedPreferencesChanged(mSharedPreferencesFileName, generation);
+        }
+    }
+
+    private String encrypt(final String clearText) {
+        return encryptDecryptInternal(clearText, true);
+    }
+
+    private String decrypt(final String encryptedBlob) {
+        final long decryptStartNanos = RequestTrace.startSpan();
+        final String decryptedValue = encryptDecryptInternal(encryptedBlob, false);
+        RequestTrace.endSpan(RequestTrace.Span.DECRYPT, decryptStartNanos);
+
+        return decryptedValue;
+    }
+
+    private String encryptDecryptInternal(final String inputText, final boolean encrypt) {
+        final String methodName = ":encryptDecryptInternal";
+
+        try {
+            return encrypt ? mStorageHelper.encrypt(inputText) : mStorageHelper.decrypt(inputText);
+        } catch (GeneralSecurityException | IOException e) {
+            Logger.error(
+                    TAG + methodName,
+                    "Failed to " + (encrypt ? "encrypt" : "decrypt") + " value",
+                    null
+            );
+            Metrics.counter(encrypt ? Metrics.ENCRYPT_FAILURES : Metrics.DECRYPT_FAILURES).increment();
+
+            return null;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+/**
+ * Immutable statistics describing one run of a {@link StorageKeyRotationJob}.
+ */
+public final class KeyRotationStats {
+
+    private final int mReEncrypted;
+    private final int mAlreadyCurrent;
+    private final int mUndecryptableRemoved;
+    private final int mBatchesCommitted;
+    private final boolean mResumed;
+    private final long mDurationMillis;
+
+    /**
+     * Constructs a new KeyRotationStats.
+     *
+     * @param reEncrypted          The number of entries re-encrypted with the current key.
+     * @param alreadyCurrent       The number of entries already using the current key.
+     * @param undecryptableRemoved The number of entries removed because they could not be
+     *                             decrypted.
+     * @param batchesCommitted     The number of batched commits written.
+     * @param resumed              True, if the run resumed from a checkpoint.
+     * @param durationMillis       The duration of the run.
+     */
+    public KeyRotationStats(final int reEncrypted,
+                            final int alreadyCurrent,
+                            final int undecryptableRemoved,
+                            final int batchesCommitted,
+                            final boolean resumed,
+                            final long durationMillis) {
+        mReEncrypted = reEncrypted;
+        mAlreadyCurrent = alreadyCurrent;
+        mUndecryptableRemoved = undecryptableRemoved;
+        mBatchesCommitted = batchesCommitted;
+        mResumed = resumed;
+        mDurationMillis = durationMillis;
+    }
+
+    /**
+     * Gets the number of entries re-encrypted with the current key.
+     *
+     * @return The number re-encrypted.
+     */
+    public int getReEncrypted() {
+        return mReEncrypted;
+    }
+
+    /**
+     * Gets the number of entries which already used the current key and encoding.
+     *
+     * @return The number left untouched.
+     */
+    public int getAlreadyCurrent() {
+        return mAlreadyCurrent;
+    }
+
+    /**
+     * Gets the number of entries removed because they could not be decrypted.
+     *
+     * @return The number removed.
+     */
+    public int getUndecryptableRemoved() {
+        return mUndecryptableRemoved;
+    }
+
+    /**
+     * Gets the number of batched commits written.
+     *
+     * @return The number of commits.
+     */
+    public int getBatchesCommitted() {
+        return mBatchesCommitted;
+    }
+
+    /**
+     * Tests if the run resumed from the checkpoint of an interrupted run.
+     *
+     * @return True, if resumed.
+     */
+    public boolean isResumed() {
+        return mResumed;
+    }
+
+    /**
+     * Gets the duration of the run.
+     *
+     * @return The duration, in milliseconds.
+     */
+    public long getDurationMillis() {
+        return mDurationMillis;
+    }
+
+    //CHECKSTYLE:OFF
+    // This method is generated. Checkstyle and/or PMD has been disabled.
+    // This method *must* be regenerated if the class' structural definition changes through the
+    // addition/subtraction of fields.
+    @Override
+    public String toString() {
+        return "KeyRotationStats{" +
+                "mReEncrypted=" + mReEncrypted +
+                ", mAlreadyCurrent=" + mAlreadyCurrent +
+                ", mUndecryptableRemoved=" + mUndecryptableRemoved +
+                ", mBatchesCommitted=" + mBatchesCommitted +
+                ", mResumed=" + mResumed +
+                ", mDurationMillis=" + mDurationMillis +
+                '}';
+    }
+    //CHECKSTYLE:ON
+}
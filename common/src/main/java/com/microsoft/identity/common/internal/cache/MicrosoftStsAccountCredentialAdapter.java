@@ -28,6 +28,7 @@ import com.microsoft.identity.common.adal.internal.util.StringExtensions;
 import com.microsoft.identity.common.exception.ServiceException;
 import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
 import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.Credential;
 import com.microsoft.identity.common.internal.dto.CredentialType;
 import com.microsoft.identity.common.internal.dto.IdTokenRecord;
 import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
@@ -187,7 +188,7 @@ public class MicrosoftStsAccountCredentialAdapter
 
         // Optional fields
         refreshTokenOut.setTarget(refreshTokenIn.getTarget());
-        refreshTokenOut.setCachedAt(String.valueOf(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis())));
+        refreshTokenOut.setCachedAt(String.valueOf(TimeUnit.MILLISECONDS.toSeconds(Credential.getClock().currentTimeMillis())));
         refreshTokenOut.setFamilyId(refreshTokenIn.getFamilyId());
 
         return refreshTokenOut;
@@ -222,7 +223,7 @@ public class MicrosoftStsAccountCredentialAdapter
     }
 
     private String getExtendedExpiresOn(final MicrosoftStsTokenResponse response) {
-        final long currentTimeMillis = System.currentTimeMillis();
+        final long currentTimeMillis = Credential.getClock().currentTimeMillis();
         final long currentTimeSecs = TimeUnit.MILLISECONDS.toSeconds(currentTimeMillis);
         final long extExpiresIn = null == response.getExtExpiresIn() ? 0 : response.getExtExpiresIn();
 
@@ -235,12 +236,12 @@ public class MicrosoftStsAccountCredentialAdapter
     }
 
     private long getCachedAt() {
-        final long currentTimeMillis = System.currentTimeMillis();
+        final long currentTimeMillis = Credential.getClock().currentTimeMillis();
         return TimeUnit.MILLISECONDS.toSeconds(currentTimeMillis);
     }
 
     private long getExpiresOn(final MicrosoftStsTokenResponse msTokenResponse) {
-        final long currentTimeMillis = System.currentTimeMillis();
+        final long currentTimeMillis = Credential.getClock().currentTimeMillis();
         final long currentTimeSecs = TimeUnit.MILLISECONDS.toSeconds(currentTimeMillis);
         final long expiresIn = msTokenResponse.getExpiresIn();
 
@@ -41,6 +41,7 @@ import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationRequ
 import com.microsoft.identity.common.internal.providers.oauth2.OAuth2Strategy;
 import com.microsoft.identity.common.internal.providers.oauth2.OAuth2TokenCache;
 import com.microsoft.identity.common.internal.providers.oauth2.TokenResponse;
+import com.microsoft.identity.common.internal.telemetry.RequestTrace;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -145,6 +146,7 @@ public class MsalOAuth2TokenCache
                              @NonNull final GenericAuthorizationRequest request,
                              @NonNull final GenericTokenResponse response) throws ClientException {
         final String methodName = ":save";
+        final long saveStartNanos = RequestTrace.startSpan();
         // Create the Account
         final AccountRecord accountToSave =
                 mAccountCredentialAdapter.createAccount(
@@ -263,6 +265,8 @@ public class MsalOAuth2TokenCache
         result.setRefreshToken(refreshTokenToSave);
         result.setIdToken(idTokenToSave);
 
+        RequestTrace.endSpan(RequestTrace.Span.CACHE_SAVE, saveStartNanos);
+
         return result;
     }
 
@@ -317,6 +321,7 @@ public class MsalOAuth2TokenCache
     public ICacheRecord load(@NonNull final String clientId,
                              @Nullable final String target,
                              @NonNull final AccountRecord account) {
+        final long loadStartNanos = RequestTrace.startSpan();
         final boolean isMultiResourceCapable = MicrosoftAccount.AUTHORITY_TYPE_V1_V2.equals(
                 account.getAuthorityType()
         );
@@ -361,6 +366,8 @@ public class MsalOAuth2TokenCache
         result.setRefreshToken(refreshTokens.isEmpty() ? null : (RefreshTokenRecord) refreshTokens.get(0));
         result.setIdToken(idTokens.isEmpty() ? null : (IdTokenRecord) idTokens.get(0));
 
+        RequestTrace.endSpan(RequestTrace.Span.CACHE_LOAD, loadStartNanos);
+
         return result;
     }
 
@@ -722,6 +729,33 @@ public class MsalOAuth2TokenCache
         return result;
     }
 
+    @Override
+    public TokenCacheStats getStats() {
+        if (mAccountCredentialCache instanceof AbstractAccountCredentialCache) {
+            return ((AbstractAccountCredentialCache) mAccountCredentialCache).getStats();
+        }
+
+        return super.getStats();
+    }
+
+    @Override
+    protected void warmUp() {
+        final String methodName = ":warmUp";
+
+        // Reading every record loads the file and decrypts its values
+        final int accountCount = mAccountCredentialCache.getAccounts().size();
+        final int credentialCount = mAccountCredentialCache.getCredentials().size();
+
+        Logger.verbose(
+                TAG + methodName,
+                "Loaded ["
+                        + accountCount
+                        + "] accounts and ["
+                        + credentialCount
+                        + "] credentials."
+        );
+    }
+
     /**
      * Removes Credentials of the supplied type for the supplied Account.
      *
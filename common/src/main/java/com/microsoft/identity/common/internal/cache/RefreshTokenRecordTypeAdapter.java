@@ -0,0 +1,98 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
+
+import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.CACHED_AT;
+import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.CLIENT_ID;
+import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.CREDENTIAL_TYPE;
+import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.ENVIRONMENT;
+import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.HOME_ACCOUNT_ID;
+import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.SECRET;
+import static com.microsoft.identity.common.internal.dto.RefreshTokenRecord.SerializedNames.FAMILY_ID;
+import static com.microsoft.identity.common.internal.dto.RefreshTokenRecord.SerializedNames.TARGET;
+
+/**
+ * Streaming TypeAdapter for {@link RefreshTokenRecord}.
+ */
+class RefreshTokenRecordTypeAdapter extends CredentialTypeAdapter<RefreshTokenRecord> {
+
+    /**
+     * The compact field dictionary: a field's id is the letter noted next to it. Ids are
+     * persisted, so fields may only be appended.
+     */
+    private static final String[] FIELD_NAMES = {
+            FAMILY_ID,       // A
+            TARGET,          // B
+            CLIENT_ID,       // C
+            CREDENTIAL_TYPE, // D
+            ENVIRONMENT,     // E
+            SECRET,          // F
+            HOME_ACCOUNT_ID, // G
+            CACHED_AT        // H
+    };
+
+    RefreshTokenRecordTypeAdapter() {
+        super(FIELD_NAMES);
+    }
+
+    @NonNull
+    @Override
+    protected RefreshTokenRecord newInstance() {
+        return new RefreshTokenRecord();
+    }
+
+    @Nullable
+    @Override
+    protected String getCredentialFieldValue(@NonNull final RefreshTokenRecord record,
+                                             @NonNull final String name) {
+        switch (name) {
+            case FAMILY_ID:
+                return record.getFamilyId();
+            case TARGET:
+                return record.getTarget();
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    protected void setCredentialFieldValue(@NonNull final RefreshTokenRecord record,
+                                           @NonNull final String name,
+                                           @Nullable final String value) {
+        switch (name) {
+            case FAMILY_ID:
+                record.setFamilyId(value);
+                break;
+            case TARGET:
+                record.setTarget(value);
+                break;
+            default:
+                break;
+        }
+    }
+}
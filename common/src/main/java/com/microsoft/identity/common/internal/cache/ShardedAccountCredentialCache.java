@@ -0,0 +1,411 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.microsoft.identity.common.adal.internal.AuthenticationConstants;
+import com.microsoft.identity.common.adal.internal.cache.IStorageHelper;
+import com.microsoft.identity.common.adal.internal.util.StringExtensions;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.Credential;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+import com.microsoft.identity.common.internal.logging.Logger;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link IAccountCredentialCache} which spreads Accounts and Credentials over one
+ * {@link android.content.SharedPreferences} file per home_account_id, so that a commit only
+ * rewrites the records of a single account.
+ * <p>
+ * Shard files are named after a digest of the home_account_id; a small, unencrypted directory
+ * file lists the shards in use. Records stored by a {@link SharedPreferencesAccountCredentialCache}
+ * under the same base file name are migrated into the shards on first use.
+ */
+public class ShardedAccountCredentialCache extends AbstractAccountCredentialCache {
+
+    private static final String TAG = ShardedAccountCredentialCache.class.getSimpleName();
+
+    private static final String DIRECTORY_FILE_SUFFIX = ".shards";
+
+    private static final String SHARD_FILE_SUFFIX = ".shard-";
+
+    private static final String SHARD_DIGEST_ALGORITHM = "SHA-256";
+
+    /**
+     * Hex characters of the digest used in shard file names.
+     */
+    private static final int SHARD_ID_LENGTH = 16;
+
+    private final Context mContext;
+    private final String mBaseFileName;
+    private final ICacheKeyValueDelegate mCacheValueDelegate;
+    private final IStorageHelper mStorageHelper;
+    private final SharedPreferencesFileManager mDirectory;
+    private final ConcurrentMap<String, Shard> mShards = new ConcurrentHashMap<>();
+    private volatile boolean mMigrated;
+
+    /**
+     * A shard file and the cache over it.
+     */
+    private static final class Shard {
+
+        private final ISharedPreferencesFileManager mFileManager;
+        private final SharedPreferencesAccountCredentialCache mCache;
+
+        Shard(@NonNull final ISharedPreferencesFileManager fileManager,
+              @NonNull final ICacheKeyValueDelegate cacheValueDelegate) {
+            mFileManager = fileManager;
+            mCache = new SharedPreferencesAccountCredentialCache(cacheValueDelegate, fileManager);
+        }
+    }
+
+    /**
+     * Constructs a new ShardedAccountCredentialCache.
+     *
+     * @param context                   The application Context.
+     * @param baseFileName              The single-file cache name the shard names derive from,
+     *                                  e.g. {@link SharedPreferencesAccountCredentialCache#DEFAULT_ACCOUNT_CREDENTIAL_SHARED_PREFERENCES}.
+     * @param accountCacheValueDelegate The delegate used to generate cache keys and (de)serialize
+     *                                  records.
+     * @param storageHelper             The {@link IStorageHelper} used to encrypt stored records,
+     *                                  or null to store them in the clear.
+     */
+    public ShardedAccountCredentialCache(@NonNull final Context context,
+                                         @NonNull final String baseFileName,
+                                         @NonNull final ICacheKeyValueDelegate accountCacheValueDelegate,
+                                         @Nullable final IStorageHelper storageHelper) {
+        Logger.verbose(TAG, "Init: " + TAG);
+        mContext = context;
+        mBaseFileName = baseFileName;
+        mCacheValueDelegate = accountCacheValueDelegate;
+        mStorageHelper = storageHelper;
+        mDirectory = new SharedPreferencesFileManager(context, baseFileName + DIRECTORY_FILE_SUFFIX);
+    }
+
+    @Override
+    public void saveAccount(@NonNull final AccountRecord account) {
+        getOrCreateShard(account.getHomeAccountId()).mCache.saveAccount(account);
+    }
+
+    @Override
+    public void saveCredential(@NonNull final Credential credential) {
+        getOrCreateShard(credential.getHomeAccountId()).mCache.saveCredential(credential);
+    }
+
+    @Override
+    @Nullable
+    public AccountRecord getAccount(@NonNull final String cacheKey) {
+        // Keys cannot be mapped back to a home_account_id, which may itself contain the
+        // separator; find the shard holding the key instead (an in-memory lookup per shard)
+        final Shard shard = findShardContaining(cacheKey);
+        return null == shard ? null : shard.mCache.getAccount(cacheKey);
+    }
+
+    @Override
+    @Nullable
+    public Credential getCredential(@NonNull final String cacheKey) {
+        final Shard shard = findShardContaining(cacheKey);
+        return null == shard ? null : shard.mCache.getCredential(cacheKey);
+    }
+
+    @Override
+    @NonNull
+    public List<AccountRecord> getAccounts() {
+        final List<AccountRecord> accounts = new ArrayList<>();
+
+        for (final Shard shard : getShards()) {
+            accounts.addAll(shard.mCache.getAccounts());
+        }
+
+        return accounts;
+    }
+
+    @Override
+    @NonNull
+    public List<AccountRecord> getAccountsFilteredBy(@Nullable final String homeAccountId,
+                                                     @Nullable final String environment,
+                                                     @Nullable final String realm) {
+        return getAccountsFilteredByInternal(
+                homeAccountId,
+                environment,
+                realm,
+                getAccountsForHomeAccountId(homeAccountId)
+        );
+    }
+
+    @Override
+    @NonNull
+    public List<Credential> getCredentials() {
+        final List<Credential> credentials = new ArrayList<>();
+
+        for (final Shard shard : getShards()) {
+            credentials.addAll(shard.mCache.getCredentials());
+        }
+
+        return credentials;
+    }
+
+    @Override
+    @NonNull
+    public List<Credential> getCredentialsFilteredBy(@Nullable final String homeAccountId,
+                                                     @Nullable final String environment,
+                                                     @Nullable final CredentialType credentialType,
+                                                     @Nullable final String clientId,
+                                                     @Nullable final String realm,
+                                                     @Nullable final String target) {
+        return getCredentialsFilteredByInternal(
+                homeAccountId,
+                environment,
+                credentialType,
+                clientId,
+                realm,
+                target,
+                getCredentialsForHomeAccountId(homeAccountId)
+        );
+    }
+
+    @Override
+    public boolean removeAccount(@NonNull final AccountRecord accountToRemove) {
+        final Shard shard = getExistingShard(accountToRemove.getHomeAccountId());
+        return null != shard && shard.mCache.removeAccount(accountToRemove);
+    }
+
+    @Override
+    public boolean removeCredential(@NonNull final Credential credentialToRemove) {
+        final Shard shard = getExistingShard(credentialToRemove.getHomeAccountId());
+        return null != shard && shard.mCache.removeCredential(credentialToRemove);
+    }
+
+    @Override
+    public synchronized void clearAll() {
+        Logger.info(TAG, "Clearing all shards...");
+
+        for (final Shard shard : getShards()) {
+            shard.mCache.clearAll();
+        }
+
+        mDirectory.clear();
+        mShards.clear();
+    }
+
+    /**
+     * Removes expired AccessTokens and orphaned IdTokens from every shard.
+     *
+     * @return Statistics accumulated over all shards.
+     * @see SharedPreferencesAccountCredentialCache#removeExpiredCredentials()
+     */
+    @NonNull
+    public CacheCompactionStats removeExpiredCredentials() {
+        CacheCompactionStats stats = CacheCompactionStats.EMPTY;
+
+        for (final Shard shard : getShards()) {
+            stats = stats.plus(shard.mCache.removeExpiredCredentials());
+        }
+
+        return stats;
+    }
+
+    @Override
+    @NonNull
+    public TokenCacheStats getStats() {
+        final long startTime = System.currentTimeMillis();
+        TokenCacheStats stats = new TokenCacheStats.Builder()
+                .addFile(mDirectory.getSharedPreferencesFileName(), mDirectory.getFileSize())
+                .build(0);
+
+        for (final Shard shard : getShards()) {
+            stats = stats.plus(shard.mCache.getStats());
+        }
+
+        return stats.withReadDurationMillis(System.currentTimeMillis() - startTime);
+    }
+
+    @NonNull
+    private List<AccountRecord> getAccountsForHomeAccountId(@Nullable final String homeAccountId) {
+        if (StringExtensions.isNullOrBlank(homeAccountId)) {
+            return getAccounts();
+        }
+
+        final Shard shard = getExistingShard(homeAccountId);
+        return null == shard ? Collections.<AccountRecord>emptyList() : shard.mCache.getAccounts();
+    }
+
+    @NonNull
+    private List<Credential> getCredentialsForHomeAccountId(@Nullable final String homeAccountId) {
+        if (StringExtensions.isNullOrBlank(homeAccountId)) {
+            return getCredentials();
+        }
+
+        final Shard shard = getExistingShard(homeAccountId);
+        return null == shard ? Collections.<Credential>emptyList() : shard.mCache.getCredentials();
+    }
+
+    @Nullable
+    private Shard findShardContaining(@NonNull final String cacheKey) {
+        for (final Shard shard : getShards()) {
+            if (shard.mFileManager.contains(cacheKey)) {
+                return shard;
+            }
+        }
+
+        return null;
+    }
+
+    @NonNull
+    private Collection<Shard> getShards() {
+        migrateIfNeeded();
+        final List<Shard> shards = new ArrayList<>();
+
+        for (final String shardId : mDirectory.getKeys()) {
+            shards.add(getShard(shardId));
+        }
+
+        return shards;
+    }
+
+    @Nullable
+    private Shard getExistingShard(@Nullable final String homeAccountId) {
+        migrateIfNeeded();
+        final String shardId = getShardId(homeAccountId);
+        return mDirectory.contains(shardId) ? getShard(shardId) : null;
+    }
+
+    @NonNull
+    private Shard getOrCreateShard(@Nullable final String homeAccountId) {
+        migrateIfNeeded();
+        return addShard(homeAccountId);
+    }
+
+    @NonNull
+    private Shard addShard(@Nullable final String homeAccountId) {
+        final String shardId = getShardId(homeAccountId);
+
+        if (!mDirectory.contains(shardId)) {
+            synchronized (this) {
+                if (!mDirectory.contains(shardId)) {
+                    Logger.verbose(TAG, "Adding shard to directory.");
+                    mDirectory.putString(shardId, mBaseFileName + SHARD_FILE_SUFFIX + shardId);
+                }
+            }
+        }
+
+        return getShard(shardId);
+    }
+
+    @NonNull
+    private Shard getShard(@NonNull final String shardId) {
+        Shard shard = mShards.get(shardId);
+
+        if (null == shard) {
+            final String fileName = mBaseFileName + SHARD_FILE_SUFFIX + shardId;
+            final ISharedPreferencesFileManager fileManager = null == mStorageHelper
+                    ? new SharedPreferencesFileManager(mContext, fileName)
+                    : new SharedPreferencesFileManager(mContext, fileName, mStorageHelper);
+            mShards.putIfAbsent(shardId, new Shard(fileManager, mCacheValueDelegate));
+            shard = mShards.get(shardId);
+        }
+
+        return shard;
+    }
+
+    /**
+     * Moves records written by the single-file layout into their shards. The single file is only
+     * cleared once every record has been written to a shard, so an interrupted migration is
+     * simply repeated.
+     */
+    private void migrateIfNeeded() {
+        if (mMigrated) {
+            return;
+        }
+
+        synchronized (this) {
+            if (mMigrated) {
+                return;
+            }
+
+            final String methodName = ":migrateIfNeeded";
+            final SharedPreferencesFileManager legacyFileManager = null == mStorageHelper
+                    ? new SharedPreferencesFileManager(mContext, mBaseFileName)
+                    : new SharedPreferencesFileManager(mContext, mBaseFileName, mStorageHelper);
+
+            if (legacyFileManager.getKeys().isEmpty()) {
+                mMigrated = true;
+                return;
+            }
+
+            final SharedPreferencesAccountCredentialCache legacyCache =
+                    new SharedPreferencesAccountCredentialCache(mCacheValueDelegate, legacyFileManager);
+            final List<AccountRecord> accounts = legacyCache.getAccounts();
+            final List<Credential> credentials = legacyCache.getCredentials();
+
+            for (final AccountRecord account : accounts) {
+                addShard(account.getHomeAccountId()).mCache.saveAccount(account);
+            }
+
+            for (final Credential credential : credentials) {
+                addShard(credential.getHomeAccountId()).mCache.saveCredential(credential);
+            }
+
+            legacyCache.clearAll();
+            mMigrated = true;
+            Logger.info(
+                    TAG + methodName,
+                    "Migrated [" + (accounts.size() + credentials.size()) + "] records into shards."
+            );
+        }
+    }
+
+    @NonNull
+    private static String getShardId(@Nullable final String homeAccountId) {
+        final String normalized = null == homeAccountId ? "" : homeAccountId.toLowerCase(Locale.US);
+
+        try {
+            final byte[] digest = MessageDigest.getInstance(SHARD_DIGEST_ALGORITHM)
+                    .digest(normalized.getBytes(AuthenticationConstants.ENCODING_UTF8));
+            final StringBuilder shardId = new StringBuilder(SHARD_ID_LENGTH);
+
+            for (int i = 0; shardId.length() < SHARD_ID_LENGTH; i++) {
+                shardId.append(String.format(Locale.US, "%02x", digest[i]));
+            }
+
+            return shardId.toString();
+        } catch (final NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            // Both are guaranteed to be available on every platform
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -25,7 +25,6 @@ package com.microsoft.identity.common.internal.cache;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import com.microsoft.identity.common.adal.internal.util.StringExtensions;
 import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
 import com.microsoft.identity.common.internal.dto.AccountRecord;
 import com.microsoft.identity.common.internal.dto.Credential;
@@ -36,14 +35,19 @@ import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
 import com.microsoft.identity.common.internal.logging.Logger;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-
-import static com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate.CACHE_VALUE_SEPARATOR;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 @SuppressWarnings("PMD.AvoidDuplicateLiterals")
 public class SharedPreferencesAccountCredentialCache extends AbstractAccountCredentialCache {
@@ -82,12 +86,33 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
     private static final String DESERIALIZATION_FAILED = "Deserialization failed. Skipping ";
     private static final String ACCOUNT_RECORD_DESERIALIZATION_FAILED = DESERIALIZATION_FAILED + AccountRecord.class.getSimpleName();
     private static final String CREDENTIAL_DESERIALIZATION_FAILED = DESERIALIZATION_FAILED + Credential.class.getSimpleName();
+    /**
+     * IdTokens cached more recently than this are never removed as orphans: the Account they
+     * belong to may be saved right after them.
+     */
+    private static final long ORPHAN_ID_TOKEN_GRACE_PERIOD_SECONDS = TimeUnit.MINUTES.toSeconds(10);
+
+    /**
+     * The lock and expiry index of each backing file, shared by every instance over that file, so
+     * that a sweep is ordered against, and sees, the writes of other instances (the broker and the
+     * controllers create one per call).
+     */
+    private static final ConcurrentMap<String, FileState> sFileStates = new ConcurrentHashMap<>();
 
     // SharedPreferences used to store Accounts and Credentials
     private final ISharedPreferencesFileManager mSharedPreferencesFileManager;
 
     private final ICacheKeyValueDelegate mCacheValueDelegate;
 
+    private final FileState mFileState;
+
+    // Reads (including their decryption and deserialization) share the read lock, so concurrent
+    // requests only wait on writes; the write lock also guards the expiry index
+    private final ReadWriteLock mLock;
+
+    // AccessTokens by expiry; seeded from the file on first sweep, then maintained on save
+    private final ExpiryIndex mExpiryIndex;
+
     /**
      * Constructor of SharedPreferencesAccountCredentialCache.
      *
@@ -100,32 +125,65 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
         Logger.verbose(TAG, "Init: " + TAG);
         mSharedPreferencesFileManager = sharedPreferencesFileManager;
         mCacheValueDelegate = accountCacheValueDelegate;
+        mFileState = getFileState(sharedPreferencesFileManager.getSharedPreferencesFileName());
+        mLock = mFileState.mLock;
+        mExpiryIndex = mFileState.mExpiryIndex;
+    }
+
+    @NonNull
+    private static FileState getFileState(@NonNull final String fileName) {
+        FileState state = sFileStates.get(fileName);
+
+        if (null == state) {
+            final FileState newState = new FileState();
+            state = sFileStates.putIfAbsent(fileName, newState);
+
+            if (null == state) {
+                state = newState;
+            }
+        }
+
+        return state;
     }
 
     @Override
-    public synchronized void saveAccount(@NonNull final AccountRecord account) {
+    public void saveAccount(@NonNull final AccountRecord account) {
         Logger.verbose(TAG, "Saving Account...");
         Logger.verbose(TAG, "Account type: [" + account.getClass().getSimpleName() + "]");
         final String cacheKey = mCacheValueDelegate.generateCacheKey(account);
         Logger.verbosePII(TAG, "Generated cache key: [" + cacheKey + "]");
         final String cacheValue = mCacheValueDelegate.generateCacheValue(account);
-        mSharedPreferencesFileManager.putString(cacheKey, cacheValue);
+
+        mLock.writeLock().lock();
+        try {
+            mSharedPreferencesFileManager.putString(cacheKey, cacheValue);
+        } finally {
+            mLock.writeLock().unlock();
+        }
     }
 
     @Override
-    public synchronized void saveCredential(@NonNull Credential credential) {
+    public void saveCredential(@NonNull Credential credential) {
         Logger.verbose(TAG, "Saving credential...");
         final String cacheKey = mCacheValueDelegate.generateCacheKey(credential);
         Logger.verbosePII(TAG, "Generated cache key: [" + cacheKey + "]");
         final String cacheValue = mCacheValueDelegate.generateCacheValue(credential);
-        mSharedPreferencesFileManager.putString(cacheKey, cacheValue);
+
+        mLock.writeLock().lock();
+        try {
+            mSharedPreferencesFileManager.putString(cacheKey, cacheValue);
+            indexExpiry(cacheKey, credential);
+        } finally {
+            mLock.writeLock().unlock();
+        }
     }
 
     @Override
-    public synchronized AccountRecord getAccount(@NonNull final String cacheKey) {
+    public AccountRecord getAccount(@NonNull final String cacheKey) {
         Logger.verbose(TAG, "Loading Account by key...");
+        final String cacheValue = getCacheValue(cacheKey);
         AccountRecord account = mCacheValueDelegate.fromCacheValue(
-                mSharedPreferencesFileManager.getString(cacheKey),
+                cacheValue,
                 AccountRecord.class
         );
 
@@ -138,7 +196,7 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
             );
         } else if (EMPTY_ACCOUNT.equals(account)) {
             Logger.warn(TAG, "The returned Account was uninitialized. Removing...");
-            mSharedPreferencesFileManager.remove(cacheKey);
+            removeIfUnchanged(cacheKey, cacheValue);
             account = null;
         }
 
@@ -146,7 +204,7 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
     }
 
     @Override
-    public synchronized Credential getCredential(@NonNull final String cacheKey) {
+    public Credential getCredential(@NonNull final String cacheKey) {
         // TODO add support for more Credential types...
         Logger.verbose(TAG, "getCredential()");
         Logger.verbosePII(TAG, "Using cache key: [" + cacheKey + "]");
@@ -163,8 +221,9 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
             throw new RuntimeException("Credential type could not be resolved.");
         }
 
+        final String cacheValue = getCacheValue(cacheKey);
         Credential credential = mCacheValueDelegate.fromCacheValue(
-                mSharedPreferencesFileManager.getString(cacheKey),
+                cacheValue,
                 clazz
         );
 
@@ -181,17 +240,53 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
             // The returned credential came back uninitialized...
             // Remove the entry and return null...
             Logger.warn(TAG, "The returned Credential was uninitialized. Removing...");
-            mSharedPreferencesFileManager.remove(cacheKey);
+            removeIfUnchanged(cacheKey, cacheValue);
             credential = null;
         }
 
         return credential;
     }
 
+    @Nullable
+    private String getCacheValue(@NonNull final String cacheKey) {
+        mLock.readLock().lock();
+        try {
+            return mSharedPreferencesFileManager.getString(cacheKey);
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the entry for the supplied key, unless it was rewritten after being read.
+     */
+    private void removeIfUnchanged(@NonNull final String cacheKey, @Nullable final String cacheValue) {
+        mLock.writeLock().lock();
+        try {
+            final String currentValue = mSharedPreferencesFileManager.getString(cacheKey);
+
+            if (null == currentValue ? null == cacheValue : currentValue.equals(cacheValue)) {
+                mSharedPreferencesFileManager.remove(cacheKey);
+            }
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    @NonNull
+    private Map<String, ?> getAllCacheValues() {
+        mLock.readLock().lock();
+        try {
+            return mSharedPreferencesFileManager.getAll();
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
     @NonNull
     private Map<String, AccountRecord> getAccountsWithKeys() {
         Logger.verbose(TAG, "Loading Accounts + keys...");
-        final Map<String, ?> cacheValues = mSharedPreferencesFileManager.getAll();
+        final Map<String, ?> cacheValues = getAllCacheValues();
         final Map<String, AccountRecord> accounts = new HashMap<>();
 
         for (Map.Entry<String, ?> cacheValue : cacheValues.entrySet()) {
@@ -222,7 +317,7 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
 
     @Override
     @NonNull
-    public synchronized List<AccountRecord> getAccounts() {
+    public List<AccountRecord> getAccounts() {
         Logger.verbose(TAG, "Loading Accounts...(no arg)");
         final Map<String, AccountRecord> allAccounts = getAccountsWithKeys();
         final List<AccountRecord> accounts = new ArrayList<>(allAccounts.values());
@@ -255,7 +350,7 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
     @NonNull
     private Map<String, Credential> getCredentialsWithKeys() {
         Logger.verbose(TAG, "Loading Credentials with keys...");
-        final Map<String, ?> cacheValues = mSharedPreferencesFileManager.getAll();
+        final Map<String, ?> cacheValues = getAllCacheValues();
         final Map<String, Credential> credentials = new HashMap<>();
 
         for (Map.Entry<String, ?> cacheValue : cacheValues.entrySet()) {
@@ -286,7 +381,7 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
 
     @Override
     @NonNull
-    public synchronized List<Credential> getCredentials() {
+    public List<Credential> getCredentials() {
         Logger.verbose(TAG, "Loading Credentials...");
         final Map<String, Credential> allCredentials = getCredentialsWithKeys();
         final List<Credential> creds = new ArrayList<>(allCredentials.values());
@@ -340,7 +435,12 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
             final IAccountRecord currentAccount = entry.getValue();
 
             if (currentAccount.equals(accountToRemove)) {
-                mSharedPreferencesFileManager.remove(entry.getKey());
+                mLock.writeLock().lock();
+                try {
+                    mSharedPreferencesFileManager.remove(entry.getKey());
+                } finally {
+                    mLock.writeLock().unlock();
+                }
                 accountRemoved = true;
                 break;
             }
@@ -368,7 +468,13 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
             final Credential currentCredential = entry.getValue();
 
             if (currentCredential.equals(credentialToRemove)) {
-                mSharedPreferencesFileManager.remove(entry.getKey());
+                mLock.writeLock().lock();
+                try {
+                    mSharedPreferencesFileManager.remove(entry.getKey());
+                    mExpiryIndex.remove(entry.getKey());
+                } finally {
+                    mLock.writeLock().unlock();
+                }
                 credentialRemoved = true;
                 break;
             }
@@ -382,17 +488,234 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
     @Override
     public void clearAll() {
         Logger.info(TAG, "Clearing all SharedPreferences entries...");
-        mSharedPreferencesFileManager.clear();
+        mLock.writeLock().lock();
+        try {
+            mSharedPreferencesFileManager.clear();
+            mExpiryIndex.clear();
+        } finally {
+            mLock.writeLock().unlock();
+        }
         Logger.info(TAG, "SharedPreferences cleared.");
     }
 
-    private Class<? extends Credential> credentialClassForType(@NonNull final String cacheKey) {
-        Logger.verbose(TAG, "Resolving class for key/CredentialType...");
-        Logger.verbosePII(TAG, "Supplied key: [" + cacheKey + "]");
+    /**
+     * Removes expired AccessTokens and any IdTokens whose Account no longer exists, in a single
+     * commit.
+     * <p>
+     * Expired AccessTokens are found through an expiry index rather than by decrypting the whole
+     * file. The index is shared by every instance over the file, and only the first sweep seeds it
+     * with a full read. Each candidate is re-read before removal, as it may have been refreshed
+     * since it was indexed. Orphaned
+     * IdTokens are matched to Accounts on their home_account_id, environment and realm, and are
+     * only removed once older than a grace period, as their Account may be saved just after them.
+     *
+     * @return Statistics for this sweep.
+     */
+    @NonNull
+    public CacheCompactionStats removeExpiredCredentials() {
+        mLock.writeLock().lock();
+        try {
+            return removeExpiredCredentialsLocked();
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
 
-        final CredentialType targetType = getCredentialTypeForCredentialCacheKey(cacheKey);
+    @Override
+    @NonNull
+    public TokenCacheStats getStats() {
+        final long startTime = System.currentTimeMillis();
+        final TokenCacheStats.Builder builder = new TokenCacheStats.Builder();
+        int unreadableEntries = 0;
+
+        for (final Map.Entry<String, ?> cacheValue : getAllCacheValues().entrySet()) {
+            final String cacheKey = cacheValue.getKey();
+            final boolean isAccount = isAccount(cacheKey);
+
+            if (!isAccount && !isCredential(cacheKey)) {
+                continue;
+            }
+
+            if (null == cacheValue.getValue()) {
+                // The value could not be decrypted
+                unreadableEntries++;
+            } else if (isAccount) {
+                if (null == mCacheValueDelegate.fromCacheValue(cacheValue.getValue().toString(), AccountRecord.class)) {
+                    unreadableEntries++;
+                } else {
+                    builder.addAccount();
+                }
+            } else {
+                final Credential credential = mCacheValueDelegate.fromCacheValue(
+                        cacheValue.getValue().toString(),
+                        credentialClassForType(cacheKey)
+                );
+
+                if (null == credential) {
+                    unreadableEntries++;
+                } else {
+                    builder.addCredential(credential);
+                }
+            }
+        }
+
+        builder.addUnreadableEntries(unreadableEntries);
+
+        if (mSharedPreferencesFileManager instanceof IExtendedSharedPreferencesFileManager) {
+            builder.addFile(
+                    mSharedPreferencesFileManager.getSharedPreferencesFileName(),
+                    ((IExtendedSharedPreferencesFileManager) mSharedPreferencesFileManager).getFileSize()
+            );
+        }
+
+        return builder.build(System.currentTimeMillis() - startTime);
+    }
+
+    @NonNull
+    private CacheCompactionStats removeExpiredCredentialsLocked() {
+        final String methodName = ":removeExpiredCredentials";
+        final long startTime = System.currentTimeMillis();
+
+        if (!mFileState.mExpiryIndexSeeded) {
+            Logger.verbose(TAG + methodName, "Seeding expiry index...");
+
+            for (final Map.Entry<String, Credential> entry : getCredentialsWithKeys().entrySet()) {
+                indexExpiry(entry.getKey(), entry.getValue());
+            }
+
+            mFileState.mExpiryIndexSeeded = true;
+        }
+
+        final List<String> keysToRemove = new ArrayList<>();
+
+        final long now = TimeUnit.MILLISECONDS.toSeconds(Credential.getClock().currentTimeMillis());
+
+        for (final String cacheKey : mExpiryIndex.pollExpired(now)) {
+            final String cacheValue = mSharedPreferencesFileManager.getString(cacheKey);
+
+            if (null == cacheValue) {
+                continue;
+            }
+
+            final AccessTokenRecord accessToken = mCacheValueDelegate.fromCacheValue(
+                    cacheValue,
+                    AccessTokenRecord.class
+            );
+
+            if (null != accessToken && accessToken.isExpired()) {
+                keysToRemove.add(cacheKey);
+            } else if (null != accessToken) {
+                indexExpiry(cacheKey, accessToken);
+            }
+        }
+
+        final int expiredAccessTokensRemoved = keysToRemove.size();
+        keysToRemove.addAll(findOrphanedIdTokenKeys(now));
+
+        if (!keysToRemove.isEmpty()) {
+            removeAll(keysToRemove);
+        }
+
+        final long endTime = System.currentTimeMillis();
+        final CacheCompactionStats stats = new CacheCompactionStats(
+                1,
+                expiredAccessTokensRemoved,
+                keysToRemove.size() - expiredAccessTokensRemoved,
+                mExpiryIndex.size(),
+                endTime - startTime,
+                endTime
+        );
+
+        Logger.info(TAG + methodName, stats.toString());
 
-        Logger.verbose(TAG, "CredentialType matched: [" + targetType + "]");
+        return stats;
+    }
+
+    private void indexExpiry(@NonNull final String cacheKey, @NonNull final Credential credential) {
+        if (!(credential instanceof AccessTokenRecord)) {
+            return;
+        }
+
+        final long expiresOn = ((AccessTokenRecord) credential).getExpiresOnSeconds();
+
+        if (Credential.EPOCH_UNSET == expiresOn) {
+            Logger.warn(TAG, "AccessToken expiry is not numeric; not indexed.");
+        } else {
+            mExpiryIndex.put(cacheKey, expiresOn);
+        }
+    }
+
+    /**
+     * Finds the IdTokens whose Account is not in the cache. Cache keys cannot be split back into
+     * their fields, as home_account_id, realm and client_id may all contain the separator, so
+     * Accounts and IdTokens are matched on the fields of their decoded values. Must be called
+     * under the write lock, so that no save interleaves.
+     *
+     * @param now The current time, in seconds.
+     * @return The cache keys of the orphaned IdTokens.
+     */
+    @NonNull
+    private List<String> findOrphanedIdTokenKeys(final long now) {
+        final String methodName = ":findOrphanedIdTokenKeys";
+        final Set<String> accountIdentities = new HashSet<>();
+        final List<String> idTokenKeys = new ArrayList<>();
+
+        for (final String cacheKey : getKeys()) {
+            final CacheKeyDescriptor descriptor = parseCacheKey(cacheKey);
+
+            if (CredentialType.IdToken == descriptor.getCredentialType()) {
+                idTokenKeys.add(cacheKey);
+            } else if (descriptor.isAccount()) {
+                final AccountRecord account = mCacheValueDelegate.fromCacheValue(
+                        mSharedPreferencesFileManager.getString(cacheKey),
+                        AccountRecord.class
+                );
+
+                if (null == account) {
+                    // Its IdTokens cannot be told apart from orphans
+                    Logger.warn(TAG + methodName, "Unreadable Account; not removing IdTokens.");
+                    return Collections.emptyList();
+                }
+
+                accountIdentities.add(getAccountIdentity(
+                        account.getHomeAccountId(),
+                        account.getEnvironment(),
+                        account.getRealm()
+                ));
+            }
+        }
+
+        final List<String> orphanedIdTokenKeys = new ArrayList<>();
+
+        for (final String cacheKey : idTokenKeys) {
+            final IdTokenRecord idToken = mCacheValueDelegate.fromCacheValue(
+                    mSharedPreferencesFileManager.getString(cacheKey),
+                    IdTokenRecord.class
+            );
+
+            if (null != idToken
+                    && !accountIdentities.contains(getAccountIdentity(
+                    idToken.getHomeAccountId(),
+                    idToken.getEnvironment(),
+                    idToken.getRealm()))
+                    && idToken.getCachedAtSeconds() != Credential.EPOCH_UNSET
+                    && now - idToken.getCachedAtSeconds() > ORPHAN_ID_TOKEN_GRACE_PERIOD_SECONDS) {
+                orphanedIdTokenKeys.add(cacheKey);
+            }
+        }
+
+        return orphanedIdTokenKeys;
+    }
+
+    @NonNull
+    private static String getAccountIdentity(@Nullable final String homeAccountId,
+                                             @Nullable final String environment,
+                                             @Nullable final String realm) {
+        return (homeAccountId + '|' + environment + '|' + realm).toLowerCase(Locale.US);
+    }
+
+    private Class<? extends Credential> credentialClassForType(@NonNull final String cacheKey) {
+        final CredentialType targetType = getCredentialTypeForCredentialCacheKey(cacheKey);
 
         return getTargetClassForCredentialType(cacheKey, targetType);
     }
@@ -403,59 +726,59 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
      * @param cacheKey The cache key to inspect.
      * @return The CredentialType or null if a proper type cannot be resolved.
      */
-    private CredentialType getCredentialTypeForCredentialCacheKey(@NonNull final String cacheKey) {
-        if (StringExtensions.isNullOrBlank(cacheKey)) {
-            throw new IllegalArgumentException("Param [cacheKey] cannot be null.");
+    @NonNull
+    private Set<String> getKeys() {
+        if (mSharedPreferencesFileManager instanceof IExtendedSharedPreferencesFileManager) {
+            return ((IExtendedSharedPreferencesFileManager) mSharedPreferencesFileManager).getKeys();
         }
 
-        Logger.verbosePII(TAG, "Evaluating cache key for CredentialType [" + cacheKey + "]");
+        return mSharedPreferencesFileManager.getAll().keySet();
+    }
 
-        final Set<String> credentialTypesLowerCase = new HashSet<>();
+    private void removeAll(@NonNull final Collection<String> keys) {
+        if (mSharedPreferencesFileManager instanceof IExtendedSharedPreferencesFileManager) {
+            ((IExtendedSharedPreferencesFileManager) mSharedPreferencesFileManager).removeAll(keys);
+            return;
+        }
 
-        for (final String credentialTypeStr : CredentialType.valueSet()) {
-            credentialTypesLowerCase.add(credentialTypeStr.toLowerCase(Locale.US));
+        for (final String key : keys) {
+            mSharedPreferencesFileManager.remove(key);
         }
+    }
 
-        Logger.info(TAG, "Comparing cache key to known types...");
-
-        CredentialType type = null;
-        for (final String credentialTypeStr : credentialTypesLowerCase) {
-            if (cacheKey.contains(CACHE_VALUE_SEPARATOR + credentialTypeStr + CACHE_VALUE_SEPARATOR)) {
-                Logger.info(TAG, "Cache key is a Credential type...");
-
-                if (credentialTypeStr.equalsIgnoreCase(CredentialType.AccessToken.name())) {
-                    type = CredentialType.AccessToken;
-                    break;
-                } else if (credentialTypeStr.equalsIgnoreCase(CredentialType.RefreshToken.name())) {
-                    type = CredentialType.RefreshToken;
-                    break;
-                } else if (credentialTypeStr.equalsIgnoreCase(CredentialType.IdToken.name())) {
-                    type = CredentialType.IdToken;
-                    break;
-                } else {
-                    // TODO Log a warning and skip this value?
-                    Logger.warn(TAG, "Unexpected credential type.");
-                }
-            }
+    @NonNull
+    private CacheKeyDescriptor parseCacheKey(@NonNull final String cacheKey) {
+        // The key format does not depend on the delegate, but CacheKeyValueDelegate memoizes
+        if (mCacheValueDelegate instanceof CacheKeyValueDelegate) {
+            return ((CacheKeyValueDelegate) mCacheValueDelegate).parseCacheKey(cacheKey);
         }
 
-        Logger.info(TAG, "Cache key was type: [" + type + "]");
+        return CacheKeyDescriptor.parse(cacheKey);
+    }
 
-        return type;
+    private CredentialType getCredentialTypeForCredentialCacheKey(@NonNull final String cacheKey) {
+        return parseCacheKey(cacheKey).getCredentialType();
     }
 
     private boolean isAccount(@NonNull final String cacheKey) {
-        Logger.verbosePII(TAG, "Evaluating cache key: [" + cacheKey + "]");
-        boolean isAccount = null == getCredentialTypeForCredentialCacheKey(cacheKey);
-        Logger.info(TAG, "isAccount? [" + isAccount + "]");
-        return isAccount;
+        return parseCacheKey(cacheKey).isAccount();
     }
 
     private boolean isCredential(@NonNull String cacheKey) {
-        Logger.verbosePII(TAG, "Evaluating cache key: [" + cacheKey + "]");
-        boolean isCredential = null != getCredentialTypeForCredentialCacheKey(cacheKey);
-        Logger.info(TAG, "isCredential? [" + isCredential + "]");
-        return isCredential;
+        return parseCacheKey(cacheKey).isCredential();
     }
 
+
+    /**
+     * The state shared by every instance over one backing file.
+     */
+    private static final class FileState {
+
+        private final ReadWriteLock mLock = new ReentrantReadWriteLock();
+
+        private final ExpiryIndex mExpiryIndex = new ExpiryIndex();
+
+        // Guarded by the write lock
+        private boolean mExpiryIndexSeeded;
+    }
 }
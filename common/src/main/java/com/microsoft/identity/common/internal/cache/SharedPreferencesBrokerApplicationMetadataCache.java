@@ -30,11 +30,13 @@ import androidx.annotation.Nullable;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.telemetry.Metrics;
 
 import java.lang.reflect.Type;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class SharedPreferencesBrokerApplicationMetadataCache
         implements IBrokerApplicationMetadataCache {
@@ -46,7 +48,9 @@ public class SharedPreferencesBrokerApplicationMetadataCache
     private static final String KEY_CACHE_LIST = "app-meta-cache";
     private static final String EMPTY_ARRAY = "[]";
 
-    private final SharedPreferences mSharedPrefs;
+    private final Context mContext;
+
+    private SharedPreferences mSharedPrefs;
 
     private final Gson mGson = new Gson();
 
@@ -55,10 +59,26 @@ public class SharedPreferencesBrokerApplicationMetadataCache
                 TAG + "::ctor",
                 "Init"
         );
-        mSharedPrefs = context.getSharedPreferences(
-                DEFAULT_APP_METADATA_CACHE_NAME,
-                Context.MODE_PRIVATE
-        );
+        mContext = context;
+    }
+
+    /**
+     * Opens the backing file on first use, so that broker calls which never consult the
+     * application metadata do not load it.
+     */
+    private synchronized SharedPreferences getSharedPreferences() {
+        if (null == mSharedPrefs) {
+            final long startNanos = System.nanoTime();
+            mSharedPrefs = mContext.getSharedPreferences(
+                    DEFAULT_APP_METADATA_CACHE_NAME,
+                    Context.MODE_PRIVATE
+            );
+            Metrics.histogram(Metrics.CACHE_INIT_PREFIX + "app_metadata").record(
+                    TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos)
+            );
+        }
+
+        return mSharedPrefs;
     }
 
     @Override
@@ -183,7 +203,7 @@ public class SharedPreferencesBrokerApplicationMetadataCache
                 "Writing cache entry."
         );
 
-        final boolean success = mSharedPrefs.edit().putString(KEY_CACHE_LIST, json).commit();
+        final boolean success = getSharedPreferences().edit().putString(KEY_CACHE_LIST, json).commit();
 
         if (success) {
             Logger.verbose(
@@ -238,7 +258,7 @@ public class SharedPreferencesBrokerApplicationMetadataCache
                     "Writing new cache values..."
             );
 
-            final boolean written = mSharedPrefs.edit().putString(KEY_CACHE_LIST, json).commit();
+            final boolean written = getSharedPreferences().edit().putString(KEY_CACHE_LIST, json).commit();
 
             Logger.verbose(
                     TAG + methodName,
@@ -254,7 +274,7 @@ public class SharedPreferencesBrokerApplicationMetadataCache
     @Override
     public synchronized List<BrokerApplicationMetadata> getAll() {
         final String methodName = ":getAll";
-        final String jsonList = mSharedPrefs.getString(KEY_CACHE_LIST, EMPTY_ARRAY);
+        final String jsonList = getSharedPreferences().getString(KEY_CACHE_LIST, EMPTY_ARRAY);
 
         final Type listType = new TypeToken<List<BrokerApplicationMetadata>>() {
         }.getType();
@@ -278,7 +298,7 @@ public class SharedPreferencesBrokerApplicationMetadataCache
     public synchronized boolean clear() {
         final String methodName = ":clear";
 
-        final boolean cleared = mSharedPrefs.edit().clear().commit();
+        final boolean cleared = getSharedPreferences().edit().clear().commit();
 
         if (!cleared) {
             Logger.warn(
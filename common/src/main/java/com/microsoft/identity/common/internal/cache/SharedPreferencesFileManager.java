@@ -26,25 +26,115 @@ import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.SharedPreferences;
 
+import androidx.annotation.NonNull;
+
 import com.microsoft.identity.common.adal.internal.cache.IStorageHelper;
 import com.microsoft.identity.common.adal.internal.util.StringExtensions;
 import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.telemetry.MainThreadBlockingDetector;
+import com.microsoft.identity.common.internal.telemetry.Metrics;
+import com.microsoft.identity.common.internal.telemetry.RequestTrace;
 
+import java.io.File;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Convenience class for accessing {@link SharedPreferences}.
+ * <p>
+ * Each file has a generation, kept in memory and shared by all instances over the file, which is
+ * bumped by every committed change. Decrypted values are kept in memory together with the
+ * generation they were read at, and reused for as long as the generation is unchanged.
+ * <p>
+ * This trades memory exposure for speed: while a snapshot is held, every value of the file,
+ * including tokens, sits decrypted in the heap instead of only for the duration of a call. To
+ * bound that, a snapshot is dropped by every commit of its instance and once it has not been used
+ * for {@link #SNAPSHOT_IDLE_TIMEOUT_MILLIS}.
  */
-public class SharedPreferencesFileManager implements ISharedPreferencesFileManager {
+public class SharedPreferencesFileManager implements IExtendedSharedPreferencesFileManager {
 
     private static final String TAG = SharedPreferencesFileManager.class.getSimpleName();
 
+    private static final String SHARED_PREFERENCES_DIRECTORY = "shared_prefs";
+
+    private static final String COMMIT_OPERATION = "SharedPreferencesFileManager.commit";
+
+    private static final String SHARED_PREFERENCES_FILE_SUFFIX = ".xml";
+
+    /**
+     * How long a snapshot of decrypted values is kept without being used.
+     */
+    private static final long SNAPSHOT_IDLE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final ScheduledExecutorService sSnapshotExpiryExecutor =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, TAG + "-snapshot-expiry");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /**
+     * Change listeners, by file name; shared by all instances over the same file.
+     */
+    private static final ConcurrentMap<String, List<ISharedPreferencesChangeListener>> sChangeListeners =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Commit state, by file name; shared by all instances over the same file.
+     */
+    private static final ConcurrentMap<String, FileState> sFileStates = new ConcurrentHashMap<>();
+
+    private final Context mContext;
     private final String mSharedPreferencesFileName;
     private final SharedPreferences mSharedPreferences;
+    private final FileState mFileState;
     private final IStorageHelper mStorageHelper;
 
+    /**
+     * The values last read by {@link #getAll()}, decrypted.
+     */
+    private volatile Snapshot mSnapshot;
+    private volatile long mSnapshotLastUsedNanos;
+    private final AtomicBoolean mSnapshotExpiryScheduled = new AtomicBoolean();
+
+    private static final class Snapshot {
+
+        private final long mSequence;
+        private final Map<String, String> mValues;
+
+        Snapshot(final long sequence, final Map<String, String> values) {
+            mSequence = sequence;
+            mValues = values;
+        }
+    }
+
+    private static final class FileState {
+
+        /**
+         * Twice the generation, plus one while a commit is in progress, so that no snapshot is
+         * reused or taken during a commit. Only written while holding the lock of this
+         * FileState, which orders the commits to the file.
+         */
+        private volatile long mSequence;
+    }
+
     /**
      * Constructs an instance of SharedPreferencesFileManager.
      * The default operating mode is {@link Context#MODE_PRIVATE}
@@ -57,8 +147,10 @@ public class SharedPreferencesFileManager implements ISharedPreferencesFileManag
             final Context context,
             final String name) {
         Logger.verbose(TAG, "Init: " + TAG);
+        mContext = context;
         mSharedPreferencesFileName = name;
         mSharedPreferences = context.getSharedPreferences(name, Context.MODE_PRIVATE);
+        mFileState = getFileState(name);
         mStorageHelper = null;
     }
 
@@ -75,8 +167,10 @@ public class SharedPreferencesFileManager implements ISharedPreferencesFileManag
             final String name,
             final int operatingMode) {
         Logger.verbose(TAG, "Init with operating mode: " + TAG);
+        mContext = context;
         mSharedPreferencesFileName = name;
         mSharedPreferences = context.getSharedPreferences(name, operatingMode);
+        mFileState = getFileState(name);
         mStorageHelper = null;
     }
 
@@ -94,8 +188,10 @@ public class SharedPreferencesFileManager implements ISharedPreferencesFileManag
             final String name,
             final IStorageHelper storageHelper) {
         Logger.verbose(TAG, "Init with storage helper:  " + TAG);
+        mContext = context;
         mSharedPreferencesFileName = name;
         mSharedPreferences = context.getSharedPreferences(name, Context.MODE_PRIVATE);
+        mFileState = getFileState(name);
         mStorageHelper = storageHelper;
     }
 
@@ -114,8 +210,10 @@ public class SharedPreferencesFileManager implements ISharedPreferencesFileManag
             final int operatingMode,
             final IStorageHelper storageHelper) {
         Logger.verbose(TAG, "Init with operating mode and storage helper " + TAG);
+        mContext = context;
         mSharedPreferencesFileName = name;
         mSharedPreferences = context.getSharedPreferences(name, operatingMode);
+        mFileState = getFileState(name);
         mStorageHelper = storageHelper;
     }
 
@@ -133,11 +231,17 @@ public class SharedPreferencesFileManager implements ISharedPreferencesFileManag
             editor.putString(key, encrypt(value));
         }
 
-        editor.commit();
+        commit(editor);
     }
 
     @Override
     public final String getString(final String key) {
+        final Snapshot snapshot = getSnapshot(mFileState.mSequence);
+
+        if (null != snapshot) {
+            return snapshot.mValues.get(key);
+        }
+
         String restoredValue = mSharedPreferences.getString(key, null);
 
         if (null != mStorageHelper && !StringExtensions.isNullOrBlank(restoredValue)) {
@@ -154,15 +258,28 @@ public class SharedPreferencesFileManager implements ISharedPreferencesFileManag
 
     @Override
     public final Map<String, String> getAll() {
-        final Map<String, String> entries = (Map<String, String>) mSharedPreferences.getAll();
+        // Read the sequence first: values loaded while it is odd, or changed by the time they
+        // are loaded, are returned but not reused
+        final long sequence = mFileState.mSequence;
+        Snapshot snapshot = getSnapshot(sequence);
+
+        if (null == snapshot) {
+            final Map<String, String> entries = (Map<String, String>) mSharedPreferences.getAll();
+
+            if (null != mStorageHelper) {
+                for (final Map.Entry<String, String> entry : entries.entrySet()) {
+                    entry.setValue(decrypt(entry.getValue()));
+                }
+            }
+
+            snapshot = new Snapshot(sequence, entries);
 
-        if (null != mStorageHelper) {
-            for (final Map.Entry<String, String> entry : entries.entrySet()) {
-                entry.setValue(decrypt(entry.getValue()));
+            if ((sequence & 1) == 0 && sequence == mFileState.mSequence) {
+                setSnapshot(snapshot);
             }
         }
 
-        return entries;
+        return new HashMap<>(snapshot.mValues);
     }
 
     @Override
@@ -176,7 +293,7 @@ public class SharedPreferencesFileManager implements ISharedPreferencesFileManag
     public final void clear() {
         final SharedPreferences.Editor editor = mSharedPreferences.edit();
         editor.clear();
-        editor.commit();
+        commit(editor);
     }
 
     @SuppressLint("ApplySharedPref")
@@ -184,7 +301,230 @@ public class SharedPreferencesFileManager implements ISharedPreferencesFileManag
     public void remove(final String key) {
         final SharedPreferences.Editor editor = mSharedPreferences.edit();
         editor.remove(key);
-        editor.commit();
+        commit(editor);
+    }
+
+    @Override
+    public final Set<String> getKeys() {
+        return new HashSet<>(mSharedPreferences.getAll().keySet());
+    }
+
+    @SuppressLint("ApplySharedPref")
+    @Override
+    public final void removeAll(final Collection<String> keys) {
+        final SharedPreferences.Editor editor = mSharedPreferences.edit();
+
+        for (final String key : keys) {
+            editor.remove(key);
+        }
+
+        commit(editor);
+    }
+
+    @Override
+    public final long getGeneration() {
+        return mFileState.mSequence >>> 1;
+    }
+
+    @Override
+    public final long getFileSize() {
+        // SharedPreferences are stored as XML in the shared_prefs sibling of the files directory
+        final File filesDirectory = mContext.getFilesDir();
+
+        if (null == filesDirectory) {
+            return 0;
+        }
+
+        return new File(
+                new File(filesDirectory.getParentFile(), SHARED_PREFERENCES_DIRECTORY),
+                mSharedPreferencesFileName + SHARED_PREFERENCES_FILE_SUFFIX
+        ).length();
+    }
+
+    @Override
+    public final void registerChangeListener(final ISharedPreferencesChangeListener listener) {
+        List<ISharedPreferencesChangeListener> listeners = sChangeListeners.get(mSharedPreferencesFileName);
+
+        if (null == listeners) {
+            sChangeListeners.putIfAbsent(
+                    mSharedPreferencesFileName,
+                    new CopyOnWriteArrayList<ISharedPreferencesChangeListener>()
+            );
+            listeners = sChangeListeners.get(mSharedPreferencesFileName);
+        }
+
+        listeners.add(listener);
+    }
+
+    @Override
+    public final void unregisterChangeListener(final ISharedPreferencesChangeListener listener) {
+        final List<ISharedPreferencesChangeListener> listeners = sChangeListeners.get(mSharedPreferencesFileName);
+
+        if (null != listeners) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Replaces raw entries of the supplied file in a single commit, ordered against the commits
+     * of every instance over the file. Each entry is only written if it still holds the value it
+     * is expected to, checked under the same lock as the commit.
+     *
+     * @param sharedPreferences         The file.
+     * @param sharedPreferencesFileName The name of the file.
+     * @param expectedValues            The raw value each key is expected to hold.
+     * @param newValues                 The raw value to write for each key, or null to remove it.
+     * @return The keys which were written.
+     */
+    @NonNull
+    static Set<String> replaceIfUnchanged(@NonNull final SharedPreferences sharedPreferences,
+                                          @NonNull final String sharedPreferencesFileName,
+                                          @NonNull final Map<String, String> expectedValues,
+                                          @NonNull final Map<String, String> newValues) {
+        final FileState fileState = getFileState(sharedPreferencesFileName);
+        final Set<String> written = new HashSet<>();
+        final long generation;
+
+        synchronized (fileState) {
+            final SharedPreferences.Editor editor = sharedPreferences.edit();
+
+            for (final Map.Entry<String, String> entry : newValues.entrySet()) {
+                final String key = entry.getKey();
+                final String expectedValue = expectedValues.get(key);
+
+                if (null == expectedValue || !expectedValue.equals(sharedPreferences.getString(key, null))) {
+                    continue;
+                }
+
+                if (null == entry.getValue()) {
+                    editor.remove(key);
+                } else {
+                    editor.putString(key, entry.getValue());
+                }
+
+                written.add(key);
+            }
+
+            if (written.isEmpty()) {
+                return written;
+            }
+
+            generation = commitLocked(fileState, editor);
+        }
+
+        notifyChanged(sharedPreferencesFileName, generation);
+
+        return written;
+    }
+
+    /**
+     * Commits the supplied changes to disk, synchronously, bumps the generation and notifies the
+     * change listeners.
+     */
+    private void commit(final SharedPreferences.Editor editor) {
+        final long generation;
+
+        // The snapshot is stale from here on; drop the decrypted values rather than keep them
+        mSnapshot = null;
+
+        synchronized (mFileState) {
+            generation = commitLocked(mFileState, editor);
+        }
+
+        notifyChanged(mSharedPreferencesFileName, generation);
+    }
+
+    /**
+     * Returns the snapshot if it was taken at the supplied sequence, marking it as used.
+     */
+    private Snapshot getSnapshot(final long sequence) {
+        final Snapshot snapshot = mSnapshot;
+
+        if (null == snapshot || snapshot.mSequence != sequence) {
+            return null;
+        }
+
+        mSnapshotLastUsedNanos = System.nanoTime();
+        return snapshot;
+    }
+
+    private void setSnapshot(@NonNull final Snapshot snapshot) {
+        mSnapshotLastUsedNanos = System.nanoTime();
+        mSnapshot = snapshot;
+        scheduleSnapshotExpiry(SNAPSHOT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    private void scheduleSnapshotExpiry(final long delayMillis) {
+        if (!mSnapshotExpiryScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        sSnapshotExpiryExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                mSnapshotExpiryScheduled.set(false);
+
+                if (null == mSnapshot) {
+                    return;
+                }
+
+                final long idleMillis = TimeUnit.NANOSECONDS.toMillis(
+                        System.nanoTime() - mSnapshotLastUsedNanos
+                );
+
+                if (idleMillis >= SNAPSHOT_IDLE_TIMEOUT_MILLIS) {
+                    mSnapshot = null;
+                } else {
+                    scheduleSnapshotExpiry(SNAPSHOT_IDLE_TIMEOUT_MILLIS - idleMillis);
+                }
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Commits the supplied changes to disk, synchronously. The caller holds the lock of the
+     * supplied FileState.
+     *
+     * @return The new generation.
+     */
+    @SuppressLint("ApplySharedPref")
+    private static long commitLocked(final FileState fileState, final SharedPreferences.Editor editor) {
+        final long blockingToken = MainThreadBlockingDetector.begin(COMMIT_OPERATION);
+        fileState.mSequence++;
+        try {
+            editor.commit();
+        } finally {
+            fileState.mSequence++;
+            MainThreadBlockingDetector.end(COMMIT_OPERATION, blockingToken);
+        }
+
+        return fileState.mSequence >>> 1;
+    }
+
+    @NonNull
+    private static FileState getFileState(@NonNull final String sharedPreferencesFileName) {
+        FileState fileState = sFileStates.get(sharedPreferencesFileName);
+
+        if (null == fileState) {
+            final FileState newFileState = new FileState();
+            fileState = sFileStates.putIfAbsent(sharedPreferencesFileName, newFileState);
+
+            if (null == fileState) {
+                fileState = newFileState;
+            }
+        }
+
+        return fileState;
+    }
+
+    private static void notifyChanged(final String sharedPreferencesFileName, final long generation) {
+        final List<ISharedPreferencesChangeListener> listeners = sChangeListeners.get(sharedPreferencesFileName);
+
+        if (null != listeners) {
+            for (final ISharedPreferencesChangeListener listener : listeners) {
+                listener.onSharedPreferencesChanged(sharedPreferencesFileName, generation);
+            }
+        }
     }
 
     private String encrypt(final String clearText) {
@@ -194,7 +534,9 @@ public class SharedPreferencesFileManager implements ISharedPreferencesFileManag
     }
 
     private String decrypt(final String encryptedBlob) {
+        final long decryptStartNanos = RequestTrace.startSpan();
         final String decryptedValue = encryptDecryptInternal(encryptedBlob, false);
+        RequestTrace.endSpan(RequestTrace.Span.DECRYPT, decryptStartNanos);
 
         return decryptedValue;
     }
@@ -211,6 +553,7 @@ public class SharedPreferencesFileManager implements ISharedPreferencesFileManag
                     "Failed to " + (encrypt ? "encrypt" : "decrypt") + " value",
                     null
             );
+            Metrics.counter(encrypt ? Metrics.ENCRYPT_FAILURES : Metrics.DECRYPT_FAILURES).increment();
 
             // TODO Throw a RuntimeException?
             result = null;
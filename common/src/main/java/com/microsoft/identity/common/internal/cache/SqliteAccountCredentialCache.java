@@ -0,0 +1,651 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.microsoft.identity.common.adal.internal.cache.IStorageHelper;
+import com.microsoft.identity.common.adal.internal.util.StringExtensions;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.Credential;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+import com.microsoft.identity.common.internal.dto.IdTokenRecord;
+import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
+import com.microsoft.identity.common.internal.logging.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * {@link IAccountCredentialCache} backed by a SQLite database.
+ * <p>
+ * Each Account and Credential is a row keyed by its cache key. The fields used for lookups
+ * (home_account_id, environment, credential_type, client_id, realm and family_id) are stored
+ * lowercased in indexed columns, so filtered lookups only load and decrypt the matching rows and
+ * each write touches a single row. The serialized record itself is stored encrypted, if an
+ * {@link IStorageHelper} is supplied.
+ * <p>
+ * The database uses write-ahead logging so that reads proceed concurrently with writes.
+ */
+public class SqliteAccountCredentialCache extends AbstractAccountCredentialCache {
+
+    private static final String TAG = SqliteAccountCredentialCache.class.getSimpleName();
+
+    /**
+     * The name of the database file on disk.
+     */
+    public static final String DEFAULT_ACCOUNT_CREDENTIAL_DATABASE =
+            "com.microsoft.identity.client.account_credential_cache.db";
+
+    private static final int DATABASE_VERSION = 1;
+
+    private static final String TABLE_ACCOUNTS = "accounts";
+    private static final String TABLE_CREDENTIALS = "credentials";
+
+    private static final String COLUMN_CACHE_KEY = "cache_key";
+    private static final String COLUMN_HOME_ACCOUNT_ID = "home_account_id";
+    private static final String COLUMN_ENVIRONMENT = "environment";
+    private static final String COLUMN_CREDENTIAL_TYPE = "credential_type";
+    private static final String COLUMN_CLIENT_ID = "client_id";
+    private static final String COLUMN_REALM = "realm";
+    private static final String COLUMN_FAMILY_ID = "family_id";
+    private static final String COLUMN_VALUE = "value";
+
+    private static final String[] ACCOUNT_PROJECTION = {COLUMN_VALUE};
+    private static final String[] CREDENTIAL_PROJECTION = {COLUMN_CREDENTIAL_TYPE, COLUMN_VALUE};
+
+    private static final String WHERE_CACHE_KEY = COLUMN_CACHE_KEY + " = ?";
+    private static final String ACCESS_TOKEN_TYPE = lowercase(CredentialType.AccessToken.name());
+
+    private final ICacheKeyValueDelegate mCacheValueDelegate;
+    private final IStorageHelper mStorageHelper;
+    private final SQLiteOpenHelper mDatabaseHelper;
+    private final File mDatabaseFile;
+
+    /**
+     * Constructs a new SqliteAccountCredentialCache.
+     *
+     * @param context                   The application Context.
+     * @param databaseName              The name of the database file.
+     * @param accountCacheValueDelegate The delegate used to generate cache keys and (de)serialize
+     *                                  records.
+     * @param storageHelper             The {@link IStorageHelper} used to encrypt stored records,
+     *                                  or null to store them in the clear.
+     */
+    public SqliteAccountCredentialCache(@NonNull final Context context,
+                                        @NonNull final String databaseName,
+                                        @NonNull final ICacheKeyValueDelegate accountCacheValueDelegate,
+                                        @Nullable final IStorageHelper storageHelper) {
+        Logger.verbose(TAG, "Init: " + TAG);
+        mCacheValueDelegate = accountCacheValueDelegate;
+        mStorageHelper = storageHelper;
+        mDatabaseHelper = new DatabaseHelper(context, databaseName);
+        mDatabaseFile = context.getDatabasePath(databaseName);
+    }
+
+    @Override
+    public void saveAccount(@NonNull final AccountRecord account) {
+        Logger.verbose(TAG, "Saving Account...");
+        saveAccount(mDatabaseHelper.getWritableDatabase(), account);
+    }
+
+    @Override
+    public void saveCredential(@NonNull final Credential credential) {
+        Logger.verbose(TAG, "Saving credential...");
+        saveCredential(mDatabaseHelper.getWritableDatabase(), credential);
+    }
+
+    @Override
+    @Nullable
+    public AccountRecord getAccount(@NonNull final String cacheKey) {
+        Logger.verbose(TAG, "Loading Account by key...");
+        final List<AccountRecord> accounts = queryAccounts(WHERE_CACHE_KEY, new String[]{cacheKey});
+
+        return accounts.isEmpty() ? null : accounts.get(0);
+    }
+
+    @Override
+    @Nullable
+    public Credential getCredential(@NonNull final String cacheKey) {
+        Logger.verbose(TAG, "getCredential()");
+        Logger.verbosePII(TAG, "Using cache key: [" + cacheKey + "]");
+        final List<Credential> credentials = queryCredentials(WHERE_CACHE_KEY, new String[]{cacheKey});
+
+        return credentials.isEmpty() ? null : credentials.get(0);
+    }
+
+    @Override
+    @NonNull
+    public List<AccountRecord> getAccounts() {
+        Logger.verbose(TAG, "Loading Accounts...(no arg)");
+        final List<AccountRecord> accounts = queryAccounts(null, null);
+        Logger.info(TAG, "Found [" + accounts.size() + "] Accounts...");
+
+        return accounts;
+    }
+
+    @Override
+    @NonNull
+    public List<AccountRecord> getAccountsFilteredBy(@Nullable final String homeAccountId,
+                                                     @Nullable final String environment,
+                                                     @Nullable final String realm) {
+        Logger.verbose(TAG, "Loading Accounts...");
+        final Selection selection = new Selection();
+        selection.equalTo(COLUMN_HOME_ACCOUNT_ID, homeAccountId);
+        selection.equalTo(COLUMN_ENVIRONMENT, environment);
+        selection.equalTo(COLUMN_REALM, realm);
+
+        final List<AccountRecord> matchingAccounts = queryAccounts(
+                selection.getWhereClause(),
+                selection.getWhereArgs()
+        );
+
+        Logger.info(TAG, "Found [" + matchingAccounts.size() + "] matching Accounts...");
+
+        return matchingAccounts;
+    }
+
+    @Override
+    @NonNull
+    public List<Credential> getCredentials() {
+        Logger.verbose(TAG, "Loading Credentials...");
+        final List<Credential> credentials = queryCredentials(null, null);
+        Logger.verbose(TAG, "Found [" + credentials.size() + "] Credentials");
+
+        return credentials;
+    }
+
+    @Override
+    @NonNull
+    public List<Credential> getCredentialsFilteredBy(@Nullable final String homeAccountId,
+                                                     @Nullable final String environment,
+                                                     @Nullable final CredentialType credentialType,
+                                                     @Nullable final String clientId,
+                                                     @Nullable final String realm,
+                                                     @Nullable final String target) {
+        Logger.verbose(TAG, "getCredentialsFilteredBy()");
+        final Selection selection = new Selection();
+        selection.equalTo(COLUMN_HOME_ACCOUNT_ID, homeAccountId);
+        selection.equalTo(COLUMN_ENVIRONMENT, environment);
+        selection.equalTo(COLUMN_CREDENTIAL_TYPE, null == credentialType ? null : credentialType.name());
+        selection.equalTo(COLUMN_CLIENT_ID, clientId);
+
+        if (!StringExtensions.isNullOrBlank(realm)) {
+            // Realm only constrains AccessTokens
+            selection.add(
+                    "(" + COLUMN_REALM + " = ? OR " + COLUMN_CREDENTIAL_TYPE + " != ?)",
+                    lowercase(realm),
+                    ACCESS_TOKEN_TYPE
+            );
+        }
+
+        final List<Credential> candidates = queryCredentials(
+                selection.getWhereClause(),
+                selection.getWhereArgs()
+        );
+
+        // Targets are matched by scope intersection, which the index cannot express.
+        // The remaining criteria are re-applied to preserve their exact matching semantics.
+        final List<Credential> matchingCredentials = getCredentialsFilteredByInternal(
+                homeAccountId,
+                environment,
+                credentialType,
+                clientId,
+                realm,
+                target,
+                candidates
+        );
+
+        Logger.info(TAG, "Found [" + matchingCredentials.size() + "] matching Credentials...");
+
+        return matchingCredentials;
+    }
+
+    @Override
+    public boolean removeAccount(@NonNull final AccountRecord accountToRemove) {
+        Logger.info(TAG, "Removing Account...");
+        if (null == accountToRemove) {
+            throw new IllegalArgumentException("Param [accountToRemove] cannot be null.");
+        }
+
+        final String cacheKey = mCacheValueDelegate.generateCacheKey(accountToRemove);
+        final boolean accountRemoved = accountToRemove.equals(getAccount(cacheKey))
+                && mDatabaseHelper.getWritableDatabase().delete(
+                TABLE_ACCOUNTS,
+                WHERE_CACHE_KEY,
+                new String[]{cacheKey}
+        ) > 0;
+
+        Logger.info(TAG, "Account was removed? [" + accountRemoved + "]");
+
+        return accountRemoved;
+    }
+
+    @Override
+    public boolean removeCredential(@NonNull final Credential credentialToRemove) {
+        Logger.info(TAG, "Removing Credential...");
+        if (null == credentialToRemove) {
+            throw new IllegalArgumentException("Param [credentialToRemove] cannot be null.");
+        }
+
+        final String cacheKey = mCacheValueDelegate.generateCacheKey(credentialToRemove);
+        final boolean credentialRemoved = credentialToRemove.equals(getCredential(cacheKey))
+                && mDatabaseHelper.getWritableDatabase().delete(
+                TABLE_CREDENTIALS,
+                WHERE_CACHE_KEY,
+                new String[]{cacheKey}
+        ) > 0;
+
+        Logger.info(TAG, "Credential was removed? [" + credentialRemoved + "]");
+
+        return credentialRemoved;
+    }
+
+    @Override
+    public void clearAll() {
+        Logger.info(TAG, "Clearing all database entries...");
+        final SQLiteDatabase database = mDatabaseHelper.getWritableDatabase();
+        database.beginTransaction();
+
+        try {
+            database.delete(TABLE_ACCOUNTS, null, null);
+            database.delete(TABLE_CREDENTIALS, null, null);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+
+        Logger.info(TAG, "Database cleared.");
+    }
+
+    /**
+     * Moves every Account and Credential of the supplied cache into this one, in a single
+     * transaction, then removes the migrated records from the supplied cache. Records written to
+     * the source in the meantime are left there, rather than lost, and are moved by the next call;
+     * once the source is empty, calls are no-ops, which makes it safe to invoke on every startup.
+     *
+     * @param source The cache to migrate from, typically a {@link SharedPreferencesAccountCredentialCache}.
+     * @return The number of records migrated.
+     */
+    public int migrateFrom(@NonNull final IAccountCredentialCache source) {
+        final String methodName = ":migrateFrom";
+        final List<AccountRecord> accounts = source.getAccounts();
+        final List<Credential> credentials = source.getCredentials();
+
+        if (accounts.isEmpty() && credentials.isEmpty()) {
+            Logger.verbose(TAG + methodName, "Nothing to migrate.");
+            return 0;
+        }
+
+        final SQLiteDatabase database = mDatabaseHelper.getWritableDatabase();
+        database.beginTransaction();
+
+        try {
+            for (final AccountRecord account : accounts) {
+                saveAccount(database, account);
+            }
+
+            for (final Credential credential : credentials) {
+                saveCredential(database, credential);
+            }
+
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+
+        // Only remove the records from the source once they are durable here. Records are removed
+        // one by one, and only while unchanged, so that concurrent writes to the source survive
+        for (final AccountRecord account : accounts) {
+            source.removeAccount(account);
+        }
+
+        for (final Credential credential : credentials) {
+            source.removeCredential(credential);
+        }
+
+        final int migrated = accounts.size() + credentials.size();
+        Logger.info(TAG + methodName, "Migrated [" + migrated + "] records.");
+
+        return migrated;
+    }
+
+    @Override
+    @NonNull
+    public TokenCacheStats getStats() {
+        final long startTime = System.currentTimeMillis();
+        final TokenCacheStats.Builder builder = new TokenCacheStats.Builder();
+
+        final List<AccountRecord> accounts = queryAccounts(null, null);
+        for (int i = 0; i < accounts.size(); i++) {
+            builder.addAccount();
+        }
+
+        final List<Credential> credentials = queryCredentials(null, null);
+        for (final Credential credential : credentials) {
+            builder.addCredential(credential);
+        }
+
+        // Rows which could not be decrypted or deserialized are skipped by the queries above
+        final long rows = countRows(TABLE_ACCOUNTS) + countRows(TABLE_CREDENTIALS);
+        builder.addUnreadableEntries((int) Math.max(0, rows - accounts.size() - credentials.size()));
+
+        if (null != mDatabaseFile) {
+            builder.addFile(mDatabaseFile.getName(), mDatabaseFile.length());
+        }
+
+        return builder.build(System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Closes the underlying database. The cache reopens it on next use.
+     */
+    public void close() {
+        mDatabaseHelper.close();
+    }
+
+    private void saveAccount(@NonNull final SQLiteDatabase database,
+                             @NonNull final AccountRecord account) {
+        final String cacheKey = mCacheValueDelegate.generateCacheKey(account);
+        Logger.verbosePII(TAG, "Generated cache key: [" + cacheKey + "]");
+        final String cacheValue = encrypt(mCacheValueDelegate.generateCacheValue(account));
+
+        if (null == cacheValue) {
+            database.delete(TABLE_ACCOUNTS, WHERE_CACHE_KEY, new String[]{cacheKey});
+            return;
+        }
+
+        final ContentValues values = new ContentValues();
+        values.put(COLUMN_CACHE_KEY, cacheKey);
+        values.put(COLUMN_HOME_ACCOUNT_ID, lowercase(account.getHomeAccountId()));
+        values.put(COLUMN_ENVIRONMENT, lowercase(account.getEnvironment()));
+        values.put(COLUMN_REALM, lowercase(account.getRealm()));
+        values.put(COLUMN_VALUE, cacheValue);
+
+        database.insertWithOnConflict(TABLE_ACCOUNTS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private void saveCredential(@NonNull final SQLiteDatabase database,
+                                @NonNull final Credential credential) {
+        final String cacheKey = mCacheValueDelegate.generateCacheKey(credential);
+        Logger.verbosePII(TAG, "Generated cache key: [" + cacheKey + "]");
+        final String cacheValue = encrypt(mCacheValueDelegate.generateCacheValue(credential));
+
+        if (null == cacheValue) {
+            database.delete(TABLE_CREDENTIALS, WHERE_CACHE_KEY, new String[]{cacheKey});
+            return;
+        }
+
+        String realm = null;
+        String familyId = null;
+
+        if (credential instanceof AccessTokenRecord) {
+            realm = ((AccessTokenRecord) credential).getRealm();
+        } else if (credential instanceof IdTokenRecord) {
+            realm = ((IdTokenRecord) credential).getRealm();
+        } else if (credential instanceof RefreshTokenRecord) {
+            familyId = ((RefreshTokenRecord) credential).getFamilyId();
+        }
+
+        final ContentValues values = new ContentValues();
+        values.put(COLUMN_CACHE_KEY, cacheKey);
+        values.put(COLUMN_HOME_ACCOUNT_ID, lowercase(credential.getHomeAccountId()));
+        values.put(COLUMN_ENVIRONMENT, lowercase(credential.getEnvironment()));
+        values.put(COLUMN_CREDENTIAL_TYPE, lowercase(credential.getCredentialType()));
+        values.put(COLUMN_CLIENT_ID, lowercase(credential.getClientId()));
+        values.put(COLUMN_REALM, lowercase(realm));
+        values.put(COLUMN_FAMILY_ID, lowercase(familyId));
+        values.put(COLUMN_VALUE, cacheValue);
+
+        database.insertWithOnConflict(TABLE_CREDENTIALS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    @NonNull
+    private List<AccountRecord> queryAccounts(@Nullable final String selection,
+                                              @Nullable final String[] selectionArgs) {
+        final List<AccountRecord> accounts = new ArrayList<>();
+        final Cursor cursor = mDatabaseHelper.getReadableDatabase().query(
+                TABLE_ACCOUNTS,
+                ACCOUNT_PROJECTION,
+                selection,
+                selectionArgs,
+                null,
+                null,
+                null
+        );
+
+        try {
+            while (cursor.moveToNext()) {
+                final AccountRecord account = mCacheValueDelegate.fromCacheValue(
+                        decrypt(cursor.getString(0)),
+                        AccountRecord.class
+                );
+
+                if (null == account) {
+                    Logger.warn(TAG, "Deserialization failed. Skipping AccountRecord");
+                } else {
+                    accounts.add(account);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        return accounts;
+    }
+
+    @NonNull
+    private List<Credential> queryCredentials(@Nullable final String selection,
+                                              @Nullable final String[] selectionArgs) {
+        final List<Credential> credentials = new ArrayList<>();
+        final Cursor cursor = mDatabaseHelper.getReadableDatabase().query(
+                TABLE_CREDENTIALS,
+                CREDENTIAL_PROJECTION,
+                selection,
+                selectionArgs,
+                null,
+                null,
+                null
+        );
+
+        try {
+            while (cursor.moveToNext()) {
+                final CredentialType credentialType = CredentialType.fromString(cursor.getString(0));
+                final Class<? extends Credential> clazz = null == credentialType
+                        ? null
+                        : getTargetClassForCredentialType(null, credentialType);
+
+                if (null == clazz) {
+                    Logger.warn(TAG, "Unsupported credential type. Skipping row");
+                    continue;
+                }
+
+                final Credential credential = mCacheValueDelegate.fromCacheValue(
+                        decrypt(cursor.getString(1)),
+                        clazz
+                );
+
+                if (null == credential) {
+                    Logger.warn(TAG, "Deserialization failed. Skipping Credential");
+                } else {
+                    credentials.add(credential);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        return credentials;
+    }
+
+    private long countRows(@NonNull final String table) {
+        final Cursor cursor = mDatabaseHelper.getReadableDatabase().rawQuery(
+                "SELECT COUNT(*) FROM " + table,
+                null
+        );
+
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Nullable
+    private String encrypt(@NonNull final String clearText) {
+        if (null == mStorageHelper) {
+            return clearText;
+        }
+
+        try {
+            return mStorageHelper.encrypt(clearText);
+        } catch (GeneralSecurityException | IOException e) {
+            Logger.error(TAG + ":encrypt", "Failed to encrypt value", null);
+            return null;
+        }
+    }
+
+    @Nullable
+    private String decrypt(@Nullable final String encryptedBlob) {
+        if (null == mStorageHelper || StringExtensions.isNullOrBlank(encryptedBlob)) {
+            return encryptedBlob;
+        }
+
+        try {
+            return mStorageHelper.decrypt(encryptedBlob);
+        } catch (GeneralSecurityException | IOException e) {
+            Logger.error(TAG + ":decrypt", "Failed to decrypt value", null);
+            return null;
+        }
+    }
+
+    @Nullable
+    private static String lowercase(@Nullable final String value) {
+        return null == value ? null : value.toLowerCase(Locale.US);
+    }
+
+    /**
+     * Accumulates a conjunction of column predicates; blank criteria are ignored, mirroring
+     * {@link AbstractAccountCredentialCache}.
+     */
+    private static final class Selection {
+
+        private final StringBuilder mWhereClause = new StringBuilder();
+        private final List<String> mWhereArgs = new ArrayList<>();
+
+        void equalTo(@NonNull final String column, @Nullable final String value) {
+            if (!StringExtensions.isNullOrBlank(value)) {
+                add(column + " = ?", lowercase(value));
+            }
+        }
+
+        void add(@NonNull final String predicate, @NonNull final String... args) {
+            if (mWhereClause.length() > 0) {
+                mWhereClause.append(" AND ");
+            }
+
+            mWhereClause.append(predicate);
+
+            for (final String arg : args) {
+                mWhereArgs.add(arg);
+            }
+        }
+
+        @Nullable
+        String getWhereClause() {
+            return mWhereClause.length() == 0 ? null : mWhereClause.toString();
+        }
+
+        @Nullable
+        String[] getWhereArgs() {
+            return mWhereArgs.isEmpty() ? null : mWhereArgs.toArray(new String[mWhereArgs.size()]);
+        }
+    }
+
+    /**
+     * Creates and configures the cache database.
+     */
+    private static final class DatabaseHelper extends SQLiteOpenHelper {
+
+        DatabaseHelper(@NonNull final Context context, @NonNull final String databaseName) {
+            super(context, databaseName, null, DATABASE_VERSION);
+            setWriteAheadLoggingEnabled(true);
+        }
+
+        @Override
+        public void onCreate(final SQLiteDatabase db) {
+            Logger.info(TAG, "Creating database...");
+            db.execSQL("CREATE TABLE " + TABLE_ACCOUNTS + " ("
+                    + COLUMN_CACHE_KEY + " TEXT PRIMARY KEY NOT NULL, "
+                    + COLUMN_HOME_ACCOUNT_ID + " TEXT, "
+                    + COLUMN_ENVIRONMENT + " TEXT, "
+                    + COLUMN_REALM + " TEXT, "
+                    + COLUMN_VALUE + " TEXT NOT NULL)");
+            db.execSQL("CREATE INDEX idx_accounts_lookup ON " + TABLE_ACCOUNTS + " ("
+                    + COLUMN_HOME_ACCOUNT_ID + ", "
+                    + COLUMN_ENVIRONMENT + ", "
+                    + COLUMN_REALM + ")");
+
+            db.execSQL("CREATE TABLE " + TABLE_CREDENTIALS + " ("
+                    + COLUMN_CACHE_KEY + " TEXT PRIMARY KEY NOT NULL, "
+                    + COLUMN_HOME_ACCOUNT_ID + " TEXT, "
+                    + COLUMN_ENVIRONMENT + " TEXT, "
+                    + COLUMN_CREDENTIAL_TYPE + " TEXT, "
+                    + COLUMN_CLIENT_ID + " TEXT, "
+                    + COLUMN_REALM + " TEXT, "
+                    + COLUMN_FAMILY_ID + " TEXT, "
+                    + COLUMN_VALUE + " TEXT NOT NULL)");
+            // Lookups for a signed-in account
+            db.execSQL("CREATE INDEX idx_credentials_lookup ON " + TABLE_CREDENTIALS + " ("
+                    + COLUMN_HOME_ACCOUNT_ID + ", "
+                    + COLUMN_ENVIRONMENT + ", "
+                    + COLUMN_CREDENTIAL_TYPE + ", "
+                    + COLUMN_CLIENT_ID + ", "
+                    + COLUMN_REALM + ")");
+            // Lookups across accounts, e.g. all credentials of a client
+            db.execSQL("CREATE INDEX idx_credentials_client ON " + TABLE_CREDENTIALS + " ("
+                    + COLUMN_CLIENT_ID + ", "
+                    + COLUMN_CREDENTIAL_TYPE + ")");
+            db.execSQL("CREATE INDEX idx_credentials_family ON " + TABLE_CREDENTIALS + " ("
+                    + COLUMN_FAMILY_ID + ")");
+        }
+
+        @Override
+        public void onUpgrade(final SQLiteDatabase db, final int oldVersion, final int newVersion) {
+            // No upgrades yet; version 1 is the only schema.
+            Logger.warn(TAG, "Unexpected upgrade from [" + oldVersion + "] to [" + newVersion + "]");
+        }
+    }
+}
@@ -0,0 +1,282 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.microsoft.identity.common.adal.internal.cache.StorageHelper;
+import com.microsoft.identity.common.internal.logging.Logger;
+
+import java.io.IOException;
+import java.security.DigestException;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Re-encrypts every entry of an encrypted {@link SharedPreferences} file with the key and
+ * encoding {@link StorageHelper} currently encrypts with.
+ * <p>
+ * Entries are walked once, in key order. Entries already using the current key version and
+ * encoding are skipped without being decrypted; all others are decrypted with the key they were
+ * written with and re-encrypted. Entries which fail authentication (e.g. because the
+ * AndroidKeyStore key was reset) are removed, as they would only fail again on every read; entries
+ * which cannot be decrypted for any other reason, such as a transient keystore error, are left for
+ * a later run. Changes are written in batched commits, each entry only if it is unchanged since
+ * it was read, and progress is checkpointed to a companion {@link SharedPreferences} file, so an
+ * interrupted run resumes where it stopped.
+ */
+public class StorageKeyRotationJob {
+
+    private static final String TAG = StorageKeyRotationJob.class.getSimpleName();
+
+    /**
+     * The default number of entries written per commit.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
+    /**
+     * Suffix of the {@link SharedPreferences} file holding the checkpoint.
+     */
+    private static final String CHECKPOINT_FILE_SUFFIX = ".key_rotation";
+
+    private static final String CHECKPOINT_LAST_KEY = "last_key";
+
+    private static final ExecutorService sRotationExecutor =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, TAG);
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+
+    private final String mSharedPreferencesFileName;
+    private final SharedPreferences mSharedPreferences;
+    private final SharedPreferences mCheckpoint;
+    private final StorageHelper mStorageHelper;
+    private final int mBatchSize;
+    private final boolean mVerifyAll;
+
+    /**
+     * Constructs a new StorageKeyRotationJob.
+     *
+     * @param context                   Interface to global information about an application
+     *                                  environment.
+     * @param sharedPreferencesFileName The encrypted {@link SharedPreferences} file to rotate.
+     * @param storageHelper             The {@link StorageHelper} the file is encrypted with.
+     * @param batchSize                 The number of entries written per commit.
+     * @param verifyAll                 True, to also decrypt entries which appear to use the
+     *                                  current key. Use after {@link StorageHelper#getKeyResetCount()}
+     *                                  changes, as a reset key keeps its key version.
+     */
+    public StorageKeyRotationJob(@NonNull final Context context,
+                                 @NonNull final String sharedPreferencesFileName,
+                                 @NonNull final StorageHelper storageHelper,
+                                 final int batchSize,
+                                 final boolean verifyAll) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive.");
+        }
+
+        mSharedPreferencesFileName = sharedPreferencesFileName;
+        mSharedPreferences = context.getSharedPreferences(sharedPreferencesFileName, Context.MODE_PRIVATE);
+        mCheckpoint = context.getSharedPreferences(
+                sharedPreferencesFileName + CHECKPOINT_FILE_SUFFIX,
+                Context.MODE_PRIVATE
+        );
+        mStorageHelper = storageHelper;
+        mBatchSize = batchSize;
+        mVerifyAll = verifyAll;
+    }
+
+    /**
+     * Runs the job on a background thread. Jobs are run one at a time, in submission order.
+     *
+     * @return A {@link Future} completing with the statistics of the run.
+     */
+    public Future<KeyRotationStats> start() {
+        return sRotationExecutor.submit(new Callable<KeyRotationStats>() {
+            @Override
+            public KeyRotationStats call() {
+                return run();
+            }
+        });
+    }
+
+    /**
+     * Runs the job on the calling thread.
+     *
+     * @return The statistics of the run.
+     */
+    @WorkerThread
+    @SuppressLint("ApplySharedPref")
+    public KeyRotationStats run() {
+        final String methodName = ":run";
+        final long startMillis = System.currentTimeMillis();
+        final String checkpointKey = mCheckpoint.getString(CHECKPOINT_LAST_KEY, null);
+        final boolean resumed = null != checkpointKey;
+
+        if (resumed) {
+            Logger.info(TAG + methodName, "Resuming from checkpoint.");
+        }
+
+        // Walk in key order so the checkpoint identifies all entries already handled
+        SortedMap<String, ?> entries = new TreeMap<>(mSharedPreferences.getAll());
+
+        if (resumed) {
+            entries = entries.tailMap(checkpointKey + '\0');
+        }
+
+        final Batch batch = new Batch();
+        int alreadyCurrent = 0;
+
+        for (final Map.Entry<String, ?> entry : entries.entrySet()) {
+            if (!(entry.getValue() instanceof String)) {
+                continue;
+            }
+
+            final String key = entry.getKey();
+            final String encryptedBlob = (String) entry.getValue();
+
+            if (!mVerifyAll && !mStorageHelper.needsReEncryption(encryptedBlob)) {
+                alreadyCurrent++;
+                continue;
+            }
+
+            String reEncryptedBlob;
+
+            try {
+                final String clearText = mStorageHelper.decrypt(encryptedBlob);
+
+                if (!mStorageHelper.needsReEncryption(encryptedBlob)) {
+                    alreadyCurrent++;
+                    continue;
+                }
+
+                reEncryptedBlob = mStorageHelper.encrypt(clearText);
+            } catch (final DigestException e) {
+                // The HMAC or GCM tag does not match, so the key the entry was written with is
+                // gone (or the entry was tampered with); it would only fail again on every read
+                Logger.warn(TAG + methodName, "Entry failed authentication and will be removed.");
+                reEncryptedBlob = null;
+            } catch (final GeneralSecurityException | IOException | IllegalArgumentException e) {
+                // E.g. the keystore is unavailable for now; a later run retries the entry
+                Logger.warn(TAG + methodName, "Entry could not be decrypted and is skipped.");
+                continue;
+            }
+
+            batch.add(key, encryptedBlob, reEncryptedBlob);
+
+            if (batch.size() == mBatchSize) {
+                batch.commit();
+                mCheckpoint.edit().putString(CHECKPOINT_LAST_KEY, key).commit();
+            }
+        }
+
+        batch.commit();
+
+        mCheckpoint.edit().clear().commit();
+
+        final KeyRotationStats stats = new KeyRotationStats(
+                batch.mReEncrypted,
+                alreadyCurrent,
+                batch.mRemoved,
+                batch.mCommitted,
+                resumed,
+                System.currentTimeMillis() - startMillis
+        );
+
+        Logger.info(TAG + methodName, "Key rotation finished: " + stats);
+
+        return stats;
+    }
+
+    /**
+     * Entries staged for the next commit. Each is only written if the file still holds the blob it
+     * was decrypted from, so that a value saved meanwhile is never overwritten or removed.
+     */
+    private final class Batch {
+
+        private final Map<String, String> mExpectedValues = new HashMap<>();
+        private final Map<String, String> mNewValues = new HashMap<>();
+        private int mReEncrypted;
+        private int mRemoved;
+        private int mCommitted;
+
+        void add(@NonNull final String key,
+                 @NonNull final String encryptedBlob,
+                 @Nullable final String reEncryptedBlob) {
+            mExpectedValues.put(key, encryptedBlob);
+            mNewValues.put(key, reEncryptedBlob);
+        }
+
+        int size() {
+            return mNewValues.size();
+        }
+
+        void commit() {
+            if (mNewValues.isEmpty()) {
+                return;
+            }
+
+            final Set<String> written = SharedPreferencesFileManager.replaceIfUnchanged(
+                    mSharedPreferences,
+                    mSharedPreferencesFileName,
+                    mExpectedValues,
+                    mNewValues
+            );
+
+            for (final String key : written) {
+                if (null == mNewValues.get(key)) {
+                    mRemoved++;
+                } else {
+                    mReEncrypted++;
+                }
+            }
+
+            if (!written.isEmpty()) {
+                mCommitted++;
+            }
+
+            mExpectedValues.clear();
+            mNewValues.clear();
+        }
+    }
+}
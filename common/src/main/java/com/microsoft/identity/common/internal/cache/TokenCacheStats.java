@@ -0,0 +1,400 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.microsoft.identity.common.internal.dto.Credential;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable statistics describing the contents of a token cache, as read at one point in time.
+ *
+ * @see IAccountCredentialCache#getStats()
+ * @see com.microsoft.identity.common.internal.providers.oauth2.OAuth2TokenCache#getStats()
+ */
+public final class TokenCacheStats {
+
+    /**
+     * Statistics for an empty cache.
+     */
+    public static final TokenCacheStats EMPTY = new Builder().build(0);
+
+    /**
+     * Counts of the Credentials in a cache, or of those issued to one client.
+     */
+    public static final class CredentialCounts {
+
+        static final CredentialCounts EMPTY = new CredentialCounts(0, 0, 0, 0);
+
+        private final int mAccessTokens;
+        private final int mExpiredAccessTokens;
+        private final int mRefreshTokens;
+        private final int mIdTokens;
+
+        CredentialCounts(final int accessTokens,
+                         final int expiredAccessTokens,
+                         final int refreshTokens,
+                         final int idTokens) {
+            mAccessTokens = accessTokens;
+            mExpiredAccessTokens = expiredAccessTokens;
+            mRefreshTokens = refreshTokens;
+            mIdTokens = idTokens;
+        }
+
+        /**
+         * Gets the number of AccessTokens, expired or not.
+         *
+         * @return The number of AccessTokens.
+         */
+        public int getAccessTokens() {
+            return mAccessTokens;
+        }
+
+        /**
+         * Gets the number of expired AccessTokens.
+         *
+         * @return The number of expired AccessTokens.
+         */
+        public int getExpiredAccessTokens() {
+            return mExpiredAccessTokens;
+        }
+
+        /**
+         * Gets the number of AccessTokens which have not expired.
+         *
+         * @return The number of live AccessTokens.
+         */
+        public int getLiveAccessTokens() {
+            return mAccessTokens - mExpiredAccessTokens;
+        }
+
+        /**
+         * Gets the number of RefreshTokens.
+         *
+         * @return The number of RefreshTokens.
+         */
+        public int getRefreshTokens() {
+            return mRefreshTokens;
+        }
+
+        /**
+         * Gets the number of IdTokens, of either version.
+         *
+         * @return The number of IdTokens.
+         */
+        public int getIdTokens() {
+            return mIdTokens;
+        }
+
+        CredentialCounts plus(@NonNull final CredentialCounts other) {
+            return new CredentialCounts(
+                    mAccessTokens + other.mAccessTokens,
+                    mExpiredAccessTokens + other.mExpiredAccessTokens,
+                    mRefreshTokens + other.mRefreshTokens,
+                    mIdTokens + other.mIdTokens
+            );
+        }
+
+        //CHECKSTYLE:OFF
+        // This method is generated. Checkstyle and/or PMD has been disabled.
+        // This method *must* be regenerated if the class' structural definition changes through the
+        // addition/subtraction of fields.
+        @Override
+        public String toString() {
+            return "CredentialCounts{" +
+                    "mAccessTokens=" + mAccessTokens +
+                    ", mExpiredAccessTokens=" + mExpiredAccessTokens +
+                    ", mRefreshTokens=" + mRefreshTokens +
+                    ", mIdTokens=" + mIdTokens +
+                    '}';
+        }
+        //CHECKSTYLE:ON
+    }
+
+    private final int mAccounts;
+    private final CredentialCounts mCredentials;
+    private final Map<String, CredentialCounts> mCredentialsByClientId;
+    private final int mUnreadableEntries;
+    private final Map<String, Long> mFileSizes;
+    private final long mReadDurationMillis;
+
+    private TokenCacheStats(final int accounts,
+                            @NonNull final CredentialCounts credentials,
+                            @NonNull final Map<String, CredentialCounts> credentialsByClientId,
+                            final int unreadableEntries,
+                            @NonNull final Map<String, Long> fileSizes,
+                            final long readDurationMillis) {
+        mAccounts = accounts;
+        mCredentials = credentials;
+        mCredentialsByClientId = Collections.unmodifiableMap(credentialsByClientId);
+        mUnreadableEntries = unreadableEntries;
+        mFileSizes = Collections.unmodifiableMap(fileSizes);
+        mReadDurationMillis = readDurationMillis;
+    }
+
+    /**
+     * Gets the number of Accounts.
+     *
+     * @return The number of Accounts.
+     */
+    public int getAccounts() {
+        return mAccounts;
+    }
+
+    /**
+     * Gets the counts of all Credentials.
+     *
+     * @return The Credential counts.
+     */
+    @NonNull
+    public CredentialCounts getCredentials() {
+        return mCredentials;
+    }
+
+    /**
+     * Gets the counts of Credentials, by the client id they were issued to.
+     *
+     * @return The Credential counts, keyed by client id.
+     */
+    @NonNull
+    public Map<String, CredentialCounts> getCredentialsByClientId() {
+        return mCredentialsByClientId;
+    }
+
+    /**
+     * Gets the number of stored entries which could not be decrypted or deserialized, and so are
+     * invisible to every read.
+     *
+     * @return The number of unreadable entries.
+     */
+    public int getUnreadableEntries() {
+        return mUnreadableEntries;
+    }
+
+    /**
+     * Gets the size on disk of each file read, where its file manager can report it.
+     *
+     * @return The sizes in bytes, keyed by file name.
+     */
+    @NonNull
+    public Map<String, Long> getFileSizes() {
+        return mFileSizes;
+    }
+
+    /**
+     * Gets the total size on disk of the files read.
+     *
+     * @return The size, in bytes.
+     */
+    public long getTotalFileSize() {
+        long total = 0;
+        for (final Long size : mFileSizes.values()) {
+            total += size;
+        }
+
+        return total;
+    }
+
+    /**
+     * Gets the time taken to read the cache and compute these statistics.
+     *
+     * @return The duration, in milliseconds.
+     */
+    public long getReadDurationMillis() {
+        return mReadDurationMillis;
+    }
+
+    /**
+     * Combines these statistics with those of another cache, for example another file of the
+     * same token cache.
+     *
+     * @param other The statistics to add.
+     * @return The combined statistics.
+     */
+    @NonNull
+    public TokenCacheStats plus(@NonNull final TokenCacheStats other) {
+        final Map<String, CredentialCounts> credentialsByClientId = new TreeMap<>(mCredentialsByClientId);
+        for (final Map.Entry<String, CredentialCounts> entry : other.mCredentialsByClientId.entrySet()) {
+            final CredentialCounts counts = credentialsByClientId.get(entry.getKey());
+            credentialsByClientId.put(
+                    entry.getKey(),
+                    null == counts ? entry.getValue() : counts.plus(entry.getValue())
+            );
+        }
+
+        final Map<String, Long> fileSizes = new TreeMap<>(mFileSizes);
+        fileSizes.putAll(other.mFileSizes);
+
+        return new TokenCacheStats(
+                mAccounts + other.mAccounts,
+                mCredentials.plus(other.mCredentials),
+                credentialsByClientId,
+                mUnreadableEntries + other.mUnreadableEntries,
+                fileSizes,
+                mReadDurationMillis + other.mReadDurationMillis
+        );
+    }
+
+    /**
+     * Returns a copy of these statistics with a different read duration, for callers which
+     * time a combined read themselves.
+     *
+     * @param readDurationMillis The duration, in milliseconds.
+     * @return The statistics.
+     */
+    @NonNull
+    public TokenCacheStats withReadDurationMillis(final long readDurationMillis) {
+        return new TokenCacheStats(
+                mAccounts,
+                mCredentials,
+                mCredentialsByClientId,
+                mUnreadableEntries,
+                mFileSizes,
+                readDurationMillis
+        );
+    }
+
+    //CHECKSTYLE:OFF
+    // This method is generated. Checkstyle and/or PMD has been disabled.
+    // This method *must* be regenerated if the class' structural definition changes through the
+    // addition/subtraction of fields.
+    @Override
+    public String toString() {
+        return "TokenCacheStats{" +
+                "mAccounts=" + mAccounts +
+                ", mCredentials=" + mCredentials +
+                ", mCredentialsByClientId=" + mCredentialsByClientId +
+                ", mUnreadableEntries=" + mUnreadableEntries +
+                ", mFileSizes=" + mFileSizes +
+                ", mReadDurationMillis=" + mReadDurationMillis +
+                '}';
+    }
+    //CHECKSTYLE:ON
+
+    /**
+     * Accumulates the records of a cache as they are read.
+     */
+    static final class Builder {
+
+        private static final int ACCESS_TOKENS = 0;
+        private static final int EXPIRED_ACCESS_TOKENS = 1;
+        private static final int REFRESH_TOKENS = 2;
+        private static final int ID_TOKENS = 3;
+
+        private int mAccounts;
+        private final Map<String, int[]> mCredentialsByClientId = new HashMap<>();
+        private int mUnreadableEntries;
+        private final Map<String, Long> mFileSizes = new TreeMap<>();
+
+        Builder addAccount() {
+            mAccounts++;
+            return this;
+        }
+
+        Builder addCredential(@NonNull final Credential credential) {
+            final CredentialType credentialType = CredentialType.fromString(credential.getCredentialType());
+
+            if (null == credentialType) {
+                return this;
+            }
+
+            return addCredential(
+                    credentialType,
+                    credential.getClientId(),
+                    CredentialType.AccessToken == credentialType && credential.isExpired()
+            );
+        }
+
+        Builder addCredential(@NonNull final CredentialType credentialType,
+                              @Nullable final String clientId,
+                              final boolean expired) {
+            int[] counts = mCredentialsByClientId.get(clientId);
+            if (null == counts) {
+                counts = new int[ID_TOKENS + 1];
+                mCredentialsByClientId.put(clientId, counts);
+            }
+
+            switch (credentialType) {
+                case AccessToken:
+                    counts[ACCESS_TOKENS]++;
+                    if (expired) {
+                        counts[EXPIRED_ACCESS_TOKENS]++;
+                    }
+                    break;
+                case RefreshToken:
+                    counts[REFRESH_TOKENS]++;
+                    break;
+                case IdToken:
+                    counts[ID_TOKENS]++;
+                    break;
+                default:
+                    break;
+            }
+
+            return this;
+        }
+
+        Builder addUnreadableEntries(final int count) {
+            mUnreadableEntries += count;
+            return this;
+        }
+
+        Builder addFile(@NonNull final String fileName, final long size) {
+            mFileSizes.put(fileName, size);
+            return this;
+        }
+
+        TokenCacheStats build(final long readDurationMillis) {
+            CredentialCounts total = CredentialCounts.EMPTY;
+            final Map<String, CredentialCounts> credentialsByClientId = new TreeMap<>();
+
+            for (final Map.Entry<String, int[]> entry : mCredentialsByClientId.entrySet()) {
+                final int[] counts = entry.getValue();
+                final CredentialCounts clientCounts = new CredentialCounts(
+                        counts[ACCESS_TOKENS],
+                        counts[EXPIRED_ACCESS_TOKENS],
+                        counts[REFRESH_TOKENS],
+                        counts[ID_TOKENS]
+                );
+                total = total.plus(clientCounts);
+                credentialsByClientId.put(String.valueOf(entry.getKey()), clientCounts);
+            }
+
+            return new TokenCacheStats(
+                    mAccounts,
+                    total,
+                    credentialsByClientId,
+                    mUnreadableEntries,
+                    mFileSizes,
+                    readDurationMillis
+            );
+        }
+    }
+}
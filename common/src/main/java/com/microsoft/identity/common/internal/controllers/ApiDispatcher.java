@@ -26,14 +26,22 @@ import android.content.Intent;
 import android.os.Handler;
 import android.util.Pair;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
 import com.microsoft.identity.common.exception.BaseException;
 import com.microsoft.identity.common.exception.UserCancelException;
 import com.microsoft.identity.common.internal.logging.DiagnosticContext;
 import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.net.RequestDeadline;
 import com.microsoft.identity.common.internal.request.AcquireTokenOperationParameters;
 import com.microsoft.identity.common.internal.request.AcquireTokenSilentOperationParameters;
 import com.microsoft.identity.common.internal.result.AcquireTokenResult;
 import com.microsoft.identity.common.internal.result.ILocalAuthenticationResult;
+import com.microsoft.identity.common.internal.result.LocalAuthenticationResult;
+import com.microsoft.identity.common.internal.telemetry.Counter;
+import com.microsoft.identity.common.internal.telemetry.Metrics;
+import com.microsoft.identity.common.internal.telemetry.RequestTrace;
 
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
@@ -46,6 +54,8 @@ public class ApiDispatcher {
     private static final ExecutorService sInteractiveExecutor = Executors.newSingleThreadExecutor();
     private static final ExecutorService sSilentExecutor = Executors.newCachedThreadPool();
     private static final Object sLock = new Object();
+    private static final Counter sAccessTokenCacheHits = Metrics.counter(Metrics.ACCESS_TOKEN_CACHE_HITS);
+    private static final Counter sAccessTokenCacheMisses = Metrics.counter(Metrics.ACCESS_TOKEN_CACHE_MISSES);
     private static InteractiveTokenCommand sCommand = null;
 
     public static void beginInteractive(final InteractiveTokenCommand command) {
@@ -58,7 +68,10 @@ public class ApiDispatcher {
             sInteractiveExecutor.execute(new Runnable() {
                 @Override
                 public void run() {
-                    initializeDiagnosticContext();
+                    final RequestTrace trace = RequestTrace.begin(
+                            initializeDiagnosticContext(),
+                            "acquireToken"
+                    );
 
                     if (command.mParameters instanceof AcquireTokenOperationParameters) {
                         logInteractiveRequestParameters(methodName, (AcquireTokenOperationParameters) command.mParameters);
@@ -85,6 +98,8 @@ public class ApiDispatcher {
                         }
                     }
 
+                    endRequestTrace(trace, result);
+
                     Handler handler = new Handler(command.getContext().getMainLooper());
 
                     if (baseException != null) {
@@ -262,7 +277,11 @@ public class ApiDispatcher {
         sSilentExecutor.execute(new Runnable() {
             @Override
             public void run() {
-                initializeDiagnosticContext();
+                final RequestTrace trace = RequestTrace.begin(
+                        initializeDiagnosticContext(),
+                        "acquireTokenSilent"
+                );
+                RequestDeadline.set(command.mParameters.getRequestTimeoutMillis());
 
                 if (command.mParameters instanceof AcquireTokenSilentOperationParameters) {
                     logSilentRequestParams(
@@ -289,8 +308,13 @@ public class ApiDispatcher {
                     } else {
                         baseException = ExceptionAdapter.baseExceptionFromException(e);
                     }
+                } finally {
+                    RequestDeadline.clear();
                 }
 
+                endRequestTrace(trace, result);
+                recordAccessTokenCacheResult(result);
+
                 Handler handler = new Handler(command.getContext().getMainLooper());
 
                 if (baseException != null) {
@@ -338,6 +362,35 @@ public class ApiDispatcher {
         });
     }
 
+    /**
+     * Counts a successful silent request as a cache hit, or as a miss if it had to request new
+     * tokens.
+     */
+    private static void recordAccessTokenCacheResult(@Nullable final AcquireTokenResult result) {
+        if (null != result && result.getSucceeded()) {
+            (null == result.getTokenResult()
+                    ? sAccessTokenCacheHits
+                    : sAccessTokenCacheMisses
+            ).increment();
+        }
+    }
+
+    /**
+     * Attaches the trace of a request to its result, then ends it.
+     */
+    private static void endRequestTrace(@NonNull final RequestTrace trace,
+                                        @Nullable final AcquireTokenResult result) {
+        if (null != result) {
+            result.setRequestTrace(trace);
+
+            if (result.getLocalAuthenticationResult() instanceof LocalAuthenticationResult) {
+                ((LocalAuthenticationResult) result.getLocalAuthenticationResult()).setRequestTrace(trace);
+            }
+        }
+
+        trace.end();
+    }
+
     public static String initializeDiagnosticContext() {
         final String methodName = ":initializeDiagnosticContext";
         final String correlationId = UUID.randomUUID().toString();
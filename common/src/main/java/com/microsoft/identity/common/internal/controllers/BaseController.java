@@ -62,6 +62,8 @@ import com.microsoft.identity.common.internal.request.OperationParameters;
 import com.microsoft.identity.common.internal.result.AcquireTokenResult;
 import com.microsoft.identity.common.internal.result.LocalAuthenticationResult;
 import com.microsoft.identity.common.internal.telemetry.CliTelemInfo;
+import com.microsoft.identity.common.internal.telemetry.Counter;
+import com.microsoft.identity.common.internal.telemetry.Metrics;
 import com.microsoft.identity.common.internal.util.DateUtilities;
 
 import java.io.IOException;
@@ -75,6 +77,8 @@ public abstract class BaseController {
 
     private static final String TAG = BaseController.class.getSimpleName();
 
+    private static final Counter sRefreshTokenGrants = Metrics.counter(Metrics.REFRESH_TOKEN_GRANTS);
+
     public abstract AcquireTokenResult acquireToken(final AcquireTokenOperationParameters request)
             throws ExecutionException, InterruptedException, ClientException, IOException, ArgumentException, ServiceException;
 
@@ -339,6 +343,8 @@ public abstract class BaseController {
             );
         }
 
+        sRefreshTokenGrants.increment();
+
         return strategy.requestToken(refreshTokenRequest);
     }
 
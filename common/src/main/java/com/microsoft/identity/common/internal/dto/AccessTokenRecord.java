@@ -24,14 +24,11 @@ package com.microsoft.identity.common.internal.dto;
 
 import com.google.gson.annotations.SerializedName;
 
-import java.util.Calendar;
-import java.util.Date;
-import java.util.concurrent.TimeUnit;
-
 import static com.microsoft.identity.common.internal.dto.AccessTokenRecord.SerializedNames.ACCESS_TOKEN_TYPE;
 import static com.microsoft.identity.common.internal.dto.AccessTokenRecord.SerializedNames.AUTHORITY;
 import static com.microsoft.identity.common.internal.dto.AccessTokenRecord.SerializedNames.EXTENDED_EXPIRES_ON;
 import static com.microsoft.identity.common.internal.dto.AccessTokenRecord.SerializedNames.REALM;
+import static com.microsoft.identity.common.internal.dto.AccessTokenRecord.SerializedNames.REFRESH_ON;
 import static com.microsoft.identity.common.internal.dto.AccessTokenRecord.SerializedNames.TARGET;
 import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.EXPIRES_ON;
 
@@ -62,6 +59,11 @@ public class AccessTokenRecord extends Credential {
          * String of target.
          */
         public static final String TARGET = "target";
+
+        /**
+         * String of refresh on.
+         */
+        public static final String REFRESH_ON = "refresh_on";
     }
 
     /**
@@ -107,6 +109,17 @@ public class AccessTokenRecord extends Credential {
     @SerializedName(EXPIRES_ON)
     private String mExpiresOn;
 
+    /**
+     * Time after which the token should be proactively refreshed, although it is still valid.
+     * Measured in seconds from epoch (1970). Optional.
+     */
+    @SerializedName(REFRESH_ON)
+    private String mRefreshOn;
+
+    private transient volatile ParsedEpoch mParsedExpiresOn;
+    private transient volatile ParsedEpoch mParsedExtendedExpiresOn;
+    private transient volatile ParsedEpoch mParsedRefreshOn;
+
     /**
      * Gets the realm.
      *
@@ -215,20 +228,104 @@ public class AccessTokenRecord extends Credential {
         mExpiresOn = expiresOn;
     }
 
-    private boolean isExpired(final String expires) {
-        // Init a Calendar for the current time/date
-        final Calendar calendar = Calendar.getInstance();
-        final Date validity = calendar.getTime();
-        // Init a Date for the accessToken's expiry
-        long epoch = Long.valueOf(expires);
-        final Date expiresOn = new Date(
-                TimeUnit.SECONDS.toMillis(epoch)
-        );
-        return expiresOn.before(validity);
+    /**
+     * Gets the refresh_on.
+     *
+     * @return The refresh_on to get.
+     */
+    public String getRefreshOn() {
+        return mRefreshOn;
+    }
+
+    /**
+     * Sets the refresh_on.
+     *
+     * @param refreshOn The refresh_on to set.
+     */
+    public void setRefreshOn(final String refreshOn) {
+        mRefreshOn = refreshOn;
+    }
+
+    /**
+     * Gets the expires_on as a number, parsing it only when it has changed.
+     *
+     * @return The expires_on in seconds since the epoch (1970), or {@link #EPOCH_UNSET}.
+     */
+    public long getExpiresOnSeconds() {
+        final ParsedEpoch memo = mParsedExpiresOn;
+        final ParsedEpoch parsed = parseEpoch(mExpiresOn, memo);
+
+        if (parsed != memo) {
+            mParsedExpiresOn = parsed;
+        }
+
+        return parsed.getSeconds();
+    }
+
+    /**
+     * Gets the extended_expires_on as a number, parsing it only when it has changed.
+     *
+     * @return The extended_expires_on in seconds since the epoch (1970), or {@link #EPOCH_UNSET}.
+     */
+    public long getExtendedExpiresOnSeconds() {
+        final ParsedEpoch memo = mParsedExtendedExpiresOn;
+        final ParsedEpoch parsed = parseEpoch(mExtendedExpiresOn, memo);
+
+        if (parsed != memo) {
+            mParsedExtendedExpiresOn = parsed;
+        }
+
+        return parsed.getSeconds();
     }
 
+    /**
+     * Gets the refresh_on as a number, parsing it only when it has changed.
+     *
+     * @return The refresh_on in seconds since the epoch (1970), or {@link #EPOCH_UNSET}.
+     */
+    public long getRefreshOnSeconds() {
+        final ParsedEpoch memo = mParsedRefreshOn;
+        final ParsedEpoch parsed = parseEpoch(mRefreshOn, memo);
+
+        if (parsed != memo) {
+            mParsedRefreshOn = parsed;
+        }
+
+        return parsed.getSeconds();
+    }
+
+    /**
+     * Checks if the token is expired, allowing for the clock skew buffer. A token without a
+     * numeric expires_on is considered expired.
+     *
+     * @return True, if expired. False otherwise.
+     * @see Credential#setExpirySkew(long, java.util.concurrent.TimeUnit)
+     */
     @Override
     public boolean isExpired() {
-        return isExpired(getExpiresOn());
+        final long expiresOn = getExpiresOnSeconds();
+        return EPOCH_UNSET == expiresOn || hasPassed(expiresOn);
+    }
+
+    /**
+     * Checks if the token is past its extended expiry, after which it may no longer be used even
+     * while the service is unavailable. Tokens without an extended_expires_on fall back to
+     * {@link #isExpired()}.
+     *
+     * @return True, if past extended expiry. False otherwise.
+     */
+    public boolean isExtendedExpired() {
+        final long extendedExpiresOn = getExtendedExpiresOnSeconds();
+        return EPOCH_UNSET == extendedExpiresOn ? isExpired() : hasPassed(extendedExpiresOn);
+    }
+
+    /**
+     * Checks if the token should be refreshed: it is expired, or its refresh_on hint has passed.
+     *
+     * @return True, if stale. False otherwise.
+     */
+    public boolean isStale() {
+        final long refreshOn = getRefreshOnSeconds();
+        return isExpired() || (EPOCH_UNSET != refreshOn && hasPassed(refreshOn));
     }
 }
@@ -22,7 +22,13 @@
 // THE SOFTWARE.
 package com.microsoft.identity.common.internal.dto;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
 import com.google.gson.annotations.SerializedName;
+import com.microsoft.identity.common.internal.util.IClock;
+
+import java.util.concurrent.TimeUnit;
 
 import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.CACHED_AT;
 import static com.microsoft.identity.common.internal.dto.Credential.SerializedNames.CLIENT_ID;
@@ -37,6 +43,15 @@ import static com.microsoft.identity.common.internal.dto.Credential.SerializedNa
  */
 public abstract class Credential extends AccountCredentialBase {
 
+    /**
+     * Value of a parsed epoch field which is absent or not numeric.
+     */
+    public static final long EPOCH_UNSET = -1;
+
+    private static volatile IClock sClock = IClock.SYSTEM;
+
+    private static volatile long sExpirySkewMillis = 0;
+
     public static class SerializedNames {
         /**
          * String of client id.
@@ -122,6 +137,109 @@ public abstract class Credential extends AccountCredentialBase {
     @SerializedName(CACHED_AT)
     private String mCachedAt;
 
+    private transient volatile ParsedEpoch mParsedCachedAt;
+
+    /**
+     * An epoch field parsed from one instance of its value. Immutable, so that the value and
+     * the number parsed from it are published together through a single volatile field.
+     */
+    protected static final class ParsedEpoch {
+
+        private final String mSource;
+        private final long mSeconds;
+
+        private ParsedEpoch(@Nullable final String source) {
+            mSource = source;
+            mSeconds = parseEpoch(source);
+        }
+
+        /**
+         * @return The parsed value in seconds since the epoch (1970), or {@link #EPOCH_UNSET}.
+         */
+        public long getSeconds() {
+            return mSeconds;
+        }
+    }
+
+    /**
+     * Sets the clock against which expiry is evaluated.
+     *
+     * @param clock The clock to use, or null to use the system clock.
+     */
+    public static void setClock(@Nullable final IClock clock) {
+        sClock = null == clock ? IClock.SYSTEM : clock;
+    }
+
+    /**
+     * Gets the clock against which expiry is evaluated.
+     *
+     * @return The clock.
+     */
+    @NonNull
+    public static IClock getClock() {
+        return sClock;
+    }
+
+    /**
+     * Sets the clock skew buffer: credentials are considered expired this long before their
+     * expiry time, to allow for clock differences between the device and the service and for the
+     * time a request spends in flight. Defaults to 0.
+     *
+     * @param skew     The buffer, not negative.
+     * @param timeUnit The unit of the buffer.
+     */
+    public static void setExpirySkew(final long skew, @NonNull final TimeUnit timeUnit) {
+        if (skew < 0) {
+            throw new IllegalArgumentException("skew must not be negative");
+        }
+
+        sExpirySkewMillis = timeUnit.toMillis(skew);
+    }
+
+    /**
+     * Tests if the supplied epoch time has passed, allowing for the clock skew buffer.
+     *
+     * @param epochSeconds The time to test, in seconds since the epoch (1970).
+     * @return True, if the time has passed. False otherwise.
+     */
+    protected static boolean hasPassed(final long epochSeconds) {
+        return TimeUnit.SECONDS.toMillis(epochSeconds) < sClock.currentTimeMillis() + sExpirySkewMillis;
+    }
+
+    /**
+     * Parses an epoch field.
+     *
+     * @param value The field value.
+     * @return The parsed value or {@link #EPOCH_UNSET}, if the value is absent or not numeric.
+     */
+    protected static long parseEpoch(@Nullable final String value) {
+        if (null == value || value.isEmpty()) {
+            return EPOCH_UNSET;
+        }
+
+        try {
+            return Long.parseLong(value);
+        } catch (final NumberFormatException e) {
+            return EPOCH_UNSET;
+        }
+    }
+
+    /**
+     * Parses an epoch field, unless the supplied memo was parsed from the same instance.
+     *
+     * @param value The field value.
+     * @param memo  The last parsed value of the field, if any.
+     * @return The memo, if still valid, or a new one.
+     */
+    @NonNull
+    protected static ParsedEpoch parseEpoch(@Nullable final String value, @Nullable final ParsedEpoch memo) {
+        if (null != memo && value == memo.mSource) { //NOPMD the identity check is intended
+            return memo;
+        }
+
+        return new ParsedEpoch(value);
+    }
+
     /**
      * Gets the home_account_id.
      *
@@ -230,6 +348,22 @@ public abstract class Credential extends AccountCredentialBase {
         mCachedAt = cachedAt;
     }
 
+    /**
+     * Gets the cached_at as a number, parsing it only when it has changed.
+     *
+     * @return The cached_at in seconds since the epoch (1970), or {@link #EPOCH_UNSET}.
+     */
+    public long getCachedAtSeconds() {
+        final ParsedEpoch memo = mParsedCachedAt;
+        final ParsedEpoch parsed = parseEpoch(mCachedAt, memo);
+
+        if (parsed != memo) {
+            mParsedCachedAt = parsed;
+        }
+
+        return parsed.getSeconds();
+    }
+
     /**
      * Checks if the current Credentials is expired.
      *
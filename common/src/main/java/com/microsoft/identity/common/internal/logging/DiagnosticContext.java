@@ -22,6 +22,10 @@
 // THE SOFTWARE.
 package com.microsoft.identity.common.internal.logging;
 
+import androidx.annotation.Nullable;
+
+import com.microsoft.identity.common.internal.telemetry.RequestTrace;
+
 public final class DiagnosticContext {
 
     public static final String CORRELATION_ID = "correlation_id";
@@ -40,8 +44,10 @@ public final class DiagnosticContext {
                 }
             };
 
+    private static final ThreadLocal<RequestTrace> REQUEST_TRACE_THREAD_LOCAL = new ThreadLocal<>();
+
     /**
-     * Set the request context.
+     * Set the request context. This also removes the {@link RequestTrace} of the thread.
      *
      * @param requestContext IRequestContext
      */
@@ -53,6 +59,9 @@ public final class DiagnosticContext {
 
         requestContext.put(THREAD_ID, String.valueOf(Thread.currentThread().getId()));
         REQUEST_CONTEXT_THREAD_LOCAL.set(requestContext);
+        // A new request context is a new request: the trace of the previous one, if any,
+        // must not collect its spans.
+        REQUEST_TRACE_THREAD_LOCAL.remove();
     }
 
     /**
@@ -79,10 +88,34 @@ public final class DiagnosticContext {
         return REQUEST_CONTEXT_THREAD_LOCAL.get().containsKey(THREAD_ID);
     }
 
+    /**
+     * Set the {@link RequestTrace} of the request running on this thread.
+     *
+     * @param requestTrace The trace, or null to remove it.
+     */
+    public static void setRequestTrace(@Nullable final RequestTrace requestTrace) {
+        if (null == requestTrace) {
+            REQUEST_TRACE_THREAD_LOCAL.remove();
+        } else {
+            REQUEST_TRACE_THREAD_LOCAL.set(requestTrace);
+        }
+    }
+
+    /**
+     * Get the {@link RequestTrace} of the request running on this thread.
+     *
+     * @return The trace, or null if none was started.
+     */
+    @Nullable
+    public static RequestTrace getRequestTrace() {
+        return REQUEST_TRACE_THREAD_LOCAL.get();
+    }
+
     /**
      * Clear rhe local request context thread.
      */
     public static void clear() {
         REQUEST_CONTEXT_THREAD_LOCAL.remove();
+        REQUEST_TRACE_THREAD_LOCAL.remove();
     }
 }
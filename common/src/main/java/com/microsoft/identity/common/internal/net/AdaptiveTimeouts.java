@@ -0,0 +1,306 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.net;
+
+import androidx.annotation.NonNull;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Connect and read timeouts derived from the latency observed per host and {@link EndpointType}.
+ * <p>
+ * Each host and endpoint type keeps a rolling window of recent connect and time-to-first-byte
+ * latencies. A timeout is a percentile of its window times a multiplier, clamped between a floor
+ * and a ceiling; until the window holds enough samples the ceiling is used. Timeouts are further
+ * capped at the time left before the {@link RequestDeadline} of the current thread.
+ */
+public final class AdaptiveTimeouts {
+
+    /**
+     * The kind of endpoint a request targets; each kind has its own latency profile.
+     */
+    public enum EndpointType {
+        TOKEN,
+        DISCOVERY,
+        OTHER;
+
+        /**
+         * Classifies a request URL.
+         *
+         * @param url The URL to classify.
+         * @return The endpoint type of the URL.
+         */
+        @NonNull
+        public static EndpointType fromUrl(@NonNull final URL url) {
+            final String path = url.getPath().toLowerCase(Locale.US);
+
+            if (path.endsWith("/token")) {
+                return TOKEN;
+            }
+
+            if (path.contains("discovery") || path.contains("openid-configuration")) {
+                return DISCOVERY;
+            }
+
+            return OTHER;
+        }
+    }
+
+    private static volatile AdaptiveTimeouts sDefault = new Builder().build();
+
+    private final int mConnectFloorMillis;
+    private final int mReadFloorMillis;
+    private final int mCeilingMillis;
+    private final double mPercentile;
+    private final double mMultiplier;
+    private final int mWindowSize;
+    private final int mMinSamples;
+
+    private final ConcurrentMap<String, LatencyWindow> mConnectLatencies = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyWindow> mReadLatencies = new ConcurrentHashMap<>();
+
+    private AdaptiveTimeouts(@NonNull final Builder builder) {
+        mConnectFloorMillis = builder.mConnectFloorMillis;
+        mReadFloorMillis = builder.mReadFloorMillis;
+        mCeilingMillis = builder.mCeilingMillis;
+        mPercentile = builder.mPercentile;
+        mMultiplier = builder.mMultiplier;
+        mWindowSize = builder.mWindowSize;
+        mMinSamples = builder.mMinSamples;
+    }
+
+    /**
+     * Returns the timeouts used by {@link HttpRequest} and HttpWebRequest.
+     *
+     * @return The timeouts in use.
+     */
+    @NonNull
+    public static AdaptiveTimeouts getDefault() {
+        return sDefault;
+    }
+
+    /**
+     * Replaces the timeouts used by {@link HttpRequest} and HttpWebRequest. Observed latencies are
+     * kept by each instance, so the new timeouts start from their ceiling.
+     *
+     * @param adaptiveTimeouts The timeouts to use.
+     */
+    public static void setDefault(@NonNull final AdaptiveTimeouts adaptiveTimeouts) {
+        sDefault = adaptiveTimeouts;
+    }
+
+    /**
+     * Returns the connect timeout of a request to the supplied URL.
+     *
+     * @param url The request URL.
+     * @return The timeout in milliseconds, at least 1.
+     */
+    public int getConnectTimeoutMillis(@NonNull final URL url) {
+        return capAtDeadline(computeTimeout(mConnectLatencies.get(key(url)), mConnectFloorMillis));
+    }
+
+    /**
+     * Returns the read timeout of a request to the supplied URL.
+     *
+     * @param url The request URL.
+     * @return The timeout in milliseconds, at least 1.
+     */
+    public int getReadTimeoutMillis(@NonNull final URL url) {
+        return capAtDeadline(computeTimeout(mReadLatencies.get(key(url)), mReadFloorMillis));
+    }
+
+    /**
+     * Records how long connecting to the supplied URL took, or the timeout if it timed out.
+     *
+     * @param url           The request URL.
+     * @param latencyMillis The connect latency in milliseconds.
+     */
+    public void recordConnectLatency(@NonNull final URL url, final long latencyMillis) {
+        getWindow(mConnectLatencies, key(url)).add(latencyMillis);
+    }
+
+    /**
+     * Records how long the first byte of the response from the supplied URL took to arrive after
+     * connecting, or the timeout if it timed out.
+     *
+     * @param url           The request URL.
+     * @param latencyMillis The time to first byte in milliseconds.
+     */
+    public void recordReadLatency(@NonNull final URL url, final long latencyMillis) {
+        getWindow(mReadLatencies, key(url)).add(latencyMillis);
+    }
+
+    private int computeTimeout(final LatencyWindow window, final int floorMillis) {
+        if (null == window) {
+            return mCeilingMillis;
+        }
+
+        final long[] samples = window.getSamples();
+
+        if (samples.length < mMinSamples) {
+            return mCeilingMillis;
+        }
+
+        Arrays.sort(samples);
+        final int index = (int) Math.ceil(mPercentile * samples.length) - 1;
+        final long timeoutMillis = (long) (samples[Math.max(0, index)] * mMultiplier);
+
+        return (int) Math.max(floorMillis, Math.min(mCeilingMillis, timeoutMillis));
+    }
+
+    private static int capAtDeadline(final int timeoutMillis) {
+        // A timeout of 0 means no timeout to HttpURLConnection, so never go below 1.
+        return (int) Math.max(1, Math.min(timeoutMillis, RequestDeadline.getRemainingMillis()));
+    }
+
+    private LatencyWindow getWindow(@NonNull final ConcurrentMap<String, LatencyWindow> windows,
+                                    @NonNull final String key) {
+        LatencyWindow window = windows.get(key);
+
+        if (null == window) {
+            final LatencyWindow newWindow = new LatencyWindow(mWindowSize);
+            window = windows.putIfAbsent(key, newWindow);
+
+            if (null == window) {
+                window = newWindow;
+            }
+        }
+
+        return window;
+    }
+
+    private static String key(@NonNull final URL url) {
+        return url.getHost() + "|" + EndpointType.fromUrl(url);
+    }
+
+    /**
+     * The most recent latencies of a host and endpoint type, in a ring buffer.
+     */
+    private static final class LatencyWindow {
+
+        private final long[] mSamples;
+        private int mNext;
+        private int mCount;
+
+        LatencyWindow(final int size) {
+            mSamples = new long[size];
+        }
+
+        synchronized void add(final long latencyMillis) {
+            mSamples[mNext] = latencyMillis;
+            mNext = (mNext + 1) % mSamples.length;
+            mCount = Math.min(mCount + 1, mSamples.length);
+        }
+
+        synchronized long[] getSamples() {
+            return Arrays.copyOf(mSamples, mCount);
+        }
+    }
+
+    /**
+     * Builder of {@link AdaptiveTimeouts}. By default a timeout is 3 times the 99th percentile of
+     * the last 100 latencies, once 20 have been observed, between 2 s (connect) or 5 s (read) and
+     * 30 s.
+     */
+    public static final class Builder {
+
+        private int mConnectFloorMillis = 2000;
+        private int mReadFloorMillis = 5000;
+        private int mCeilingMillis = 30000;
+        private double mPercentile = 0.99;
+        private double mMultiplier = 3;
+        private int mWindowSize = 100;
+        private int mMinSamples = 20;
+
+        /**
+         * @param connectFloorMillis The shortest connect timeout.
+         * @return This builder.
+         */
+        public Builder setConnectFloorMillis(final int connectFloorMillis) {
+            mConnectFloorMillis = connectFloorMillis;
+            return this;
+        }
+
+        /**
+         * @param readFloorMillis The shortest read timeout.
+         * @return This builder.
+         */
+        public Builder setReadFloorMillis(final int readFloorMillis) {
+            mReadFloorMillis = readFloorMillis;
+            return this;
+        }
+
+        /**
+         * @param ceilingMillis The longest connect and read timeout, also used until enough
+         *                      latencies have been observed.
+         * @return This builder.
+         */
+        public Builder setCeilingMillis(final int ceilingMillis) {
+            mCeilingMillis = ceilingMillis;
+            return this;
+        }
+
+        /**
+         * @param percentile The percentile of the observed latencies a timeout is based on,
+         *                   between 0 (exclusive) and 1.
+         * @param multiplier The factor applied to that percentile.
+         * @return This builder.
+         */
+        public Builder setPercentile(final double percentile, final double multiplier) {
+            if (percentile <= 0 || percentile > 1) {
+                throw new IllegalArgumentException("percentile must be in (0, 1]");
+            }
+            mPercentile = percentile;
+            mMultiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * @param windowSize The number of recent latencies kept per host and endpoint type.
+         * @param minSamples The number of latencies needed before timeouts adapt.
+         * @return This builder.
+         */
+        public Builder setWindow(final int windowSize, final int minSamples) {
+            if (windowSize < 1 || minSamples < 1 || minSamples > windowSize) {
+                throw new IllegalArgumentException("minSamples must be in [1, windowSize]");
+            }
+            mWindowSize = windowSize;
+            mMinSamples = minSamples;
+            return this;
+        }
+
+        /**
+         * @return The AdaptiveTimeouts.
+         */
+        public AdaptiveTimeouts build() {
+            if (mConnectFloorMillis > mCeilingMillis || mReadFloorMillis > mCeilingMillis) {
+                throw new IllegalArgumentException("Floors must not exceed the ceiling");
+            }
+            return new AdaptiveTimeouts(this);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.net;
+
+import androidx.annotation.NonNull;
+
+import com.microsoft.identity.common.internal.logging.Logger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per host circuit breaker. After a number of consecutive failures against a host, requests to
+ * that host fail fast until a cool-down elapses; then a single trial request is let through, and
+ * its outcome closes the circuit or opens it again.
+ */
+final class CircuitBreaker {
+
+    private static final String TAG = CircuitBreaker.class.getSimpleName();
+
+    private final int mFailureThreshold;
+    private final long mOpenDurationNanos;
+    private final ConcurrentMap<String, HostState> mHosts = new ConcurrentHashMap<>();
+
+    private static final class HostState {
+        private int mConsecutiveFailures;
+        private long mOpenUntilNanos;
+        private boolean mTrialInFlight;
+    }
+
+    /**
+     * Constructs a new CircuitBreaker.
+     *
+     * @param failureThreshold   The consecutive failures which open the circuit of a host.
+     * @param openDurationMillis How long an open circuit fails requests before letting a trial
+     *                           request through.
+     */
+    CircuitBreaker(final int failureThreshold, final long openDurationMillis) {
+        mFailureThreshold = failureThreshold;
+        mOpenDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+    }
+
+    /**
+     * Checks whether a request to the supplied host may be sent.
+     *
+     * @param host The host about to be called.
+     * @return True if the request may be sent, false if the circuit of the host is open.
+     */
+    boolean allowRequest(@NonNull final String host) {
+        final HostState state = mHosts.get(host);
+
+        if (null == state) {
+            return true;
+        }
+
+        synchronized (state) {
+            if (state.mConsecutiveFailures < mFailureThreshold) {
+                return true;
+            }
+
+            if (System.nanoTime() - state.mOpenUntilNanos < 0 || state.mTrialInFlight) {
+                return false;
+            }
+
+            state.mTrialInFlight = true;
+            return true;
+        }
+    }
+
+    /**
+     * Records a successful request, closing the circuit of the host.
+     *
+     * @param host The host which was called.
+     */
+    void onSuccess(@NonNull final String host) {
+        final HostState state = mHosts.get(host);
+
+        if (null != state) {
+            synchronized (state) {
+                state.mConsecutiveFailures = 0;
+                state.mTrialInFlight = false;
+            }
+        }
+    }
+
+    /**
+     * Records a failed request, opening the circuit of the host once the threshold is reached.
+     *
+     * @param host The host which was called.
+     */
+    void onFailure(@NonNull final String host) {
+        final String methodName = ":onFailure";
+        HostState state = mHosts.get(host);
+
+        if (null == state) {
+            final HostState newState = new HostState();
+            state = mHosts.putIfAbsent(host, newState);
+
+            if (null == state) {
+                state = newState;
+            }
+        }
+
+        synchronized (state) {
+            state.mConsecutiveFailures++;
+            state.mTrialInFlight = false;
+
+            if (state.mConsecutiveFailures >= mFailureThreshold) {
+                state.mOpenUntilNanos = System.nanoTime() + mOpenDurationNanos;
+
+                Logger.warn(
+                        TAG + methodName,
+                        "Circuit opened after ["
+                                + state.mConsecutiveFailures
+                                + "] consecutive failures."
+                );
+            }
+        }
+    }
+
+    /**
+     * Records a request which ended without an outcome, e.g. with a connection error. If it was
+     * the trial request, it counts as a failure so that another trial is let through once the
+     * circuit cools down again; otherwise it is ignored.
+     *
+     * @param host The host which was called.
+     */
+    void onAbandoned(@NonNull final String host) {
+        final HostState state = mHosts.get(host);
+
+        if (null == state) {
+            return;
+        }
+
+        synchronized (state) {
+            if (state.mTrialInFlight) {
+                onFailure(host);
+            }
+        }
+    }
+
+    /**
+     * Lets another trial request through, if the trial request ended without an outcome that
+     * says anything about the host.
+     *
+     * @param host The host which was called.
+     */
+    void releaseTrial(@NonNull final String host) {
+        final HostState state = mHosts.get(host);
+
+        if (null != state) {
+            synchronized (state) {
+                state.mTrialInFlight = false;
+            }
+        }
+    }
+
+    /**
+     * Closes every circuit.
+     */
+    void reset() {
+        mHosts.clear();
+    }
+}
@@ -22,6 +22,13 @@
 // THE SOFTWARE.
 package com.microsoft.identity.common.internal.net;
 
+import androidx.annotation.NonNull;
+
+import com.microsoft.identity.common.internal.telemetry.MainThreadBlockingDetector;
+import com.microsoft.identity.common.internal.telemetry.Counter;
+import com.microsoft.identity.common.internal.telemetry.Histogram;
+import com.microsoft.identity.common.internal.telemetry.Metrics;
+import com.microsoft.identity.common.internal.telemetry.RequestTrace;
 import com.microsoft.identity.common.internal.util.StringUtil;
 
 import java.io.BufferedReader;
@@ -35,8 +42,11 @@ import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.net.UnknownServiceException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Internal class for handling http request.
@@ -44,22 +54,17 @@ import java.util.Set;
 public final class HttpRequest {
 
     private static final String HOST = "Host";
+    private static final int STREAM_BUFFER_SIZE = 1024;
+    private static final String SEND_OPERATION = "HttpRequest.send";
+
     /**
-     * The waiting time before doing retry to prevent hitting the server immediately failure.
+     * Per-status counters, filled on first use so that unseen statuses are not registered.
      */
-    private static final int RETRY_TIME_WAITING_PERIOD_MSEC = 1000;
-    private static final int STREAM_BUFFER_SIZE = 1024;
+    private static final AtomicReferenceArray<Counter> sStatusCounters = new AtomicReferenceArray<>(600);
+    private static final Histogram sLatency = Metrics.histogram(Metrics.HTTP_LATENCY);
 
     static final String REQUEST_METHOD_GET = "GET";
     static final String REQUEST_METHOD_POST = "POST";
-    /**
-     * Default value of read timeout in milliseconds.
-     */
-    private static final int DEFAULT_READ_TIMEOUT = 30000;
-    /**
-     * Default value of connect timeout in milliseconds.
-     */
-    private static final int DEFAULT_CONNECT_TIMEOUT = 30000;
 
     // class variables
     private final URL mRequestUrl;
@@ -138,14 +143,15 @@ public final class HttpRequest {
      * Send http request.
      */
     private HttpResponse send() throws IOException, SocketTimeoutException, UnknownServiceException {
+        final long blockingToken = MainThreadBlockingDetector.begin(SEND_OPERATION);
         final HttpResponse response;
         try {
-            response = sendWithRetry();
-        } catch (final SocketTimeoutException socketTimeoutException) {
-            throw socketTimeoutException;
+            response = sendWithRetry(RetryPolicy.getDefault());
+        } finally {
+            MainThreadBlockingDetector.end(SEND_OPERATION, blockingToken);
         }
 
-        if (response != null && isRetryableError(response.getStatusCode())) {
+        if (response != null && RetryPolicy.isServerError(response.getStatusCode())) {
             throw new UnknownServiceException("Retry failed again with 500/503/504");
         }
 
@@ -153,53 +159,80 @@ public final class HttpRequest {
     }
 
     /**
-     * Execute the send request, and retry if needed. Retry happens on all the endpoint when receiving
-     * {@link SocketTimeoutException} or retryable error 500/503/504.
+     * Execute the send request, and retry as the {@link RetryPolicy} allows. Retry happens on all
+     * the endpoints when receiving {@link SocketTimeoutException} or retryable error 429/500/503/504.
      */
-    private HttpResponse sendWithRetry() throws IOException {
-        final HttpResponse httpResponse;
-        try {
-            httpResponse = executeHttpSend();
-        } catch (final SocketTimeoutException socketTimeoutException) {
-            // In android, network timeout is thrown as the SocketTimeOutException, we need to catch this and perform
-            // retry. If retry also fails with timeout, the socketTimeoutException will be bubbled up
-            waitBeforeRetry();
-            return executeHttpSend();
-        }
+    private HttpResponse sendWithRetry(final RetryPolicy retryPolicy) throws IOException {
+        return retryPolicy.execute(mRequestUrl.getHost(), new RetryPolicy.RetryableCall<HttpResponse>() {
+            @Override
+            public HttpResponse call() throws IOException {
+                return executeHttpSend();
+            }
 
-        if (isRetryableError(httpResponse.getStatusCode())) {
-            // retry if we get 500/503/504
-            waitBeforeRetry();
-            return executeHttpSend();
-        }
+            @Override
+            public int getStatusCode(@NonNull final HttpResponse response) {
+                return response.getStatusCode();
+            }
 
-        return httpResponse;
+            @Override
+            public Map<String, List<String>> getHeaders(@NonNull final HttpResponse response) {
+                return response.getHeaders();
+            }
+        });
     }
 
     private HttpResponse executeHttpSend() throws IOException {
-        final HttpURLConnection urlConnection = setupConnection();
+        final AdaptiveTimeouts timeouts = AdaptiveTimeouts.getDefault();
+        final HttpURLConnection urlConnection = setupConnection(timeouts);
         urlConnection.setRequestMethod(mRequestMethod);
-        setRequestBody(urlConnection, mRequestContent, mRequestContentType);
+        setRequestBodyProperties(urlConnection, mRequestContent, mRequestContentType);
+
+        final long connectStartNanos = RequestTrace.startSpan();
+        try {
+            urlConnection.connect();
+        } catch (final SocketTimeoutException socketTimeoutException) {
+            // A timeout capped at the deadline does not reflect the latency of the host
+            if (!RequestDeadline.hasExpired()) {
+                timeouts.recordConnectLatency(mRequestUrl, urlConnection.getConnectTimeout());
+            }
+            throw socketTimeoutException;
+        }
+        RequestTrace.endSpan(RequestTrace.Span.HTTP_CONNECT, connectStartNanos);
+        timeouts.recordConnectLatency(mRequestUrl, elapsedMillis(connectStartNanos));
 
         InputStream responseStream = null;
 
         final HttpResponse response;
         try {
+            final long firstByteStartNanos = RequestTrace.startSpan();
+            writeRequestBody(urlConnection, mRequestContent);
+
             try {
                 responseStream = urlConnection.getInputStream();
             } catch (final SocketTimeoutException socketTimeoutException) {
                 // SocketTimeoutExcetion is thrown when connection timeout happens. For connection timeout, we want
                 // to retry once. Throw the exception to the upper layer, and the upper layer will handle the rety.
+                if (!RequestDeadline.hasExpired()) {
+                    timeouts.recordReadLatency(mRequestUrl, urlConnection.getReadTimeout());
+                }
                 throw socketTimeoutException;
             } catch (final IOException ioException) {
                 responseStream = urlConnection.getErrorStream();
             }
 
             final int statusCode = urlConnection.getResponseCode();
+            RequestTrace.endSpan(RequestTrace.Span.HTTP_TTFB, firstByteStartNanos);
+            timeouts.recordReadLatency(mRequestUrl, elapsedMillis(firstByteStartNanos));
 
+            final long bodyStartNanos = RequestTrace.startSpan();
             String responseBody = responseStream == null ? "" : convertStreamToString(responseStream);
+            RequestTrace.endSpan(RequestTrace.Span.HTTP_BODY, bodyStartNanos);
 
             response = new HttpResponse(statusCode, responseBody, urlConnection.getHeaderFields());
+            getStatusCounter(statusCode).increment();
+            sLatency.record(
+                    TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - connectStartNanos)
+            );
         } finally {
             safeCloseStream(responseStream);
         }
@@ -207,7 +240,26 @@ public final class HttpRequest {
         return response;
     }
 
-    private HttpURLConnection setupConnection() throws IOException {
+    /**
+     * Returns the counter of responses with the given status, without building its name again
+     * once the status has been seen.
+     */
+    private static Counter getStatusCounter(final int statusCode) {
+        if (statusCode < 0 || statusCode >= sStatusCounters.length()) {
+            return Metrics.counter(Metrics.HTTP_STATUS_PREFIX + statusCode);
+        }
+
+        Counter counter = sStatusCounters.get(statusCode);
+        if (null == counter) {
+            // Metrics.counter returns the same instance for a name, so racing threads agree.
+            counter = Metrics.counter(Metrics.HTTP_STATUS_PREFIX + statusCode);
+            sStatusCounters.set(statusCode, counter);
+        }
+
+        return counter;
+    }
+
+    private HttpURLConnection setupConnection(final AdaptiveTimeouts timeouts) throws IOException {
         final HttpURLConnection urlConnection = HttpUrlConnectionFactory.createHttpURLConnection(mRequestUrl);
         //urlConnection.setRequestProperty("Connection", "close");
 
@@ -217,8 +269,8 @@ public final class HttpRequest {
             urlConnection.setRequestProperty(entry.getKey(), entry.getValue());
         }
 
-        urlConnection.setConnectTimeout(DEFAULT_CONNECT_TIMEOUT);
-        urlConnection.setReadTimeout(DEFAULT_READ_TIMEOUT);
+        urlConnection.setConnectTimeout(timeouts.getConnectTimeoutMillis(mRequestUrl));
+        urlConnection.setReadTimeout(timeouts.getReadTimeoutMillis(mRequestUrl));
         urlConnection.setInstanceFollowRedirects(true);
         urlConnection.setUseCaches(false);
         urlConnection.setDoInput(true);
@@ -226,8 +278,8 @@ public final class HttpRequest {
         return urlConnection;
     }
 
-    private static void setRequestBody(final HttpURLConnection connection, final byte[] contentRequest,
-                                       final String requestContentType) throws IOException {
+    private static void setRequestBodyProperties(final HttpURLConnection connection, final byte[] contentRequest,
+                                                 final String requestContentType) {
         if (contentRequest == null) {
             return;
         }
@@ -239,6 +291,13 @@ public final class HttpRequest {
         }
 
         connection.setRequestProperty("Content-Length", String.valueOf(contentRequest.length));
+    }
+
+    private static void writeRequestBody(final HttpURLConnection connection, final byte[] contentRequest)
+            throws IOException {
+        if (contentRequest == null) {
+            return;
+        }
 
         OutputStream out = null;
         try {
@@ -272,6 +331,10 @@ public final class HttpRequest {
         }
     }
 
+    private static long elapsedMillis(final long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
     /**
      * Close the stream safely.
      *
@@ -288,27 +351,4 @@ public final class HttpRequest {
             //Encountered IO exception when trying to close the stream"
         }
     }
-
-    /**
-     * Check if the given status code is the retryable status code(500/503/504).
-     *
-     * @param statusCode The status to check.
-     * @return True if the status code is 500, 503 or 504, false otherwise.
-     */
-    private static boolean isRetryableError(final int statusCode) {
-        return statusCode == HttpURLConnection.HTTP_INTERNAL_ERROR
-                || statusCode == HttpURLConnection.HTTP_GATEWAY_TIMEOUT
-                || statusCode == HttpURLConnection.HTTP_UNAVAILABLE;
-    }
-
-    /**
-     * Having the thread wait for 1 second before doing the retry to avoid hitting server immediately.
-     */
-    private void waitBeforeRetry() {
-        try {
-            Thread.sleep(RETRY_TIME_WAITING_PERIOD_MSEC);
-        } catch (final InterruptedException interrupted) {
-            //Fail the have the thread waiting for 1 second before doing the retry
-        }
-    }
 }
\ No newline at end of file
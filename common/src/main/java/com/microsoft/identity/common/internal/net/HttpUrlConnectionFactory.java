@@ -22,13 +22,17 @@
 //  THE SOFTWARE.
 package com.microsoft.identity.common.internal.net;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.LinkedList;
+import java.util.Locale;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Internal class for create {@link java.net.HttpURLConnection}.
@@ -36,6 +40,7 @@ import java.util.Queue;
  */
 public final class HttpUrlConnectionFactory {
     private static Queue<HttpURLConnection> sMockedConnectionQueue = new LinkedList<>();
+    private static final ConcurrentMap<String, URL> sHostRedirects = new ConcurrentHashMap<>();
 
     /**
      * Private constructor to prevent the class from being initiated.
@@ -72,6 +77,26 @@ public final class HttpUrlConnectionFactory {
         return sMockedConnectionQueue.size();
     }
 
+    /**
+     * Used by tests to send the requests for a host to a local server instead. The path and
+     * query of each request are kept; the protocol, host and port are those of the target.
+     *
+     * @param host   The host whose requests should be redirected.
+     * @param target The {@link URL} of the server to send them to.
+     */
+    @VisibleForTesting
+    public static void addHostRedirect(@NonNull final String host, @NonNull final URL target) {
+        sHostRedirects.put(host.toLowerCase(Locale.US), target);
+    }
+
+    /**
+     * Used by tests to remove all the host redirects.
+     */
+    @VisibleForTesting
+    public static void clearHostRedirects() {
+        sHostRedirects.clear();
+    }
+
     /**
      * Creates the {@link HttpURLConnection} with the given url.
      *
@@ -84,6 +109,18 @@ public final class HttpUrlConnectionFactory {
             return sMockedConnectionQueue.poll();
         }
 
+        if (!sHostRedirects.isEmpty()) {
+            final URL target = sHostRedirects.get(url.getHost().toLowerCase(Locale.US));
+            if (null != target) {
+                return (HttpURLConnection) new URL(
+                        target.getProtocol(),
+                        target.getHost(),
+                        target.getPort(),
+                        url.getFile()
+                ).openConnection();
+            }
+        }
+
         return (HttpURLConnection) url.openConnection();
     }
 }
@@ -0,0 +1,97 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.net;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadline of the request being executed on the current thread. HTTP calls made on the thread cap
+ * their timeouts and retries at the time left, so that a request fails once its caller has stopped
+ * waiting for it instead of after every timeout and retry has run its course.
+ */
+public final class RequestDeadline {
+
+    private static final ThreadLocal<Long> sDeadlineNanos = new ThreadLocal<>();
+
+    private RequestDeadline() {
+        // Utility class.
+    }
+
+    /**
+     * Sets the deadline of the request on the current thread.
+     *
+     * @param timeoutMillis The time the request may take from now, or 0 for no deadline.
+     */
+    public static void set(final long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            clear();
+        } else {
+            sDeadlineNanos.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+        }
+    }
+
+    /**
+     * Removes the deadline of the current thread.
+     */
+    public static void clear() {
+        sDeadlineNanos.remove();
+    }
+
+    /**
+     * Returns the time left before the deadline of the current thread.
+     *
+     * @return The time left in milliseconds, which may be negative, or {@link Long#MAX_VALUE} if
+     * there is no deadline.
+     */
+    public static long getRemainingMillis() {
+        final Long deadlineNanos = sDeadlineNanos.get();
+
+        if (null == deadlineNanos) {
+            return Long.MAX_VALUE;
+        }
+
+        return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    }
+
+    /**
+     * Checks if the deadline of the current thread has passed. A timeout capped at the deadline
+     * fires once it has passed, so such a timeout says nothing about the host called.
+     *
+     * @return True if the deadline has passed, false if it has not or there is none.
+     */
+    public static boolean hasExpired() {
+        return getRemainingMillis() <= 0;
+    }
+
+    /**
+     * Fails if the deadline of the current thread has passed.
+     *
+     * @throws SocketTimeoutException If the deadline has passed.
+     */
+    public static void throwIfExpired() throws SocketTimeoutException {
+        if (hasExpired()) {
+            throw new SocketTimeoutException("Request deadline exceeded");
+        }
+    }
+}
@@ -0,0 +1,524 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.net;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.telemetry.Counter;
+import com.microsoft.identity.common.internal.telemetry.Metrics;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.UnknownServiceException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Decides whether and when failed HTTP requests are retried, shared by {@link HttpRequest} and
+ * the ADAL HttpWebRequest.
+ * <p>
+ * Timeouts and 500/503/504 responses are retried after a capped exponential backoff with full
+ * jitter, so that devices which failed together do not retry together. 429 and 503 responses
+ * carrying a Retry-After header are retried after the delay the service asked for, unless it is
+ * longer than {@link Builder#setMaxRetryAfterMillis(long)}. Consecutive failures against a host
+ * open a per host circuit breaker, and requests to that host fail fast with an
+ * {@link UnknownServiceException} until it cools down. No retry is scheduled past the
+ * {@link RequestDeadline} of the current thread.
+ */
+public final class RetryPolicy {
+
+    private static final String TAG = RetryPolicy.class.getSimpleName();
+
+    /**
+     * Status code of a throttled request; not defined by {@link HttpURLConnection}.
+     */
+    public static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    /**
+     * Name of the header with which a service asks clients to wait before retrying.
+     */
+    public static final String RETRY_AFTER = "Retry-After";
+
+    /**
+     * Returned by {@link #getRetryDelayMillis(int, int, Map)} when the request must not be retried.
+     */
+    public static final long NO_RETRY = -1;
+
+    private static final String RETRY_AFTER_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    private static final Random sRandom = new Random();
+
+    private static final Counter sTimeouts = Metrics.counter(Metrics.HTTP_TIMEOUTS);
+    private static final Counter sCircuitOpen = Metrics.counter(Metrics.HTTP_CIRCUIT_OPEN);
+    private static final Counter sRetries = Metrics.counter(Metrics.HTTP_RETRIES);
+
+    private static volatile RetryPolicy sDefault = new Builder().build();
+
+    private final int mMaxAttempts;
+    private final long mBaseDelayMillis;
+    private final long mMaxDelayMillis;
+    private final long mMaxRetryAfterMillis;
+    private final CircuitBreaker mCircuitBreaker;
+
+    private RetryPolicy(@NonNull final Builder builder) {
+        mMaxAttempts = builder.mMaxAttempts;
+        mBaseDelayMillis = builder.mBaseDelayMillis;
+        mMaxDelayMillis = builder.mMaxDelayMillis;
+        mMaxRetryAfterMillis = builder.mMaxRetryAfterMillis;
+        mCircuitBreaker = new CircuitBreaker(
+                builder.mCircuitFailureThreshold,
+                builder.mCircuitOpenDurationMillis
+        );
+    }
+
+    /**
+     * Returns the policy used by {@link HttpRequest} and HttpWebRequest.
+     *
+     * @return The policy in use.
+     */
+    @NonNull
+    public static RetryPolicy getDefault() {
+        return sDefault;
+    }
+
+    /**
+     * Replaces the policy used by {@link HttpRequest} and HttpWebRequest. Circuit state is kept
+     * by each policy, so replacing the policy closes every circuit.
+     *
+     * @param retryPolicy The policy to use.
+     */
+    public static void setDefault(@NonNull final RetryPolicy retryPolicy) {
+        sDefault = retryPolicy;
+    }
+
+    /**
+     * Returns the maximum number of attempts of a request, including the first one.
+     *
+     * @return The maximum number of attempts.
+     */
+    public int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    /**
+     * Checks if the given status code may be retried: 429, 500, 503 or 504.
+     *
+     * @param statusCode The status to check.
+     * @return True if the status code is retryable.
+     */
+    public static boolean isRetryableStatusCode(final int statusCode) {
+        return statusCode == HTTP_TOO_MANY_REQUESTS || isServerError(statusCode);
+    }
+
+    /**
+     * Checks if the given status code means the service is unhealthy: 500, 503 or 504. Only these
+     * and timeouts count towards opening the circuit; 429 throttles a single client.
+     *
+     * @param statusCode The status to check.
+     * @return True if the status code is 500, 503 or 504.
+     */
+    public static boolean isServerError(final int statusCode) {
+        return statusCode == HttpURLConnection.HTTP_INTERNAL_ERROR
+                || statusCode == HttpURLConnection.HTTP_GATEWAY_TIMEOUT
+                || statusCode == HttpURLConnection.HTTP_UNAVAILABLE;
+    }
+
+    /**
+     * A request which {@link #execute(String, RetryableCall)} may send more than once.
+     *
+     * @param <T> The type of the response.
+     */
+    public interface RetryableCall<T> {
+
+        /**
+         * Sends the request once.
+         *
+         * @return The response.
+         * @throws IOException If the request fails; only a {@link SocketTimeoutException} is
+         *                     retried.
+         */
+        T call() throws IOException;
+
+        /**
+         * @param response A response returned by {@link #call()}.
+         * @return The status code of the response.
+         */
+        int getStatusCode(@NonNull T response);
+
+        /**
+         * @param response A response returned by {@link #call()}.
+         * @return The headers of the response, if any.
+         */
+        @Nullable
+        Map<String, List<String>> getHeaders(@NonNull T response);
+    }
+
+    /**
+     * Sends a request, retrying timeouts and 429/500/503/504 responses as this policy allows, and
+     * records every outcome against the circuit of the host. Once retries are exhausted, the last
+     * response is returned or the last timeout is thrown.
+     *
+     * @param host The host about to be called.
+     * @param call The request.
+     * @param <T>  The type of the response.
+     * @return The last response.
+     * @throws IOException If the circuit is open, the deadline passed, or the request failed.
+     */
+    public <T> T execute(@NonNull final String host, @NonNull final RetryableCall<T> call)
+            throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            RequestDeadline.throwIfExpired();
+            checkCircuit(host);
+
+            final T response;
+            try {
+                response = call.call();
+            } catch (final SocketTimeoutException socketTimeoutException) {
+                sTimeouts.increment();
+
+                if (RequestDeadline.hasExpired()) {
+                    // The deadline cut the attempt short, which is not the host's failure; there
+                    // is no time left to retry either
+                    mCircuitBreaker.releaseTrial(host);
+                    throw socketTimeoutException;
+                }
+
+                onFailure(host);
+
+                // In android, network timeout is thrown as the SocketTimeOutException, we need to
+                // catch this and perform retry. If the retries also time out, the
+                // socketTimeoutException will be bubbled up
+                final long delayMillis = getRetryDelayMillis(attempt, 0, null);
+                if (delayMillis == NO_RETRY) {
+                    throw socketTimeoutException;
+                }
+
+                waitBeforeRetry(delayMillis);
+                continue;
+            } catch (final IOException | RuntimeException e) {
+                // Any other failure, e.g. a ConnectException, must not leave a trial request in
+                // flight, or the circuit would stay open for good
+                mCircuitBreaker.onAbandoned(host);
+                throw e;
+            }
+
+            final int statusCode = call.getStatusCode(response);
+
+            if (isServerError(statusCode)) {
+                onFailure(host);
+            } else {
+                onSuccess(host);
+            }
+
+            if (!isRetryableStatusCode(statusCode)) {
+                return response;
+            }
+
+            final long delayMillis = getRetryDelayMillis(attempt, statusCode, call.getHeaders(response));
+
+            if (delayMillis == NO_RETRY) {
+                return response;
+            }
+
+            waitBeforeRetry(delayMillis);
+        }
+    }
+
+    /**
+     * Fails fast if the circuit of the supplied host is open.
+     *
+     * @param host The host about to be called.
+     * @throws UnknownServiceException If the host has failed repeatedly and is cooling down.
+     */
+    public void checkCircuit(@NonNull final String host) throws UnknownServiceException {
+        if (!mCircuitBreaker.allowRequest(host)) {
+            sCircuitOpen.increment();
+            throw new UnknownServiceException("Service is unavailable, failing fast until it recovers");
+        }
+    }
+
+    /**
+     * Records a request which got a response that is not a server error.
+     *
+     * @param host The host which was called.
+     */
+    public void onSuccess(@NonNull final String host) {
+        mCircuitBreaker.onSuccess(host);
+    }
+
+    /**
+     * Records a request which timed out or got a server error.
+     *
+     * @param host The host which was called.
+     */
+    public void onFailure(@NonNull final String host) {
+        mCircuitBreaker.onFailure(host);
+    }
+
+    /**
+     * Returns how long to wait before retrying a failed attempt.
+     *
+     * @param attempt    The failed attempt, starting at 1.
+     * @param statusCode The status code of the failed attempt, or 0 if it timed out.
+     * @param headers    The response headers of the failed attempt, if any.
+     * @return The delay in milliseconds, or {@link #NO_RETRY}.
+     */
+    public long getRetryDelayMillis(final int attempt,
+                                    final int statusCode,
+                                    @Nullable final Map<String, List<String>> headers) {
+        final String methodName = ":getRetryDelayMillis";
+
+        if (attempt >= mMaxAttempts) {
+            return NO_RETRY;
+        }
+
+        final long delayMillis = computeRetryDelayMillis(attempt, statusCode, headers);
+
+        if (delayMillis >= RequestDeadline.getRemainingMillis()) {
+            Logger.info(
+                    TAG + methodName,
+                    "Not retrying, the request deadline would pass first."
+            );
+            return NO_RETRY;
+        }
+
+        return delayMillis;
+    }
+
+    private long computeRetryDelayMillis(final int attempt,
+                                         final int statusCode,
+                                         @Nullable final Map<String, List<String>> headers) {
+        final String methodName = ":computeRetryDelayMillis";
+
+        final long retryAfterMillis = honoursRetryAfter(statusCode)
+                ? parseRetryAfterMillis(getHeader(headers, RETRY_AFTER))
+                : -1;
+
+        if (retryAfterMillis >= 0) {
+            if (retryAfterMillis > mMaxRetryAfterMillis) {
+                Logger.info(
+                        TAG + methodName,
+                        "Retry-After of [" + retryAfterMillis + "] ms is too long, not retrying."
+                );
+                return NO_RETRY;
+            }
+
+            return retryAfterMillis;
+        }
+
+        if (statusCode == HTTP_TOO_MANY_REQUESTS) {
+            // Throttled without being told for how long: retrying right away would only
+            // prolong the throttling.
+            return NO_RETRY;
+        }
+
+        long ceilingMillis = mBaseDelayMillis;
+        for (int i = 1; i < attempt && ceilingMillis < mMaxDelayMillis; i++) {
+            ceilingMillis <<= 1;
+        }
+
+        return (long) (sRandom.nextDouble() * Math.min(ceilingMillis, mMaxDelayMillis));
+    }
+
+    /**
+     * Waits before a retry. Unlike a bare sleep, an interrupt ends the request.
+     *
+     * @param delayMillis The delay returned by {@link #getRetryDelayMillis(int, int, Map)}.
+     * @throws InterruptedIOException If the thread is interrupted while waiting; the interrupt
+     *                                flag is restored.
+     */
+    public static void waitBeforeRetry(final long delayMillis) throws InterruptedIOException {
+        sRetries.increment();
+
+        try {
+            Thread.sleep(delayMillis);
+        } catch (final InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+
+    /**
+     * Closes every circuit of this policy.
+     */
+    @VisibleForTesting
+    public void resetCircuits() {
+        mCircuitBreaker.reset();
+    }
+
+    /**
+     * Only throttling (429) and unavailable (503) responses may ask for a retry delay.
+     */
+    private static boolean honoursRetryAfter(final int statusCode) {
+        return statusCode == HTTP_TOO_MANY_REQUESTS
+                || statusCode == HttpURLConnection.HTTP_UNAVAILABLE;
+    }
+
+    @Nullable
+    private static String getHeader(@Nullable final Map<String, List<String>> headers,
+                                    @NonNull final String name) {
+        if (null == headers) {
+            return null;
+        }
+
+        for (final Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey())
+                    && null != entry.getValue()
+                    && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Parses a Retry-After value, either delta-seconds or an HTTP-date.
+     *
+     * @return The delay in milliseconds, or -1 if the value is absent or malformed.
+     */
+    @VisibleForTesting
+    static long parseRetryAfterMillis(@Nullable final String retryAfter) {
+        if (null == retryAfter) {
+            return -1;
+        }
+
+        final String value = retryAfter.trim();
+
+        try {
+            final long seconds = Long.parseLong(value);
+            return seconds < 0 ? -1 : seconds * 1000;
+        } catch (final NumberFormatException notSeconds) {
+            // Try an HTTP-date
+        }
+
+        final SimpleDateFormat dateFormat = new SimpleDateFormat(RETRY_AFTER_DATE_FORMAT, Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+
+        try {
+            final Date date = dateFormat.parse(value);
+            return Math.max(0, date.getTime() - System.currentTimeMillis());
+        } catch (final ParseException malformed) {
+            return -1;
+        }
+    }
+
+    /**
+     * Builder of {@link RetryPolicy}. The defaults retry once, after at most one second, and open
+     * the circuit of a host after 5 consecutive failures for 30 seconds.
+     */
+    public static final class Builder {
+
+        private int mMaxAttempts = 2;
+        private long mBaseDelayMillis = 1000;
+        private long mMaxDelayMillis = 8000;
+        private long mMaxRetryAfterMillis = 10000;
+        private int mCircuitFailureThreshold = 5;
+        private long mCircuitOpenDurationMillis = 30000;
+
+        /**
+         * @param maxAttempts The maximum number of attempts of a request, including the first
+         *                    one; 1 disables retries.
+         * @return This builder.
+         */
+        public Builder setMaxAttempts(final int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts must be at least 1");
+            }
+            mMaxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * @param baseDelayMillis The backoff ceiling of the first retry, doubled for each
+         *                        subsequent retry. The actual delay is uniformly random below it.
+         * @return This builder.
+         */
+        public Builder setBaseDelayMillis(final long baseDelayMillis) {
+            if (baseDelayMillis < 1) {
+                throw new IllegalArgumentException("baseDelayMillis must be positive");
+            }
+            mBaseDelayMillis = baseDelayMillis;
+            return this;
+        }
+
+        /**
+         * @param maxDelayMillis The cap of the backoff ceiling.
+         * @return This builder.
+         */
+        public Builder setMaxDelayMillis(final long maxDelayMillis) {
+            mMaxDelayMillis = maxDelayMillis;
+            return this;
+        }
+
+        /**
+         * @param maxRetryAfterMillis The longest Retry-After delay which is waited out; requests
+         *                            asked to wait longer fail instead.
+         * @return This builder.
+         */
+        public Builder setMaxRetryAfterMillis(final long maxRetryAfterMillis) {
+            mMaxRetryAfterMillis = maxRetryAfterMillis;
+            return this;
+        }
+
+        /**
+         * @param failureThreshold The consecutive failures which open the circuit of a host.
+         * @return This builder.
+         */
+        public Builder setCircuitFailureThreshold(final int failureThreshold) {
+            if (failureThreshold < 1) {
+                throw new IllegalArgumentException("failureThreshold must be at least 1");
+            }
+            mCircuitFailureThreshold = failureThreshold;
+            return this;
+        }
+
+        /**
+         * @param openDurationMillis How long an open circuit fails requests before letting a
+         *                           trial request through.
+         * @return This builder.
+         */
+        public Builder setCircuitOpenDurationMillis(final long openDurationMillis) {
+            mCircuitOpenDurationMillis = openDurationMillis;
+            return this;
+        }
+
+        /**
+         * @return The RetryPolicy.
+         */
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
@@ -33,6 +33,7 @@ import com.microsoft.identity.common.internal.net.HttpRequest;
 import com.microsoft.identity.common.internal.net.HttpResponse;
 import com.microsoft.identity.common.internal.net.ObjectMapper;
 import com.microsoft.identity.common.internal.platform.Device;
+import com.microsoft.identity.common.internal.telemetry.RequestTrace;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
@@ -115,7 +116,12 @@ public abstract class OAuth2Strategy
 
         validateTokenRequest(request);
         final HttpResponse response = performTokenRequest(request);
-        return getTokenResultFromHttpResponse(response);
+
+        final long parseStartNanos = RequestTrace.startSpan();
+        final GenericTokenResult tokenResult = getTokenResultFromHttpResponse(response);
+        RequestTrace.endSpan(RequestTrace.Span.TOKEN_PARSE, parseStartNanos);
+
+        return tokenResult;
     }
 
     protected HttpResponse performTokenRequest(final GenericTokenRequest request) throws IOException {
@@ -24,15 +24,27 @@ package com.microsoft.identity.common.internal.providers.oauth2;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
 import com.microsoft.identity.common.exception.ClientException;
 import com.microsoft.identity.common.internal.cache.AccountDeletionRecord;
 import com.microsoft.identity.common.internal.cache.ICacheRecord;
+import com.microsoft.identity.common.internal.cache.TokenCacheStats;
 import com.microsoft.identity.common.internal.dto.AccountRecord;
 import com.microsoft.identity.common.internal.dto.Credential;
 import com.microsoft.identity.common.internal.dto.IdTokenRecord;
+import com.microsoft.identity.common.internal.logging.Logger;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Class for managing the tokens saved locally on a device.
@@ -40,8 +52,26 @@ import java.util.Set;
 public abstract class OAuth2TokenCache
         <T extends OAuth2Strategy, U extends AuthorizationRequest, V extends TokenResponse> {
 
+    private static final String TAG = OAuth2TokenCache.class.getSimpleName();
+
+    /**
+     * Runs {@link #preload()} requests; a single thread, as preloads are I/O bound and mostly
+     * touch the same files.
+     */
+    private static final ExecutorService sPreloadExecutor =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, TAG + "-preload");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
     private final Context mContext;
 
+    private final AtomicReference<Future<Void>> mPreload = new AtomicReference<>();
+
     /**
      * Constructs a new OAuth2TokenCache.
      *
@@ -51,6 +81,56 @@ public abstract class OAuth2TokenCache
         mContext = context.getApplicationContext();
     }
 
+    /**
+     * Starts loading this cache's backing storage on a background thread, so that the first
+     * read does not load (and decrypt) the cache files on the calling thread, typically the main
+     * thread during app startup.
+     * <p>
+     * Only the first call starts a load; later calls return the same Future. Callers about to
+     * read the cache from a thread that must not block on I/O can check {@link Future#isDone()}
+     * or wait on the Future from elsewhere.
+     *
+     * @return A Future which completes once the cache is loaded. It fails with the cause of a
+     * failed load, in which case reads load the cache as they would without a preload.
+     */
+    public Future<Void> preload() {
+        final String methodName = ":preload";
+        Future<Void> preload = mPreload.get();
+
+        if (null == preload) {
+            final FutureTask<Void> task = new FutureTask<>(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    final long startMillis = System.currentTimeMillis();
+                    warmUp();
+                    Logger.info(
+                            TAG + methodName,
+                            "Preloaded in [" + (System.currentTimeMillis() - startMillis) + "] ms."
+                    );
+                    return null;
+                }
+            });
+
+            if (mPreload.compareAndSet(null, task)) {
+                sPreloadExecutor.execute(task);
+                preload = task;
+            } else {
+                preload = mPreload.get();
+            }
+        }
+
+        return preload;
+    }
+
+    /**
+     * Loads the backing storage of this cache, so that subsequent reads are served from memory.
+     * Called from {@link #preload()} on a background thread. Does nothing by default.
+     */
+    @WorkerThread
+    protected void warmUp() {
+        // Nothing to load by default.
+    }
+
     /**
      * Saves the credentials and tokens returned by the service to the cache.
      *
@@ -156,6 +236,22 @@ public abstract class OAuth2TokenCache
      */
     protected abstract Set<String> getAllClientIds();
 
+    /**
+     * Reads every file of this cache and describes its contents: entry counts by type and by
+     * client, expired AccessTokens, unreadable entries and file sizes. Values are decrypted
+     * internally; no tokens are returned.
+     *
+     * @return The statistics.
+     * @throws UnsupportedOperationException If this cache does not collect statistics, which is
+     *                                       the default.
+     */
+    @WorkerThread
+    public TokenCacheStats getStats() {
+        throw new UnsupportedOperationException(
+                getClass().getSimpleName() + " does not collect token cache statistics"
+        );
+    }
+
     /**
      * Gets the Context used to initialize this OAuth2TokenCache.
      *
@@ -45,6 +45,7 @@ public class OperationParameters {
     private String redirectUri;
     private Authority mAuthority;
     private String mClaimsRequestJson;
+    private long mRequestTimeoutMillis;
 
     public Context getAppContext() {
         return mAppContext;
@@ -110,6 +111,23 @@ public class OperationParameters {
         mClaimsRequestJson = claimsRequestJson;
     }
 
+    /**
+     * @return The time the request may take, in milliseconds, or 0 if it has no deadline.
+     */
+    public long getRequestTimeoutMillis() {
+        return mRequestTimeoutMillis;
+    }
+
+    /**
+     * Sets a deadline for silent requests: HTTP timeouts and retries are capped at the time left,
+     * and the request fails once it has passed.
+     *
+     * @param requestTimeoutMillis The time the request may take, in milliseconds, or 0 for none.
+     */
+    public void setRequestTimeoutMillis(final long requestTimeoutMillis) {
+        mRequestTimeoutMillis = requestTimeoutMillis;
+    }
+
 
     /**
      * Since this is about validating MSAL Parameters and not an authorization request or token request.  I've placed this here.
@@ -24,6 +24,7 @@ package com.microsoft.identity.common.internal.result;
 
 import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationResult;
 import com.microsoft.identity.common.internal.providers.oauth2.TokenResult;
+import com.microsoft.identity.common.internal.telemetry.RequestTrace;
 
 public class AcquireTokenResult {
 
@@ -31,6 +32,7 @@ public class AcquireTokenResult {
     private TokenResult mTokenResult;
     private AuthorizationResult mAuthorizationResult;
     private Boolean mSucceeded = false;
+    private RequestTrace mRequestTrace;
 
     public void setLocalAuthenticationResult(ILocalAuthenticationResult result) {
         this.mLocalAuthenticationResult = result;
@@ -61,4 +63,12 @@ public class AcquireTokenResult {
         return mSucceeded;
     }
 
+    public RequestTrace getRequestTrace() {
+        return mRequestTrace;
+    }
+
+    public void setRequestTrace(RequestTrace requestTrace) {
+        this.mRequestTrace = requestTrace;
+    }
+
 }
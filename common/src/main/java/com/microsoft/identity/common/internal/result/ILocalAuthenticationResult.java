@@ -28,6 +28,7 @@ import androidx.annotation.Nullable;
 
 import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
 import com.microsoft.identity.common.internal.dto.IAccountRecord;
+import com.microsoft.identity.common.internal.telemetry.RequestTrace;
 
 import java.util.Date;
 
@@ -114,4 +115,12 @@ public interface ILocalAuthenticationResult {
      */
     @Nullable
     String getRefreshTokenAge();
-}
\ No newline at end of file
+
+    /**
+     * Gets the performance trace of the request which produced this result (if traced).
+     *
+     * @return The RequestTrace or null, if the request was not traced.
+     */
+    @Nullable
+    RequestTrace getRequestTrace();
+}
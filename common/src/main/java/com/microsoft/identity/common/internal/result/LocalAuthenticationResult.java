@@ -29,6 +29,7 @@ import com.microsoft.identity.common.internal.cache.ICacheRecord;
 import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
 import com.microsoft.identity.common.internal.dto.IAccountRecord;
 import com.microsoft.identity.common.internal.request.ILocalAuthenticationCallback;
+import com.microsoft.identity.common.internal.telemetry.RequestTrace;
 
 import java.util.Date;
 import java.util.concurrent.TimeUnit;
@@ -45,6 +46,7 @@ public class LocalAuthenticationResult implements ILocalAuthenticationResult {
     private String mRefreshToken = null;
     private String mSpeRing;
     private String mRefreshTokenAge;
+    private RequestTrace mRequestTrace;
 
     public LocalAuthenticationResult(@NonNull final ICacheRecord cacheRecord) {
         mAccessTokenRecord = cacheRecord.getAccessToken();
@@ -161,4 +163,19 @@ public class LocalAuthenticationResult implements ILocalAuthenticationResult {
     public AccessTokenRecord getAccessTokenRecord() {
         return mAccessTokenRecord;
     }
-}
\ No newline at end of file
+
+    @Nullable
+    @Override
+    public RequestTrace getRequestTrace() {
+        return mRequestTrace;
+    }
+
+    /**
+     * Sets the performance trace of the request which produced this result.
+     *
+     * @param requestTrace The RequestTrace to set.
+     */
+    public void setRequestTrace(@Nullable final RequestTrace requestTrace) {
+        mRequestTrace = requestTrace;
+    }
+}
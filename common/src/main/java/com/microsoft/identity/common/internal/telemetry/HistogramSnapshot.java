@@ -0,0 +1,116 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.telemetry;
+
+import java.util.Locale;
+
+/**
+ * An immutable copy of a {@link Histogram}.
+ */
+public final class HistogramSnapshot {
+
+    private final long[] mBuckets;
+    private final long mCount;
+    private final long mSum;
+    private final long mMax;
+
+    HistogramSnapshot(final long[] buckets, final long sum, final long max) {
+        long count = 0;
+        for (final long bucket : buckets) {
+            count += bucket;
+        }
+
+        mBuckets = buckets;
+        mCount = count;
+        mSum = sum;
+        mMax = max;
+    }
+
+    /**
+     * @return The number of values recorded.
+     */
+    public long getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return The sum of the values recorded.
+     */
+    public long getSum() {
+        return mSum;
+    }
+
+    /**
+     * @return The largest value recorded, or 0 if none were.
+     */
+    public long getMax() {
+        return mMax;
+    }
+
+    /**
+     * @return The mean of the values recorded, or 0 if none were.
+     */
+    public double getMean() {
+        return 0 == mCount ? 0 : (double) mSum / mCount;
+    }
+
+    /**
+     * Returns the value at the supplied percentile, to the precision of the histogram's buckets.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The highest value of the bucket containing the percentile, or 0 if no values were
+     * recorded.
+     */
+    public long getPercentile(final double percentile) {
+        if (0 == mCount) {
+            return 0;
+        }
+
+        final double clamped = Math.min(Math.max(percentile, 0), 100);
+        final long rank = Math.max(1, (long) Math.ceil(clamped / 100 * mCount));
+
+        long seen = 0;
+        for (int i = 0; i < mBuckets.length; i++) {
+            seen += mBuckets[i];
+            if (seen >= rank) {
+                return Math.min(Histogram.highestValueInBucket(i), mMax);
+            }
+        }
+
+        return mMax;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                Locale.US,
+                "count=%d mean=%.1f p50=%d p90=%d p99=%d max=%d",
+                mCount,
+                getMean(),
+                getPercentile(50),
+                getPercentile(90),
+                getPercentile(99),
+                mMax
+        );
+    }
+}
@@ -0,0 +1,172 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.telemetry;
+
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.microsoft.identity.common.internal.logging.Logger;
+
+import java.util.Arrays;
+
+/**
+ * Opt-in debug mode which finds blocking operations (disk, keystore, network, IPC waits) running
+ * on the main thread, where they cause jank and ANRs.
+ * <p>
+ * Blocking operations are bracketed with {@link #begin(String)} and {@link #end(String, long)}.
+ * While the detector is {@link Mode#OFF}, which is the default, this costs one volatile read.
+ * Otherwise, operations which run on the main looper's thread are reported to the listener, with
+ * the stack of the caller and the time the thread was blocked.
+ */
+public final class MainThreadBlockingDetector {
+
+    private static final String TAG = MainThreadBlockingDetector.class.getSimpleName();
+
+    /**
+     * What to do with blocking operations on the main thread.
+     */
+    public enum Mode {
+        /**
+         * Do not check.
+         */
+        OFF,
+
+        /**
+         * Report each operation to the listener once it completes.
+         */
+        RECORD,
+
+        /**
+         * Report each operation to the listener, then throw the
+         * {@link MainThreadBlockingViolation} before the operation runs.
+         */
+        ASSERT
+    }
+
+    /**
+     * Returned by {@link #begin(String)} when the operation is not being timed.
+     */
+    private static final long NOT_TRACKED = Long.MIN_VALUE;
+
+    private static volatile Mode sMode = Mode.OFF;
+
+    private static volatile IMainThreadBlockingListener sListener;
+
+    private MainThreadBlockingDetector() {
+        // Utility class.
+    }
+
+    /**
+     * Enables or disables the detector.
+     *
+     * @param mode     The mode.
+     * @param listener The listener which receives violations. If null, violations are logged.
+     */
+    public static void setMode(@NonNull final Mode mode,
+                               @Nullable final IMainThreadBlockingListener listener) {
+        sListener = listener;
+        sMode = mode;
+    }
+
+    /**
+     * @return The current mode.
+     */
+    @NonNull
+    public static Mode getMode() {
+        return sMode;
+    }
+
+    /**
+     * Marks the start of a blocking operation.
+     *
+     * @param operation The name of the operation.
+     * @return A token to pass to {@link #end(String, long)}.
+     * @throws MainThreadBlockingViolation In {@link Mode#ASSERT} mode, if called on the main thread.
+     */
+    public static long begin(@NonNull final String operation) {
+        final Mode mode = sMode;
+
+        if (Mode.OFF == mode || !isMainThread()) {
+            return NOT_TRACKED;
+        }
+
+        if (Mode.ASSERT == mode) {
+            final MainThreadBlockingViolation violation = newViolation(operation, 0);
+            report(violation);
+            throw violation;
+        }
+
+        return System.nanoTime();
+    }
+
+    /**
+     * Marks the end of a blocking operation. Must be called from the same method as
+     * {@link #begin(String)}, so that the reported stack is that of the caller.
+     *
+     * @param operation The name of the operation.
+     * @param token     The value returned by {@link #begin(String)}.
+     */
+    public static void end(@NonNull final String operation, final long token) {
+        if (NOT_TRACKED != token) {
+            report(newViolation(operation, System.nanoTime() - token));
+        }
+    }
+
+    private static boolean isMainThread() {
+        final Looper mainLooper = Looper.getMainLooper();
+        return null != mainLooper && mainLooper.getThread() == Thread.currentThread();
+    }
+
+    private static MainThreadBlockingViolation newViolation(@NonNull final String operation,
+                                                            final long durationNanos) {
+        final MainThreadBlockingViolation violation = new MainThreadBlockingViolation(operation, durationNanos);
+
+        // Drop the detector's own frames, so the trace starts at the blocking method
+        final StackTraceElement[] stackTrace = violation.getStackTrace();
+        int first = 0;
+        while (first < stackTrace.length
+                && MainThreadBlockingDetector.class.getName().equals(stackTrace[first].getClassName())) {
+            first++;
+        }
+        violation.setStackTrace(Arrays.copyOfRange(stackTrace, first, stackTrace.length));
+
+        return violation;
+    }
+
+    private static void report(@NonNull final MainThreadBlockingViolation violation) {
+        final IMainThreadBlockingListener listener = sListener;
+
+        if (null == listener) {
+            Logger.warn(TAG + ":report", violation.getMessage());
+            return;
+        }
+
+        try {
+            listener.onMainThreadBlocked(violation);
+        } catch (final RuntimeException e) {
+            Logger.error(TAG + ":report", "Main thread blocking listener failed.", e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.telemetry;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A blocking operation which ran on the main thread. Its stack trace is that of the caller which
+ * ran the operation.
+ *
+ * @see MainThreadBlockingDetector
+ */
+public final class MainThreadBlockingViolation extends RuntimeException {
+
+    private final String mOperation;
+    private final long mDurationNanos;
+
+    MainThreadBlockingViolation(@NonNull final String operation, final long durationNanos) {
+        super(String.format(
+                Locale.US,
+                "Blocking operation [%s] ran on the main thread for [%d] ms",
+                operation,
+                TimeUnit.NANOSECONDS.toMillis(durationNanos)
+        ));
+        mOperation = operation;
+        mDurationNanos = durationNanos;
+    }
+
+    /**
+     * Gets the name of the blocking operation, for example "HttpRequest.send".
+     *
+     * @return The operation.
+     */
+    @NonNull
+    public String getOperation() {
+        return mOperation;
+    }
+
+    /**
+     * Gets how long the operation blocked the main thread. 0 when the violation was raised
+     * before the operation ran, in {@link MainThreadBlockingDetector.Mode#ASSERT} mode.
+     *
+     * @param timeUnit The unit to return the duration in.
+     * @return The duration.
+     */
+    public long getDuration(@NonNull final TimeUnit timeUnit) {
+        return timeUnit.convert(mDurationNanos, TimeUnit.NANOSECONDS);
+    }
+}
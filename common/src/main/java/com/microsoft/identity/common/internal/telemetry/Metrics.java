@@ -0,0 +1,241 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.telemetry;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.microsoft.identity.common.internal.logging.Logger;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide registry of named {@link Counter}s and {@link Histogram}s.
+ * <p>
+ * Both are lock-free and allocation-free to update, and are left on in production. Hot paths
+ * should look a metric up once and keep the reference; {@link #reset()} zeroes metrics in place,
+ * so such references stay valid. Latency histograms record microseconds.
+ * <p>
+ * The host app may poll {@link #snapshot()} or receive snapshots periodically through
+ * {@link #setListener(IMetricsListener, long, TimeUnit)}.
+ */
+public final class Metrics {
+
+    private static final String TAG = Metrics.class.getSimpleName();
+
+    /**
+     * Silent requests served with an access token from the cache.
+     */
+    public static final String ACCESS_TOKEN_CACHE_HITS = "cache.access_token.hits";
+
+    /**
+     * Silent requests which had to request a new access token.
+     */
+    public static final String ACCESS_TOKEN_CACHE_MISSES = "cache.access_token.misses";
+
+    /**
+     * Refresh token grants sent to the token endpoint.
+     */
+    public static final String REFRESH_TOKEN_GRANTS = "token.refresh_token_grants";
+
+    /**
+     * Prefix of the per status code HTTP response counters, for example "http.status.200".
+     */
+    public static final String HTTP_STATUS_PREFIX = "http.status.";
+
+    /**
+     * HTTP requests retried after a timeout or a retryable status code.
+     */
+    public static final String HTTP_RETRIES = "http.retries";
+
+    /**
+     * HTTP requests which timed out.
+     */
+    public static final String HTTP_TIMEOUTS = "http.timeouts";
+
+    /**
+     * HTTP requests failed fast because the circuit of their host was open.
+     */
+    public static final String HTTP_CIRCUIT_OPEN = "http.circuit_open";
+
+    /**
+     * Latency of each HTTP request, excluding retries.
+     */
+    public static final String HTTP_LATENCY = "http.latency";
+
+    /**
+     * Cache values which could not be encrypted.
+     */
+    public static final String ENCRYPT_FAILURES = "storage.encrypt_failures";
+
+    /**
+     * Cache values which could not be decrypted.
+     */
+    public static final String DECRYPT_FAILURES = "storage.decrypt_failures";
+
+    /**
+     * Prefix of the per operation latency histograms, for example "latency.acquireTokenSilent".
+     */
+    public static final String LATENCY_PREFIX = "latency.";
+
+    /**
+     * Prefix of the cache initialization latency histograms, for example "cache.init.foci".
+     */
+    public static final String CACHE_INIT_PREFIX = "cache.init.";
+
+    private static final ConcurrentMap<String, Counter> sCounters = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<String, Histogram> sHistograms = new ConcurrentHashMap<>();
+
+    private static ScheduledExecutorService sReporter;
+
+    private Metrics() {
+        // Utility class.
+    }
+
+    /**
+     * Returns the counter with the supplied name, registering it if needed.
+     *
+     * @param name The name of the counter.
+     * @return The counter.
+     */
+    @NonNull
+    public static Counter counter(@NonNull final String name) {
+        Counter counter = sCounters.get(name);
+
+        if (null == counter) {
+            final Counter newCounter = new Counter();
+            counter = sCounters.putIfAbsent(name, newCounter);
+
+            if (null == counter) {
+                counter = newCounter;
+            }
+        }
+
+        return counter;
+    }
+
+    /**
+     * Returns the histogram with the supplied name, registering it if needed.
+     *
+     * @param name The name of the histogram.
+     * @return The histogram.
+     */
+    @NonNull
+    public static Histogram histogram(@NonNull final String name) {
+        Histogram histogram = sHistograms.get(name);
+
+        if (null == histogram) {
+            final Histogram newHistogram = new Histogram();
+            histogram = sHistograms.putIfAbsent(name, newHistogram);
+
+            if (null == histogram) {
+                histogram = newHistogram;
+            }
+        }
+
+        return histogram;
+    }
+
+    /**
+     * @return The current value of every registered metric.
+     */
+    @NonNull
+    public static MetricsSnapshot snapshot() {
+        final Map<String, Long> counters = new TreeMap<>();
+        for (final Map.Entry<String, Counter> entry : sCounters.entrySet()) {
+            counters.put(entry.getKey(), entry.getValue().get());
+        }
+
+        final Map<String, HistogramSnapshot> histograms = new TreeMap<>();
+        for (final Map.Entry<String, Histogram> entry : sHistograms.entrySet()) {
+            histograms.put(entry.getKey(), entry.getValue().snapshot());
+        }
+
+        return new MetricsSnapshot(System.currentTimeMillis(), counters, histograms);
+    }
+
+    /**
+     * Sets the listener which receives a snapshot of the metrics at a fixed period, replacing any
+     * previous listener.
+     *
+     * @param listener The listener, or null to stop reporting.
+     * @param period   The time between snapshots.
+     * @param timeUnit The unit of the period.
+     */
+    public static synchronized void setListener(@Nullable final IMetricsListener listener,
+                                                final long period,
+                                                @NonNull final TimeUnit timeUnit) {
+        if (null != sReporter) {
+            sReporter.shutdownNow();
+            sReporter = null;
+        }
+
+        if (null == listener) {
+            return;
+        }
+
+        sReporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull final Runnable runnable) {
+                final Thread thread = new Thread(runnable, TAG + "-reporter");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        sReporter.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    listener.onMetricsSnapshot(snapshot());
+                } catch (final RuntimeException e) {
+                    // An exception would cancel the schedule; keep reporting.
+                    Logger.error(TAG + ":report", "Metrics listener failed.", e);
+                }
+            }
+        }, period, period, timeUnit);
+    }
+
+    /**
+     * Zeroes every registered metric.
+     */
+    @VisibleForTesting
+    public static void reset() {
+        for (final Counter counter : sCounters.values()) {
+            counter.reset();
+        }
+
+        for (final Histogram histogram : sHistograms.values()) {
+            histogram.reset();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.telemetry;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An immutable copy of every counter and histogram in {@link Metrics}, taken at one point in time.
+ * Individual values are read without a global lock, so a snapshot taken while requests are in
+ * flight may include part of a request's updates.
+ */
+public final class MetricsSnapshot {
+
+    private final long mTimestamp;
+    private final Map<String, Long> mCounters;
+    private final Map<String, HistogramSnapshot> mHistograms;
+
+    MetricsSnapshot(final long timestamp,
+                    @NonNull final Map<String, Long> counters,
+                    @NonNull final Map<String, HistogramSnapshot> histograms) {
+        mTimestamp = timestamp;
+        mCounters = Collections.unmodifiableMap(counters);
+        mHistograms = Collections.unmodifiableMap(histograms);
+    }
+
+    /**
+     * @return The time the snapshot was taken, in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return mTimestamp;
+    }
+
+    /**
+     * @return The counters, by name.
+     */
+    @NonNull
+    public Map<String, Long> getCounters() {
+        return mCounters;
+    }
+
+    /**
+     * @return The histograms, by name.
+     */
+    @NonNull
+    public Map<String, HistogramSnapshot> getHistograms() {
+        return mHistograms;
+    }
+
+    /**
+     * Returns the value of a counter.
+     *
+     * @param name The name of the counter.
+     * @return Its value, or 0 if it has not been registered.
+     */
+    public long getCounter(@NonNull final String name) {
+        final Long value = mCounters.get(name);
+        return null == value ? 0 : value;
+    }
+
+    /**
+     * Returns a histogram.
+     *
+     * @param name The name of the histogram.
+     * @return The histogram, or null if it has not been registered.
+     */
+    @Nullable
+    public HistogramSnapshot getHistogram(@NonNull final String name) {
+        return mHistograms.get(name);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+
+        for (final Map.Entry<String, Long> counter : mCounters.entrySet()) {
+            builder.append(counter.getKey())
+                    .append('=')
+                    .append(counter.getValue())
+                    .append('\n');
+        }
+
+        for (final Map.Entry<String, HistogramSnapshot> histogram : mHistograms.entrySet()) {
+            builder.append(histogram.getKey())
+                    .append(": ")
+                    .append(histogram.getValue())
+                    .append('\n');
+        }
+
+        return builder.toString();
+    }
+}
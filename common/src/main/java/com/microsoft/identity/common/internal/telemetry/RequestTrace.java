@@ -0,0 +1,286 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.telemetry;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.microsoft.identity.common.internal.logging.DiagnosticContext;
+import com.microsoft.identity.common.internal.logging.Logger;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Timings of a single token request, broken down by the {@link Span}s it spent its time in.
+ * <p>
+ * A trace is started by the ApiDispatcher for each request and propagated with the
+ * {@link DiagnosticContext} of the thread running it. Instrumented code records its spans with
+ * {@link #startSpan()} and {@link #endSpan(Span, long)}, which do nothing when the thread has no
+ * trace. A span may be recorded several times per request (for example, one HTTP_CONNECT per
+ * attempt); the trace keeps the total duration and the count of each.
+ */
+public final class RequestTrace {
+
+    private static final String TAG = RequestTrace.class.getSimpleName();
+
+    /**
+     * The phases of a request which are timed.
+     */
+    public enum Span {
+        /**
+         * Loading the account and credentials from the token cache.
+         */
+        CACHE_LOAD,
+
+        /**
+         * Decrypting a cache entry; its count is the number of entries decrypted.
+         */
+        DECRYPT,
+
+        /**
+         * Instance discovery, including the wait for a discovery already in progress.
+         */
+        CLOUD_DISCOVERY,
+
+        /**
+         * Opening the connection to the server.
+         */
+        HTTP_CONNECT,
+
+        /**
+         * Sending the request and waiting for the first byte of the response.
+         */
+        HTTP_TTFB,
+
+        /**
+         * Reading the response body.
+         */
+        HTTP_BODY,
+
+        /**
+         * Parsing the token response.
+         */
+        TOKEN_PARSE,
+
+        /**
+         * Saving the returned tokens to the token cache.
+         */
+        CACHE_SAVE
+    }
+
+    private static final Span[] SPANS = Span.values();
+
+    /**
+     * Latency histograms by operation, so that ending a trace does not build the metric name.
+     */
+    private static final ConcurrentMap<String, Histogram> sLatencies = new ConcurrentHashMap<>();
+
+    private static volatile IRequestTraceListener sListener;
+
+    private final String mCorrelationId;
+    private final String mOperation;
+    private final long mStartNanos;
+    private volatile long mEndNanos;
+    private final AtomicLongArray mDurations = new AtomicLongArray(SPANS.length);
+    private final AtomicLongArray mCounts = new AtomicLongArray(SPANS.length);
+    private final AtomicBoolean mEnded = new AtomicBoolean();
+
+    private RequestTrace(@NonNull final String correlationId, @NonNull final String operation) {
+        mCorrelationId = correlationId;
+        mOperation = operation;
+        mStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Starts a trace and makes it the current trace of the calling thread.
+     *
+     * @param correlationId The correlation id of the request.
+     * @param operation     The name of the operation, for example "acquireTokenSilent".
+     * @return The new trace.
+     */
+    public static RequestTrace begin(@NonNull final String correlationId, @NonNull final String operation) {
+        final RequestTrace trace = new RequestTrace(correlationId, operation);
+        DiagnosticContext.setRequestTrace(trace);
+        return trace;
+    }
+
+    /**
+     * Returns the trace of the calling thread, if any.
+     *
+     * @return The current trace or null.
+     */
+    @Nullable
+    public static RequestTrace current() {
+        return DiagnosticContext.getRequestTrace();
+    }
+
+    /**
+     * Sets the listener which receives each trace once it ends.
+     *
+     * @param listener The listener, or null to remove it.
+     */
+    public static void setListener(@Nullable final IRequestTraceListener listener) {
+        sListener = listener;
+    }
+
+    /**
+     * Returns the start time of a span, to be passed to {@link #endSpan(Span, long)}.
+     *
+     * @return The current value of {@link System#nanoTime()}.
+     */
+    public static long startSpan() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a span on the trace of the calling thread, if any.
+     *
+     * @param span       The span to record.
+     * @param startNanos The value returned by {@link #startSpan()} when the span started.
+     */
+    public static void endSpan(@NonNull final Span span, final long startNanos) {
+        final RequestTrace trace = DiagnosticContext.getRequestTrace();
+        if (null != trace) {
+            trace.record(span, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Adds a span of the supplied duration to this trace.
+     *
+     * @param span          The span to record.
+     * @param durationNanos Its duration, in nanoseconds.
+     */
+    public void record(@NonNull final Span span, final long durationNanos) {
+        mDurations.addAndGet(span.ordinal(), durationNanos);
+        mCounts.incrementAndGet(span.ordinal());
+    }
+
+    /**
+     * Ends this trace and hands it to the listener. Only the first call has an effect.
+     */
+    public void end() {
+        final String methodName = ":end";
+
+        if (!mEnded.compareAndSet(false, true)) {
+            return;
+        }
+
+        mEndNanos = System.nanoTime();
+        Logger.verbose(TAG + methodName, mCorrelationId, toString());
+        getLatencyHistogram(mOperation).record(getDuration(TimeUnit.MICROSECONDS));
+
+        final IRequestTraceListener listener = sListener;
+        if (null != listener) {
+            try {
+                listener.onRequestTraceCompleted(this);
+            } catch (final RuntimeException e) {
+                Logger.error(TAG + methodName, "Request trace listener failed.", e);
+            }
+        }
+    }
+
+    @NonNull
+    public String getCorrelationId() {
+        return mCorrelationId;
+    }
+
+    @NonNull
+    public String getOperation() {
+        return mOperation;
+    }
+
+    /**
+     * Returns the duration of the request; until it ends, the time elapsed so far.
+     *
+     * @param timeUnit The unit to return the duration in.
+     * @return The duration.
+     */
+    public long getDuration(@NonNull final TimeUnit timeUnit) {
+        final long endNanos = mEndNanos;
+        final long end = 0 != endNanos ? endNanos : System.nanoTime();
+        return timeUnit.convert(end - mStartNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the total duration recorded for the supplied span.
+     *
+     * @param span     The span.
+     * @param timeUnit The unit to return the duration in.
+     * @return The duration.
+     */
+    public long getDuration(@NonNull final Span span, @NonNull final TimeUnit timeUnit) {
+        return timeUnit.convert(mDurations.get(span.ordinal()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the number of times the supplied span was recorded.
+     *
+     * @param span The span.
+     * @return The count.
+     */
+    public long getCount(@NonNull final Span span) {
+        return mCounts.get(span.ordinal());
+    }
+
+    private static Histogram getLatencyHistogram(@NonNull final String operation) {
+        Histogram histogram = sLatencies.get(operation);
+        if (null == histogram) {
+            histogram = Metrics.histogram(Metrics.LATENCY_PREFIX + operation);
+            sLatencies.putIfAbsent(operation, histogram);
+        }
+
+        return histogram;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder(mOperation)
+                .append(" total=")
+                .append(formatMillis(getDuration(TimeUnit.MICROSECONDS)));
+
+        for (final Span span : SPANS) {
+            final long count = mCounts.get(span.ordinal());
+            if (count > 0) {
+                builder.append(' ')
+                        .append(span.name())
+                        .append('=')
+                        .append(formatMillis(getDuration(span, TimeUnit.MICROSECONDS)))
+                        .append('(')
+                        .append(count)
+                        .append(')');
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private static String formatMillis(final long micros) {
+        return String.format(Locale.US, "%.1fms", micros / 1000.0);
+    }
+}
@@ -0,0 +1,128 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A bounded pool of canonical {@link String} instances.
+ * <p>
+ * Unlike {@link String#intern()}, pooled strings are only weakly held: once no caller references
+ * a canonical instance any more, it is dropped from the pool. When the pool is full, new values
+ * are returned as-is rather than evicting existing ones, so a burst of high-cardinality values
+ * cannot displace the low-cardinality values the pool is meant for.
+ * <p>
+ * The pool is split into lock stripes by hash, each holding an even share of the maximum size, so
+ * that threads deserializing records concurrently rarely wait on one another.
+ */
+public final class StringInterner {
+
+    private static final int MAX_STRIPES = 16;
+
+    private final Stripe[] mStripes;
+
+    private static final class Stripe {
+
+        private final int mMaxSize;
+
+        // Values are weak as well, since the value of an entry is its own key
+        private final Map<String, WeakReference<String>> mPool = new WeakHashMap<>();
+
+        Stripe(final int maxSize) {
+            mMaxSize = maxSize;
+        }
+
+        synchronized String intern(@NonNull final String value) {
+            final WeakReference<String> reference = mPool.get(value);
+            final String canonical = null == reference ? null : reference.get();
+
+            if (null != canonical) {
+                return canonical;
+            }
+
+            if (mPool.size() < mMaxSize) {
+                mPool.put(value, new WeakReference<>(value));
+            }
+
+            return value;
+        }
+
+        synchronized int size() {
+            return mPool.size();
+        }
+    }
+
+    /**
+     * Constructs a new StringInterner.
+     *
+     * @param maxSize The maximum number of strings to pool.
+     */
+    public StringInterner(final int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+
+        mStripes = new Stripe[Math.min(MAX_STRIPES, maxSize)];
+
+        for (int i = 0; i < mStripes.length; i++) {
+            // Spread the remainder over the first stripes, so that the shares add up to maxSize
+            mStripes[i] = new Stripe(maxSize / mStripes.length + (i < maxSize % mStripes.length ? 1 : 0));
+        }
+    }
+
+    /**
+     * Returns the canonical instance equal to the supplied value, pooling the value if there is
+     * none yet and its stripe of the pool is not full.
+     *
+     * @param value The value to canonicalize.
+     * @return The canonical instance, the value itself or null, if the value was null.
+     */
+    @Nullable
+    public String intern(@Nullable final String value) {
+        if (null == value) {
+            return null;
+        }
+
+        return mStripes[(value.hashCode() & Integer.MAX_VALUE) % mStripes.length].intern(value);
+    }
+
+    /**
+     * Gets the number of strings currently pooled.
+     *
+     * @return The pool size.
+     */
+    public int size() {
+        int size = 0;
+
+        for (final Stripe stripe : mStripes) {
+            size += stripe.size();
+        }
+
+        return size;
+    }
+}
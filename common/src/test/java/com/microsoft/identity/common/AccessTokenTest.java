@@ -23,15 +23,36 @@
 package com.microsoft.identity.common;
 
 import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.Credential;
+import com.microsoft.identity.common.internal.util.IClock;
 
 import junit.framework.Assert;
 
+import org.junit.After;
 import org.junit.Test;
 
 import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
 
 public class AccessTokenTest {
 
+    private static final long NOW_SECONDS = 1500000000L;
+
+    private long mNowMillis = TimeUnit.SECONDS.toMillis(NOW_SECONDS);
+
+    private final IClock mFakeClock = new IClock() {
+        @Override
+        public long currentTimeMillis() {
+            return mNowMillis;
+        }
+    };
+
+    @After
+    public void tearDown() {
+        Credential.setClock(null);
+        Credential.setExpirySkew(0, TimeUnit.SECONDS);
+    }
+
     @Test
     public void testExpiry() {
         final AccessTokenRecord accessToken = new AccessTokenRecord();
@@ -39,6 +60,77 @@ public class AccessTokenTest {
         Assert.assertTrue(accessToken.isExpired());
     }
 
+    @Test
+    public void testExpiryAgainstFakeClock() {
+        Credential.setClock(mFakeClock);
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setExpiresOn(String.valueOf(NOW_SECONDS + 60));
+
+        Assert.assertFalse(accessToken.isExpired());
+        mNowMillis += TimeUnit.SECONDS.toMillis(61);
+        Assert.assertTrue(accessToken.isExpired());
+    }
+
+    @Test
+    public void testExpirySkew() {
+        Credential.setClock(mFakeClock);
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setExpiresOn(String.valueOf(NOW_SECONDS + 60));
+
+        Credential.setExpirySkew(30, TimeUnit.SECONDS);
+        Assert.assertFalse(accessToken.isExpired());
+        Credential.setExpirySkew(5, TimeUnit.MINUTES);
+        Assert.assertTrue(accessToken.isExpired());
+    }
+
+    @Test
+    public void testMissingOrMalformedExpiryIsExpired() {
+        Credential.setClock(mFakeClock);
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        Assert.assertTrue(accessToken.isExpired());
+
+        accessToken.setExpiresOn("not a number");
+        Assert.assertEquals(Credential.EPOCH_UNSET, accessToken.getExpiresOnSeconds());
+        Assert.assertTrue(accessToken.isExpired());
+    }
+
+    @Test
+    public void testParsedExpiryFollowsUpdates() {
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setExpiresOn("100");
+        Assert.assertEquals(100, accessToken.getExpiresOnSeconds());
+
+        accessToken.setExpiresOn("200");
+        Assert.assertEquals(200, accessToken.getExpiresOnSeconds());
+    }
+
+    @Test
+    public void testExtendedExpiry() {
+        Credential.setClock(mFakeClock);
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setExpiresOn(String.valueOf(NOW_SECONDS - 60));
+        Assert.assertTrue(accessToken.isExtendedExpired());
+
+        accessToken.setExtendedExpiresOn(String.valueOf(NOW_SECONDS + 3600));
+        Assert.assertTrue(accessToken.isExpired());
+        Assert.assertFalse(accessToken.isExtendedExpired());
+    }
+
+    @Test
+    public void testStaleAfterRefreshOn() {
+        Credential.setClock(mFakeClock);
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setExpiresOn(String.valueOf(NOW_SECONDS + 3600));
+        Assert.assertFalse(accessToken.isStale());
+
+        accessToken.setRefreshOn(String.valueOf(NOW_SECONDS + 1800));
+        Assert.assertFalse(accessToken.isStale());
+
+        mNowMillis += TimeUnit.SECONDS.toMillis(1801);
+        Assert.assertTrue(accessToken.isStale());
+        Assert.assertFalse(accessToken.isExpired());
+    }
+
     private String getCurrentTimeStr() {
         return String.valueOf(
                 Calendar
@@ -0,0 +1,152 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.internal.net.AdaptiveTimeouts;
+import com.microsoft.identity.common.internal.net.RequestDeadline;
+import com.microsoft.identity.common.internal.net.RetryPolicy;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.net.SocketTimeoutException;
+import java.net.URL;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+public class AdaptiveTimeoutsTest {
+
+    private static final int CEILING_MILLIS = 10000;
+
+    @After
+    public void tearDown() {
+        RequestDeadline.clear();
+    }
+
+    @Test
+    public void endpointTypesAreClassified() throws Exception {
+        assertEquals(
+                AdaptiveTimeouts.EndpointType.TOKEN,
+                AdaptiveTimeouts.EndpointType.fromUrl(new URL("https://login.microsoftonline.com/common/oauth2/v2.0/token"))
+        );
+        assertEquals(
+                AdaptiveTimeouts.EndpointType.DISCOVERY,
+                AdaptiveTimeouts.EndpointType.fromUrl(new URL("https://login.microsoftonline.com/common/discovery/instance"))
+        );
+        assertEquals(
+                AdaptiveTimeouts.EndpointType.OTHER,
+                AdaptiveTimeouts.EndpointType.fromUrl(new URL("https://login.microsoftonline.com/common/userrealm"))
+        );
+    }
+
+    @Test
+    public void timeoutsTrackObservedLatency() throws Exception {
+        final AdaptiveTimeouts timeouts = newTimeouts();
+        final URL token = new URL("https://login.microsoftonline.com/common/oauth2/v2.0/token");
+        final URL discovery = new URL("https://login.microsoftonline.com/common/discovery/instance");
+
+        // The ceiling applies until enough latencies have been observed.
+        for (int i = 0; i < 4; i++) {
+            timeouts.recordReadLatency(token, 200);
+        }
+        assertEquals(CEILING_MILLIS, timeouts.getReadTimeoutMillis(token));
+
+        timeouts.recordReadLatency(token, 200);
+        assertEquals(600, timeouts.getReadTimeoutMillis(token));
+
+        // Other endpoint types and the connect timeout have their own windows.
+        assertEquals(CEILING_MILLIS, timeouts.getReadTimeoutMillis(discovery));
+        assertEquals(CEILING_MILLIS, timeouts.getConnectTimeoutMillis(token));
+
+        // The window rolls: older latencies are forgotten.
+        for (int i = 0; i < 10; i++) {
+            timeouts.recordReadLatency(token, 1000);
+        }
+        assertEquals(3000, timeouts.getReadTimeoutMillis(token));
+    }
+
+    @Test
+    public void timeoutsAreClampedToFloorAndCeiling() throws Exception {
+        final AdaptiveTimeouts timeouts = newTimeouts();
+        final URL url = new URL("https://login.microsoftonline.com/common/oauth2/v2.0/token");
+
+        for (int i = 0; i < 10; i++) {
+            timeouts.recordConnectLatency(url, 1);
+            timeouts.recordReadLatency(url, 60000);
+        }
+
+        assertEquals(100, timeouts.getConnectTimeoutMillis(url));
+        assertEquals(CEILING_MILLIS, timeouts.getReadTimeoutMillis(url));
+    }
+
+    @Test
+    public void deadlineCapsTimeoutsAndRetries() throws Exception {
+        final AdaptiveTimeouts timeouts = newTimeouts();
+        final URL url = new URL("https://login.microsoftonline.com/common/oauth2/v2.0/token");
+        final RetryPolicy retryPolicy = new RetryPolicy.Builder()
+                .setBaseDelayMillis(5000)
+                .setMaxDelayMillis(5000)
+                .build();
+
+        RequestDeadline.set(1000);
+
+        assertTrue(timeouts.getConnectTimeoutMillis(url) <= 1000);
+        assertTrue(timeouts.getReadTimeoutMillis(url) <= 1000);
+        assertEquals(
+                RetryPolicy.NO_RETRY,
+                retryPolicy.getRetryDelayMillis(1, RetryPolicy.HTTP_TOO_MANY_REQUESTS, null)
+        );
+        RequestDeadline.throwIfExpired();
+
+        RequestDeadline.set(1);
+        Thread.sleep(5);
+
+        assertEquals(1, timeouts.getReadTimeoutMillis(url));
+        try {
+            RequestDeadline.throwIfExpired();
+            fail("Expected the deadline to have passed");
+        } catch (final SocketTimeoutException e) {
+            // Expected
+        }
+
+        RequestDeadline.clear();
+        assertEquals(Long.MAX_VALUE, RequestDeadline.getRemainingMillis());
+    }
+
+    private static AdaptiveTimeouts newTimeouts() {
+        return new AdaptiveTimeouts.Builder()
+                .setConnectFloorMillis(100)
+                .setReadFloorMillis(100)
+                .setCeilingMillis(CEILING_MILLIS)
+                .setPercentile(0.99, 3)
+                .setWindow(10, 5)
+                .build();
+    }
+}
@@ -0,0 +1,93 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.internal.cache.BrokerOAuth2TokenCache;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesBrokerApplicationMetadataCache;
+import com.microsoft.identity.common.internal.telemetry.Metrics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+public class BrokerOAuth2TokenCacheInitializationTest {
+
+    private static final int CALLING_PROCESS_UID = 10001;
+    private static final String FOCI_INIT = Metrics.CACHE_INIT_PREFIX + "foci";
+    private static final String UID_INIT = Metrics.CACHE_INIT_PREFIX + "uid";
+    private static final String APP_METADATA_INIT = Metrics.CACHE_INIT_PREFIX + "app_metadata";
+
+    private BrokerOAuth2TokenCache mBrokerCache;
+
+    @Before
+    public void setUp() {
+        Metrics.reset();
+        mBrokerCache = new BrokerOAuth2TokenCache(
+                RuntimeEnvironment.application,
+                CALLING_PROCESS_UID,
+                new SharedPreferencesBrokerApplicationMetadataCache(RuntimeEnvironment.application)
+        );
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.reset();
+    }
+
+    @Test
+    public void constructionOpensNoFiles() {
+        assertEquals(0, initializations(FOCI_INIT));
+        assertEquals(0, initializations(UID_INIT));
+        assertEquals(0, initializations(APP_METADATA_INIT));
+    }
+
+    @Test
+    public void cachesAreInitializedOnceOnFirstUse() {
+        assertTrue(mBrokerCache.getAccounts().isEmpty());
+
+        assertEquals(1, initializations(FOCI_INIT));
+        assertEquals(1, initializations(APP_METADATA_INIT));
+        assertEquals(0, initializations(UID_INIT));
+
+        mBrokerCache.getAccounts();
+        mBrokerCache.getStats();
+        mBrokerCache.getStats();
+
+        assertEquals(1, initializations(FOCI_INIT));
+        assertEquals(1, initializations(APP_METADATA_INIT));
+        assertEquals(1, initializations(UID_INIT));
+    }
+
+    private static long initializations(final String name) {
+        return Metrics.histogram(name).snapshot().getCount();
+    }
+}
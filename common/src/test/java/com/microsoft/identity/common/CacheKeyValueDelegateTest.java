@@ -26,7 +26,9 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import com.microsoft.identity.common.internal.cache.CacheKeyDescriptor;
 import com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate;
+import com.microsoft.identity.common.internal.cache.CacheValueFormat;
 import com.microsoft.identity.common.internal.cache.ICacheKeyValueDelegate;
 import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
 import com.microsoft.identity.common.internal.dto.AccountRecord;
@@ -48,7 +50,10 @@ import java.util.Map;
 import static com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate.CACHE_VALUE_SEPARATOR;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class CacheKeyValueDelegateTest {
 
@@ -67,7 +72,7 @@ public class CacheKeyValueDelegateTest {
     private static final String FAMILY_NAME = "Doe";
     private static final String AVATAR_URL = "https://fake.cdn.microsoft.com/avatars/1";
 
-    private ICacheKeyValueDelegate mDelegate;
+    private CacheKeyValueDelegate mDelegate;
 
     @Before
     public void setUp() {
@@ -898,4 +903,291 @@ public class CacheKeyValueDelegateTest {
         assertEquals(numbers.toString(), deserializedValue.getAdditionalFields().get("numbers").toString());
     }
     // End IdTokens
+
+    // Cache keys
+    @Test
+    public void parseAccountCacheKey() {
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId(HOME_ACCOUNT_ID);
+        account.setEnvironment(ENVIRONMENT);
+        account.setRealm(REALM);
+
+        final String cacheKey = mDelegate.generateCacheKey(account);
+        final CacheKeyDescriptor descriptor = mDelegate.parseCacheKey(cacheKey);
+
+        assertEquals(cacheKey, descriptor.getCacheKey());
+        assertTrue(descriptor.isAccount());
+        assertFalse(descriptor.isCredential());
+        assertNull(descriptor.getCredentialType());
+    }
+
+    @Test
+    public void parseCredentialCacheKeys() {
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setHomeAccountId(HOME_ACCOUNT_ID);
+        accessToken.setEnvironment(ENVIRONMENT);
+        accessToken.setCredentialType(CredentialType.AccessToken.name());
+        accessToken.setClientId(CLIENT_ID);
+        accessToken.setRealm(REALM);
+        accessToken.setTarget(TARGET);
+
+        final RefreshTokenRecord refreshToken = new RefreshTokenRecord();
+        refreshToken.setHomeAccountId(HOME_ACCOUNT_ID);
+        refreshToken.setEnvironment(ENVIRONMENT);
+        refreshToken.setCredentialType(CredentialType.RefreshToken.name());
+        refreshToken.setClientId(CLIENT_ID);
+        refreshToken.setTarget(TARGET);
+
+        final IdTokenRecord idToken = new IdTokenRecord();
+        idToken.setHomeAccountId(HOME_ACCOUNT_ID);
+        idToken.setEnvironment(ENVIRONMENT);
+        idToken.setCredentialType(CredentialType.IdToken.name());
+        idToken.setClientId(CLIENT_ID);
+        idToken.setRealm(REALM);
+
+        final CacheKeyDescriptor atDescriptor = mDelegate.parseCacheKey(mDelegate.generateCacheKey(accessToken));
+        final CacheKeyDescriptor rtDescriptor = mDelegate.parseCacheKey(mDelegate.generateCacheKey(refreshToken));
+        final CacheKeyDescriptor idDescriptor = mDelegate.parseCacheKey(mDelegate.generateCacheKey(idToken));
+
+        assertTrue(atDescriptor.isCredential());
+        assertEquals(CredentialType.AccessToken, atDescriptor.getCredentialType());
+        assertEquals(CredentialType.RefreshToken, rtDescriptor.getCredentialType());
+        assertEquals(CredentialType.IdToken, idDescriptor.getCredentialType());
+    }
+
+    @Test
+    public void parseCacheKeyIsMemoized() {
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setHomeAccountId(HOME_ACCOUNT_ID);
+        accessToken.setEnvironment(ENVIRONMENT);
+        accessToken.setCredentialType(CredentialType.AccessToken.name());
+        accessToken.setClientId(CLIENT_ID);
+        accessToken.setRealm(REALM);
+        accessToken.setTarget(TARGET);
+
+        final CacheKeyDescriptor first = mDelegate.parseCacheKey(mDelegate.generateCacheKey(accessToken));
+        final CacheKeyDescriptor second = new CacheKeyValueDelegate().parseCacheKey(
+                mDelegate.generateCacheKey(accessToken)
+        );
+
+        assertSame(first, second);
+    }
+    // End Cache keys
+
+    // Compact values
+    @Test
+    public void accessTokenCompactRoundTrip() {
+        final ICacheKeyValueDelegate compactDelegate = new CacheKeyValueDelegate(CacheValueFormat.COMPACT);
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setHomeAccountId(HOME_ACCOUNT_ID);
+        accessToken.setEnvironment(ENVIRONMENT);
+        accessToken.setCredentialType(CredentialType.AccessToken.name());
+        accessToken.setClientId(CLIENT_ID);
+        accessToken.setRealm(REALM);
+        accessToken.setTarget(TARGET);
+        accessToken.setSecret("{\"not\":\"json\"}:12:#");
+
+        final Map<String, JsonElement> additionalFields = new HashMap<>();
+        final JsonArray numbers = new JsonArray();
+        numbers.add(1);
+        numbers.add(2);
+        additionalFields.put("foo", new JsonPrimitive("bar"));
+        additionalFields.put("numbers", numbers);
+        additionalFields.put(Credential.SerializedNames.ENVIRONMENT, new JsonPrimitive("override"));
+        accessToken.setAdditionalFields(additionalFields);
+
+        final String serializedValue = compactDelegate.generateCacheValue(accessToken);
+        assertFalse(serializedValue.startsWith("{"));
+        assertTrue(serializedValue.length() < mDelegate.generateCacheValue(accessToken).length());
+
+        final AccessTokenRecord deserializedValue =
+                compactDelegate.fromCacheValue(serializedValue, AccessTokenRecord.class);
+        assertNotNull(deserializedValue);
+        assertEquals(accessToken.getSecret(), deserializedValue.getSecret());
+        assertEquals(TARGET, deserializedValue.getTarget());
+        assertEquals(REALM, deserializedValue.getRealm());
+        assertNull(deserializedValue.getEnvironment());
+        assertEquals(3, deserializedValue.getAdditionalFields().size());
+        assertEquals("bar", deserializedValue.getAdditionalFields().get("foo").getAsString());
+        assertEquals(numbers.toString(), deserializedValue.getAdditionalFields().get("numbers").toString());
+        assertEquals(
+                "override",
+                deserializedValue.getAdditionalFields().get(Credential.SerializedNames.ENVIRONMENT).getAsString()
+        );
+    }
+
+    @Test
+    public void compactAndJsonValuesAreReadableSideBySide() {
+        final ICacheKeyValueDelegate compactDelegate = new CacheKeyValueDelegate(CacheValueFormat.COMPACT);
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId(HOME_ACCOUNT_ID);
+        account.setEnvironment(ENVIRONMENT);
+        account.setRealm(REALM);
+        account.setLocalAccountId(LOCAL_ACCOUNT_ID);
+        account.setFirstName(FIRST_NAME);
+
+        final String jsonValue = mDelegate.generateCacheValue(account);
+        final String compactValue = compactDelegate.generateCacheValue(account);
+
+        // Either delegate reads either format
+        for (final ICacheKeyValueDelegate delegate : new ICacheKeyValueDelegate[]{mDelegate, compactDelegate}) {
+            for (final String value : new String[]{jsonValue, compactValue}) {
+                final AccountRecord deserializedValue = delegate.fromCacheValue(value, AccountRecord.class);
+                assertEquals(account, deserializedValue);
+            }
+        }
+
+        // Rewriting a legacy value migrates it to the delegate's format
+        final AccountRecord legacy = compactDelegate.fromCacheValue(jsonValue, AccountRecord.class);
+        assertEquals(compactValue, compactDelegate.generateCacheValue(legacy));
+    }
+
+    @Test
+    public void malformedCompactValueReturnsNull() {
+        final ICacheKeyValueDelegate compactDelegate = new CacheKeyValueDelegate(CacheValueFormat.COMPACT);
+        final RefreshTokenRecord refreshToken = new RefreshTokenRecord();
+        refreshToken.setHomeAccountId(HOME_ACCOUNT_ID);
+        refreshToken.setSecret("secret");
+
+        final String serializedValue = compactDelegate.generateCacheValue(refreshToken);
+
+        assertNull(compactDelegate.fromCacheValue(
+                serializedValue.substring(0, serializedValue.length() - 1),
+                RefreshTokenRecord.class
+        ));
+        assertNull(compactDelegate.fromCacheValue("#9", RefreshTokenRecord.class));
+        assertNull(compactDelegate.fromCacheValue("#1A99:x", RefreshTokenRecord.class));
+    }
+
+    @Test
+    public void compactAccessTokenWrittenBeforeRefreshOnIsReadable() {
+        final ICacheKeyValueDelegate compactDelegate = new CacheKeyValueDelegate(CacheValueFormat.COMPACT);
+        final String compactValue = "#1"
+                + "A6:Bearer"
+                + "B40:https://login.microsoftonline.com/common"
+                + "C10:1500003600"
+                + "D35:3c62ac97-29eb-4aed-a3c8-add0298508d"
+                + "E20:user.read user.write"
+                + "F10:1500001800"
+                + "G36:0287f963-2d72-4363-9e3a-5705c5b0f031"
+                + "H11:AccessToken"
+                + "I25:login.microsoftonline.com"
+                + "J9:at-secret"
+                + "K17:29f3807a.0287f963"
+                + "L10:1500000000";
+
+        final AccessTokenRecord accessToken = compactDelegate.fromCacheValue(compactValue, AccessTokenRecord.class);
+
+        assertNotNull(accessToken);
+        assertEquals("Bearer", accessToken.getAccessTokenType());
+        assertEquals("https://login.microsoftonline.com/common", accessToken.getAuthority());
+        assertEquals("1500003600", accessToken.getExtendedExpiresOn());
+        assertEquals("3c62ac97-29eb-4aed-a3c8-add0298508d", accessToken.getRealm());
+        assertEquals("user.read user.write", accessToken.getTarget());
+        assertEquals("1500001800", accessToken.getExpiresOn());
+        assertEquals("0287f963-2d72-4363-9e3a-5705c5b0f031", accessToken.getClientId());
+        assertEquals("AccessToken", accessToken.getCredentialType());
+        assertEquals("login.microsoftonline.com", accessToken.getEnvironment());
+        assertEquals("at-secret", accessToken.getSecret());
+        assertEquals("29f3807a.0287f963", accessToken.getHomeAccountId());
+        assertEquals("1500000000", accessToken.getCachedAt());
+        assertNull(accessToken.getRefreshOn());
+        assertTrue(accessToken.getAdditionalFields().isEmpty());
+
+        // New fields are appended after every existing id
+        accessToken.setRefreshOn("1500000900");
+        assertEquals(compactValue + "M10:1500000900", compactDelegate.generateCacheValue(accessToken));
+    }
+
+    @Test
+    public void compactAccountGoldenValue() {
+        final ICacheKeyValueDelegate compactDelegate = new CacheKeyValueDelegate(CacheValueFormat.COMPACT);
+        final String compactValue = "#1"
+                + "A17:29f3807a.0287f963"
+                + "B25:login.microsoftonline.com"
+                + "C8:3c62ac97"
+                + "D8:29f3807a"
+                + "E16:user@contoso.com"
+                + "F5:MSSTS"
+                + "G6:alt-id"
+                + "H5:First"
+                + "I6:Family"
+                + "J6:Middle"
+                + "K12:First Family"
+                + "L14:https://avatar"
+                + "M11:client-info";
+
+        final AccountRecord account = compactDelegate.fromCacheValue(compactValue, AccountRecord.class);
+
+        assertNotNull(account);
+        assertEquals("29f3807a.0287f963", account.getHomeAccountId());
+        assertEquals("login.microsoftonline.com", account.getEnvironment());
+        assertEquals("3c62ac97", account.getRealm());
+        assertEquals("29f3807a", account.getLocalAccountId());
+        assertEquals("user@contoso.com", account.getUsername());
+        assertEquals("MSSTS", account.getAuthorityType());
+        assertEquals("alt-id", account.getAlternativeAccountId());
+        assertEquals("First", account.getFirstName());
+        assertEquals("Family", account.getFamilyName());
+        assertEquals("Middle", account.getMiddleName());
+        assertEquals("First Family", account.getName());
+        assertEquals("https://avatar", account.getAvatarUrl());
+        assertEquals("client-info", account.getClientInfo());
+        assertEquals(compactValue, compactDelegate.generateCacheValue(account));
+    }
+
+    @Test
+    public void compactIdTokenGoldenValue() {
+        final ICacheKeyValueDelegate compactDelegate = new CacheKeyValueDelegate(CacheValueFormat.COMPACT);
+        final String compactValue = "#1"
+                + "A8:3c62ac97"
+                + "B40:https://login.microsoftonline.com/common"
+                + "C8:0287f963"
+                + "D7:IdToken"
+                + "E25:login.microsoftonline.com"
+                + "F8:id-token"
+                + "G17:29f3807a.0287f963"
+                + "H10:1500000000";
+
+        final IdTokenRecord idToken = compactDelegate.fromCacheValue(compactValue, IdTokenRecord.class);
+
+        assertNotNull(idToken);
+        assertEquals("3c62ac97", idToken.getRealm());
+        assertEquals("https://login.microsoftonline.com/common", idToken.getAuthority());
+        assertEquals("0287f963", idToken.getClientId());
+        assertEquals("IdToken", idToken.getCredentialType());
+        assertEquals("login.microsoftonline.com", idToken.getEnvironment());
+        assertEquals("id-token", idToken.getSecret());
+        assertEquals("29f3807a.0287f963", idToken.getHomeAccountId());
+        assertEquals("1500000000", idToken.getCachedAt());
+        assertEquals(compactValue, compactDelegate.generateCacheValue(idToken));
+    }
+
+    @Test
+    public void compactRefreshTokenGoldenValue() {
+        final ICacheKeyValueDelegate compactDelegate = new CacheKeyValueDelegate(CacheValueFormat.COMPACT);
+        final String compactValue = "#1"
+                + "A1:1"
+                + "B9:user.read"
+                + "C8:0287f963"
+                + "D12:RefreshToken"
+                + "E25:login.microsoftonline.com"
+                + "F9:rt-secret"
+                + "G17:29f3807a.0287f963"
+                + "H10:1500000000";
+
+        final RefreshTokenRecord refreshToken = compactDelegate.fromCacheValue(compactValue, RefreshTokenRecord.class);
+
+        assertNotNull(refreshToken);
+        assertEquals("1", refreshToken.getFamilyId());
+        assertEquals("user.read", refreshToken.getTarget());
+        assertEquals("0287f963", refreshToken.getClientId());
+        assertEquals("RefreshToken", refreshToken.getCredentialType());
+        assertEquals("login.microsoftonline.com", refreshToken.getEnvironment());
+        assertEquals("rt-secret", refreshToken.getSecret());
+        assertEquals("29f3807a.0287f963", refreshToken.getHomeAccountId());
+        assertEquals("1500000000", refreshToken.getCachedAt());
+        assertEquals(compactValue, compactDelegate.generateCacheValue(refreshToken));
+    }
+    // End Compact values
 }
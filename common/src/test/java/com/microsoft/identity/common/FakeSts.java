@@ -0,0 +1,425 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import android.util.Base64;
+
+import com.microsoft.identity.common.internal.net.HttpUrlConnectionFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A loopback fake of the Microsoft identity platform endpoints, for driving the token
+ * acquisition code paths end to end without a network.
+ * <p>
+ * It serves instance discovery and the v2.0 token endpoint. Refresh tokens issued by
+ * {@link #newRefreshToken(String, String)} (or by the server itself) carry the uid and utid of
+ * their account, so the server answers each refresh with the id_token and client_info of the
+ * right account. Latency, 5xx responses and invalid_grant errors can be injected.
+ * <p>
+ * Call {@link #redirectCloudHosts()} to have {@link HttpUrlConnectionFactory} send the requests
+ * for the public cloud to this server.
+ */
+public final class FakeSts implements Closeable {
+
+    /**
+     * The host requests are made to, and which this server stands in for.
+     */
+    public static final String NETWORK_HOST = "login.microsoftonline.com";
+
+    /**
+     * The host the tokens are cached under, as returned by instance discovery.
+     */
+    public static final String CACHE_HOST = "login.windows.net";
+
+    private static final String[] CLOUD_ALIASES = {
+            NETWORK_HOST,
+            CACHE_HOST,
+            "login.microsoft.com",
+            "sts.windows.net"
+    };
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String REFRESH_TOKEN_PREFIX = "rt.";
+    private static final int BASE64_FLAGS = Base64.URL_SAFE | Base64.NO_WRAP | Base64.NO_PADDING;
+
+    private final HttpServer mServer;
+    private final ExecutorService mExecutor;
+    private final URL mUrl;
+
+    private final AtomicInteger mDiscoveryRequests = new AtomicInteger();
+    private final AtomicInteger mTokenRequests = new AtomicInteger();
+    private final AtomicInteger mServerErrors = new AtomicInteger();
+    private final AtomicLong mIssuedTokens = new AtomicLong();
+    private final Set<String> mRevokedUids =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private volatile long mMinLatencyMillis;
+    private volatile long mMaxLatencyMillis;
+    private volatile double mServerErrorRate;
+    private volatile int mServerErrorStatus = HttpURLConnection.HTTP_UNAVAILABLE;
+    private final AtomicInteger mForcedServerErrors = new AtomicInteger();
+    private volatile long mExpiresInSeconds = TimeUnit.HOURS.toSeconds(1);
+
+    private FakeSts(final int threadCount) throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        mExecutor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "FakeSts-" + mCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        mServer.setExecutor(mExecutor);
+        mServer.createContext("/", new Handler());
+        mUrl = new URL("http", "127.0.0.1", mServer.getAddress().getPort(), "/");
+    }
+
+    /**
+     * Starts a server on an ephemeral loopback port.
+     *
+     * @param threadCount The number of requests to serve concurrently.
+     * @return The running server.
+     * @throws IOException If the server could not be bound.
+     */
+    public static FakeSts start(final int threadCount) throws IOException {
+        final FakeSts sts = new FakeSts(threadCount);
+        sts.mServer.start();
+        return sts;
+    }
+
+    /**
+     * Returns a refresh token this server will accept for the supplied account.
+     *
+     * @param uid  The uid of the account.
+     * @param utid The utid (tenant id) of the account.
+     * @return The refresh token.
+     */
+    public static String newRefreshToken(final String uid, final String utid) {
+        return REFRESH_TOKEN_PREFIX + uid + "." + utid + "." + UUID.randomUUID();
+    }
+
+    /**
+     * Returns the base URL of the server.
+     */
+    public URL getUrl() {
+        return mUrl;
+    }
+
+    /**
+     * Redirects the requests for all the public cloud hosts to this server.
+     */
+    public void redirectCloudHosts() {
+        for (final String alias : CLOUD_ALIASES) {
+            HttpUrlConnectionFactory.addHostRedirect(alias, mUrl);
+        }
+    }
+
+    /**
+     * Delays every response by a uniformly distributed time in the supplied range.
+     */
+    public void setLatency(final long min, final long max, final TimeUnit timeUnit) {
+        mMinLatencyMillis = timeUnit.toMillis(min);
+        mMaxLatencyMillis = Math.max(mMinLatencyMillis, timeUnit.toMillis(max));
+    }
+
+    /**
+     * Answers the supplied fraction of the token requests with a server error.
+     *
+     * @param rate       The fraction, from 0 (never) to 1 (always).
+     * @param statusCode The 5xx status to answer with.
+     */
+    public void setServerErrorRate(final double rate, final int statusCode) {
+        mServerErrorRate = rate;
+        mServerErrorStatus = statusCode;
+    }
+
+    /**
+     * Answers the next count token requests with a server error, ahead of the error rate.
+     */
+    public void failNextTokenRequests(final int count, final int statusCode) {
+        mServerErrorStatus = statusCode;
+        mForcedServerErrors.set(count);
+    }
+
+    /**
+     * Answers the refresh requests of the supplied account with invalid_grant from now on.
+     */
+    public void revokeRefreshTokens(final String uid) {
+        mRevokedUids.add(uid);
+    }
+
+    /**
+     * Sets the lifetime of the access tokens issued from now on.
+     */
+    public void setAccessTokenLifetime(final long lifetime, final TimeUnit timeUnit) {
+        mExpiresInSeconds = timeUnit.toSeconds(lifetime);
+    }
+
+    public int getDiscoveryRequestCount() {
+        return mDiscoveryRequests.get();
+    }
+
+    public int getTokenRequestCount() {
+        return mTokenRequests.get();
+    }
+
+    public int getServerErrorCount() {
+        return mServerErrors.get();
+    }
+
+    /**
+     * Resets the request counters.
+     */
+    public void resetCounts() {
+        mDiscoveryRequests.set(0);
+        mTokenRequests.set(0);
+        mServerErrors.set(0);
+    }
+
+    /**
+     * Stops the server and removes the host redirects.
+     */
+    @Override
+    public void close() {
+        HttpUrlConnectionFactory.clearHostRedirects();
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    private final class Handler implements HttpHandler {
+
+        @Override
+        public void handle(final HttpExchange exchange) throws IOException {
+            try {
+                simulateLatency();
+
+                // The token endpoint path is built with an encoded separator, so match on
+                // the decoded path.
+                final String path = exchange.getRequestURI().getPath().toLowerCase(Locale.US);
+                if (path.endsWith("/discovery/instance")) {
+                    mDiscoveryRequests.incrementAndGet();
+                    respond(exchange, HttpURLConnection.HTTP_OK, instanceDiscoveryResponse());
+                } else if (path.endsWith("/oauth2/v2.0/token") || path.endsWith("/oauth2/token")) {
+                    mTokenRequests.incrementAndGet();
+                    handleTokenRequest(exchange);
+                } else {
+                    respond(exchange, HttpURLConnection.HTTP_NOT_FOUND, errorResponse(
+                            "invalid_request", "Unknown endpoint: " + path));
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private void handleTokenRequest(final HttpExchange exchange) throws IOException {
+            final Map<String, String> form = parseForm(readBody(exchange.getRequestBody()));
+
+            if (injectServerError()) {
+                mServerErrors.incrementAndGet();
+                respond(exchange, mServerErrorStatus, errorResponse(
+                        "temporarily_unavailable", "Injected server error."));
+                return;
+            }
+
+            final String refreshToken = form.get("refresh_token");
+            if (!"refresh_token".equals(form.get("grant_type")) || null == refreshToken
+                    || !refreshToken.startsWith(REFRESH_TOKEN_PREFIX)) {
+                respond(exchange, HttpURLConnection.HTTP_BAD_REQUEST, errorResponse(
+                        "invalid_request", "Only refresh_token grants are supported."));
+                return;
+            }
+
+            final String[] parts = refreshToken.substring(REFRESH_TOKEN_PREFIX.length()).split("\\.");
+            if (parts.length < 2 || mRevokedUids.contains(parts[0])) {
+                respond(exchange, HttpURLConnection.HTTP_BAD_REQUEST, errorResponse(
+                        "invalid_grant", "The refresh token has been revoked."));
+                return;
+            }
+
+            respond(exchange, HttpURLConnection.HTTP_OK, tokenResponse(
+                    parts[0], parts[1], form.get("client_id"), form.get("scope")));
+        }
+
+        private boolean injectServerError() {
+            int forced;
+            while ((forced = mForcedServerErrors.get()) > 0) {
+                if (mForcedServerErrors.compareAndSet(forced, forced - 1)) {
+                    return true;
+                }
+            }
+
+            final double rate = mServerErrorRate;
+            return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+        }
+
+        private void simulateLatency() {
+            final long min = mMinLatencyMillis;
+            final long max = mMaxLatencyMillis;
+            if (max <= 0) {
+                return;
+            }
+
+            try {
+                Thread.sleep(min == max ? min : min + ThreadLocalRandom.current().nextLong(max - min + 1));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private String tokenResponse(final String uid,
+                                 final String utid,
+                                 final String clientId,
+                                 final String scope) {
+        final long issued = mIssuedTokens.incrementAndGet();
+        final long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        final long expiresIn = mExpiresInSeconds;
+
+        final String idTokenClaims = "{"
+                + "\"aud\":\"" + clientId + "\","
+                + "\"iss\":\"https://" + NETWORK_HOST + "/" + utid + "/v2.0\","
+                + "\"iat\":" + now + ",\"nbf\":" + now + ",\"exp\":" + (now + expiresIn) + ","
+                + "\"name\":\"User " + uid + "\","
+                + "\"oid\":\"" + uid + "\","
+                + "\"preferred_username\":\"" + uid + "@contoso.com\","
+                + "\"sub\":\"" + uid + "\","
+                + "\"tid\":\"" + utid + "\","
+                + "\"ver\":\"2.0\""
+                + "}";
+
+        final String idToken = encode("{\"typ\":\"JWT\",\"alg\":\"none\"}")
+                + "." + encode(idTokenClaims) + ".";
+
+        final String clientInfo = encode("{\"uid\":\"" + uid + "\",\"utid\":\"" + utid + "\"}");
+
+        return "{"
+                + "\"token_type\":\"Bearer\","
+                + "\"scope\":\"" + scope + "\","
+                + "\"expires_in\":" + expiresIn + ","
+                + "\"ext_expires_in\":" + expiresIn + ","
+                + "\"access_token\":\"at." + uid + "." + issued + "\","
+                + "\"refresh_token\":\"" + newRefreshToken(uid, utid) + "\","
+                + "\"id_token\":\"" + idToken + "\","
+                + "\"client_info\":\"" + clientInfo + "\""
+                + "}";
+    }
+
+    private static String instanceDiscoveryResponse() {
+        final StringBuilder aliases = new StringBuilder();
+        for (final String alias : CLOUD_ALIASES) {
+            if (aliases.length() > 0) {
+                aliases.append(',');
+            }
+            aliases.append('"').append(alias).append('"');
+        }
+
+        return "{"
+                + "\"tenant_discovery_endpoint\":\"https://" + NETWORK_HOST
+                + "/common/v2.0/.well-known/openid-configuration\","
+                + "\"api-version\":\"1.1\","
+                + "\"metadata\":[{"
+                + "\"preferred_network\":\"" + NETWORK_HOST + "\","
+                + "\"preferred_cache\":\"" + CACHE_HOST + "\","
+                + "\"aliases\":[" + aliases + "]"
+                + "}]"
+                + "}";
+    }
+
+    private static String errorResponse(final String error, final String description) {
+        return "{\"error\":\"" + error + "\",\"error_description\":\"" + description + "\"}";
+    }
+
+    private static String encode(final String json) {
+        return Base64.encodeToString(json.getBytes(UTF8), BASE64_FLAGS);
+    }
+
+    private static void respond(final HttpExchange exchange,
+                                final int statusCode,
+                                final String body) throws IOException {
+        final byte[] bytes = body.getBytes(UTF8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+
+        final OutputStream out = exchange.getResponseBody();
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String readBody(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) > -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), UTF8);
+    }
+
+    private static Map<String, String> parseForm(final String body) throws IOException {
+        final Map<String, String> form = new HashMap<>();
+        for (final String pair : body.split("&")) {
+            final int separator = pair.indexOf('=');
+            if (separator > 0) {
+                form.put(
+                        URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(pair.substring(separator + 1), "UTF-8")
+                );
+            }
+        }
+        return form;
+    }
+}
@@ -0,0 +1,182 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.adal.internal.AuthenticationSettings;
+import com.microsoft.identity.common.adal.internal.cache.JceStorageHelper;
+import com.microsoft.identity.common.adal.internal.cache.StorageHelper;
+import com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate;
+import com.microsoft.identity.common.internal.cache.FileSharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.cache.ISharedPreferencesChangeListener;
+import com.microsoft.identity.common.internal.cache.InMemorySharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesAccountCredentialCache;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the storage backends which let the cache stack run without SharedPreferences or the
+ * AndroidKeyStore.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+public class JvmStorageBackendsTest {
+
+    private static final String FILE_NAME = "jvm_backend_test";
+
+    private byte[] mRawKey;
+    private JceStorageHelper mStorageHelper;
+    private File mDirectory;
+
+    @Before
+    public void setUp() throws GeneralSecurityException, IOException {
+        mRawKey = new byte[32];
+        new Random(7).nextBytes(mRawKey);
+        mStorageHelper = new JceStorageHelper(new SecretKeySpec(mRawKey, "AES"));
+
+        mDirectory = File.createTempFile(FILE_NAME, "");
+        assertTrue(mDirectory.delete());
+        assertTrue(mDirectory.mkdir());
+    }
+
+    @After
+    public void tearDown() {
+        for (final File file : mDirectory.listFiles()) {
+            file.delete();
+        }
+
+        mDirectory.delete();
+        AuthenticationSettings.INSTANCE.clearSecretKeysForTestCases();
+    }
+
+    @Test
+    public void inMemoryCommitsBumpGenerationAndNotify() {
+        final InMemorySharedPreferencesFileManager fileManager =
+                new InMemorySharedPreferencesFileManager(FILE_NAME);
+        final AtomicLong notifiedGeneration = new AtomicLong();
+        fileManager.registerChangeListener(new ISharedPreferencesChangeListener() {
+            @Override
+            public void onSharedPreferencesChanged(final String sharedPreferencesFileName,
+                                                   final long generation) {
+                notifiedGeneration.set(generation);
+            }
+        });
+
+        fileManager.putString("a", "1");
+        fileManager.putString("b", "2");
+        assertEquals(2, fileManager.getGeneration());
+        assertEquals(2, notifiedGeneration.get());
+        assertEquals("1", fileManager.getAll().get("a"));
+
+        fileManager.removeAll(Arrays.asList("a", "b"));
+        assertTrue(fileManager.getKeys().isEmpty());
+        assertNull(fileManager.getString("a"));
+        assertEquals(3, notifiedGeneration.get());
+    }
+
+    @Test
+    public void fileEntriesSurviveReopen() {
+        final FileSharedPreferencesFileManager fileManager =
+                new FileSharedPreferencesFileManager(mDirectory, FILE_NAME, mStorageHelper);
+        fileManager.putString("key", "value");
+        fileManager.putString("removed", "value");
+        fileManager.remove("removed");
+
+        final FileSharedPreferencesFileManager reopened =
+                new FileSharedPreferencesFileManager(mDirectory, FILE_NAME, mStorageHelper);
+        assertEquals("value", reopened.getString("key"));
+        assertFalse(reopened.contains("removed"));
+        assertEquals(1, mDirectory.listFiles().length);
+    }
+
+    @Test
+    public void fileValuesAreEncrypted() throws IOException {
+        final FileSharedPreferencesFileManager fileManager =
+                new FileSharedPreferencesFileManager(mDirectory, FILE_NAME, mStorageHelper);
+        fileManager.putString("key", "clear text value");
+
+        final String contents = new String(
+                java.nio.file.Files.readAllBytes(fileManager.getFile().toPath()),
+                "UTF-8"
+        );
+        assertTrue(contents.contains("key"));
+        assertFalse(contents.contains("clear text value"));
+    }
+
+    @Test
+    public void jceBlobsAreInterchangeableWithStorageHelper() throws GeneralSecurityException, IOException {
+        AuthenticationSettings.INSTANCE.setSecretKey(mRawKey);
+        final StorageHelper gcmHelper = new StorageHelper(
+                RuntimeEnvironment.application,
+                StorageHelper.ENCODE_VERSION_GCM
+        );
+        final StorageHelper cbcHmacHelper = new StorageHelper(
+                RuntimeEnvironment.application,
+                StorageHelper.ENCODE_VERSION_CBC_HMAC
+        );
+
+        assertEquals("value", gcmHelper.decrypt(mStorageHelper.encrypt("value")));
+        assertEquals("value", mStorageHelper.decrypt(gcmHelper.encrypt("value")));
+        assertEquals("value", mStorageHelper.decrypt(cbcHmacHelper.encrypt("value")));
+    }
+
+    @Test
+    public void accountCredentialCacheRunsOverInMemoryBackend() {
+        final SharedPreferencesAccountCredentialCache cache = new SharedPreferencesAccountCredentialCache(
+                new CacheKeyValueDelegate(),
+                new InMemorySharedPreferencesFileManager(FILE_NAME, mStorageHelper)
+        );
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId("uid.utid");
+        account.setEnvironment("login.microsoftonline.com");
+        account.setRealm("utid");
+        account.setLocalAccountId("local");
+        account.setUsername("user@contoso.com");
+        account.setAuthorityType("MSSTS");
+
+        cache.saveAccount(account);
+
+        assertEquals(1, cache.getAccounts().size());
+        assertEquals(account, cache.getAccountsFilteredBy("uid.utid", null, null).get(0));
+    }
+}
@@ -0,0 +1,131 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.internal.cache.SharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.telemetry.IMainThreadBlockingListener;
+import com.microsoft.identity.common.internal.telemetry.MainThreadBlockingDetector;
+import com.microsoft.identity.common.internal.telemetry.MainThreadBlockingViolation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+public class MainThreadBlockingDetectorTest {
+
+    private static final String SHARED_PREFERENCES_FILE = "blocking_detector_test";
+
+    private final List<MainThreadBlockingViolation> mViolations = new CopyOnWriteArrayList<>();
+    private final IMainThreadBlockingListener mListener = new IMainThreadBlockingListener() {
+        @Override
+        public void onMainThreadBlocked(final MainThreadBlockingViolation violation) {
+            mViolations.add(violation);
+        }
+    };
+
+    private SharedPreferencesFileManager mFileManager;
+
+    @Before
+    public void setUp() {
+        mFileManager = new SharedPreferencesFileManager(
+                RuntimeEnvironment.application,
+                SHARED_PREFERENCES_FILE
+        );
+    }
+
+    @After
+    public void tearDown() {
+        MainThreadBlockingDetector.setMode(MainThreadBlockingDetector.Mode.OFF, null);
+        mFileManager.clear();
+    }
+
+    @Test
+    public void nothingIsRecordedWhenOff() {
+        mFileManager.putString("key", "value");
+        assertTrue(mViolations.isEmpty());
+    }
+
+    @Test
+    public void mainThreadCommitIsRecorded() {
+        MainThreadBlockingDetector.setMode(MainThreadBlockingDetector.Mode.RECORD, mListener);
+
+        mFileManager.putString("key", "value");
+
+        assertEquals(1, mViolations.size());
+        final MainThreadBlockingViolation violation = mViolations.get(0);
+        assertEquals("SharedPreferencesFileManager.commit", violation.getOperation());
+        assertTrue(violation.getDuration(TimeUnit.NANOSECONDS) > 0);
+        assertEquals(
+                SharedPreferencesFileManager.class.getName(),
+                violation.getStackTrace()[0].getClassName()
+        );
+    }
+
+    @Test
+    public void backgroundThreadIsNotRecorded() throws Exception {
+        MainThreadBlockingDetector.setMode(MainThreadBlockingDetector.Mode.RECORD, mListener);
+
+        final Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                mFileManager.putString("key", "value");
+            }
+        });
+        worker.start();
+        worker.join();
+
+        assertTrue(mViolations.isEmpty());
+        assertEquals("value", mFileManager.getString("key"));
+    }
+
+    @Test
+    public void assertModeThrowsBeforeBlocking() {
+        MainThreadBlockingDetector.setMode(MainThreadBlockingDetector.Mode.ASSERT, mListener);
+
+        try {
+            mFileManager.putString("key", "value");
+            fail("Expected a MainThreadBlockingViolation");
+        } catch (final MainThreadBlockingViolation violation) {
+            assertEquals(0, violation.getDuration(TimeUnit.NANOSECONDS));
+        }
+
+        MainThreadBlockingDetector.setMode(MainThreadBlockingDetector.Mode.OFF, null);
+        assertEquals(1, mViolations.size());
+        assertFalse(mFileManager.contains("key"));
+    }
+}
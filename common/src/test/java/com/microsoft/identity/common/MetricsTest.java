@@ -0,0 +1,179 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.internal.net.HttpRequest;
+import com.microsoft.identity.common.internal.telemetry.Counter;
+import com.microsoft.identity.common.internal.telemetry.Histogram;
+import com.microsoft.identity.common.internal.telemetry.HistogramSnapshot;
+import com.microsoft.identity.common.internal.telemetry.IMetricsListener;
+import com.microsoft.identity.common.internal.telemetry.Metrics;
+import com.microsoft.identity.common.internal.telemetry.MetricsSnapshot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+public class MetricsTest {
+
+    @Before
+    public void setUp() {
+        Metrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.setListener(null, 0, TimeUnit.MILLISECONDS);
+        Metrics.reset();
+    }
+
+    @Test
+    public void countersAreRegisteredOnce() {
+        final Counter counter = Metrics.counter("test.counter");
+        assertSame(counter, Metrics.counter("test.counter"));
+
+        counter.increment();
+        counter.add(4);
+        assertEquals(5, Metrics.snapshot().getCounter("test.counter"));
+
+        Metrics.reset();
+        assertEquals(0, counter.get());
+        assertEquals(0, Metrics.snapshot().getCounter("test.unregistered"));
+    }
+
+    @Test
+    public void percentilesAreWithinBucketPrecision() {
+        final Histogram histogram = Metrics.histogram("test.histogram");
+        for (long value = 1; value <= 10000; value++) {
+            histogram.record(value);
+        }
+
+        final HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(10000, snapshot.getCount());
+        assertEquals(10000, snapshot.getMax());
+        assertEquals(5000.5, snapshot.getMean(), 0.001);
+        assertWithin(5000, snapshot.getPercentile(50));
+        assertWithin(9900, snapshot.getPercentile(99));
+        assertEquals(10000, snapshot.getPercentile(100));
+        assertEquals(1, snapshot.getPercentile(0));
+    }
+
+    @Test
+    public void extremeValuesAreClamped() {
+        final Histogram histogram = Metrics.histogram("test.extremes");
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        final HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(0, snapshot.getPercentile(50));
+        assertEquals(snapshot.getMax(), snapshot.getPercentile(100));
+    }
+
+    @Test
+    public void concurrentRecordingIsNotLost() throws Exception {
+        final Counter counter = Metrics.counter("test.concurrent");
+        final Histogram histogram = Metrics.histogram("test.concurrent");
+        final Thread[] threads = new Thread[8];
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        counter.increment();
+                        histogram.record(j);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(80000, counter.get());
+        assertEquals(80000, histogram.snapshot().getCount());
+        assertEquals(9999, histogram.snapshot().getMax());
+    }
+
+    @Test
+    public void listenerReceivesSnapshots() throws Exception {
+        Metrics.counter("test.reported").increment();
+
+        final CountDownLatch reported = new CountDownLatch(2);
+        final AtomicReference<MetricsSnapshot> lastSnapshot = new AtomicReference<>();
+        Metrics.setListener(new IMetricsListener() {
+            @Override
+            public void onMetricsSnapshot(final MetricsSnapshot snapshot) {
+                lastSnapshot.set(snapshot);
+                reported.countDown();
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+
+        assertTrue(reported.await(5, TimeUnit.SECONDS));
+        assertEquals(1, lastSnapshot.get().getCounter("test.reported"));
+    }
+
+    @Test
+    public void httpResponsesAreCounted() throws Exception {
+        final FakeSts sts = FakeSts.start(1);
+        try {
+            HttpRequest.sendGet(new URL(sts.getUrl(), "/discovery/instance"), new HashMap<String, String>());
+            HttpRequest.sendGet(new URL(sts.getUrl(), "/unknown"), new HashMap<String, String>());
+        } finally {
+            sts.close();
+        }
+
+        final MetricsSnapshot snapshot = Metrics.snapshot();
+        assertEquals(1, snapshot.getCounter(Metrics.HTTP_STATUS_PREFIX + 200));
+        assertEquals(1, snapshot.getCounter(Metrics.HTTP_STATUS_PREFIX + 404));
+        assertEquals(0, snapshot.getCounter(Metrics.HTTP_RETRIES));
+        assertNotNull(snapshot.getHistogram(Metrics.HTTP_LATENCY));
+        assertEquals(2, snapshot.getHistogram(Metrics.HTTP_LATENCY).getCount());
+    }
+
+    private static void assertWithin(final long expected, final long actual) {
+        assertTrue(
+                "Expected " + actual + " to be within 1/16 of " + expected,
+                Math.abs(actual - expected) <= expected / 16
+        );
+    }
+}
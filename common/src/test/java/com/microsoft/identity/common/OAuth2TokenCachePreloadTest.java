@@ -0,0 +1,110 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate;
+import com.microsoft.identity.common.internal.cache.MicrosoftStsAccountCredentialAdapter;
+import com.microsoft.identity.common.internal.cache.MsalOAuth2TokenCache;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesAccountCredentialCache;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+public class OAuth2TokenCachePreloadTest {
+
+    private static final String SHARED_PREFERENCES_FILE = "preload_test_cache";
+    private static final String ENVIRONMENT = "login.microsoftonline.com";
+    private static final String REALM = "3c62ac97-29eb-4aed-a3c8-add0298508d";
+
+    private SharedPreferencesFileManager mFileManager;
+    private SharedPreferencesAccountCredentialCache mAccountCredentialCache;
+
+    @Before
+    public void setUp() {
+        mFileManager = new SharedPreferencesFileManager(
+                RuntimeEnvironment.application,
+                SHARED_PREFERENCES_FILE
+        );
+        mAccountCredentialCache = new SharedPreferencesAccountCredentialCache(
+                new CacheKeyValueDelegate(),
+                mFileManager
+        );
+    }
+
+    @After
+    public void tearDown() {
+        mFileManager.clear();
+    }
+
+    @Test
+    public void preloadCompletesAndIsStartedOnce() throws Exception {
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId("uid.utid");
+        account.setEnvironment(ENVIRONMENT);
+        account.setRealm(REALM);
+        account.setLocalAccountId("local");
+        account.setUsername("user@contoso.com");
+        account.setAuthorityType("MSSTS");
+        mAccountCredentialCache.saveAccount(account);
+
+        final MsalOAuth2TokenCache tokenCache = newTokenCache();
+        final Future<Void> preload = tokenCache.preload();
+
+        assertSame(preload, tokenCache.preload());
+        preload.get(5, TimeUnit.SECONDS);
+        assertTrue(preload.isDone());
+        assertEquals(1, mAccountCredentialCache.getAccounts().size());
+    }
+
+    @Test
+    public void preloadOfEmptyCacheCompletes() throws Exception {
+        final Future<Void> preload = newTokenCache().preload();
+
+        preload.get(5, TimeUnit.SECONDS);
+        assertTrue(preload.isDone());
+    }
+
+    private MsalOAuth2TokenCache newTokenCache() {
+        return new MsalOAuth2TokenCache<>(
+                RuntimeEnvironment.application,
+                mAccountCredentialCache,
+                new MicrosoftStsAccountCredentialAdapter()
+        );
+    }
+}
@@ -0,0 +1,127 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.internal.logging.DiagnosticContext;
+import com.microsoft.identity.common.internal.logging.RequestContext;
+import com.microsoft.identity.common.internal.net.HttpRequest;
+import com.microsoft.identity.common.internal.net.HttpResponse;
+import com.microsoft.identity.common.internal.telemetry.IRequestTraceListener;
+import com.microsoft.identity.common.internal.telemetry.RequestTrace;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+public class RequestTraceTest {
+
+    private static final String CORRELATION_ID = "b8e7a3c1-5d5e-4f4b-9a8e-0c6f1e1d2a3b";
+
+    @After
+    public void tearDown() {
+        RequestTrace.setListener(null);
+        DiagnosticContext.clear();
+    }
+
+    @Test
+    public void spansAreRecordedOnTheCurrentTrace() {
+        final RequestTrace trace = RequestTrace.begin(CORRELATION_ID, "acquireTokenSilent");
+        assertSame(trace, RequestTrace.current());
+
+        RequestTrace.endSpan(RequestTrace.Span.DECRYPT, RequestTrace.startSpan());
+        RequestTrace.endSpan(RequestTrace.Span.DECRYPT, RequestTrace.startSpan());
+        trace.record(RequestTrace.Span.CACHE_LOAD, TimeUnit.MILLISECONDS.toNanos(3));
+
+        assertEquals(2, trace.getCount(RequestTrace.Span.DECRYPT));
+        assertEquals(1, trace.getCount(RequestTrace.Span.CACHE_LOAD));
+        assertEquals(3, trace.getDuration(RequestTrace.Span.CACHE_LOAD, TimeUnit.MILLISECONDS));
+        assertEquals(0, trace.getCount(RequestTrace.Span.TOKEN_PARSE));
+        assertTrue(trace.toString().contains("CACHE_LOAD=3.0ms(1)"));
+    }
+
+    @Test
+    public void spansWithoutTraceAreIgnored() {
+        RequestTrace.endSpan(RequestTrace.Span.CACHE_SAVE, RequestTrace.startSpan());
+        assertNull(RequestTrace.current());
+    }
+
+    @Test
+    public void newRequestContextClearsTheTrace() {
+        RequestTrace.begin(CORRELATION_ID, "acquireToken");
+        DiagnosticContext.setRequestContext(new RequestContext());
+        assertNull(RequestTrace.current());
+    }
+
+    @Test
+    public void listenerIsNotifiedOnce() {
+        final AtomicInteger notifications = new AtomicInteger();
+        RequestTrace.setListener(new IRequestTraceListener() {
+            @Override
+            public void onRequestTraceCompleted(final RequestTrace trace) {
+                assertEquals(CORRELATION_ID, trace.getCorrelationId());
+                notifications.incrementAndGet();
+            }
+        });
+
+        final RequestTrace trace = RequestTrace.begin(CORRELATION_ID, "acquireToken");
+        trace.end();
+        final long duration = trace.getDuration(TimeUnit.NANOSECONDS);
+        trace.end();
+
+        assertEquals(1, notifications.get());
+        assertEquals(duration, trace.getDuration(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void httpPhasesAreRecorded() throws Exception {
+        final FakeSts sts = FakeSts.start(1);
+        try {
+            final RequestTrace trace = RequestTrace.begin(CORRELATION_ID, "acquireTokenSilent");
+            final HttpResponse response = HttpRequest.sendGet(
+                    new URL(sts.getUrl(), "/discovery/instance"),
+                    new HashMap<String, String>()
+            );
+
+            assertEquals(200, response.getStatusCode());
+            assertEquals(1, trace.getCount(RequestTrace.Span.HTTP_CONNECT));
+            assertEquals(1, trace.getCount(RequestTrace.Span.HTTP_TTFB));
+            assertEquals(1, trace.getCount(RequestTrace.Span.HTTP_BODY));
+        } finally {
+            sts.close();
+        }
+    }
+}
@@ -0,0 +1,345 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.internal.logging.ILoggerCallback;
+import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.net.RequestDeadline;
+import com.microsoft.identity.common.internal.net.RetryPolicy;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.UnknownServiceException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+public class RetryPolicyTest {
+
+    private static final String HOST = "login.microsoftonline.com";
+
+    @Test
+    public void backoffIsJitteredAndCapped() {
+        final RetryPolicy retryPolicy = new RetryPolicy.Builder()
+                .setMaxAttempts(10)
+                .setBaseDelayMillis(100)
+                .setMaxDelayMillis(400)
+                .build();
+
+        for (int i = 0; i < 100; i++) {
+            final long first = retryPolicy.getRetryDelayMillis(1, HttpURLConnection.HTTP_UNAVAILABLE, null);
+            assertTrue(first >= 0 && first < 100);
+
+            final long capped = retryPolicy.getRetryDelayMillis(9, HttpURLConnection.HTTP_UNAVAILABLE, null);
+            assertTrue(capped >= 0 && capped < 400);
+        }
+
+        assertEquals(
+                RetryPolicy.NO_RETRY,
+                retryPolicy.getRetryDelayMillis(10, HttpURLConnection.HTTP_UNAVAILABLE, null)
+        );
+    }
+
+    @Test
+    public void retryAfterIsHonored() {
+        final RetryPolicy retryPolicy = new RetryPolicy.Builder()
+                .setMaxRetryAfterMillis(5000)
+                .build();
+
+        assertEquals(
+                3000,
+                retryPolicy.getRetryDelayMillis(1, RetryPolicy.HTTP_TOO_MANY_REQUESTS, retryAfter("3"))
+        );
+        assertEquals(
+                RetryPolicy.NO_RETRY,
+                retryPolicy.getRetryDelayMillis(1, RetryPolicy.HTTP_TOO_MANY_REQUESTS, retryAfter("60"))
+        );
+        assertEquals(
+                RetryPolicy.NO_RETRY,
+                retryPolicy.getRetryDelayMillis(1, RetryPolicy.HTTP_TOO_MANY_REQUESTS, null)
+        );
+
+        final SimpleDateFormat dateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        final long delayMillis = retryPolicy.getRetryDelayMillis(
+                1,
+                HttpURLConnection.HTTP_UNAVAILABLE,
+                retryAfter(dateFormat.format(new Date(System.currentTimeMillis() + 4000)))
+        );
+        assertTrue(delayMillis > 2000 && delayMillis <= 4000);
+
+        // Server errors other than 503 back off as usual, whatever they ask for
+        for (final int statusCode : new int[]{
+                HttpURLConnection.HTTP_INTERNAL_ERROR,
+                HttpURLConnection.HTTP_GATEWAY_TIMEOUT}) {
+            assertTrue(retryPolicy.getRetryDelayMillis(1, statusCode, retryAfter("3")) < 1000);
+            assertTrue(retryPolicy.getRetryDelayMillis(1, statusCode, retryAfter("60")) >= 0);
+        }
+    }
+
+    @Test
+    public void circuitOpensAndRecovers() throws Exception {
+        final RetryPolicy retryPolicy = new RetryPolicy.Builder()
+                .setCircuitFailureThreshold(2)
+                .setCircuitOpenDurationMillis(50)
+                .build();
+
+        retryPolicy.onFailure(HOST);
+        retryPolicy.checkCircuit(HOST);
+        retryPolicy.onFailure(HOST);
+        assertCircuitOpen(retryPolicy);
+
+        // Other hosts are not affected.
+        retryPolicy.checkCircuit("login.windows.net");
+
+        Thread.sleep(60);
+
+        // A single trial request is let through.
+        retryPolicy.checkCircuit(HOST);
+        assertCircuitOpen(retryPolicy);
+
+        retryPolicy.onSuccess(HOST);
+        retryPolicy.checkCircuit(HOST);
+        retryPolicy.checkCircuit(HOST);
+    }
+
+    @Test
+    public void trialFailingToConnectReopensCircuit() throws Exception {
+        final RetryPolicy retryPolicy = new RetryPolicy.Builder()
+                .setCircuitFailureThreshold(1)
+                .setCircuitOpenDurationMillis(50)
+                .build();
+
+        retryPolicy.onFailure(HOST);
+        Thread.sleep(60);
+
+        try {
+            retryPolicy.execute(HOST, new TestCall(new ConnectException("Connection refused")));
+            fail("Expected a ConnectException");
+        } catch (final ConnectException e) {
+            // Expected
+        }
+
+        // The failed trial opened the circuit again, rather than leaving it stuck
+        assertCircuitOpen(retryPolicy);
+        Thread.sleep(60);
+
+        assertEquals(
+                HttpURLConnection.HTTP_OK,
+                retryPolicy.execute(HOST, new TestCall(null)).intValue()
+        );
+        retryPolicy.checkCircuit(HOST);
+    }
+
+    @Test
+    public void successfulTrialDoesNotReopenCircuit() throws Exception {
+        final RetryPolicy retryPolicy = new RetryPolicy.Builder()
+                .setCircuitFailureThreshold(1)
+                .setCircuitOpenDurationMillis(50)
+                .build();
+
+        retryPolicy.onFailure(HOST);
+        Thread.sleep(60);
+
+        final List<String> warnings = captureCircuitWarnings();
+        try {
+            assertEquals(
+                    HttpURLConnection.HTTP_OK,
+                    retryPolicy.execute(HOST, new TestCall(null)).intValue()
+            );
+        } finally {
+            Logger.getInstance().setExternalLogger(null);
+        }
+
+        assertTrue(warnings.isEmpty());
+        retryPolicy.checkCircuit(HOST);
+    }
+
+    @Test
+    public void trialFailingWithServerErrorCountsOnce() throws Exception {
+        final RetryPolicy retryPolicy = new RetryPolicy.Builder()
+                .setMaxAttempts(1)
+                .setCircuitFailureThreshold(1)
+                .setCircuitOpenDurationMillis(50)
+                .build();
+
+        retryPolicy.onFailure(HOST);
+        Thread.sleep(60);
+
+        final List<String> warnings = captureCircuitWarnings();
+        try {
+            retryPolicy.execute(HOST, new TestCall(null, HttpURLConnection.HTTP_UNAVAILABLE));
+        } finally {
+            Logger.getInstance().setExternalLogger(null);
+        }
+
+        assertEquals(1, warnings.size());
+        assertTrue(warnings.get(0).contains("[2]"));
+        assertCircuitOpen(retryPolicy);
+    }
+
+    @Test
+    public void timeoutAtDeadlineDoesNotCountAsFailure() throws Exception {
+        final RetryPolicy retryPolicy = new RetryPolicy.Builder()
+                .setCircuitFailureThreshold(1)
+                .build();
+
+        RequestDeadline.set(20);
+        try {
+            retryPolicy.execute(HOST, new TestCall(new SocketTimeoutException()) {
+                @Override
+                public Integer call() throws IOException {
+                    // Stands in for a timeout capped at the deadline
+                    try {
+                        Thread.sleep(30);
+                    } catch (final InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                    return super.call();
+                }
+            });
+            fail("Expected a SocketTimeoutException");
+        } catch (final SocketTimeoutException e) {
+            // Expected
+        } finally {
+            RequestDeadline.clear();
+        }
+
+        retryPolicy.checkCircuit(HOST);
+    }
+
+    @Test
+    public void executeRetriesServerErrors() throws Exception {
+        final RetryPolicy retryPolicy = new RetryPolicy.Builder()
+                .setMaxAttempts(3)
+                .setBaseDelayMillis(1)
+                .build();
+        final TestCall call = new TestCall(null, HttpURLConnection.HTTP_UNAVAILABLE);
+
+        assertEquals(HttpURLConnection.HTTP_UNAVAILABLE, retryPolicy.execute(HOST, call).intValue());
+        assertEquals(3, call.mCalls);
+    }
+
+    @Test
+    public void waitIsInterruptible() {
+        Thread.currentThread().interrupt();
+
+        try {
+            RetryPolicy.waitBeforeRetry(10000);
+            fail("Expected an InterruptedIOException");
+        } catch (final InterruptedIOException e) {
+            assertTrue(Thread.interrupted());
+        }
+    }
+
+    /**
+     * Collects the messages of the circuit breaker's "Circuit opened" warnings.
+     */
+    private static List<String> captureCircuitWarnings() {
+        final List<String> warnings = Collections.synchronizedList(new ArrayList<String>());
+        Logger.getInstance().setExternalLogger(new ILoggerCallback() {
+            @Override
+            public void log(final String tag,
+                            final Logger.LogLevel logLevel,
+                            final String message,
+                            final boolean containsPII) {
+                if (null != message && message.contains("Circuit opened")) {
+                    warnings.add(message);
+                }
+            }
+        });
+        return warnings;
+    }
+
+    private static void assertCircuitOpen(final RetryPolicy retryPolicy) {
+        try {
+            retryPolicy.checkCircuit(HOST);
+            fail("Expected the circuit to be open");
+        } catch (final UnknownServiceException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Fails with the supplied exception, or responds with the supplied status code.
+     */
+    private static class TestCall implements RetryPolicy.RetryableCall<Integer> {
+
+        private final IOException mException;
+        private final int mStatusCode;
+        private int mCalls;
+
+        TestCall(final IOException exception) {
+            this(exception, HttpURLConnection.HTTP_OK);
+        }
+
+        TestCall(final IOException exception, final int statusCode) {
+            mException = exception;
+            mStatusCode = statusCode;
+        }
+
+        @Override
+        public Integer call() throws IOException {
+            mCalls++;
+
+            if (null != mException) {
+                throw mException;
+            }
+
+            return mStatusCode;
+        }
+
+        @Override
+        public int getStatusCode(final Integer response) {
+            return response;
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaders(final Integer response) {
+            return null;
+        }
+    }
+
+    private static Map<String, List<String>> retryAfter(final String value) {
+        return Collections.singletonMap("retry-after", Collections.singletonList(value));
+    }
+}
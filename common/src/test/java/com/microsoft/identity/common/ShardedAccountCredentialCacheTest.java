@@ -0,0 +1,197 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesAccountCredentialCache;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.cache.ShardedAccountCredentialCache;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.Credential;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+public class ShardedAccountCredentialCacheTest {
+
+    private static final String BASE_FILE_NAME = "sharded_test_cache";
+    private static final String HOME_ACCOUNT_ID_1 = "29f3807a-4fb0-42f2-a44a-236aa0cb3f97.0287f963-2d72-4363-9e3a-5705c5b0f031";
+    private static final String HOME_ACCOUNT_ID_2 = "1a2b3c4d-4fb0-42f2-a44a-236aa0cb3f97.0287f963-2d72-4363-9e3a-5705c5b0f031";
+    private static final String ENVIRONMENT = "login.microsoftonline.com";
+    private static final String CLIENT_ID = "0287f963-2d72-4363-9e3a-5705c5b0f031";
+    private static final String REALM = "3c62ac97-29eb-4aed-a3c8-add0298508d";
+    private static final String TARGET = "user.read user.write";
+
+    private CacheKeyValueDelegate mDelegate;
+    private SharedPreferencesFileManager mSingleFile;
+    private ShardedAccountCredentialCache mCache;
+
+    @Before
+    public void setUp() {
+        mDelegate = new CacheKeyValueDelegate();
+        mSingleFile = new SharedPreferencesFileManager(RuntimeEnvironment.application, BASE_FILE_NAME);
+        mCache = newCache();
+    }
+
+    @After
+    public void tearDown() {
+        newCache().clearAll();
+        mSingleFile.clear();
+    }
+
+    @Test
+    public void savedRecordsAreReadableByKey() {
+        final AccountRecord account = newAccount(HOME_ACCOUNT_ID_1);
+        final AccessTokenRecord accessToken = newAccessToken(HOME_ACCOUNT_ID_2, "secret");
+        mCache.saveAccount(account);
+        mCache.saveCredential(accessToken);
+
+        final ShardedAccountCredentialCache reopened = newCache();
+        assertEquals(account, reopened.getAccount(mDelegate.generateCacheKey(account)));
+        assertEquals(accessToken, reopened.getCredential(mDelegate.generateCacheKey(accessToken)));
+        assertNull(reopened.getAccount(mDelegate.generateCacheKey(newAccount(HOME_ACCOUNT_ID_2))));
+    }
+
+    @Test
+    public void recordsAreNotWrittenToTheSingleFile() {
+        mCache.saveAccount(newAccount(HOME_ACCOUNT_ID_1));
+        mCache.saveCredential(newAccessToken(HOME_ACCOUNT_ID_2, "secret"));
+
+        assertTrue(mSingleFile.getKeys().isEmpty());
+    }
+
+    @Test
+    public void queriesSpanOrSelectShards() {
+        mCache.saveAccount(newAccount(HOME_ACCOUNT_ID_1));
+        mCache.saveAccount(newAccount(HOME_ACCOUNT_ID_2));
+        mCache.saveCredential(newAccessToken(HOME_ACCOUNT_ID_1, "secret1"));
+        mCache.saveCredential(newAccessToken(HOME_ACCOUNT_ID_2, "secret2"));
+
+        assertEquals(2, mCache.getAccounts().size());
+        assertEquals(2, mCache.getCredentials().size());
+
+        final List<Credential> credentials = mCache.getCredentialsFilteredBy(
+                HOME_ACCOUNT_ID_2,
+                ENVIRONMENT,
+                CredentialType.AccessToken,
+                CLIENT_ID,
+                REALM,
+                TARGET
+        );
+        assertEquals(1, credentials.size());
+        assertEquals("secret2", credentials.get(0).getSecret());
+
+        assertEquals(1, mCache.getAccountsFilteredBy(HOME_ACCOUNT_ID_1, ENVIRONMENT, REALM).size());
+        assertEquals(2, mCache.getAccountsFilteredBy(null, ENVIRONMENT, REALM).size());
+        assertTrue(mCache.getAccountsFilteredBy("unknown", ENVIRONMENT, REALM).isEmpty());
+    }
+
+    @Test
+    public void removeAffectsOnlyItsShard() {
+        final AccessTokenRecord accessToken1 = newAccessToken(HOME_ACCOUNT_ID_1, "secret1");
+        mCache.saveCredential(accessToken1);
+        mCache.saveCredential(newAccessToken(HOME_ACCOUNT_ID_2, "secret2"));
+
+        assertTrue(mCache.removeCredential(accessToken1));
+        assertNull(mCache.getCredential(mDelegate.generateCacheKey(accessToken1)));
+        assertEquals(1, mCache.getCredentials().size());
+    }
+
+    @Test
+    public void singleFileRecordsAreMigrated() {
+        final SharedPreferencesAccountCredentialCache singleFileCache =
+                new SharedPreferencesAccountCredentialCache(mDelegate, mSingleFile);
+        final AccountRecord account = newAccount(HOME_ACCOUNT_ID_1);
+        final AccessTokenRecord accessToken = newAccessToken(HOME_ACCOUNT_ID_2, "secret");
+        singleFileCache.saveAccount(account);
+        singleFileCache.saveCredential(accessToken);
+
+        final ShardedAccountCredentialCache migrated = newCache();
+        assertNotNull(migrated.getAccount(mDelegate.generateCacheKey(account)));
+        assertEquals(accessToken, migrated.getCredential(mDelegate.generateCacheKey(accessToken)));
+        assertTrue(mSingleFile.getKeys().isEmpty());
+        assertEquals(1, migrated.getAccountsFilteredBy(HOME_ACCOUNT_ID_1, ENVIRONMENT, REALM).size());
+    }
+
+    @Test
+    public void clearAllRemovesEveryShard() {
+        mCache.saveAccount(newAccount(HOME_ACCOUNT_ID_1));
+        mCache.saveCredential(newAccessToken(HOME_ACCOUNT_ID_2, "secret"));
+
+        mCache.clearAll();
+
+        final ShardedAccountCredentialCache reopened = newCache();
+        assertTrue(reopened.getAccounts().isEmpty());
+        assertTrue(reopened.getCredentials().isEmpty());
+    }
+
+    private ShardedAccountCredentialCache newCache() {
+        return new ShardedAccountCredentialCache(
+                RuntimeEnvironment.application,
+                BASE_FILE_NAME,
+                mDelegate,
+                null
+        );
+    }
+
+    private static AccountRecord newAccount(final String homeAccountId) {
+        final AccountRecord record = new AccountRecord();
+        record.setHomeAccountId(homeAccountId);
+        record.setEnvironment(ENVIRONMENT);
+        record.setRealm(REALM);
+        record.setLocalAccountId("local-" + homeAccountId.substring(0, 8));
+        record.setUsername("user@contoso.com");
+        record.setAuthorityType("MSSTS");
+        return record;
+    }
+
+    private static AccessTokenRecord newAccessToken(final String homeAccountId, final String secret) {
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setHomeAccountId(homeAccountId);
+        accessToken.setEnvironment(ENVIRONMENT);
+        accessToken.setCredentialType(CredentialType.AccessToken.name());
+        accessToken.setClientId(CLIENT_ID);
+        accessToken.setRealm(REALM);
+        accessToken.setTarget(TARGET);
+        accessToken.setCachedAt("0");
+        accessToken.setExpiresOn(String.valueOf(Long.MAX_VALUE / 1000));
+        accessToken.setSecret(secret);
+        return accessToken;
+    }
+}
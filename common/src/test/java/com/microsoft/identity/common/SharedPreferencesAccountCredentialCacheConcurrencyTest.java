@@ -0,0 +1,214 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesAccountCredentialCache;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.Credential;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Exercises {@link SharedPreferencesAccountCredentialCache} from concurrent reader and writer
+ * threads, checking that every read observes a complete, consistent credential. Read throughput
+ * as reader threads are added is measured by AccountCredentialCacheConcurrentReadBenchmark in the
+ * :benchmark module.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+public class SharedPreferencesAccountCredentialCacheConcurrencyTest {
+
+    private static final String SHARED_PREFERENCES_FILE = "concurrency_test_cache";
+    private static final String ENVIRONMENT = "login.microsoftonline.com";
+    private static final String CLIENT_ID = "0287f963-2d72-4363-9e3a-5705c5b0f031";
+    private static final String REALM = "3c62ac97-29eb-4aed-a3c8-add0298508d";
+    private static final String TARGET = "user.read user.write";
+    private static final int ACCOUNT_COUNT = 8;
+    private static final int WRITES_PER_WRITER = 200;
+
+    private SharedPreferencesAccountCredentialCache mCache;
+
+    @Before
+    public void setUp() {
+        mCache = new SharedPreferencesAccountCredentialCache(
+                new CacheKeyValueDelegate(),
+                new SharedPreferencesFileManager(RuntimeEnvironment.application, SHARED_PREFERENCES_FILE)
+        );
+
+        for (int i = 0; i < ACCOUNT_COUNT; i++) {
+            mCache.saveAccount(newAccount(i));
+            mCache.saveCredential(newAccessToken(i, 0));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mCache.clearAll();
+    }
+
+    @Test
+    public void readsStayConsistentUnderConcurrentWrites() throws InterruptedException {
+        final int readerCount = 4;
+        final int writerCount = 2;
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch writersDone = new CountDownLatch(writerCount);
+        final List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < writerCount; w++) {
+            final int writer = w;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int generation = 1; generation <= WRITES_PER_WRITER; generation++) {
+                            // Each writer owns half of the accounts
+                            for (int i = writer; i < ACCOUNT_COUNT; i += writerCount) {
+                                mCache.saveCredential(newAccessToken(i, generation));
+                            }
+                        }
+                    } catch (final Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        writersDone.countDown();
+                    }
+                }
+            }));
+        }
+
+        for (int r = 0; r < readerCount; r++) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final int[] lastGeneration = new int[ACCOUNT_COUNT];
+
+                    try {
+                        while (writing.get() && null == failure.get()) {
+                            for (int i = 0; i < ACCOUNT_COUNT; i++) {
+                                final List<Credential> accessTokens = getAccessTokens(i);
+                                assertEquals(1, accessTokens.size());
+
+                                // Secrets are never torn and generations never go backwards
+                                final int generation = generationOf(i, accessTokens.get(0).getSecret());
+                                assertTrue(generation >= lastGeneration[i]);
+                                lastGeneration[i] = generation;
+                            }
+
+                            assertEquals(ACCOUNT_COUNT, mCache.getAccounts().size());
+                        }
+                    } catch (final Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            }));
+        }
+
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+
+        assertTrue(writersDone.await(60, TimeUnit.SECONDS));
+        writing.set(false);
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(String.valueOf(failure.get()), failure.get());
+
+        for (int i = 0; i < ACCOUNT_COUNT; i++) {
+            assertEquals(WRITES_PER_WRITER, generationOf(i, getAccessTokens(i).get(0).getSecret()));
+        }
+    }
+
+    private List<Credential> getAccessTokens(final int account) {
+        return mCache.getCredentialsFilteredBy(
+                homeAccountId(account),
+                ENVIRONMENT,
+                CredentialType.AccessToken,
+                CLIENT_ID,
+                REALM,
+                null
+        );
+    }
+
+    private static String homeAccountId(final int account) {
+        return "home-account-" + account;
+    }
+
+    private static String secret(final int account, final int generation) {
+        return "secret-" + account + "-" + generation;
+    }
+
+    private static int generationOf(final int account, final String secret) {
+        final String prefix = "secret-" + account + "-";
+        assertTrue(secret, secret.startsWith(prefix));
+        return Integer.parseInt(secret.substring(prefix.length()));
+    }
+
+    private static AccountRecord newAccount(final int account) {
+        final AccountRecord record = new AccountRecord();
+        record.setHomeAccountId(homeAccountId(account));
+        record.setEnvironment(ENVIRONMENT);
+        record.setRealm(REALM);
+        record.setLocalAccountId("local-" + account);
+        record.setUsername("user" + account + "@contoso.com");
+        record.setAuthorityType("MSSTS");
+        return record;
+    }
+
+    private static AccessTokenRecord newAccessToken(final int account, final int generation) {
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setHomeAccountId(homeAccountId(account));
+        accessToken.setEnvironment(ENVIRONMENT);
+        accessToken.setCredentialType(CredentialType.AccessToken.name());
+        accessToken.setClientId(CLIENT_ID);
+        accessToken.setRealm(REALM);
+        accessToken.setTarget(TARGET);
+        accessToken.setCachedAt("0");
+        accessToken.setExpiresOn(String.valueOf(Long.MAX_VALUE / 1000));
+        accessToken.setSecret(secret(account, generation));
+        return accessToken;
+    }
+}
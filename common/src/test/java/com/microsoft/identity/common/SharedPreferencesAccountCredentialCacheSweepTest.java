@@ -0,0 +1,161 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesAccountCredentialCache;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+import com.microsoft.identity.common.internal.dto.IdTokenRecord;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+public class SharedPreferencesAccountCredentialCacheSweepTest {
+
+    private static final String SHARED_PREFERENCES_FILE = "sweep_test_cache";
+    private static final String ENVIRONMENT = "login.microsoftonline.com";
+    private static final String CLIENT_ID = "0287f963-2d72-4363-9e3a-5705c5b0f031";
+    private static final String REALM = "3c62ac97-29eb-4aed-a3c8-add0298508d";
+
+    private SharedPreferencesAccountCredentialCache mCache;
+    private CacheKeyValueDelegate mDelegate;
+
+    @Before
+    public void setUp() {
+        mDelegate = new CacheKeyValueDelegate();
+        mCache = new SharedPreferencesAccountCredentialCache(
+                mDelegate,
+                new SharedPreferencesFileManager(RuntimeEnvironment.application, SHARED_PREFERENCES_FILE)
+        );
+    }
+
+    @After
+    public void tearDown() {
+        mCache.clearAll();
+    }
+
+    @Test
+    public void removesOldOrphanedIdToken() {
+        final IdTokenRecord idToken = newIdToken("orphan-uid.utid", TimeUnit.HOURS.toSeconds(1));
+        mCache.saveCredential(idToken);
+
+        assertEquals(1, mCache.removeExpiredCredentials().getOrphanedIdTokensRemoved());
+        assertNull(mCache.getCredential(mDelegate.generateCacheKey(idToken)));
+    }
+
+    @Test
+    public void keepsRecentIdTokenSavedBeforeItsAccount() {
+        final IdTokenRecord idToken = newIdToken("new-uid.utid", 0);
+        mCache.saveCredential(idToken);
+
+        mCache.removeExpiredCredentials();
+
+        assertNotNull(mCache.getCredential(mDelegate.generateCacheKey(idToken)));
+    }
+
+    @Test
+    public void keepsIdTokenWithAccountMatchedOnFields() {
+        // The Account's home_account_id extends the IdToken's, which key matching confused
+        final IdTokenRecord idToken = newIdToken("uid-1.utid", TimeUnit.HOURS.toSeconds(1));
+        final IdTokenRecord orphan = newIdToken("uid.utid", TimeUnit.HOURS.toSeconds(1));
+        mCache.saveAccount(newAccount("uid-1.utid"));
+        mCache.saveCredential(idToken);
+        mCache.saveCredential(orphan);
+
+        mCache.removeExpiredCredentials();
+
+        assertNotNull(mCache.getCredential(mDelegate.generateCacheKey(idToken)));
+        assertNull(mCache.getCredential(mDelegate.generateCacheKey(orphan)));
+    }
+
+    @Test
+    public void removesExpiredAccessTokenSavedThroughAnotherInstance() {
+        // Seed the expiry index
+        mCache.removeExpiredCredentials();
+
+        final SharedPreferencesAccountCredentialCache other = new SharedPreferencesAccountCredentialCache(
+                mDelegate,
+                new SharedPreferencesFileManager(RuntimeEnvironment.application, SHARED_PREFERENCES_FILE)
+        );
+        final AccessTokenRecord accessToken = newExpiredAccessToken();
+        other.saveCredential(accessToken);
+
+        assertEquals(1, mCache.removeExpiredCredentials().getExpiredAccessTokensRemoved());
+        assertNull(mCache.getCredential(mDelegate.generateCacheKey(accessToken)));
+    }
+
+    private static AccountRecord newAccount(final String homeAccountId) {
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId(homeAccountId);
+        account.setEnvironment(ENVIRONMENT);
+        account.setRealm(REALM);
+        account.setLocalAccountId("local");
+        account.setUsername("user@contoso.com");
+        account.setAuthorityType("MSSTS");
+        return account;
+    }
+
+    private static AccessTokenRecord newExpiredAccessToken() {
+        final long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setHomeAccountId("uid.utid");
+        accessToken.setEnvironment(ENVIRONMENT);
+        accessToken.setCredentialType(CredentialType.AccessToken.name());
+        accessToken.setClientId(CLIENT_ID);
+        accessToken.setRealm(REALM);
+        accessToken.setTarget("user.read");
+        accessToken.setCachedAt(String.valueOf(now - TimeUnit.HOURS.toSeconds(2)));
+        accessToken.setExpiresOn(String.valueOf(now - TimeUnit.HOURS.toSeconds(1)));
+        accessToken.setSecret("access.token.secret");
+        return accessToken;
+    }
+
+    private static IdTokenRecord newIdToken(final String homeAccountId, final long ageSeconds) {
+        final long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        final IdTokenRecord idToken = new IdTokenRecord();
+        idToken.setHomeAccountId(homeAccountId);
+        idToken.setEnvironment(ENVIRONMENT);
+        idToken.setCredentialType(CredentialType.IdToken.name());
+        idToken.setClientId(CLIENT_ID);
+        idToken.setRealm(REALM);
+        idToken.setCachedAt(String.valueOf(now - ageSeconds));
+        idToken.setSecret("id.token.secret");
+        return idToken;
+    }
+}
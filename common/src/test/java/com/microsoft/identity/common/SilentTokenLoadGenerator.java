@@ -0,0 +1,371 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import android.content.Context;
+import android.content.Intent;
+import android.text.TextUtils;
+
+import com.microsoft.identity.common.exception.ClientException;
+import com.microsoft.identity.common.exception.UiRequiredException;
+import com.microsoft.identity.common.internal.authorities.AccountsInOneOrganization;
+import com.microsoft.identity.common.internal.authorities.AzureActiveDirectoryAuthority;
+import com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate;
+import com.microsoft.identity.common.internal.cache.IAccountCredentialCache;
+import com.microsoft.identity.common.internal.cache.ICacheRecord;
+import com.microsoft.identity.common.internal.cache.InMemorySharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.cache.MicrosoftStsAccountCredentialAdapter;
+import com.microsoft.identity.common.internal.cache.MsalOAuth2TokenCache;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesAccountCredentialCache;
+import com.microsoft.identity.common.internal.controllers.BaseController;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
+import com.microsoft.identity.common.internal.providers.microsoft.MicrosoftAccount;
+import com.microsoft.identity.common.internal.providers.oauth2.OAuth2TokenCache;
+import com.microsoft.identity.common.internal.request.AcquireTokenOperationParameters;
+import com.microsoft.identity.common.internal.request.AcquireTokenSilentOperationParameters;
+import com.microsoft.identity.common.internal.result.AcquireTokenResult;
+import com.microsoft.identity.common.internal.result.LocalAuthenticationResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs silent token acquisitions from many threads across simulated accounts, against a
+ * {@link FakeSts}, and reports the latency distribution and throughput.
+ * <p>
+ * Each acquisition goes through the cache first and, when the cached access token is missing
+ * or expired (or a refresh is forced), through {@link BaseController#renewAccessToken} and
+ * {@link com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsOAuth2Strategy}.
+ */
+public final class SilentTokenLoadGenerator {
+
+    public static final String CLIENT_ID = "0287f963-2d72-4363-9e3a-5705c5b0f031";
+    public static final String TENANT_ID = "f645ad92-e38d-4d1a-b510-d1b09a74a8ca";
+    public static final String REDIRECT_URI = "msauth://com.microsoft.identity.common.test/signature";
+    public static final List<String> SCOPES = Arrays.asList("user.read", "openid", "profile", "offline_access");
+
+    private final Context mContext;
+    private final int mAccountCount;
+    private final int mThreadCount;
+    private final int mAcquisitionsPerThread;
+    private final boolean mForceRefresh;
+
+    private final IAccountCredentialCache mAccountCredentialCache;
+    private final OAuth2TokenCache mTokenCache;
+    private final List<AccountRecord> mAccounts = new ArrayList<>();
+
+    /**
+     * Constructs a new SilentTokenLoadGenerator, and seeds its cache with a refresh token for
+     * each account. No access tokens are cached up front.
+     *
+     * @param context               The Context to initialize the token cache with.
+     * @param accountCount          The number of accounts to spread the acquisitions over.
+     * @param threadCount           The number of threads acquiring concurrently.
+     * @param acquisitionsPerThread The number of acquisitions made by each thread.
+     * @param forceRefresh          True, if every acquisition should skip the cached access token.
+     */
+    public SilentTokenLoadGenerator(final Context context,
+                                    final int accountCount,
+                                    final int threadCount,
+                                    final int acquisitionsPerThread,
+                                    final boolean forceRefresh) {
+        mContext = context;
+        mAccountCount = accountCount;
+        mThreadCount = threadCount;
+        mAcquisitionsPerThread = acquisitionsPerThread;
+        mForceRefresh = forceRefresh;
+
+        mAccountCredentialCache = new SharedPreferencesAccountCredentialCache(
+                new CacheKeyValueDelegate(),
+                new InMemorySharedPreferencesFileManager("load-generator")
+        );
+        mTokenCache = new MsalOAuth2TokenCache<>(
+                context,
+                mAccountCredentialCache,
+                new MicrosoftStsAccountCredentialAdapter()
+        );
+
+        for (int i = 0; i < accountCount; i++) {
+            seedAccount("uid-" + i);
+        }
+    }
+
+    /**
+     * Runs the acquisitions, and blocks until all of them are done.
+     *
+     * @param sts The server the acquisitions are made against. Its counters are reset first.
+     * @return The report of the run.
+     * @throws InterruptedException If interrupted while waiting for the threads.
+     */
+    public Report run(final FakeSts sts) throws InterruptedException {
+        sts.resetCounts();
+
+        final long[][] latencies = new long[mThreadCount][mAcquisitionsPerThread];
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicInteger cacheHits = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(mThreadCount);
+        final SilentController controller = new SilentController();
+
+        for (int t = 0; t < mThreadCount; t++) {
+            final int threadIndex = t;
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < mAcquisitionsPerThread; i++) {
+                            final AccountRecord account = mAccounts.get((threadIndex + i * mThreadCount) % mAccountCount);
+                            final long begin = System.nanoTime();
+                            try {
+                                final AcquireTokenResult result = controller.acquireTokenSilent(newParameters(account));
+                                if (!result.getSucceeded()) {
+                                    failures.incrementAndGet();
+                                } else if (null == result.getTokenResult()) {
+                                    cacheHits.incrementAndGet();
+                                }
+                            } catch (final Exception e) {
+                                failures.incrementAndGet();
+                            }
+                            latencies[threadIndex][i] = System.nanoTime() - begin;
+                        }
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "SilentTokenLoadGenerator-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        final long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        final long elapsed = System.nanoTime() - begin;
+
+        final long[] all = new long[mThreadCount * mAcquisitionsPerThread];
+        for (int t = 0; t < mThreadCount; t++) {
+            System.arraycopy(latencies[t], 0, all, t * mAcquisitionsPerThread, mAcquisitionsPerThread);
+        }
+        Arrays.sort(all);
+
+        return new Report(
+                all,
+                elapsed,
+                failures.get(),
+                cacheHits.get(),
+                sts.getTokenRequestCount(),
+                sts.getServerErrorCount()
+        );
+    }
+
+    private void seedAccount(final String uid) {
+        final String homeAccountId = uid + "." + TENANT_ID;
+
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId(homeAccountId);
+        account.setEnvironment(FakeSts.CACHE_HOST);
+        account.setRealm(TENANT_ID);
+        account.setLocalAccountId(uid);
+        account.setUsername(uid + "@contoso.com");
+        account.setAuthorityType(MicrosoftAccount.AUTHORITY_TYPE_V1_V2);
+
+        final RefreshTokenRecord refreshToken = new RefreshTokenRecord();
+        refreshToken.setHomeAccountId(homeAccountId);
+        refreshToken.setEnvironment(FakeSts.CACHE_HOST);
+        refreshToken.setCredentialType(CredentialType.RefreshToken.name());
+        refreshToken.setClientId(CLIENT_ID);
+        refreshToken.setTarget(TextUtils.join(" ", SCOPES));
+        refreshToken.setSecret(FakeSts.newRefreshToken(uid, TENANT_ID));
+
+        mAccountCredentialCache.saveAccount(account);
+        mAccountCredentialCache.saveCredential(refreshToken);
+        mAccounts.add(account);
+    }
+
+    private AcquireTokenSilentOperationParameters newParameters(final AccountRecord account) {
+        final AcquireTokenSilentOperationParameters parameters = new AcquireTokenSilentOperationParameters();
+        parameters.setAppContext(mContext);
+        parameters.setClientId(CLIENT_ID);
+        parameters.setRedirectUri(REDIRECT_URI);
+        parameters.setScopes(new HashSet<>(SCOPES));
+        parameters.setTokenCache(mTokenCache);
+        parameters.setAccount(account);
+        parameters.setForceRefresh(mForceRefresh);
+        parameters.setAuthority(new AzureActiveDirectoryAuthority(
+                new AccountsInOneOrganization("https://" + FakeSts.NETWORK_HOST, TENANT_ID)
+        ));
+        return parameters;
+    }
+
+    /**
+     * The silent flow of a controller: the cache first, then a refresh.
+     */
+    private static final class SilentController extends BaseController {
+
+        @Override
+        public AcquireTokenResult acquireToken(final AcquireTokenOperationParameters request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void completeAcquireToken(final int requestCode, final int resultCode, final Intent data) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public AcquireTokenResult acquireTokenSilent(final AcquireTokenSilentOperationParameters parameters)
+                throws IOException, ClientException, UiRequiredException {
+            final AcquireTokenResult result = new AcquireTokenResult();
+            final OAuth2TokenCache tokenCache = parameters.getTokenCache();
+            final ICacheRecord cacheRecord = tokenCache.load(
+                    parameters.getClientId(),
+                    TextUtils.join(" ", parameters.getScopes()),
+                    (AccountRecord) parameters.getAccount()
+            );
+
+            final AccessTokenRecord accessToken = cacheRecord.getAccessToken();
+            if (!parameters.getForceRefresh() && null != accessToken && !accessToken.isExpired()) {
+                result.setLocalAuthenticationResult(new LocalAuthenticationResult(cacheRecord));
+            } else if (refreshTokenIsNull(cacheRecord)) {
+                throw new UiRequiredException(UiRequiredException.NO_TOKENS_FOUND, null, "No refresh token was found.");
+            } else {
+                renewAccessToken(
+                        parameters,
+                        result,
+                        tokenCache,
+                        parameters.getAuthority().createOAuth2Strategy(),
+                        cacheRecord
+                );
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * The outcome of a run.
+     */
+    public static final class Report {
+
+        private final long[] mSortedLatencies;
+        private final long mElapsedNanos;
+        private final int mFailures;
+        private final int mCacheHits;
+        private final int mTokenRequests;
+        private final int mServerErrors;
+
+        Report(final long[] sortedLatencies,
+               final long elapsedNanos,
+               final int failures,
+               final int cacheHits,
+               final int tokenRequests,
+               final int serverErrors) {
+            mSortedLatencies = sortedLatencies;
+            mElapsedNanos = elapsedNanos;
+            mFailures = failures;
+            mCacheHits = cacheHits;
+            mTokenRequests = tokenRequests;
+            mServerErrors = serverErrors;
+        }
+
+        public int getAcquisitions() {
+            return mSortedLatencies.length;
+        }
+
+        public int getFailures() {
+            return mFailures;
+        }
+
+        /**
+         * Returns the number of acquisitions served from the cache, without a token request.
+         */
+        public int getCacheHits() {
+            return mCacheHits;
+        }
+
+        /**
+         * Returns the number of requests the token endpoint received, retries included.
+         */
+        public int getTokenRequests() {
+            return mTokenRequests;
+        }
+
+        public int getServerErrors() {
+            return mServerErrors;
+        }
+
+        /**
+         * Returns the latency at the supplied percentile, by nearest rank.
+         *
+         * @param percentile The percentile, from 0 to 100.
+         * @return The latency, in milliseconds.
+         */
+        public double getLatencyMillis(final double percentile) {
+            if (mSortedLatencies.length == 0) {
+                return 0;
+            }
+
+            final int rank = (int) Math.ceil(percentile / 100 * mSortedLatencies.length);
+            final int index = Math.min(mSortedLatencies.length - 1, Math.max(0, rank - 1));
+            return mSortedLatencies[index] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        /**
+         * Returns the number of acquisitions completed per second.
+         */
+        public double getThroughput() {
+            return mElapsedNanos == 0 ? 0 : mSortedLatencies.length / (mElapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    Locale.US,
+                    "acquisitions=%d failures=%d cacheHits=%d tokenRequests=%d serverErrors=%d "
+                            + "p50=%.2fms p99=%.2fms max=%.2fms throughput=%.1f/s",
+                    getAcquisitions(),
+                    mFailures,
+                    mCacheHits,
+                    mTokenRequests,
+                    mServerErrors,
+                    getLatencyMillis(50),
+                    getLatencyMillis(99),
+                    getLatencyMillis(100),
+                    getThroughput()
+            );
+        }
+    }
+}
@@ -0,0 +1,108 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+public class SilentTokenLoadTest {
+
+    private FakeSts mSts;
+
+    @Before
+    public void setUp() throws Exception {
+        mSts = FakeSts.start(8);
+        mSts.redirectCloudHosts();
+    }
+
+    @After
+    public void tearDown() {
+        mSts.close();
+    }
+
+    @Test
+    public void cachedAccessTokensAreReused() throws Exception {
+        final SilentTokenLoadGenerator.Report report = new SilentTokenLoadGenerator(
+                RuntimeEnvironment.application, 4, 4, 25, false
+        ).run(mSts);
+
+        assertEquals(100, report.getAcquisitions());
+        assertEquals(0, report.getFailures());
+        assertTrue(report.getCacheHits() > 0);
+        assertEquals(report.getAcquisitions() - report.getCacheHits(), report.getTokenRequests());
+    }
+
+    @Test
+    public void forcedRefreshesReachTheServer() throws Exception {
+        mSts.setLatency(5, 10, TimeUnit.MILLISECONDS);
+
+        final SilentTokenLoadGenerator.Report report = new SilentTokenLoadGenerator(
+                RuntimeEnvironment.application, 8, 4, 10, true
+        ).run(mSts);
+
+        assertEquals(0, report.getFailures());
+        assertEquals(0, report.getCacheHits());
+        assertEquals(40, report.getTokenRequests());
+        assertTrue(report.getLatencyMillis(50) >= 5);
+        assertTrue(report.getLatencyMillis(99) >= report.getLatencyMillis(50));
+        assertTrue(report.getThroughput() > 0);
+    }
+
+    @Test
+    public void serverErrorIsRetried() throws Exception {
+        mSts.failNextTokenRequests(1, HttpURLConnection.HTTP_UNAVAILABLE);
+
+        final SilentTokenLoadGenerator.Report report = new SilentTokenLoadGenerator(
+                RuntimeEnvironment.application, 1, 1, 1, true
+        ).run(mSts);
+
+        assertEquals(0, report.getFailures());
+        assertEquals(1, report.getServerErrors());
+        assertEquals(2, report.getTokenRequests());
+    }
+
+    @Test
+    public void revokedRefreshTokensFail() throws Exception {
+        mSts.revokeRefreshTokens("uid-0");
+
+        final SilentTokenLoadGenerator.Report report = new SilentTokenLoadGenerator(
+                RuntimeEnvironment.application, 1, 2, 5, false
+        ).run(mSts);
+
+        assertEquals(10, report.getFailures());
+        assertEquals(0, report.getCacheHits());
+    }
+}
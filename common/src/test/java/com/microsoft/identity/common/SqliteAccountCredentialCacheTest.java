@@ -0,0 +1,404 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import android.content.Context;
+
+import com.microsoft.identity.common.adal.internal.cache.IStorageHelper;
+import com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesAccountCredentialCache;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.cache.SqliteAccountCredentialCache;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.Credential;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+import com.microsoft.identity.common.internal.dto.IdTokenRecord;
+import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.security.GeneralSecurityException;
+import java.util.List;
+import java.util.Locale;
+
+import javax.crypto.SecretKey;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+public class SqliteAccountCredentialCacheTest {
+
+    private static final String HOME_ACCOUNT_ID = "29f3807a-4fb0-42f2-a44a-236aa0cb3f97.0287f963-2d72-4363-9e3a-5705c5b0f031";
+    private static final String ENVIRONMENT = "login.microsoftonline.com";
+    private static final String CLIENT_ID = "0287f963-2d72-4363-9e3a-5705c5b0f031";
+    private static final String CLIENT_ID2 = "b1d7f8a5-3f4c-4b7a-9b3c-0d9e6a2f1c44";
+    private static final String TARGET = "user.read user.write https://graph.windows.net";
+    private static final String REALM = "3c62ac97-29eb-4aed-a3c8-add0298508d";
+    private static final String REALM2 = "20d3e9fa-982a-40bc-bea4-26bbe3fd332e";
+    private static final String SECRET = "3642fe2f-2c46-4824-9f27-e44b0e3e1278";
+    private static final String SHARED_PREFERENCES_FILE = "sqlite_migration_test_cache";
+
+    private Context mContext;
+    private CacheKeyValueDelegate mDelegate;
+    private SqliteAccountCredentialCache mCache;
+
+    /**
+     * Reversible stand-in for StorageHelper, as AndroidKeyStore is unavailable off-device.
+     */
+    private static final class ReversingStorageHelper implements IStorageHelper {
+
+        private static final String PREFIX = "rev:";
+
+        @Override
+        public String encrypt(final String clearText) {
+            return PREFIX + new StringBuilder(clearText).reverse();
+        }
+
+        @Override
+        public String decrypt(final String encryptedBlob) throws GeneralSecurityException {
+            if (!encryptedBlob.startsWith(PREFIX)) {
+                throw new GeneralSecurityException("Not encrypted by this helper.");
+            }
+
+            return new StringBuilder(encryptedBlob.substring(PREFIX.length())).reverse().toString();
+        }
+
+        @Override
+        public SecretKey loadSecretKeyForEncryption() {
+            return null;
+        }
+
+        @Override
+        public SecretKey loadSecretKeyForEncryption(final String defaultBlobVersion) {
+            return null;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mDelegate = new CacheKeyValueDelegate();
+        mCache = new SqliteAccountCredentialCache(
+                mContext,
+                SqliteAccountCredentialCache.DEFAULT_ACCOUNT_CREDENTIAL_DATABASE,
+                mDelegate,
+                new ReversingStorageHelper()
+        );
+    }
+
+    @After
+    public void tearDown() {
+        mCache.clearAll();
+        mCache.close();
+    }
+
+    @Test
+    public void saveAccount() {
+        final AccountRecord account = newAccount(REALM);
+        mCache.saveAccount(account);
+
+        assertEquals(account, mCache.getAccount(mDelegate.generateCacheKey(account)));
+        assertEquals(1, mCache.getAccounts().size());
+    }
+
+    @Test
+    public void saveAccountReplacesExisting() {
+        final AccountRecord account = newAccount(REALM);
+        mCache.saveAccount(account);
+        account.setUsername("renamed@contoso.com");
+        mCache.saveAccount(account);
+
+        final List<AccountRecord> accounts = mCache.getAccounts();
+        assertEquals(1, accounts.size());
+        assertEquals("renamed@contoso.com", accounts.get(0).getUsername());
+    }
+
+    @Test
+    public void getAccountsFilteredBy() {
+        mCache.saveAccount(newAccount(REALM));
+        mCache.saveAccount(newAccount(REALM2));
+
+        assertEquals(2, mCache.getAccountsFilteredBy(HOME_ACCOUNT_ID, ENVIRONMENT, null).size());
+        assertEquals(1, mCache.getAccountsFilteredBy(HOME_ACCOUNT_ID, ENVIRONMENT, REALM2).size());
+        assertEquals(
+                1,
+                mCache.getAccountsFilteredBy(
+                        HOME_ACCOUNT_ID.toUpperCase(Locale.US),
+                        ENVIRONMENT.toUpperCase(Locale.US),
+                        REALM
+                ).size()
+        );
+        assertEquals(0, mCache.getAccountsFilteredBy("not-an-account", null, null).size());
+    }
+
+    @Test
+    public void saveCredentials() {
+        final AccessTokenRecord accessToken = newAccessToken(CLIENT_ID, REALM, TARGET);
+        final RefreshTokenRecord refreshToken = newRefreshToken(CLIENT_ID);
+        final IdTokenRecord idToken = newIdToken(CLIENT_ID, REALM);
+        mCache.saveCredential(accessToken);
+        mCache.saveCredential(refreshToken);
+        mCache.saveCredential(idToken);
+
+        assertEquals(accessToken, mCache.getCredential(mDelegate.generateCacheKey(accessToken)));
+        assertEquals(refreshToken, mCache.getCredential(mDelegate.generateCacheKey(refreshToken)));
+        assertEquals(idToken, mCache.getCredential(mDelegate.generateCacheKey(idToken)));
+        assertEquals(3, mCache.getCredentials().size());
+    }
+
+    @Test
+    public void getCredentialsFilteredByClientIdAndType() {
+        mCache.saveCredential(newAccessToken(CLIENT_ID, REALM, TARGET));
+        mCache.saveCredential(newAccessToken(CLIENT_ID2, REALM, TARGET));
+        mCache.saveCredential(newRefreshToken(CLIENT_ID));
+
+        assertEquals(2, mCache.getCredentialsFilteredBy(
+                HOME_ACCOUNT_ID,
+                ENVIRONMENT,
+                null,
+                CLIENT_ID,
+                null,
+                null
+        ).size());
+        assertEquals(1, mCache.getCredentialsFilteredBy(
+                HOME_ACCOUNT_ID,
+                ENVIRONMENT,
+                CredentialType.AccessToken,
+                CLIENT_ID2.toUpperCase(Locale.US),
+                null,
+                null
+        ).size());
+        assertEquals(2, mCache.getCredentialsFilteredBy(
+                null,
+                null,
+                CredentialType.AccessToken,
+                null,
+                null,
+                null
+        ).size());
+    }
+
+    @Test
+    public void getCredentialsFilteredByRealmOnlyConstrainsAccessTokens() {
+        mCache.saveCredential(newAccessToken(CLIENT_ID, REALM, TARGET));
+        mCache.saveCredential(newAccessToken(CLIENT_ID, REALM2, TARGET));
+        mCache.saveCredential(newRefreshToken(CLIENT_ID));
+
+        final List<Credential> credentials = mCache.getCredentialsFilteredBy(
+                HOME_ACCOUNT_ID,
+                ENVIRONMENT,
+                null,
+                CLIENT_ID,
+                REALM2,
+                null
+        );
+
+        assertEquals(2, credentials.size());
+
+        for (final Credential credential : credentials) {
+            if (credential instanceof AccessTokenRecord) {
+                assertEquals(REALM2, ((AccessTokenRecord) credential).getRealm());
+            }
+        }
+    }
+
+    @Test
+    public void getCredentialsFilteredByTarget() {
+        mCache.saveCredential(newAccessToken(CLIENT_ID, REALM, TARGET));
+        mCache.saveCredential(newAccessToken(CLIENT_ID, REALM2, "mail.read"));
+
+        assertEquals(1, mCache.getCredentialsFilteredBy(
+                HOME_ACCOUNT_ID,
+                ENVIRONMENT,
+                CredentialType.AccessToken,
+                CLIENT_ID,
+                null,
+                "USER.READ"
+        ).size());
+        assertEquals(0, mCache.getCredentialsFilteredBy(
+                HOME_ACCOUNT_ID,
+                ENVIRONMENT,
+                CredentialType.AccessToken,
+                CLIENT_ID,
+                REALM,
+                "mail.read"
+        ).size());
+    }
+
+    @Test
+    public void removeCredential() {
+        final AccessTokenRecord accessToken = newAccessToken(CLIENT_ID, REALM, TARGET);
+        mCache.saveCredential(accessToken);
+
+        final AccessTokenRecord differentSecret = newAccessToken(CLIENT_ID, REALM, TARGET);
+        differentSecret.setSecret("other-secret");
+        assertFalse(mCache.removeCredential(differentSecret));
+
+        assertTrue(mCache.removeCredential(accessToken));
+        assertNull(mCache.getCredential(mDelegate.generateCacheKey(accessToken)));
+        assertFalse(mCache.removeCredential(accessToken));
+    }
+
+    @Test
+    public void removeAccount() {
+        final AccountRecord account = newAccount(REALM);
+        mCache.saveAccount(account);
+
+        assertTrue(mCache.removeAccount(account));
+        assertTrue(mCache.getAccounts().isEmpty());
+    }
+
+    @Test
+    public void undecryptableRowsAreSkipped() {
+        final AccessTokenRecord accessToken = newAccessToken(CLIENT_ID, REALM, TARGET);
+        final SqliteAccountCredentialCache unencryptedCache = new SqliteAccountCredentialCache(
+                mContext,
+                SqliteAccountCredentialCache.DEFAULT_ACCOUNT_CREDENTIAL_DATABASE,
+                mDelegate,
+                null
+        );
+        unencryptedCache.saveCredential(accessToken);
+        unencryptedCache.close();
+
+        assertTrue(mCache.getCredentials().isEmpty());
+    }
+
+    @Test
+    public void migrateFromSharedPreferences() {
+        final SharedPreferencesAccountCredentialCache source = new SharedPreferencesAccountCredentialCache(
+                mDelegate,
+                new SharedPreferencesFileManager(mContext, SHARED_PREFERENCES_FILE)
+        );
+        final AccountRecord account = newAccount(REALM);
+        final AccessTokenRecord accessToken = newAccessToken(CLIENT_ID, REALM, TARGET);
+        final RefreshTokenRecord refreshToken = newRefreshToken(CLIENT_ID);
+        source.saveAccount(account);
+        source.saveCredential(accessToken);
+        source.saveCredential(refreshToken);
+
+        assertEquals(3, mCache.migrateFrom(source));
+        assertTrue(source.getAccounts().isEmpty());
+        assertTrue(source.getCredentials().isEmpty());
+        assertEquals(account, mCache.getAccount(mDelegate.generateCacheKey(account)));
+        assertEquals(accessToken, mCache.getCredential(mDelegate.generateCacheKey(accessToken)));
+        assertEquals(refreshToken, mCache.getCredential(mDelegate.generateCacheKey(refreshToken)));
+
+        // The migration is one-time; subsequent calls find nothing to move
+        assertEquals(0, mCache.migrateFrom(source));
+        assertEquals(2, mCache.getCredentials().size());
+    }
+
+    @Test
+    public void migrationKeepsRecordsWrittenToTheSourceMeanwhile() {
+        final RefreshTokenRecord lateRefreshToken = newRefreshToken(CLIENT_ID2);
+        final SharedPreferencesAccountCredentialCache source = new SharedPreferencesAccountCredentialCache(
+                mDelegate,
+                new SharedPreferencesFileManager(mContext, SHARED_PREFERENCES_FILE)
+        ) {
+            private boolean mWritten;
+
+            @Override
+            public List<Credential> getCredentials() {
+                final List<Credential> credentials = super.getCredentials();
+
+                // Another writer saves a token once the migration has read the source
+                if (!mWritten) {
+                    mWritten = true;
+                    saveCredential(lateRefreshToken);
+                }
+
+                return credentials;
+            }
+        };
+        source.saveAccount(newAccount(REALM));
+        source.saveCredential(newRefreshToken(CLIENT_ID));
+
+        assertEquals(2, mCache.migrateFrom(source));
+        assertEquals(1, source.getCredentials().size());
+        assertEquals(lateRefreshToken, source.getCredential(mDelegate.generateCacheKey(lateRefreshToken)));
+
+        // The next call moves it
+        assertEquals(1, mCache.migrateFrom(source));
+        assertTrue(source.getCredentials().isEmpty());
+    }
+
+    private static AccountRecord newAccount(final String realm) {
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId(HOME_ACCOUNT_ID);
+        account.setEnvironment(ENVIRONMENT);
+        account.setRealm(realm);
+        account.setLocalAccountId("00000000-0000-0000-088f-0e042cc22ac0");
+        account.setUsername("user.foo@tenant.onmicrosoft.com");
+        account.setAuthorityType("MSSTS");
+        return account;
+    }
+
+    private static AccessTokenRecord newAccessToken(final String clientId,
+                                                    final String realm,
+                                                    final String target) {
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setHomeAccountId(HOME_ACCOUNT_ID);
+        accessToken.setEnvironment(ENVIRONMENT);
+        accessToken.setCredentialType(CredentialType.AccessToken.name());
+        accessToken.setClientId(clientId);
+        accessToken.setRealm(realm);
+        accessToken.setTarget(target);
+        accessToken.setCachedAt("0");
+        accessToken.setExpiresOn("0");
+        accessToken.setSecret(SECRET);
+        return accessToken;
+    }
+
+    private static RefreshTokenRecord newRefreshToken(final String clientId) {
+        final RefreshTokenRecord refreshToken = new RefreshTokenRecord();
+        refreshToken.setHomeAccountId(HOME_ACCOUNT_ID);
+        refreshToken.setEnvironment(ENVIRONMENT);
+        refreshToken.setCredentialType(CredentialType.RefreshToken.name());
+        refreshToken.setClientId(clientId);
+        refreshToken.setTarget(TARGET);
+        refreshToken.setSecret(SECRET);
+        return refreshToken;
+    }
+
+    private static IdTokenRecord newIdToken(final String clientId, final String realm) {
+        final IdTokenRecord idToken = new IdTokenRecord();
+        idToken.setHomeAccountId(HOME_ACCOUNT_ID);
+        idToken.setEnvironment(ENVIRONMENT);
+        idToken.setCredentialType(CredentialType.IdToken.name());
+        idToken.setClientId(clientId);
+        idToken.setRealm(realm);
+        idToken.setSecret(SECRET);
+        return idToken;
+    }
+}
@@ -0,0 +1,150 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import android.content.Context;
+
+import com.microsoft.identity.common.adal.internal.AuthenticationSettings;
+import com.microsoft.identity.common.adal.internal.cache.StorageHelper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.security.DigestException;
+import java.security.GeneralSecurityException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Compares the E1 (AES/CBC + HmacSHA256) and E2 (AES/GCM) encodings of {@link StorageHelper}.
+ * Uses a user defined key, as AndroidKeyStore is unavailable off-device.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+public class StorageHelperEncodingTest {
+
+    /**
+     * Serialized refresh token records are typically between 1 and 3 KB.
+     */
+    private static final int[] PAYLOAD_SIZES = {256, 1024, 2048, 4096};
+
+    private StorageHelper mCbcHmacHelper;
+    private StorageHelper mGcmHelper;
+
+    @Before
+    public void setUp() {
+        final byte[] secretKey = new byte[32];
+        new Random(42).nextBytes(secretKey);
+        AuthenticationSettings.INSTANCE.setSecretKey(secretKey);
+
+        final Context context = RuntimeEnvironment.application;
+        mCbcHmacHelper = new StorageHelper(context, StorageHelper.ENCODE_VERSION_CBC_HMAC);
+        mGcmHelper = new StorageHelper(context, StorageHelper.ENCODE_VERSION_GCM);
+    }
+
+    @After
+    public void tearDown() {
+        AuthenticationSettings.INSTANCE.clearSecretKeysForTestCases();
+    }
+
+    @Test
+    public void defaultEncodeVersionIsCbcHmac() throws GeneralSecurityException, IOException {
+        final StorageHelper defaultHelper = new StorageHelper(RuntimeEnvironment.application);
+
+        assertEquals(StorageHelper.ENCODE_VERSION_CBC_HMAC, defaultHelper.getEncodeVersion());
+        assertTrue(defaultHelper.encrypt("value").startsWith("cE1"));
+    }
+
+    @Test
+    public void gcmIsUsedWhenRequested() throws GeneralSecurityException, IOException {
+        assertEquals(StorageHelper.ENCODE_VERSION_GCM, mGcmHelper.getEncodeVersion());
+        assertTrue(mGcmHelper.encrypt("value").startsWith("cE2"));
+    }
+
+    @Test
+    public void bothEncodingsAreReadableByEitherInstance() throws GeneralSecurityException, IOException {
+        final String clearText = payload(1024);
+        final String cbcHmacBlob = mCbcHmacHelper.encrypt(clearText);
+        final String gcmBlob = mGcmHelper.encrypt(clearText);
+
+        assertEquals(clearText, mGcmHelper.decrypt(cbcHmacBlob));
+        assertEquals(clearText, mCbcHmacHelper.decrypt(gcmBlob));
+        assertTrue(mGcmHelper.isLegacyEncoding(cbcHmacBlob));
+        assertFalse(mGcmHelper.isLegacyEncoding(gcmBlob));
+    }
+
+    @Test
+    public void gcmBlobIsSmaller() throws GeneralSecurityException, IOException {
+        for (final int size : PAYLOAD_SIZES) {
+            final String clearText = payload(size);
+            final String cbcHmacBlob = mCbcHmacHelper.encrypt(clearText);
+            final String gcmBlob = mGcmHelper.encrypt(clearText);
+            assertTrue(gcmBlob.length() < cbcHmacBlob.length());
+
+            // E1 adds CBC padding (1 to 16 bytes), a 16 byte IV and a 32 byte HMAC; E2 adds a
+            // 12 byte IV and a 16 byte tag
+            final int overhead = decodedLength(cbcHmacBlob) - decodedLength(gcmBlob);
+            assertTrue(String.valueOf(overhead), overhead >= 21 && overhead <= 36);
+        }
+    }
+
+    @Test
+    public void tamperedGcmBlobFailsDigest() throws GeneralSecurityException, IOException {
+        final String blob = mGcmHelper.encrypt(payload(256));
+        final byte[] bytes = android.util.Base64.decode(blob.substring(3), android.util.Base64.DEFAULT);
+        bytes[bytes.length - 1]++;
+
+        try {
+            mGcmHelper.decrypt(blob.substring(0, 3)
+                    + android.util.Base64.encodeToString(bytes, android.util.Base64.NO_WRAP));
+            fail("Expected DigestException");
+        } catch (final DigestException e) {
+            // Expected
+        }
+    }
+
+    private static int decodedLength(final String blob) {
+        return android.util.Base64.decode(blob.substring(3), android.util.Base64.DEFAULT).length;
+    }
+
+    private static String payload(final int size) {
+        final StringBuilder builder = new StringBuilder(size);
+        final Random random = new Random(size);
+
+        while (builder.length() < size) {
+            builder.append((char) ('A' + random.nextInt(26)));
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,197 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Base64;
+
+import com.microsoft.identity.common.adal.internal.AuthenticationSettings;
+import com.microsoft.identity.common.adal.internal.cache.StorageHelper;
+import com.microsoft.identity.common.internal.cache.KeyRotationStats;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.cache.StorageKeyRotationJob;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+public class StorageKeyRotationJobTest {
+
+    private static final String SHARED_PREFERENCES_FILE = "key_rotation_test_cache";
+    private static final String CHECKPOINT_FILE = SHARED_PREFERENCES_FILE + ".key_rotation";
+    private static final int ENTRY_COUNT = 12;
+
+    private Context mContext;
+    private StorageHelper mLegacyStorageHelper;
+    private StorageHelper mStorageHelper;
+
+    @Before
+    public void setUp() {
+        final byte[] secretKey = new byte[32];
+        new Random(7).nextBytes(secretKey);
+        AuthenticationSettings.INSTANCE.setSecretKey(secretKey);
+
+        mContext = RuntimeEnvironment.application;
+        mLegacyStorageHelper = new StorageHelper(mContext, StorageHelper.ENCODE_VERSION_CBC_HMAC);
+        mStorageHelper = new StorageHelper(mContext, StorageHelper.ENCODE_VERSION_GCM);
+    }
+
+    @After
+    public void tearDown() {
+        prefs(SHARED_PREFERENCES_FILE).edit().clear().commit();
+        prefs(CHECKPOINT_FILE).edit().clear().commit();
+        AuthenticationSettings.INSTANCE.clearSecretKeysForTestCases();
+    }
+
+    @Test
+    public void reEncryptsLegacyEntriesInBatches() {
+        populate(mLegacyStorageHelper);
+
+        final KeyRotationStats stats = newJob(5).run();
+
+        assertEquals(ENTRY_COUNT, stats.getReEncrypted());
+        assertEquals(0, stats.getUndecryptableRemoved());
+        assertEquals(3, stats.getBatchesCommitted());
+        assertFalse(stats.isResumed());
+        assertAllCurrentAndReadable();
+        assertTrue(prefs(CHECKPOINT_FILE).getAll().isEmpty());
+    }
+
+    @Test
+    public void skipsEntriesAlreadyCurrent() {
+        populate(mStorageHelper);
+
+        final KeyRotationStats stats = newJob(StorageKeyRotationJob.DEFAULT_BATCH_SIZE).run();
+
+        assertEquals(0, stats.getReEncrypted());
+        assertEquals(ENTRY_COUNT, stats.getAlreadyCurrent());
+        assertEquals(0, stats.getBatchesCommitted());
+    }
+
+    @Test
+    public void removesEntriesFailingAuthentication() throws Exception {
+        populate(mLegacyStorageHelper);
+        final String blob = mLegacyStorageHelper.encrypt("tampered");
+        final byte[] bytes = Base64.decode(blob.substring(3), Base64.DEFAULT);
+        bytes[bytes.length - 1] ^= 1;
+        prefs(SHARED_PREFERENCES_FILE).edit()
+                .putString("tampered", blob.substring(0, 3) + Base64.encodeToString(bytes, Base64.NO_WRAP))
+                .commit();
+
+        final KeyRotationStats stats = newJob(StorageKeyRotationJob.DEFAULT_BATCH_SIZE).run();
+
+        assertEquals(ENTRY_COUNT, stats.getReEncrypted());
+        assertEquals(1, stats.getUndecryptableRemoved());
+        assertNull(prefs(SHARED_PREFERENCES_FILE).getString("tampered", null));
+    }
+
+    @Test
+    public void skipsEntriesFailingForOtherReasons() {
+        populate(mLegacyStorageHelper);
+        // Names an unknown key version: not proof that the entry can never be read
+        final String unreadable = "cE1bm90IGEgdmFsaWQgYmxvYg==";
+        prefs(SHARED_PREFERENCES_FILE).edit().putString("unreadable", unreadable).commit();
+
+        final KeyRotationStats stats = newJob(StorageKeyRotationJob.DEFAULT_BATCH_SIZE).run();
+
+        assertEquals(ENTRY_COUNT, stats.getReEncrypted());
+        assertEquals(0, stats.getUndecryptableRemoved());
+        assertEquals(unreadable, prefs(SHARED_PREFERENCES_FILE).getString("unreadable", null));
+    }
+
+    @Test
+    public void resumesFromCheckpoint() {
+        populate(mLegacyStorageHelper);
+        prefs(CHECKPOINT_FILE).edit().putString("last_key", key(3)).commit();
+
+        final KeyRotationStats stats = newJob(StorageKeyRotationJob.DEFAULT_BATCH_SIZE).run();
+
+        assertTrue(stats.isResumed());
+        assertEquals(ENTRY_COUNT - 4, stats.getReEncrypted());
+        assertTrue(mStorageHelper.needsReEncryption(prefs(SHARED_PREFERENCES_FILE).getString(key(0), null)));
+        assertFalse(mStorageHelper.needsReEncryption(prefs(SHARED_PREFERENCES_FILE).getString(key(4), null)));
+    }
+
+    @Test
+    public void startRunsInBackground() throws Exception {
+        populate(mLegacyStorageHelper);
+
+        final KeyRotationStats stats = newJob(StorageKeyRotationJob.DEFAULT_BATCH_SIZE)
+                .start()
+                .get(30, TimeUnit.SECONDS);
+
+        assertEquals(ENTRY_COUNT, stats.getReEncrypted());
+        assertAllCurrentAndReadable();
+    }
+
+    private StorageKeyRotationJob newJob(final int batchSize) {
+        return new StorageKeyRotationJob(mContext, SHARED_PREFERENCES_FILE, mStorageHelper, batchSize, false);
+    }
+
+    private void populate(final StorageHelper storageHelper) {
+        final SharedPreferencesFileManager fileManager =
+                new SharedPreferencesFileManager(mContext, SHARED_PREFERENCES_FILE, storageHelper);
+
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            fileManager.putString(key(i), value(i));
+        }
+    }
+
+    private void assertAllCurrentAndReadable() {
+        final SharedPreferencesFileManager fileManager =
+                new SharedPreferencesFileManager(mContext, SHARED_PREFERENCES_FILE, mStorageHelper);
+
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            assertFalse(mStorageHelper.needsReEncryption(prefs(SHARED_PREFERENCES_FILE).getString(key(i), null)));
+            assertEquals(value(i), fileManager.getString(key(i)));
+        }
+    }
+
+    private SharedPreferences prefs(final String name) {
+        return mContext.getSharedPreferences(name, Context.MODE_PRIVATE);
+    }
+
+    private static String key(final int index) {
+        return String.format(Locale.US, "key-%02d", index);
+    }
+
+    private static String value(final int index) {
+        return "refresh-token-" + index;
+    }
+}
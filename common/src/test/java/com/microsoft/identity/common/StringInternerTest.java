@@ -0,0 +1,177 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate;
+import com.microsoft.identity.common.internal.cache.CacheValueFormat;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+import com.microsoft.identity.common.internal.util.StringInterner;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests canonicalization of repeated record field values.
+ */
+public class StringInternerTest {
+
+    private static final String ENVIRONMENT = "login.microsoftonline.com";
+    private static final String CLIENT_ID = "0287f963-2d72-4363-9e3a-5705c5b0f031";
+    private static final String REALM = "3c62ac97-29eb-4aed-a3c8-add0298508d";
+    private static final int RECORD_COUNT = 2000;
+    private static final int HOME_ACCOUNT_COUNT = 16;
+
+    @Test
+    public void returnsCanonicalInstance() {
+        final StringInterner interner = new StringInterner(8);
+        final String first = new String(ENVIRONMENT);
+        final String second = new String(ENVIRONMENT);
+
+        assertSame(first, interner.intern(first));
+        assertSame(first, interner.intern(second));
+        assertNull(interner.intern(null));
+    }
+
+    @Test
+    public void stopsPoolingWhenFull() {
+        final StringInterner interner = new StringInterner(1);
+        final String pooled = interner.intern(new String(ENVIRONMENT));
+        final String first = new String(REALM);
+
+        assertSame(first, interner.intern(first));
+        assertNotSame(first, interner.intern(new String(REALM)));
+        assertSame(pooled, interner.intern(new String(ENVIRONMENT)));
+        assertEquals(1, interner.size());
+    }
+
+    @Test
+    public void deserializedRecordsShareFieldValues() {
+        for (final CacheValueFormat format : CacheValueFormat.values()) {
+            final CacheKeyValueDelegate delegate = new CacheKeyValueDelegate(format);
+            final String cacheValue = delegate.generateCacheValue(newAccessToken(0));
+
+            final AccessTokenRecord first = delegate.fromCacheValue(cacheValue, AccessTokenRecord.class);
+            final AccessTokenRecord second = delegate.fromCacheValue(cacheValue, AccessTokenRecord.class);
+
+            assertSame(first.getEnvironment(), second.getEnvironment());
+            assertSame(first.getClientId(), second.getClientId());
+            assertSame(first.getRealm(), second.getRealm());
+            assertSame(first.getCredentialType(), second.getCredentialType());
+            assertNotSame(first.getSecret(), second.getSecret());
+        }
+    }
+
+    @Test
+    public void recordsRetainOneInstancePerDistinctValue() {
+        final CacheKeyValueDelegate delegate = new CacheKeyValueDelegate();
+        final Set<String> homeAccountIds = newIdentitySet();
+        final Set<String> environments = newIdentitySet();
+        final Set<String> clientIds = newIdentitySet();
+        final Set<String> secrets = newIdentitySet();
+
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            final AccessTokenRecord record = delegate.fromCacheValue(
+                    delegate.generateCacheValue(newAccessToken(i)),
+                    AccessTokenRecord.class
+            );
+            homeAccountIds.add(record.getHomeAccountId());
+            environments.add(record.getEnvironment());
+            clientIds.add(record.getClientId());
+            secrets.add(record.getSecret());
+        }
+
+        // Without interning, every record would hold its own copy of each value
+        assertEquals(HOME_ACCOUNT_COUNT, homeAccountIds.size());
+        assertEquals(1, environments.size());
+        assertEquals(1, clientIds.size());
+        assertEquals(RECORD_COUNT, secrets.size());
+    }
+
+    @Test
+    public void internsConcurrently() throws InterruptedException {
+        final StringInterner interner = new StringInterner(64);
+        final String[] canonical = new String[HOME_ACCOUNT_COUNT];
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Thread[] threads = new Thread[4];
+
+        for (int i = 0; i < HOME_ACCOUNT_COUNT; i++) {
+            canonical[i] = interner.intern(homeAccountId(i));
+        }
+
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < RECORD_COUNT; i++) {
+                            final int index = i % HOME_ACCOUNT_COUNT;
+                            assertSame(canonical[index], interner.intern(homeAccountId(index)));
+                        }
+                    } catch (final Throwable throwable) {
+                        failure.compareAndSet(null, throwable);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure.get());
+        assertEquals(HOME_ACCOUNT_COUNT, interner.size());
+    }
+
+    private static Set<String> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<String, Boolean>());
+    }
+
+    private static String homeAccountId(final int index) {
+        return "home-" + (index % HOME_ACCOUNT_COUNT) + "." + REALM;
+    }
+
+    private static AccessTokenRecord newAccessToken(final int index) {
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setHomeAccountId(homeAccountId(index));
+        accessToken.setEnvironment(ENVIRONMENT);
+        accessToken.setCredentialType(CredentialType.AccessToken.name());
+        accessToken.setClientId(CLIENT_ID);
+        accessToken.setRealm(REALM);
+        accessToken.setTarget("user.read");
+        accessToken.setCachedAt("0");
+        accessToken.setExpiresOn("1");
+        accessToken.setSecret("secret-" + index);
+        return accessToken;
+    }
+}
@@ -0,0 +1,199 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate;
+import com.microsoft.identity.common.internal.cache.MicrosoftStsAccountCredentialAdapter;
+import com.microsoft.identity.common.internal.cache.MsalOAuth2TokenCache;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesAccountCredentialCache;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.cache.TokenCacheStats;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+public class TokenCacheStatsTest {
+
+    private static final String SHARED_PREFERENCES_FILE = "stats_test_cache";
+    private static final String HOME_ACCOUNT_ID = "29f3807a-4fb0-42f2-a44a-236aa0cb3f97.0287f963-2d72-4363-9e3a-5705c5b0f031";
+    private static final String ENVIRONMENT = "login.microsoftonline.com";
+    private static final String REALM = "3c62ac97-29eb-4aed-a3c8-add0298508d";
+    private static final String CLIENT_ID_1 = "0287f963-2d72-4363-9e3a-5705c5b0f031";
+    private static final String CLIENT_ID_2 = "b1c2d3e4-2d72-4363-9e3a-5705c5b0f031";
+    private static final String LIVE = String.valueOf(Long.MAX_VALUE / 1000);
+    private static final String EXPIRED = "1";
+
+    private CacheKeyValueDelegate mDelegate;
+    private SharedPreferencesFileManager mFileManager;
+    private SharedPreferencesAccountCredentialCache mAccountCredentialCache;
+
+    @Before
+    public void setUp() {
+        mDelegate = new CacheKeyValueDelegate();
+        mFileManager = new SharedPreferencesFileManager(
+                RuntimeEnvironment.application,
+                SHARED_PREFERENCES_FILE
+        );
+        mAccountCredentialCache = new SharedPreferencesAccountCredentialCache(mDelegate, mFileManager);
+    }
+
+    @After
+    public void tearDown() {
+        mFileManager.clear();
+    }
+
+    @Test
+    public void emptyCache() {
+        final TokenCacheStats stats = newTokenCache().getStats();
+
+        assertEquals(0, stats.getAccounts());
+        assertEquals(0, stats.getCredentials().getAccessTokens());
+        assertEquals(0, stats.getUnreadableEntries());
+        assertTrue(stats.getCredentialsByClientId().isEmpty());
+        assertTrue(stats.getFileSizes().containsKey(SHARED_PREFERENCES_FILE));
+    }
+
+    @Test
+    public void credentialsAreCountedByTypeAndClient() {
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId(HOME_ACCOUNT_ID);
+        account.setEnvironment(ENVIRONMENT);
+        account.setRealm(REALM);
+        account.setLocalAccountId("local");
+        account.setUsername("user@contoso.com");
+        account.setAuthorityType("MSSTS");
+        mAccountCredentialCache.saveAccount(account);
+
+        mAccountCredentialCache.saveCredential(newAccessToken(CLIENT_ID_1, "user.read", LIVE));
+        mAccountCredentialCache.saveCredential(newAccessToken(CLIENT_ID_1, "mail.read", EXPIRED));
+        mAccountCredentialCache.saveCredential(newAccessToken(CLIENT_ID_2, "user.read", EXPIRED));
+        mAccountCredentialCache.saveCredential(newRefreshToken(CLIENT_ID_2));
+
+        final TokenCacheStats stats = newTokenCache().getStats();
+
+        assertEquals(1, stats.getAccounts());
+        assertEquals(3, stats.getCredentials().getAccessTokens());
+        assertEquals(2, stats.getCredentials().getExpiredAccessTokens());
+        assertEquals(1, stats.getCredentials().getLiveAccessTokens());
+        assertEquals(1, stats.getCredentials().getRefreshTokens());
+        assertEquals(0, stats.getCredentials().getIdTokens());
+
+        final TokenCacheStats.CredentialCounts client1 = stats.getCredentialsByClientId().get(CLIENT_ID_1);
+        assertEquals(2, client1.getAccessTokens());
+        assertEquals(1, client1.getExpiredAccessTokens());
+        assertEquals(0, client1.getRefreshTokens());
+
+        final TokenCacheStats.CredentialCounts client2 = stats.getCredentialsByClientId().get(CLIENT_ID_2);
+        assertEquals(1, client2.getAccessTokens());
+        assertEquals(1, client2.getRefreshTokens());
+    }
+
+    @Test
+    public void unreadableEntriesAreCounted() {
+        mAccountCredentialCache.saveCredential(newAccessToken(CLIENT_ID_1, "user.read", LIVE));
+        mFileManager.putString(
+                mDelegate.generateCacheKey(newAccessToken(CLIENT_ID_1, "mail.read", LIVE)),
+                "{not json"
+        );
+
+        final TokenCacheStats stats = newTokenCache().getStats();
+
+        assertEquals(1, stats.getCredentials().getAccessTokens());
+        assertEquals(1, stats.getUnreadableEntries());
+    }
+
+    @Test
+    public void statsOfSeveralFilesCombine() {
+        mAccountCredentialCache.saveCredential(newAccessToken(CLIENT_ID_1, "user.read", LIVE));
+        final TokenCacheStats first = newTokenCache().getStats();
+
+        final SharedPreferencesFileManager otherFileManager = new SharedPreferencesFileManager(
+                RuntimeEnvironment.application,
+                SHARED_PREFERENCES_FILE + ".other"
+        );
+        try {
+            final SharedPreferencesAccountCredentialCache otherCache =
+                    new SharedPreferencesAccountCredentialCache(mDelegate, otherFileManager);
+            otherCache.saveCredential(newAccessToken(CLIENT_ID_1, "mail.read", EXPIRED));
+            otherCache.saveCredential(newRefreshToken(CLIENT_ID_1));
+
+            final TokenCacheStats combined = first.plus(otherCache.getStats());
+
+            assertEquals(2, combined.getFileSizes().size());
+            assertEquals(2, combined.getCredentials().getAccessTokens());
+            assertEquals(1, combined.getCredentials().getExpiredAccessTokens());
+            assertEquals(1, combined.getCredentialsByClientId().size());
+            assertEquals(1, combined.getCredentialsByClientId().get(CLIENT_ID_1).getRefreshTokens());
+        } finally {
+            otherFileManager.clear();
+        }
+    }
+
+    private MsalOAuth2TokenCache newTokenCache() {
+        return new MsalOAuth2TokenCache<>(
+                RuntimeEnvironment.application,
+                mAccountCredentialCache,
+                new MicrosoftStsAccountCredentialAdapter()
+        );
+    }
+
+    private static AccessTokenRecord newAccessToken(final String clientId,
+                                                    final String target,
+                                                    final String expiresOn) {
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setHomeAccountId(HOME_ACCOUNT_ID);
+        accessToken.setEnvironment(ENVIRONMENT);
+        accessToken.setCredentialType(CredentialType.AccessToken.name());
+        accessToken.setClientId(clientId);
+        accessToken.setRealm(REALM);
+        accessToken.setTarget(target);
+        accessToken.setCachedAt("0");
+        accessToken.setExpiresOn(expiresOn);
+        accessToken.setSecret("secret");
+        return accessToken;
+    }
+
+    private static RefreshTokenRecord newRefreshToken(final String clientId) {
+        final RefreshTokenRecord refreshToken = new RefreshTokenRecord();
+        refreshToken.setHomeAccountId(HOME_ACCOUNT_ID);
+        refreshToken.setEnvironment(ENVIRONMENT);
+        refreshToken.setCredentialType(CredentialType.RefreshToken.name());
+        refreshToken.setClientId(clientId);
+        refreshToken.setSecret("secret");
+        return refreshToken;
+    }
+}